@@ -0,0 +1,2384 @@
+package com.lethe_river.jsa;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeMemberDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.ArrayAccess;
+import org.eclipse.jdt.core.dom.ArrayCreation;
+import org.eclipse.jdt.core.dom.ArrayInitializer;
+import org.eclipse.jdt.core.dom.ArrayType;
+import org.eclipse.jdt.core.dom.AssertStatement;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BlockComment;
+import org.eclipse.jdt.core.dom.BooleanLiteral;
+import org.eclipse.jdt.core.dom.BreakStatement;
+import org.eclipse.jdt.core.dom.CastExpression;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.CharacterLiteral;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ConditionalExpression;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.ContinueStatement;
+import org.eclipse.jdt.core.dom.CreationReference;
+import org.eclipse.jdt.core.dom.Dimension;
+import org.eclipse.jdt.core.dom.DoStatement;
+import org.eclipse.jdt.core.dom.EmptyStatement;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.ExportsDirective;
+import org.eclipse.jdt.core.dom.ExpressionMethodReference;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.InstanceofExpression;
+import org.eclipse.jdt.core.dom.IntersectionType;
+import org.eclipse.jdt.core.dom.Javadoc;
+import org.eclipse.jdt.core.dom.LabeledStatement;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.LineComment;
+import org.eclipse.jdt.core.dom.MarkerAnnotation;
+import org.eclipse.jdt.core.dom.MemberRef;
+import org.eclipse.jdt.core.dom.MemberValuePair;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.MethodRef;
+import org.eclipse.jdt.core.dom.MethodRefParameter;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.ModuleDeclaration;
+import org.eclipse.jdt.core.dom.ModuleModifier;
+import org.eclipse.jdt.core.dom.NameQualifiedType;
+import org.eclipse.jdt.core.dom.NormalAnnotation;
+import org.eclipse.jdt.core.dom.NullLiteral;
+import org.eclipse.jdt.core.dom.NumberLiteral;
+import org.eclipse.jdt.core.dom.OpensDirective;
+import org.eclipse.jdt.core.dom.PackageDeclaration;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.PrimitiveType;
+import org.eclipse.jdt.core.dom.ProvidesDirective;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.QualifiedType;
+import org.eclipse.jdt.core.dom.RequiresDirective;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleMemberAnnotation;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.eclipse.jdt.core.dom.SuperFieldAccess;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.SuperMethodReference;
+import org.eclipse.jdt.core.dom.SwitchCase;
+import org.eclipse.jdt.core.dom.SwitchStatement;
+import org.eclipse.jdt.core.dom.SynchronizedStatement;
+import org.eclipse.jdt.core.dom.TagElement;
+import org.eclipse.jdt.core.dom.TextElement;
+import org.eclipse.jdt.core.dom.ThisExpression;
+import org.eclipse.jdt.core.dom.ThrowStatement;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
+import org.eclipse.jdt.core.dom.TypeLiteral;
+import org.eclipse.jdt.core.dom.TypeMethodReference;
+import org.eclipse.jdt.core.dom.TypeParameter;
+import org.eclipse.jdt.core.dom.UnionType;
+import org.eclipse.jdt.core.dom.UsesDirective;
+import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+import org.eclipse.jdt.core.dom.WhileStatement;
+import org.eclipse.jdt.core.dom.WildcardType;
+
+/**
+ * 複数のVisitorを1回の走査で実行する．
+ * 各ノードは登録された全てのVisitorに順に渡される．
+ * Visitorごとに子ノードを訪問するかどうかをビットマスクで管理し，
+ * 部分木は全てのVisitorが訪問を拒否した場合にだけ読み飛ばす．
+ * あるノードの{@code visit}を呼び出したVisitorには，戻り値によらず同じノードの{@code endVisit}を呼び出す．
+ * 登録できるVisitorは{@value #MAX_VISITORS}個までである．
+ * スレッドセーフではない．
+ */
+public class CompositeVisitor extends ASTVisitor {
+
+	public static final int MAX_VISITORS = Long.SIZE;
+
+	private final ASTVisitor[] visitors;
+
+	// 現在のノードを訪問するVisitorの集合
+	private long active;
+
+	// visitで退避した親ノードのマスク
+	private long[] visitStack = new long[64];
+	private int visitDepth = 0;
+
+	// preVisit2で退避した元のマスク
+	private long[] preStack = new long[64];
+	private int preDepth = 0;
+
+	public CompositeVisitor(ASTVisitor... visitors) {
+		this(Arrays.asList(visitors));
+	}
+
+	public CompositeVisitor(List<? extends ASTVisitor> visitors) {
+		// Javadocタグを訪問するかどうかは子のvisit(Javadoc)に委ねる
+		super(true);
+		if(visitors.size() > MAX_VISITORS) {
+			throw new IllegalArgumentException("too many visitors: " + visitors.size());
+		}
+		this.visitors = visitors.toArray(new ASTVisitor[visitors.size()]);
+		this.active = visitors.size() == MAX_VISITORS ? -1L : (1L << visitors.size()) - 1;
+	}
+
+	public List<ASTVisitor> getVisitors() {
+		return List.of(visitors);
+	}
+
+	/**
+	 * 全ての子がメソッド本体に立ち入らないVisitorであるかどうかを返す．
+	 * @return 全ての子が{@link SignatureVisitor}を実装していればtrue
+	 */
+	public boolean isSignatureVisitor() {
+		for(ASTVisitor visitor : visitors) {
+			if(!(visitor instanceof SignatureVisitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean enter(long next) {
+		if(visitDepth == visitStack.length) {
+			visitStack = Arrays.copyOf(visitStack, visitDepth * 2);
+		}
+		visitStack[visitDepth++] = active;
+		active = next;
+		return next != 0;
+	}
+
+	private long exit() {
+		active = visitStack[--visitDepth];
+		return active;
+	}
+
+	@Override
+	public boolean preVisit2(ASTNode node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].preVisit2(node)) {
+				next |= 1L << i;
+			}
+		}
+		if(preDepth == preStack.length) {
+			preStack = Arrays.copyOf(preStack, preDepth * 2);
+		}
+		preStack[preDepth++] = mask;
+		active = next;
+		return next != 0;
+	}
+
+	@Override
+	public void postVisit(ASTNode node) {
+		long mask = preStack[--preDepth];
+		active = mask;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].postVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(AnnotationTypeDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(AnnotationTypeDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(AnnotationTypeMemberDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(AnnotationTypeMemberDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(AnonymousClassDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(AnonymousClassDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ArrayAccess node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ArrayAccess node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ArrayCreation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ArrayCreation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ArrayInitializer node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ArrayInitializer node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ArrayType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ArrayType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(AssertStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(AssertStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(Assignment node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(Assignment node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(Block node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(Block node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(BlockComment node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(BlockComment node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(BooleanLiteral node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(BooleanLiteral node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(BreakStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(BreakStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(CastExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(CastExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(CatchClause node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(CatchClause node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(CharacterLiteral node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(CharacterLiteral node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ClassInstanceCreation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ClassInstanceCreation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(CompilationUnit node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(CompilationUnit node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ConditionalExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ConditionalExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ConstructorInvocation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ConstructorInvocation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ContinueStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ContinueStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(CreationReference node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(CreationReference node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(Dimension node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(Dimension node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(DoStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(DoStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(EmptyStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(EmptyStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(EnhancedForStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(EnhancedForStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(EnumConstantDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(EnumConstantDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(EnumDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(EnumDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ExportsDirective node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ExportsDirective node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ExpressionMethodReference node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ExpressionMethodReference node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ExpressionStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ExpressionStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(FieldAccess node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(FieldAccess node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(FieldDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(FieldDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ForStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ForStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(IfStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(IfStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ImportDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ImportDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(InfixExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(InfixExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(Initializer node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(Initializer node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(InstanceofExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(InstanceofExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(IntersectionType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(IntersectionType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(Javadoc node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(Javadoc node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(LabeledStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(LabeledStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(LambdaExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(LambdaExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(LineComment node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(LineComment node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MarkerAnnotation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MarkerAnnotation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MemberRef node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MemberRef node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MemberValuePair node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MemberValuePair node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MethodDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MethodDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MethodInvocation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MethodInvocation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MethodRef node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MethodRef node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(MethodRefParameter node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(MethodRefParameter node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(Modifier node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(Modifier node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ModuleDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ModuleDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ModuleModifier node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ModuleModifier node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(NameQualifiedType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(NameQualifiedType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(NormalAnnotation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(NormalAnnotation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(NullLiteral node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(NullLiteral node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(NumberLiteral node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(NumberLiteral node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(OpensDirective node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(OpensDirective node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(PackageDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(PackageDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ParameterizedType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ParameterizedType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ParenthesizedExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ParenthesizedExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(PostfixExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(PostfixExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(PrefixExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(PrefixExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(PrimitiveType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(PrimitiveType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ProvidesDirective node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ProvidesDirective node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(QualifiedName node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(QualifiedName node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(QualifiedType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(QualifiedType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(RequiresDirective node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(RequiresDirective node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ReturnStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ReturnStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SimpleName node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SimpleName node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SimpleType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SimpleType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SingleMemberAnnotation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SingleMemberAnnotation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SingleVariableDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SingleVariableDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(StringLiteral node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(StringLiteral node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SuperConstructorInvocation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SuperConstructorInvocation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SuperFieldAccess node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SuperFieldAccess node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SuperMethodInvocation node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SuperMethodInvocation node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SuperMethodReference node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SuperMethodReference node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SwitchCase node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SwitchCase node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SwitchStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SwitchStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(SynchronizedStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(SynchronizedStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TagElement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TagElement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TextElement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TextElement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ThisExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ThisExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(ThrowStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(ThrowStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TryStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TryStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TypeDeclaration node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TypeDeclaration node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TypeDeclarationStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TypeDeclarationStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TypeLiteral node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TypeLiteral node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TypeMethodReference node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TypeMethodReference node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(TypeParameter node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(TypeParameter node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(UnionType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(UnionType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(UsesDirective node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(UsesDirective node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(VariableDeclarationExpression node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(VariableDeclarationExpression node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(VariableDeclarationFragment node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(VariableDeclarationFragment node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(VariableDeclarationStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(VariableDeclarationStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(WhileStatement node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(WhileStatement node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+
+	@Override
+	public boolean visit(WildcardType node) {
+		long mask = active;
+		long next = 0;
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0 && visitors[i].visit(node)) {
+				next |= 1L << i;
+			}
+		}
+		return enter(next);
+	}
+
+	@Override
+	public void endVisit(WildcardType node) {
+		long mask = exit();
+		for(int i = 0; i < visitors.length; i++) {
+			if((mask & (1L << i)) != 0) {
+				visitors[i].endVisit(node);
+			}
+		}
+	}
+}
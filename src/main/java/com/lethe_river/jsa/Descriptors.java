@@ -0,0 +1,89 @@
+package com.lethe_river.jsa;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+/**
+ * メソッドの束縛から{@link MethodDeclVisitor}と同じ形式の名前と記述子を作る．
+ * 型ごとの記述子を覚えておくため，Visitorごとに1つ作って使い回す．
+ * スレッドセーフではない．
+ */
+public final class Descriptors {
+
+	// 記述子の組み立てに使い回すバッファと，型の束縛のキーから記述子への対応
+	private final StringBuilder descriptorBuffer = new StringBuilder();
+	private final Map<String, String> typeDescriptors = new HashMap<>();
+
+	/**
+	 * メソッドを一意に表す{@code 宣言している型#名前(引数)戻り値}の形式の文字列を返す．
+	 * {@link com.lethe_river.jsa.sink.MethodRecord#toString()}と同じ形式である．
+	 * 型引数を与えられたメソッドは元の宣言に読み替える．
+	 *
+	 * @param method メソッドの束縛
+	 * @return メソッドのキー．宣言している型の名前が得られない場合はnull
+	 */
+	public String getKey(IMethodBinding method) {
+		IMethodBinding declaration = method.getMethodDeclaration();
+		String declaringType = getDeclaringType(declaration);
+		if(declaringType == null) {
+			return null;
+		}
+		return declaringType + "#" + getMethodName(declaration) + getDescriptor(declaration);
+	}
+
+	/**
+	 * @param method メソッドの束縛
+	 * @return 宣言している型のバイナリ名．得られない場合はnull
+	 */
+	public static String getDeclaringType(IMethodBinding method) {
+		ITypeBinding type = method.getDeclaringClass();
+		return type == null ? null : type.getErasure().getBinaryName();
+	}
+
+	/**
+	 * @param method メソッドの束縛
+	 * @return メソッド名．コンストラクタの場合は{@code <init>}
+	 */
+	public static String getMethodName(IMethodBinding method) {
+		return method.isConstructor() ? "<init>" : method.getName();
+	}
+
+	/**
+	 * @param method メソッドの束縛
+	 * @return 引数と戻り値の記述子．例えば{@code (ILjava.lang.String;)V}
+	 */
+	public String getDescriptor(IMethodBinding method) {
+		StringBuilder descriptor = descriptorBuffer;
+		descriptor.setLength(0);
+		descriptor.append('(');
+		for(ITypeBinding paramTy : method.getParameterTypes()) {
+			descriptor.append(getTypeDescriptor(paramTy));
+		}
+		descriptor.append(')');
+		descriptor.append(getTypeDescriptor(method.getReturnType()));
+		return descriptor.toString();
+	}
+
+	// 同じ型は多くのメソッドに現れるので，束縛のキーごとに変換結果を覚えておく
+	private String getTypeDescriptor(ITypeBinding ty) {
+		String key = ty.getKey();
+		if(key == null) {
+			return getBinaryName(ty);
+		}
+		String descriptor = typeDescriptors.get(key);
+		if(descriptor == null) {
+			descriptor = getBinaryName(ty);
+			typeDescriptors.put(key, descriptor);
+		}
+		return descriptor;
+	}
+
+	// メソッドの引数と戻り値はこうしないと変換できない
+	private static String getBinaryName(ITypeBinding ty) {
+		String tyName = ty.getBinaryName();
+		return ty.isPrimitive() ? tyName : "L" + tyName + ";";
+	}
+}
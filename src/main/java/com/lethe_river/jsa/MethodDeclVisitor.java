@@ -1,33 +1,128 @@
 package com.lethe_river.jsa;
 import java.util.ArrayDeque;
-import java.util.Arrays;
 import java.util.Deque;
-import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.EnumDeclaration;
 import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
+import com.lethe_river.jsa.cache.CacheableAnalysis;
+import com.lethe_river.jsa.instrument.MethodDeclEvent;
+import com.lethe_river.jsa.metrics.Counter;
+import com.lethe_river.jsa.metrics.MetricsRegistry;
+import com.lethe_river.jsa.sink.MethodRecord;
+import com.lethe_river.jsa.sink.MethodSink;
+import com.lethe_river.jsa.sink.PrintStreamSink;
 import com.lethe_river.jsa.util.LoggerUtil;
 
-public class MethodDeclVisitor extends ASTVisitor {
+public class MethodDeclVisitor extends ASTVisitor implements SignatureVisitor {
 	private static Logger logger = LoggerUtil.getLogger(MethodDeclVisitor.class);
 
 	private Deque<String> typeStack = new ArrayDeque<>();
 
+	private final MethodSink sink;
+
+	// 記録先を指定しない場合はnull
+	private final Counter methodsEmitted;
+	private final Counter unresolvedTypes;
+	private final Counter unresolvedMethods;
+
+	private final Descriptors descriptors = new Descriptors();
+
+	private String sourceFile;
+	private CompilationUnit compilationUnit;
+	private MethodDeclEvent event;
+
+	public MethodDeclVisitor() {
+		this(new PrintStreamSink(System.out));
+	}
+
+	public MethodDeclVisitor(MethodSink sink) {
+		this(sink, null);
+	}
+
+	/**
+	 * @param sink メソッドの出力先
+	 * @param registry 出力したメソッドと解決できなかった宣言の数の記録先．記録しない場合はnull
+	 */
+	public MethodDeclVisitor(MethodSink sink, MetricsRegistry registry) {
+		this.sink = sink;
+		if(registry == null) {
+			methodsEmitted = unresolvedTypes = unresolvedMethods = null;
+		} else {
+			methodsEmitted = registry.counter("jsa_methods_emitted_total", "methods emitted by MethodDeclVisitor");
+			unresolvedTypes = registry.counter("jsa_unresolved_type_bindings_total", "type declarations whose binding could not be resolved");
+			unresolvedMethods = registry.counter("jsa_unresolved_method_bindings_total", "method declarations whose binding could not be resolved");
+		}
+	}
+
+	/**
+	 * メソッドの一覧をファイルごとにキャッシュ可能な解析として返す．
+	 *
+	 * @return メソッドの一覧を出力する解析
+	 */
+	public static CacheableAnalysis<MethodRecord> analysis() {
+		return new CacheableAnalysis<MethodRecord>() {
+			@Override
+			public String getName() {
+				return MethodDeclVisitor.class.getName() + "/3";
+			}
+
+			@Override
+			public ASTVisitor createVisitor(Consumer<? super MethodRecord> emitter) {
+				return new MethodDeclVisitor(emitter::accept);
+			}
+		};
+	}
+
+	@Override
+	public boolean visit(CompilationUnit node) {
+		compilationUnit = node;
+		sourceFile = (String) node.getProperty(SourceProcessor.SOURCE_FILE_PROPERTY);
+		event = new MethodDeclEvent();
+		event.begin();
+		return super.visit(node);
+	}
+
+	@Override
+	public void endVisit(CompilationUnit node) {
+		event.end();
+		if(event.shouldCommit()) {
+			event.path = sourceFile;
+			event.commit();
+		}
+		event = null;
+		compilationUnit = null;
+		sourceFile = null;
+	}
+
 	@Override
 	public boolean visit(MethodDeclaration node) {
 		try {
-			System.out.println(getMethodName(node));
+			sink.accept(getMethodRecord(node));
+			if(methodsEmitted != null) {
+				methodsEmitted.increment();
+			}
+			if(event != null) {
+				event.methods++;
+			}
 		} catch(MethodDeclBindingException e) {
+			if(unresolvedMethods != null) {
+				unresolvedMethods.increment();
+			}
+			if(event != null) {
+				event.unresolved++;
+			}
 			logger.warning("binding cannot be resolved. " + typeStack.peek() + "#" + node.getName());
 		}
+		// 本体の中のローカルクラスと匿名クラスも辿る
 		return super.visit(node);
 	}
 
@@ -37,6 +132,9 @@ public class MethodDeclVisitor extends ASTVisitor {
 			typeStack.push(getQualifiedName(node));
 		} catch(TypeDeclBindingException e) {
 			typeStack.push("UNRESOLVED");
+			if(unresolvedTypes != null) {
+				unresolvedTypes.increment();
+			}
 			logger.warning("binding cannot be resolved. "+e.getMessage());
 		}
 	}
@@ -76,28 +174,23 @@ public class MethodDeclVisitor extends ASTVisitor {
 		return name;
 	}
 
-	private String getMethodName(MethodDeclaration decl) {
+	private MethodRecord getMethodRecord(MethodDeclaration decl) {
 		IMethodBinding method = decl.resolveBinding();
 
 		if(method == null) {
 			throw new MethodDeclBindingException(decl);
 		}
 
-		String name = method.isConstructor() ? "<init>" : method.getName();
-
-		List<String> paramTys =
-				Arrays.stream(method.getParameterTypes())
-						.map(this::getBinaryName)
-						.collect(Collectors.toList());
-
-		String retTy = getBinaryName(method.getReturnType());
+		String declaringType = method.getDeclaringClass().getErasure().getBinaryName();
+		if(declaringType == null) {
+			declaringType = typeStack.peek();
+		}
+		int line = compilationUnit == null ? -1 : compilationUnit.getLineNumber(decl.getName().getStartPosition());
 
-		return name + "(" + paramTys.stream().collect(Collectors.joining("")) + ")" + retTy;
+		return new MethodRecord(declaringType, Descriptors.getMethodName(method), getDescriptor(method), sourceFile, line);
 	}
 
-	// メソッドの引数と戻り値はこうしないと変換できない
-	private String getBinaryName(ITypeBinding ty) {
-		String tyName = ty.getBinaryName();
-		return ty.isPrimitive() ? tyName : "L" + tyName + ";";
+	String getDescriptor(IMethodBinding method) {
+		return descriptors.getDescriptor(method);
 	}
 }
@@ -0,0 +1,9 @@
+package com.lethe_river.jsa;
+
+/**
+ * メソッドの本体がなくても宣言から結果を得られるVisitorであることを表す．
+ * このインタフェースを実装したVisitorは，メソッド本体を読み飛ばすモードの{@link SourceProcessor}で使用できる．
+ * そのモードではメソッド本体の中で宣言されたローカルクラス，匿名クラスは構文木に現れない．
+ */
+public interface SignatureVisitor {
+}
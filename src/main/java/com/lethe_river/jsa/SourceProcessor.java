@@ -1,12 +1,26 @@
 package com.lethe_river.jsa;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.core.dom.AST;
@@ -15,15 +29,48 @@ import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FileASTRequestor;
 
+import com.lethe_river.jsa.cache.AnalysisCache;
+import com.lethe_river.jsa.cache.CacheableAnalysis;
+import com.lethe_river.jsa.cache.DependencyCollector;
+import com.lethe_river.jsa.instrument.FileParseEvent;
+import com.lethe_river.jsa.instrument.ProcessListener;
+import com.lethe_river.jsa.instrument.UnresolvedBindingCounter;
+import com.lethe_river.jsa.instrument.VisitorEvent;
+import com.lethe_river.jsa.library.ClassIndex;
+import com.lethe_river.jsa.util.FileFinder;
 import com.lethe_river.jsa.util.LoggerUtil;
 
 public class SourceProcessor {
 
 	static final Logger logger = LoggerUtil.getLogger(SourceProcessor.class);
 
+	/**
+	 * CompilationUnitにソースファイルのパスを保持させるプロパティ名
+	 */
+	public static final String SOURCE_FILE_PROPERTY = SourceProcessor.class.getName() + ".sourceFile";
+
 	private final List<Path> sourceDirectories;
 	private final List<Path> libraryDirectories;
 
+	// 束縛を解決したASTが使うヒープの，ソース1バイトあたりの概算
+	static final long HEAP_PER_SOURCE_BYTE = 200;
+
+	private int parallelism = 1;
+	private boolean signaturesOnly = false;
+	private long heapBudget = 0;
+
+	private final List<ProcessListener> listeners = new CopyOnWriteArrayList<>();
+
+	private List<String> sourceExcludes = FileFinder.DEFAULT_EXCLUDES;
+	private FileFinder sourceFinder = new FileFinder(".java", sourceExcludes);
+	// ライブラリはビルドの出力先に置かれることもあるので除外しない
+	private FileFinder libraryFinder = new FileFinder(".jar", List.of());
+	private Path discoveryCacheDirectory = null;
+
+	private Path libraryIndexFile = null;
+	private boolean pruneLibraries = false;
+	private ClassIndex classIndex = null;
+
 	public SourceProcessor(List<String> sourceDirectories, List<String> libraryDirectories) {
 
 		logger.fine("sourceDirectories:" + sourceDirectories);
@@ -39,39 +86,347 @@ public class SourceProcessor {
 				.collect(Collectors.toList());
 	}
 
+	public List<Path> getSourceDirectories() {
+		return Collections.unmodifiableList(sourceDirectories);
+	}
+
+	public List<Path> getLibraryDirectories() {
+		return Collections.unmodifiableList(libraryDirectories);
+	}
+
+	/**
+	 * 並列に解析するスレッド数を設定する．
+	 * ソースはスレッド数のシャードに分割され，シャードごとに独立したASTParserで解析される．
+	 *
+	 * @param parallelism スレッド数(1以上)
+	 * @exception IllegalArgumentException parallelismが1未満の場合
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("parallelism: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * 解析に使うヒープの上限の目安を設定する．
+	 * 設定すると，ソースは推定ヒープ使用量がこの値をスレッド数で割った値に収まるバッチに分けられ，
+	 * バッチごとに新しいASTParserで解析される．バッチの間でASTと束縛は解放されるため，
+	 * ソースの木が大きくなってもヒープの最大使用量はほぼ一定になる．
+	 * バッチをまたいで残す状態は，Visitorの生成関数が共有するオブジェクトに持たせること．
+	 *
+	 * @param bytes ヒープの上限の目安(バイト)．0以下の場合はバッチに分けない
+	 */
+	public void setHeapBudget(long bytes) {
+		this.heapBudget = bytes;
+	}
+
+	public long getHeapBudget() {
+		return heapBudget;
+	}
+
+	/**
+	 * メソッド本体を読み飛ばして宣言だけを解析するかを設定する．
+	 * 有効にした場合，使用するVisitorは{@link SignatureVisitor}を実装していなければならない．
+	 * メソッド本体の中のローカルクラスと匿名クラスは解析されない．
+	 *
+	 * @param signaturesOnly 宣言だけを解析する場合はtrue
+	 */
+	public void setSignaturesOnly(boolean signaturesOnly) {
+		this.signaturesOnly = signaturesOnly;
+	}
+
+	public boolean isSignaturesOnly() {
+		return signaturesOnly;
+	}
+
+	/**
+	 * ソースを探すときに除外するディレクトリを設定する．標準は{@link FileFinder#DEFAULT_EXCLUDES}．
+	 * ライブラリのディレクトリには適用しない．
+	 * パターンの形式は{@link FileFinder#FileFinder(String, List)}を参照．
+	 *
+	 * @param excludes 除外するディレクトリのglobパターン
+	 */
+	public void setSourceExcludes(List<String> excludes) {
+		sourceExcludes = List.copyOf(excludes);
+		sourceFinder = new FileFinder(".java", sourceExcludes);
+		loadDiscoveryCache();
+	}
+
+	public List<String> getSourceExcludes() {
+		return sourceExcludes;
+	}
+
+	/**
+	 * ディレクトリの一覧のキャッシュを保存するディレクトリを設定する．
+	 * 設定すると，実行をまたいで変化のないディレクトリの読み直しを省略する．
+	 *
+	 * @param directory キャッシュを保存するディレクトリ．nullの場合は保存しない
+	 */
+	public void setDiscoveryCacheDirectory(Path directory) {
+		this.discoveryCacheDirectory = directory;
+		loadDiscoveryCache();
+	}
+
+	private void loadDiscoveryCache() {
+		if(discoveryCacheDirectory != null) {
+			sourceFinder.load(discoveryCacheDirectory.resolve("sources.idx"));
+			libraryFinder.load(discoveryCacheDirectory.resolve("libraries.idx"));
+		}
+	}
+
+	/**
+	 * ライブラリのクラスの索引を保存するファイルを設定する．
+	 * 索引は解析のたびに変化したjarだけ更新される．
+	 * 索引を使ってソースから参照されないjarをクラスパスから除くこともできる．
+	 *
+	 * @param indexFile 索引ファイル．nullの場合は索引を使わない
+	 * @param prune 参照されないjarを除く場合はtrue
+	 * @see ClassIndex#prune(String[])
+	 */
+	public void setLibraryIndex(Path indexFile, boolean prune) {
+		this.libraryIndexFile = indexFile;
+		this.pruneLibraries = prune;
+		this.classIndex = null;
+	}
+
+	/**
+	 * 最後に更新したライブラリのクラスの索引を返す．
+	 *
+	 * @return 索引．まだ作られていない場合はnull
+	 */
+	public ClassIndex getClassIndex() {
+		return classIndex;
+	}
+
+	/**
+	 * 解析の経過を受け取るリスナーを追加する．
+	 *
+	 * @param listener 追加するリスナー
+	 */
+	public void addListener(ProcessListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ProcessListener listener) {
+		listeners.remove(listener);
+	}
+
 	public void processSources(ASTVisitor visitor) {
+		checkVisitor(visitor);
+		long start = System.nanoTime();
+		Inputs inputs = discover();
+		List<String[]> batches = heapBudget > 0
+				? batch(inputs.sources, heapBudget)
+				: List.<String[]>of(inputs.sources);
+		for(String[] batch : batches) {
+			parse(batch, inputs.libraries, (path, ast) -> accept(path, ast, visitor));
+		}
+		listeners.forEach(l -> l.runFinished(System.nanoTime() - start));
+	}
+
+	/**
+	 * ソースを解析し，シャードごとに生成したVisitorを適用する．
+	 * Visitorはシャード内でのみ使用されるため，スレッドセーフである必要はない．
+	 * ヒープの上限が設定されている場合はバッチごとにVisitorを生成する．
+	 *
+	 * @param visitorFactory シャードまたはバッチごとにVisitorを生成する関数
+	 */
+	public void processSources(Supplier<? extends ASTVisitor> visitorFactory) {
+		long start = System.nanoTime();
+		Inputs inputs = discover();
+		parseInShards(inputs.sources, inputs.libraries, () -> {
+			ASTVisitor visitor = checkVisitor(visitorFactory.get());
+			return (path, ast) -> accept(path, ast, visitor);
+		});
+		listeners.forEach(l -> l.runFinished(System.nanoTime() - start));
+	}
+
+	/**
+	 * キャッシュを利用してソースを解析する．
+	 * 内容が変化したファイルと，それらが宣言していた型を参照するファイルだけを再解析し，
+	 * 他のファイルはキャッシュされた結果を返す．
+	 * 再解析したファイルが新たに宣言した型を，解決できない名前として参照していたファイルも続けて再解析する．
+	 * クラスパスが変化した場合はキャッシュ全体を破棄する．
+	 *
+	 * @param analysis ファイルごとの結果を生成する解析
+	 * @param cache 解析結果のキャッシュ
+	 * @return ソースファイルのパスから解析結果へのマップ
+	 */
+	public <R extends Serializable> Map<String, List<R>> processSources(
+			CacheableAnalysis<R> analysis, AnalysisCache cache) {
+
+		long start = System.nanoTime();
+		Inputs inputs = discover();
+		String[] sources = inputs.sources;
+		String[] libraries = inputs.libraries;
+
+		cache.validate(AnalysisCache.fingerprint(libraries, analysis.getName()));
+
+		Map<String, String> hashes = new LinkedHashMap<>();
+		for(String source : sources) {
+			hashes.put(source, AnalysisCache.hash(Paths.get(source)));
+		}
+		Set<String> knownTypes = cache.getDeclaredTypes();
+		String[] dirty = cache.invalidate(hashes);
+		Set<String> analyzed = new HashSet<>();
+		while(dirty.length > 0) {
+			logger.fine("reanalyze: " + dirty.length + "/" + sources.length);
+			parseInShards(dirty, libraries, () -> (path, ast) -> {
+				List<R> results = new ArrayList<>();
+				DependencyCollector dependencies = new DependencyCollector();
+				accept(path, ast, dependencies);
+				accept(path, ast, checkVisitor(analysis.createVisitor(results::add)));
+				cache.put(path, hashes.get(path), dependencies, results);
+			});
+			analyzed.addAll(Arrays.asList(dirty));
+			dirty = cache.invalidateUnresolved(Arrays.asList(dirty), knownTypes, analyzed);
+		}
+		cache.save();
+
+		Map<String, List<R>> results = new LinkedHashMap<>();
+		for(String source : sources) {
+			results.put(source, cache.get(source));
+		}
+		listeners.forEach(l -> l.runFinished(System.nanoTime() - start));
+		return results;
+	}
+
+	private void parseInShards(
+			String[] sources,
+			String[] libraries,
+			Supplier<? extends BiConsumer<String, CompilationUnit>> consumerFactory) {
+
+		List<String[]> shards = heapBudget > 0
+				? batch(sources, heapBudget / parallelism)
+				: shard(sources, parallelism);
+		if(parallelism == 1 || shards.size() <= 1) {
+			for(String[] shard : shards) {
+				parse(shard, libraries, consumerFactory.get());
+			}
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, shards.size()));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for(String[] shard : shards) {
+				futures.add(executor.submit(() -> parse(shard, libraries, consumerFactory.get())));
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void parse(String[] sources, String[] libraries, BiConsumer<String, CompilationUnit> consumer) {
+		if(sources.length == 0) {
+			return;
+		}
+		ASTParser parser = newParser(libraries);
+
+		parser.createASTs(sources, null, new String[0], new FileASTRequestor() {
+			private long last = System.nanoTime();
+			private FileParseEvent event = beginParse();
 
+			@Override
+			public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+				long parsed = System.nanoTime();
+				event.end();
+				if(event.shouldCommit()) {
+					event.path = sourceFilePath;
+					event.size = sizeOf(sourceFilePath);
+					event.commit();
+				}
+				logger.fine("start: "+sourceFilePath);
+				if(!listeners.isEmpty()) {
+					long size = sizeOf(sourceFilePath);
+					listeners.forEach(l -> l.fileParsed(sourceFilePath, size, parsed - last));
+				}
+
+				ast.setProperty(SOURCE_FILE_PROPERTY, sourceFilePath);
+				consumer.accept(sourceFilePath, ast);
+
+				long visited = System.nanoTime();
+				logger.fine("end: "+sourceFilePath);
+				if(!listeners.isEmpty()) {
+					UnresolvedBindingCounter counter = new UnresolvedBindingCounter();
+					ast.accept(counter);
+					listeners.forEach(l -> l.fileVisited(sourceFilePath, visited - parsed, counter.getCount()));
+				}
+				last = System.nanoTime();
+				event = beginParse();
+			}
+		}, new NullProgressMonitor());
+	}
+
+	// 次のファイルの構文解析と束縛の解決は，前のファイルを受け取り終えたときに始まる
+	private static FileParseEvent beginParse() {
+		FileParseEvent event = new FileParseEvent();
+		event.begin();
+		return event;
+	}
+
+	private static void accept(String path, CompilationUnit ast, ASTVisitor visitor) {
+		VisitorEvent event = new VisitorEvent();
+		event.begin();
+		ast.accept(visitor);
+		event.end();
+		if(event.shouldCommit()) {
+			event.path = path;
+			event.size = sizeOf(path);
+			event.visitor = visitorName(visitor);
+			event.commit();
+		}
+	}
+
+	private static String visitorName(ASTVisitor visitor) {
+		if(visitor instanceof CompositeVisitor) {
+			return ((CompositeVisitor) visitor).getVisitors().stream()
+					.map(SourceProcessor::visitorName)
+					.collect(Collectors.joining(",", "[", "]"));
+		}
+		return visitor.getClass().getName();
+	}
+
+	private ASTVisitor checkVisitor(ASTVisitor visitor) {
+		if(signaturesOnly && !isSignatureVisitor(visitor)) {
+			throw new IllegalArgumentException(
+					"visitor must be a SignatureVisitor in signatures only mode: " + visitor.getClass().getName());
+		}
+		return visitor;
+	}
+
+	private static boolean isSignatureVisitor(ASTVisitor visitor) {
+		if(visitor instanceof CompositeVisitor) {
+			return ((CompositeVisitor) visitor).isSignatureVisitor();
+		}
+		return visitor instanceof SignatureVisitor;
+	}
+
+	private ASTParser newParser(String[] libraries) {
 		ASTParser parser = ASTParser.newParser(AST.JLS10);
 		parser.setResolveBindings(true);
 		parser.setBindingsRecovery(false);
-
-		String[] libraries = libraryDirectories
-				.stream()
-				.flatMap(base -> {
-					try {
-						return Files.find(base, 100, (p,a) -> !a.isDirectory());
-					} catch (IOException e) {
-						logger.warning(e.toString());
-						return Stream.empty();
-					}
-				})
-				.filter(path -> path.toFile().getName().endsWith(".jar"))
-				.map(Path::toString)
-				.toArray(String[]::new);
-
-		String[] sources = sourceDirectories
-				.stream()
-				.flatMap(base -> {
-					try {
-						return Files.find(base, 100, (p,a) -> !a.isDirectory());
-					} catch (IOException e) {
-						logger.warning(e.toString());
-						return Stream.empty();
-					}
-				})
-				.filter(path -> path.toFile().getName().endsWith(".java"))
-				.map(Path::toString)
-				.toArray(String[]::new);
+		parser.setIgnoreMethodBodies(signaturesOnly);
 
 		parser.setEnvironment(
 				libraries,
@@ -81,14 +436,114 @@ public class SourceProcessor {
 						.toArray(String[]::new),
 				null,
 				true);
+		return parser;
+	}
 
-		parser.createASTs(sources, null, new String[0], new FileASTRequestor() {
-			@Override
-			public void acceptAST(String sourceFilePath, CompilationUnit ast) {
-				logger.fine("start: "+sourceFilePath);
-				ast.accept(visitor);
-				logger.fine("end: "+sourceFilePath);
+	private Inputs discover() {
+		long start = System.nanoTime();
+		String[] sources = findSources();
+		String[] libraries = findLibraries();
+		if(discoveryCacheDirectory != null) {
+			sourceFinder.save(discoveryCacheDirectory.resolve("sources.idx"));
+			libraryFinder.save(discoveryCacheDirectory.resolve("libraries.idx"));
+		}
+		if(libraryIndexFile != null) {
+			classIndex = ClassIndex.update(libraryIndexFile, libraries);
+			if(pruneLibraries) {
+				libraries = classIndex.prune(sources);
 			}
-		}, new NullProgressMonitor());
+		}
+		Inputs inputs = new Inputs(sources, libraries);
+		long nanos = System.nanoTime() - start;
+		listeners.forEach(l -> l.discoveryFinished(inputs.sources.length, inputs.libraries.length, nanos));
+		return inputs;
+	}
+
+	private String[] findLibraries() {
+		return find(libraryFinder, libraryDirectories);
+	}
+
+	private String[] findSources() {
+		return find(sourceFinder, sourceDirectories);
+	}
+
+	private static String[] find(FileFinder finder, List<Path> directories) {
+		return finder.find(directories)
+				.stream()
+				.map(Path::toString)
+				.toArray(String[]::new);
+	}
+
+	// ファイルサイズの合計が均等になるよう，大きいファイルから順に最も軽いシャードへ割り当てる
+	static List<String[]> shard(String[] sources, int count) {
+		int shardCount = Math.max(1, Math.min(count, sources.length));
+
+		Integer[] order = new Integer[sources.length];
+		long[] sizes = new long[sources.length];
+		for(int i = 0; i < sources.length; i++) {
+			order[i] = i;
+			sizes[i] = sizeOf(sources[i]);
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(sizes[b], sizes[a]));
+
+		List<List<String>> shards = new ArrayList<>();
+		long[] weights = new long[shardCount];
+		for(int i = 0; i < shardCount; i++) {
+			shards.add(new ArrayList<>());
+		}
+		for(int i : order) {
+			int lightest = 0;
+			for(int j = 1; j < shardCount; j++) {
+				if(weights[j] < weights[lightest]) {
+					lightest = j;
+				}
+			}
+			shards.get(lightest).add(sources[i]);
+			weights[lightest] += sizes[i];
+		}
+
+		return shards.stream()
+				.filter(s -> !s.isEmpty())
+				.map(s -> s.toArray(new String[0]))
+				.collect(Collectors.toList());
+	}
+
+	// パスの順(パッケージごと)に，推定ヒープ使用量がbudgetに収まるよう分ける
+	static List<String[]> batch(String[] sources, long budget) {
+		List<String[]> batches = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		long used = 0;
+		for(String source : sources) {
+			long estimate = sizeOf(source) * HEAP_PER_SOURCE_BYTE;
+			if(!current.isEmpty() && used + estimate > budget) {
+				batches.add(current.toArray(new String[0]));
+				current.clear();
+				used = 0;
+			}
+			current.add(source);
+			used += estimate;
+		}
+		if(!current.isEmpty()) {
+			batches.add(current.toArray(new String[0]));
+		}
+		return batches;
+	}
+
+	private static long sizeOf(String path) {
+		try {
+			return Files.size(Paths.get(path));
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static final class Inputs {
+		final String[] sources;
+		final String[] libraries;
+
+		Inputs(String[] sources, String[] libraries) {
+			this.sources = sources;
+			this.libraries = libraries;
+		}
 	}
 }
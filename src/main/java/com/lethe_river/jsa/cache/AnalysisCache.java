@@ -0,0 +1,320 @@
+package com.lethe_river.jsa.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * ソースファイルごとの解析結果のキャッシュ．
+ * ファイル内容のハッシュとクラスパスのフィンガープリントをキーとする．
+ */
+public class AnalysisCache {
+	private static final Logger logger = LoggerUtil.getLogger(AnalysisCache.class);
+
+	private final Path file;
+	private String fingerprint;
+	private final Map<String, Entry> entries;
+
+	private AnalysisCache(Path file, String fingerprint, Map<String, Entry> entries) {
+		this.file = file;
+		this.fingerprint = fingerprint;
+		this.entries = new ConcurrentHashMap<>(entries);
+	}
+
+	/**
+	 * 永続化しないキャッシュを生成する．
+	 *
+	 * @return 空のキャッシュ
+	 */
+	public static AnalysisCache inMemory() {
+		return new AnalysisCache(null, "", Collections.emptyMap());
+	}
+
+	/**
+	 * ファイルからキャッシュを読み込む．ファイルが無いか読み込めない場合は空のキャッシュを返す．
+	 *
+	 * @param file キャッシュファイル
+	 * @return 読み込んだキャッシュ
+	 */
+	@SuppressWarnings("unchecked")
+	public static AnalysisCache load(Path file) {
+		if(!Files.exists(file)) {
+			return new AnalysisCache(file, "", Collections.emptyMap());
+		}
+		try(InputStream in = Files.newInputStream(file);
+				ObjectInputStream ois = new ObjectInputStream(in)) {
+			String fingerprint = (String) ois.readObject();
+			Map<String, Entry> entries = (Map<String, Entry>) ois.readObject();
+			return new AnalysisCache(file, fingerprint, entries);
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			logger.warning("cache cannot be loaded. " + e);
+			return new AnalysisCache(file, "", Collections.emptyMap());
+		}
+	}
+
+	/**
+	 * キャッシュをファイルに書き出す．
+	 */
+	public void save() {
+		if(file == null) {
+			return;
+		}
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp);
+					ObjectOutputStream oos = new ObjectOutputStream(out)) {
+				oos.writeObject(fingerprint);
+				oos.writeObject(new HashMap<>(entries));
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * フィンガープリントが一致しない場合，キャッシュを空にする．
+	 *
+	 * @param fingerprint 現在のクラスパスのフィンガープリント
+	 */
+	public void validate(String fingerprint) {
+		if(!this.fingerprint.equals(fingerprint)) {
+			entries.clear();
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	/**
+	 * 現在のソースのハッシュから再解析が必要なファイルを求め，それらのエントリを削除する．
+	 * 内容が変化したファイル，新しいファイル，および変化または削除されたファイルが宣言していた型を参照するファイルが対象となる．
+	 *
+	 * @param hashes ソースファイルのパスから内容のハッシュへのマップ
+	 * @return 再解析が必要なファイル
+	 */
+	public String[] invalidate(Map<String, String> hashes) {
+		Set<String> affectedTypes = new HashSet<>();
+		Set<String> dirty = new HashSet<>();
+
+		for(String path : new ArrayList<>(entries.keySet())) {
+			if(!hashes.containsKey(path)) {
+				affectedTypes.addAll(entries.remove(path).declaredTypes);
+			}
+		}
+		hashes.forEach((path, hash) -> {
+			Entry entry = entries.get(path);
+			if(entry == null || !entry.hash.equals(hash)) {
+				dirty.add(path);
+				if(entry != null) {
+					affectedTypes.addAll(entry.declaredTypes);
+				}
+			}
+		});
+		if(!affectedTypes.isEmpty()) {
+			entries.forEach((path, entry) -> {
+				if(!Collections.disjoint(entry.referencedTypes, affectedTypes)) {
+					dirty.add(path);
+				}
+			});
+		}
+
+		dirty.forEach(entries::remove);
+		return hashes.keySet()
+				.stream()
+				.filter(dirty::contains)
+				.toArray(String[]::new);
+	}
+
+	/**
+	 * 再解析したファイルが新たに宣言した型を，名前を解決できずに参照していたファイルのエントリを削除する．
+	 * 型の名前の後ろの部分が，解決できなかった名前の前の部分と一致する場合に参照していたとみなす．
+	 *
+	 * @param analyzed 再解析したファイル
+	 * @param knownTypes 再解析の前から宣言されていた型
+	 * @param exclusions 対象としないファイル
+	 * @return 再解析が必要なファイル
+	 */
+	public String[] invalidateUnresolved(Collection<String> analyzed, Set<String> knownTypes, Set<String> exclusions) {
+		Set<String> prefixes = new HashSet<>();
+		for(String path : analyzed) {
+			Entry entry = entries.get(path);
+			if(entry == null) {
+				continue;
+			}
+			for(String type : entry.declaredTypes) {
+				if(knownTypes.contains(type)) {
+					continue;
+				}
+				// p.Outer.Innerからp.Outer.Inner, Outer.Inner, Innerを得る
+				for(int i = type.lastIndexOf('.'); ; i = type.lastIndexOf('.', i - 1)) {
+					prefixes.add(type.substring(i + 1));
+					if(i < 0) {
+						break;
+					}
+				}
+			}
+		}
+		if(prefixes.isEmpty()) {
+			return new String[0];
+		}
+
+		List<String> dirty = new ArrayList<>();
+		entries.forEach((path, entry) -> {
+			if(!exclusions.contains(path) && entry.unresolvedNames.stream().anyMatch(name -> startsWithAny(name, prefixes))) {
+				dirty.add(path);
+			}
+		});
+		dirty.forEach(entries::remove);
+		Collections.sort(dirty);
+		return dirty.toArray(new String[0]);
+	}
+
+	// nameの先頭の0個以上の識別子がprefixesのいずれかと一致するか
+	private static boolean startsWithAny(String name, Set<String> prefixes) {
+		for(int i = name.indexOf('.'); ; i = name.indexOf('.', i + 1)) {
+			if(prefixes.contains(i < 0 ? name : name.substring(0, i))) {
+				return true;
+			}
+			if(i < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return キャッシュされているファイルが宣言している型
+	 */
+	public Set<String> getDeclaredTypes() {
+		Set<String> result = new HashSet<>();
+		entries.values().forEach(entry -> result.addAll(entry.declaredTypes));
+		return result;
+	}
+
+	public void put(String path, String hash, DependencyCollector dependencies, List<? extends Serializable> results) {
+		entries.put(path, new Entry(
+				hash,
+				dependencies.getDeclaredTypes(),
+				dependencies.getReferencedTypes(),
+				dependencies.getUnresolvedNames(),
+				results));
+	}
+
+	/**
+	 * ファイルの解析結果を返す．
+	 *
+	 * @param path ソースファイルのパス
+	 * @return 解析結果．キャッシュされていない場合は空のリスト
+	 */
+	@SuppressWarnings("unchecked")
+	public <R extends Serializable> List<R> get(String path) {
+		Entry entry = entries.get(path);
+		return entry == null ? Collections.emptyList() : (List<R>) entry.results;
+	}
+
+	/**
+	 * ファイルの内容のハッシュを求める．
+	 *
+	 * @param path ファイル
+	 * @return SHA-256ハッシュの16進表現
+	 */
+	public static String hash(Path path) {
+		try {
+			return toHex(newDigest().digest(Files.readAllBytes(path)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * ライブラリと解析の種類からフィンガープリントを求める．
+	 *
+	 * @param libraries ライブラリのパス
+	 * @param analysisName 解析の名前
+	 * @return フィンガープリント
+	 */
+	public static String fingerprint(String[] libraries, String analysisName) {
+		MessageDigest digest = newDigest();
+		update(digest, analysisName);
+		update(digest, System.getProperty("java.version"));
+
+		String[] sorted = libraries.clone();
+		Arrays.sort(sorted);
+		for(String library : sorted) {
+			Path path = Paths.get(library);
+			update(digest, library);
+			try {
+				update(digest, Long.toString(Files.size(path)));
+				update(digest, Long.toString(Files.getLastModifiedTime(path).toMillis()));
+			} catch (IOException e) {
+				update(digest, "?");
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 2L;
+
+		private final String hash;
+		private final Set<String> declaredTypes;
+		private final Set<String> referencedTypes;
+		private final Set<String> unresolvedNames;
+		private final List<? extends Serializable> results;
+
+		Entry(String hash, Set<String> declaredTypes, Set<String> referencedTypes, Set<String> unresolvedNames,
+				List<? extends Serializable> results) {
+			this.hash = hash;
+			this.declaredTypes = new HashSet<>(declaredTypes);
+			this.referencedTypes = new HashSet<>(referencedTypes);
+			this.unresolvedNames = new HashSet<>(unresolvedNames);
+			this.results = new ArrayList<>(results);
+		}
+	}
+}
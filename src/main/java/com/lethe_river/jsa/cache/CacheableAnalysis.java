@@ -0,0 +1,30 @@
+package com.lethe_river.jsa.cache;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+/**
+ * ファイルごとに結果をキャッシュできる解析．
+ * Visitorは1ファイルにつき1つ生成され，そのファイルの結果だけを出力する．
+ *
+ * @param <R> 結果の型
+ */
+public interface CacheableAnalysis<R extends Serializable> {
+
+	/**
+	 * 解析の名前を返す．結果の形式が変わったときは名前も変えること．
+	 *
+	 * @return 解析の名前
+	 */
+	String getName();
+
+	/**
+	 * 結果を指定された出力先に書き出すVisitorを生成する．
+	 *
+	 * @param emitter 結果の出力先
+	 * @return 新しいVisitor
+	 */
+	ASTVisitor createVisitor(Consumer<? super R> emitter);
+}
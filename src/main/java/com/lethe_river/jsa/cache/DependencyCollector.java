@@ -0,0 +1,115 @@
+package com.lethe_river.jsa.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+/**
+ * コンパイル単位が宣言している型と参照している型を収集する．
+ * 解決できなかった名前も，後から宣言された型を参照している可能性があるため，書かれた通りに収集する．
+ */
+public class DependencyCollector extends ASTVisitor {
+
+	private final Set<String> declaredTypes = new HashSet<>();
+	private final Set<String> referencedTypes = new HashSet<>();
+	private final Set<String> unresolvedNames = new HashSet<>();
+
+	public Set<String> getDeclaredTypes() {
+		return declaredTypes;
+	}
+
+	public Set<String> getReferencedTypes() {
+		return referencedTypes;
+	}
+
+	public Set<String> getUnresolvedNames() {
+		return unresolvedNames;
+	}
+
+	@Override
+	public boolean visit(TypeDeclaration node) {
+		declare(node);
+		return super.visit(node);
+	}
+
+	@Override
+	public boolean visit(EnumDeclaration node) {
+		declare(node);
+		return super.visit(node);
+	}
+
+	@Override
+	public boolean visit(AnnotationTypeDeclaration node) {
+		declare(node);
+		return super.visit(node);
+	}
+
+	@Override
+	public boolean visit(QualifiedName node) {
+		if(node.resolveBinding() == null) {
+			unresolvedNames.add(node.getFullyQualifiedName());
+		}
+		// 限定子は解決できる場合がある
+		return true;
+	}
+
+	@Override
+	public boolean visit(SimpleName node) {
+		IBinding binding = node.resolveBinding();
+		if(binding == null) {
+			if(!node.isDeclaration()) {
+				unresolvedNames.add(node.getIdentifier());
+			}
+			return false;
+		}
+		switch(binding.getKind()) {
+		case IBinding.TYPE:
+			reference((ITypeBinding) binding);
+			break;
+		case IBinding.VARIABLE:
+			IVariableBinding variable = (IVariableBinding) binding;
+			reference(variable.getDeclaringClass());
+			reference(variable.getType());
+			break;
+		case IBinding.METHOD:
+			IMethodBinding method = (IMethodBinding) binding;
+			reference(method.getDeclaringClass());
+			reference(method.getReturnType());
+			break;
+		default:
+			break;
+		}
+		return false;
+	}
+
+	private void declare(AbstractTypeDeclaration node) {
+		ITypeBinding type = node.resolveBinding();
+		if(type != null) {
+			declaredTypes.add(type.getErasure().getQualifiedName());
+		}
+	}
+
+	private void reference(ITypeBinding type) {
+		if(type == null) {
+			return;
+		}
+		if(type.isArray()) {
+			type = type.getElementType();
+		}
+		if(type.isPrimitive() || type.isTypeVariable() || type.isCapture() || type.isWildcardType()) {
+			return;
+		}
+		referencedTypes.add(type.getErasure().getQualifiedName());
+	}
+}
@@ -0,0 +1,118 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * メソッドをidで表した呼び出しグラフ．
+ * 辺は呼び出し元ごとにまとめたCSR形式の配列に格納する．
+ * i番目のメソッドが呼び出すメソッドは{@code targets[offsets[i]]}から{@code targets[offsets[i+1]-1]}までであり，昇順に並び重複しない．
+ * メソッドのキーは{@link com.lethe_river.jsa.sink.MethodRecord#toString()}と同じ形式である．
+ * 生成後は変更されないため，複数のスレッドから参照できる．
+ */
+public final class CallGraph {
+
+	private final String[] keys;
+	private final BitSet declared;
+	private final int[] offsets;
+	private final int[] targets;
+
+	private Map<String, Integer> ids = null;
+
+	/**
+	 * @param keys idごとのメソッドのキー
+	 * @param declared ソースで宣言されたメソッドのid
+	 * @param offsets 呼び出し元ごとの辺の開始位置．長さはメソッド数+1
+	 * @param targets 呼び出し先のid
+	 */
+	public CallGraph(String[] keys, BitSet declared, int[] offsets, int[] targets) {
+		if(offsets.length != keys.length + 1 || offsets[keys.length] != targets.length) {
+			throw new IllegalArgumentException("malformed call graph");
+		}
+		this.keys = keys;
+		this.declared = declared;
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	public int getMethodCount() {
+		return keys.length;
+	}
+
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	public String getKey(int method) {
+		return keys[method];
+	}
+
+	/**
+	 * @param key メソッドのキー
+	 * @return メソッドのid．グラフに含まれない場合は-1
+	 */
+	public synchronized int find(String key) {
+		if(ids == null) {
+			ids = new HashMap<>(keys.length * 2);
+			for(int i = 0; i < keys.length; i++) {
+				ids.put(keys[i], i);
+			}
+		}
+		Integer id = ids.get(key);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param method メソッドのid
+	 * @return ソースで宣言されたメソッドであればtrue．ライブラリのメソッドはfalse
+	 */
+	public boolean isDeclared(int method) {
+		return declared.get(method);
+	}
+
+	/**
+	 * @param method 呼び出し元のid
+	 * @return 呼び出し先のid(昇順)
+	 */
+	public int[] getCallees(int method) {
+		return Arrays.copyOfRange(targets, offsets[method], offsets[method + 1]);
+	}
+
+	/**
+	 * @param method 呼び出し元のid
+	 * @return 呼び出し元の最初の辺の位置
+	 */
+	public int calleeStart(int method) {
+		return offsets[method];
+	}
+
+	/**
+	 * @param method 呼び出し元のid
+	 * @return 呼び出し元の最後の辺の次の位置
+	 */
+	public int calleeEnd(int method) {
+		return offsets[method + 1];
+	}
+
+	/**
+	 * @param edge 辺の位置
+	 * @return 呼び出し先のid
+	 */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	int[] offsets() {
+		return offsets;
+	}
+
+	int[] targets() {
+		return targets;
+	}
+
+	BitSet declared() {
+		return declared;
+	}
+}
@@ -0,0 +1,719 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.CreationReference;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionMethodReference;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.SuperMethodReference;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.TypeMethodReference;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import com.lethe_river.jsa.Descriptors;
+import com.lethe_river.jsa.hierarchy.TypeHierarchy;
+import com.lethe_river.jsa.hierarchy.TypeHierarchyVisitor;
+import com.lethe_river.jsa.hierarchy.TypeInfo;
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 束縛を解決した構文木から呼び出しグラフを作る．
+ * {@link #newVisitor()}が返すVisitorで呼び出し箇所を集め，{@link #build(Algorithm)}で仮想呼び出しを解決する．
+ * Visitorはファイルごとに独立に動くため，{@link com.lethe_river.jsa.SourceProcessor}で並列に適用できる．
+ * 束縛はJDTがファイルを渡したスレッドの中で解決しなければならないため，Visitorは束縛を使い終えてからidだけを残す．
+ *
+ * <p>
+ * 静的メソッド，privateメソッド，finalメソッド，コンストラクタ，superの呼び出しは宣言されたメソッドだけを呼び出し先とする．
+ * それ以外の呼び出しは宣言されたメソッドと，それをオーバーライドする全てのメソッドを呼び出し先とする(CHA)．
+ * 受け手の式の静的な型が分かる場合は，その部分型で宣言されたものに絞る．
+ * RTAではさらに，オーバーライドするメソッドをインスタンスが生成される型(とその上位型)のものに絞る．
+ * 型の関係は{@link TypeHierarchy}で判定する．
+ * インスタンスの生成はプログラム全体から流れを考えずに集める．
+ * フィールドの初期化子とイニシャライザは，staticであれば{@code <clinit>()V}，そうでなければ{@value #INSTANCE_INITIALIZER}に含め，
+ * 後者は各コンストラクタから呼ばれるものとする．
+ * 上位クラスから継承したメソッドでインタフェースを実装する場合は考慮しない．
+ */
+public class CallGraphBuilder {
+
+	/**
+	 * 仮想呼び出しの解決方法
+	 */
+	public enum Algorithm {
+		/** Class Hierarchy Analysis */
+		CHA,
+		/** Rapid Type Analysis */
+		RTA,
+	}
+
+	public static final String STATIC_INITIALIZER = "<clinit>()V";
+	public static final String INSTANCE_INITIALIZER = "<instinit>()V";
+
+	private static final int DIRECT = 0;
+	private static final int VIRTUAL = 1;
+
+	private final SymbolTable methods = new SymbolTable();
+	private final SymbolTable types = new SymbolTable();
+	private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+	/**
+	 * 呼び出し箇所を集めるVisitorを返す．
+	 * 返したVisitorは1つのスレッドから使わなければならない．
+	 *
+	 * @return 新しいVisitor
+	 */
+	public ASTVisitor newVisitor() {
+		Collector collector = new Collector();
+		collectors.add(collector);
+		return collector;
+	}
+
+	public SymbolTable getMethods() {
+		return methods;
+	}
+
+	public SymbolTable getTypes() {
+		return types;
+	}
+
+	/**
+	 * それまでに集めた型から型階層を作る．
+	 *
+	 * @return 型階層
+	 */
+	public TypeHierarchy getTypeHierarchy() {
+		List<TypeInfo> infos = new ArrayList<>();
+		for(Collector c : collectors) {
+			infos.addAll(c.typeInfos);
+		}
+		return TypeHierarchy.of(infos);
+	}
+
+	/**
+	 * それまでに集めた呼び出し箇所から呼び出しグラフを作る．
+	 * 呼び出し元ごとに並列に解決する．
+	 *
+	 * @param algorithm 仮想呼び出しの解決方法
+	 * @return 呼び出しグラフ
+	 */
+	public CallGraph build(Algorithm algorithm) {
+		// 解析中に呼ばれることは想定しない
+		int n = methods.size();
+		String[] keys = new String[n];
+		for(int i = 0; i < n; i++) {
+			keys[i] = methods.getKey(i);
+		}
+
+		BitSet declared = new BitSet(n);
+		BitSet abstracts = new BitSet(n);
+		IntList overrideFrom = new IntList();
+		IntList overrideTo = new IntList();
+		IntList callers = new IntList();
+		IntList callees = new IntList();
+		IntList kinds = new IntList();
+		IntList receivers = new IntList();
+		IntList instantiated = new IntList();
+		for(Collector c : collectors) {
+			for(int i = 0; i < c.declared.size(); i++) {
+				declared.set(c.declared.get(i));
+			}
+			for(int i = 0; i < c.abstracts.size(); i++) {
+				abstracts.set(c.abstracts.get(i));
+			}
+			for(int i = 0; i < c.overrides.size(); i += 2) {
+				overrideFrom.add(c.overrides.get(i));
+				overrideTo.add(c.overrides.get(i + 1));
+			}
+			for(int i = 0; i < c.sites.size(); i += 4) {
+				callers.add(c.sites.get(i));
+				callees.add(c.sites.get(i + 1));
+				kinds.add(c.sites.get(i + 2));
+				receivers.add(c.sites.get(i + 3));
+			}
+			for(int i = 0; i < c.instantiated.size(); i++) {
+				instantiated.add(c.instantiated.get(i));
+			}
+		}
+		// オーバーライドされるメソッドから，オーバーライドするメソッドへの辺
+		int[][] overriders = group(n, overrideTo, overrideFrom);
+		int[][] sites = group(n, callers, callees);
+		int[][] siteKinds = group(n, callers, kinds);
+		int[][] siteReceivers = group(n, callers, receivers);
+		TypeHierarchy hierarchy = getTypeHierarchy();
+		int[] typeIds = typeIds(hierarchy);
+		BitSet live = algorithm == Algorithm.RTA ? liveTypes(hierarchy, typeIds, instantiated) : null;
+		int[] declaringTypes = declaringTypes(hierarchy, keys);
+
+		AtomicReferenceArray<int[]> dispatch = new AtomicReferenceArray<>(n);
+		int[][] resolved = new int[n][];
+		IntStream.range(0, n).parallel().forEach(caller -> {
+			int[] targets = sites[caller];
+			int[] k = siteKinds[caller];
+			int[] r = siteReceivers[caller];
+			IntList result = new IntList(Math.max(targets.length, 1));
+			for(int i = 0; i < targets.length; i++) {
+				int target = targets[i];
+				result.add(target);
+				if(k[i] != VIRTUAL) {
+					continue;
+				}
+				int receiver = r[i] < 0 ? -1 : typeIds[r[i]];
+				for(int overrider : dispatch(target, overriders, abstracts, live, declaringTypes, dispatch)) {
+					int type = declaringTypes[overrider];
+					if(receiver < 0 || type < 0 || hierarchy.isSubtype(type, receiver)) {
+						result.add(overrider);
+					}
+				}
+			}
+			resolved[caller] = result.toSortedSet();
+		});
+
+		int[] offsets = new int[n + 1];
+		for(int i = 0; i < n; i++) {
+			offsets[i + 1] = offsets[i] + resolved[i].length;
+		}
+		int[] edges = new int[offsets[n]];
+		for(int i = 0; i < n; i++) {
+			System.arraycopy(resolved[i], 0, edges, offsets[i], resolved[i].length);
+		}
+		return new CallGraph(keys, declared, offsets, edges);
+	}
+
+	// オーバーライドするメソッドのうち，実体があり，RTAではインスタンスが生成されうるもの
+	private static int[] dispatch(int method, int[][] overriders, BitSet abstracts,
+			BitSet live, int[] declaringTypes, AtomicReferenceArray<int[]> memo) {
+		int[] result = memo.get(method);
+		if(result != null) {
+			return result;
+		}
+		IntList found = new IntList();
+		IntList stack = new IntList();
+		stack.add(method);
+		// オーバーライドの関係は循環しない
+		while(!stack.isEmpty()) {
+			int m = stack.removeLast();
+			for(int overrider : overriders[m]) {
+				stack.add(overrider);
+				if(abstracts.get(overrider)) {
+					continue;
+				}
+				int type = declaringTypes[overrider];
+				if(live == null || type < 0 || live.get(type)) {
+					found.add(overrider);
+				}
+			}
+		}
+		result = found.toSortedSet();
+		memo.set(method, result);
+		return result;
+	}
+
+	// インスタンスが生成される型と，その上位型
+	private static BitSet liveTypes(TypeHierarchy hierarchy, int[] typeIds, IntList instantiated) {
+		BitSet live = new BitSet(hierarchy.getTypeCount());
+		BitSet seen = new BitSet(typeIds.length);
+		for(int i = 0; i < instantiated.size(); i++) {
+			int type = instantiated.get(i);
+			if(type < typeIds.length && !seen.get(type) && typeIds[type] >= 0) {
+				seen.set(type);
+				live.or(hierarchy.getSupertypes(typeIds[type]));
+			}
+		}
+		return live;
+	}
+
+	// 型の表のidから型階層のidへの対応
+	private int[] typeIds(TypeHierarchy hierarchy) {
+		int[] result = new int[types.size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = hierarchy.find(types.getKey(i));
+		}
+		return result;
+	}
+
+	private static int[] declaringTypes(TypeHierarchy hierarchy, String[] keys) {
+		int[] result = new int[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			result[i] = hierarchy.find(keys[i].substring(0, keys[i].indexOf('#')));
+		}
+		return result;
+	}
+
+	// fromごとにtoをまとめる．fromがn以上の組は捨てる
+	private static int[][] group(int n, IntList from, IntList to) {
+		int[] counts = new int[n];
+		for(int i = 0; i < from.size(); i++) {
+			if(from.get(i) < n) {
+				counts[from.get(i)]++;
+			}
+		}
+		int[][] result = new int[n][];
+		for(int i = 0; i < n; i++) {
+			result[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		for(int i = 0; i < from.size(); i++) {
+			int f = from.get(i);
+			if(f < n) {
+				result[f][counts[f]++] = to.get(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 1つのスレッドで呼び出し箇所を集める．束縛はここで全てidに変換する．
+	 */
+	private final class Collector extends ASTVisitor {
+
+		private final Descriptors descriptors = new Descriptors();
+
+		// (caller, callee, kind, receiver)の並び．receiverは受け手の式の型で，不明な場合は-1
+		final IntList sites = new IntList(1024);
+		// (overrider, overridden)の並び
+		final IntList overrides = new IntList();
+		final IntList declared = new IntList();
+		final IntList abstracts = new IntList();
+		final List<TypeInfo> typeInfos = new ArrayList<>();
+		final IntList instantiated = new IntList();
+
+		private final TypeHierarchyVisitor hierarchy = new TypeHierarchyVisitor(typeInfos::add);
+
+		private final IntList callerStack = new IntList();
+		private final Deque<TypeContext> typeStack = new ArrayDeque<>();
+		private final Map<String, List<ITypeBinding>> allSupertypes = new HashMap<>();
+
+		private int caller() {
+			return callerStack.isEmpty() ? -1 : callerStack.get(callerStack.size() - 1);
+		}
+
+		private int methodId(IMethodBinding method) {
+			String key = descriptors.getKey(method);
+			return key == null ? -1 : methods.idOf(key);
+		}
+
+		private int typeId(ITypeBinding type) {
+			String name = type.getErasure().getBinaryName();
+			return name == null ? -1 : types.idOf(name);
+		}
+
+		private void addSite(int callee, int kind) {
+			addSite(callee, kind, -1);
+		}
+
+		private void addSite(int callee, int kind, int receiver) {
+			int caller = caller();
+			if(caller < 0 || callee < 0) {
+				return;
+			}
+			sites.add(caller);
+			sites.add(callee);
+			sites.add(kind);
+			sites.add(receiver);
+		}
+
+		private void addCall(IMethodBinding method) {
+			addCall(method, null);
+		}
+
+		private void addCall(IMethodBinding method, Expression receiver) {
+			if(method == null) {
+				return;
+			}
+			if(isDirect(method)) {
+				addSite(methodId(method), DIRECT);
+				return;
+			}
+			ITypeBinding receiverType = receiver == null ? null : receiver.resolveTypeBinding();
+			addSite(methodId(method), VIRTUAL, receiverType == null ? -1 : typeId(receiverType));
+		}
+
+		private boolean isDirect(IMethodBinding method) {
+			int modifiers = method.getModifiers();
+			return method.isConstructor()
+					|| Modifier.isStatic(modifiers)
+					|| Modifier.isPrivate(modifiers)
+					|| Modifier.isFinal(modifiers);
+		}
+
+		private void addInstantiation(ITypeBinding type) {
+			if(type == null) {
+				return;
+			}
+			int id = typeId(type);
+			if(id >= 0) {
+				instantiated.add(id);
+			}
+		}
+
+		// 型
+
+		private final class TypeContext {
+			final ITypeBinding type;
+			boolean hasInstanceInitializer = false;
+
+			TypeContext(ITypeBinding type) {
+				this.type = type;
+			}
+
+			String initializerKey(boolean isStatic) {
+				return type.getErasure().getBinaryName() + "#" + (isStatic ? STATIC_INITIALIZER : INSTANCE_INITIALIZER);
+			}
+		}
+
+		private void enterType(ITypeBinding type) {
+			typeStack.push(new TypeContext(type));
+			hierarchy.addType(type);
+		}
+
+		private void exitType() {
+			TypeContext context = typeStack.pop();
+			if(context.type == null) {
+				return;
+			}
+			for(IMethodBinding method : context.type.getDeclaredMethods()) {
+				if(!method.isConstructor()) {
+					continue;
+				}
+				int constructor = methodId(method);
+				if(constructor < 0) {
+					continue;
+				}
+				callerStack.add(constructor);
+				if(context.hasInstanceInitializer) {
+					addSite(methods.idOf(context.initializerKey(false)), DIRECT);
+				}
+				// 暗黙のコンストラクタは上位クラスのコンストラクタを呼ぶ
+				if(context.type.isAnonymous()) {
+					addCall(superConstructor(context.type, method));
+				} else if(method.isDefaultConstructor()) {
+					addCall(superNoArgConstructor(context.type));
+				}
+				callerStack.removeLast();
+			}
+		}
+
+		// 引数の型が合う上位クラスのコンストラクタ
+		private IMethodBinding superConstructor(ITypeBinding type, IMethodBinding constructor) {
+			ITypeBinding superclass = type.getSuperclass();
+			if(superclass == null) {
+				return null;
+			}
+			ITypeBinding[] params = constructor.getParameterTypes();
+			for(IMethodBinding candidate : superclass.getDeclaredMethods()) {
+				if(!candidate.isConstructor() || candidate.getParameterTypes().length != params.length) {
+					continue;
+				}
+				boolean matches = true;
+				ITypeBinding[] candidateParams = candidate.getParameterTypes();
+				for(int i = 0; i < params.length && matches; i++) {
+					matches = params[i].getErasure().isAssignmentCompatible(candidateParams[i].getErasure());
+				}
+				if(matches) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean visit(TypeDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(TypeDeclaration node) {
+			exitType();
+		}
+
+		@Override
+		public boolean visit(EnumDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(EnumDeclaration node) {
+			exitType();
+		}
+
+		@Override
+		public boolean visit(AnnotationTypeDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnnotationTypeDeclaration node) {
+			exitType();
+		}
+
+		@Override
+		public boolean visit(AnonymousClassDeclaration node) {
+			ITypeBinding type = node.resolveBinding();
+			enterType(type);
+			addInstantiation(type);
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnonymousClassDeclaration node) {
+			exitType();
+		}
+
+		// 呼び出し元
+
+		@Override
+		public boolean visit(MethodDeclaration node) {
+			IMethodBinding method = node.resolveBinding();
+			int id = method == null ? -1 : methodId(method);
+			callerStack.add(id);
+			if(id < 0) {
+				return true;
+			}
+			declared.add(id);
+			if(Modifier.isAbstract(method.getModifiers())) {
+				abstracts.add(id);
+			}
+			if(method.isConstructor()) {
+				if(!hasExplicitConstructorCall(node)) {
+					addCall(superNoArgConstructor(method.getDeclaringClass()));
+				}
+			} else if(!Modifier.isStatic(method.getModifiers()) && !Modifier.isPrivate(method.getModifiers())) {
+				addOverrides(id, method);
+			}
+			return true;
+		}
+
+		@Override
+		public void endVisit(MethodDeclaration node) {
+			callerStack.removeLast();
+		}
+
+		private boolean hasExplicitConstructorCall(MethodDeclaration node) {
+			if(node.getBody() == null || node.getBody().statements().isEmpty()) {
+				return false;
+			}
+			Statement first = (Statement) node.getBody().statements().get(0);
+			return first instanceof ConstructorInvocation || first instanceof SuperConstructorInvocation;
+		}
+
+		private IMethodBinding superNoArgConstructor(ITypeBinding type) {
+			ITypeBinding superclass = type.getSuperclass();
+			if(superclass == null) {
+				return null;
+			}
+			for(IMethodBinding candidate : superclass.getDeclaredMethods()) {
+				if(candidate.isConstructor() && candidate.getParameterTypes().length == 0) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+
+		private void addOverrides(int id, IMethodBinding method) {
+			ITypeBinding type = method.getDeclaringClass();
+			int params = method.getParameterTypes().length;
+			for(ITypeBinding supertype : allSupertypes(type)) {
+				for(IMethodBinding candidate : supertype.getDeclaredMethods()) {
+					if(candidate.getName().equals(method.getName())
+							&& candidate.getParameterTypes().length == params
+							&& method.overrides(candidate)) {
+						int overridden = methodId(candidate);
+						if(overridden >= 0) {
+							overrides.add(id);
+							overrides.add(overridden);
+						}
+					}
+				}
+			}
+		}
+
+		private List<ITypeBinding> allSupertypes(ITypeBinding type) {
+			String key = type.getKey();
+			List<ITypeBinding> result = key == null ? null : allSupertypes.get(key);
+			if(result != null) {
+				return result;
+			}
+			result = new ArrayList<>();
+			Set<String> seen = new HashSet<>();
+			Deque<ITypeBinding> queue = new ArrayDeque<>();
+			queue.add(type);
+			while(!queue.isEmpty()) {
+				ITypeBinding t = queue.poll();
+				List<ITypeBinding> next = new ArrayList<>();
+				if(t.getSuperclass() != null) {
+					next.add(t.getSuperclass());
+				}
+				for(ITypeBinding i : t.getInterfaces()) {
+					next.add(i);
+				}
+				for(ITypeBinding s : next) {
+					if(seen.add(s.getErasure().getKey())) {
+						result.add(s);
+						queue.add(s);
+					}
+				}
+			}
+			if(key != null) {
+				allSupertypes.put(key, result);
+			}
+			return result;
+		}
+
+		@Override
+		public boolean visit(Initializer node) {
+			enterInitializer(Modifier.isStatic(node.getModifiers()));
+			return true;
+		}
+
+		@Override
+		public void endVisit(Initializer node) {
+			callerStack.removeLast();
+		}
+
+		@Override
+		public boolean visit(FieldDeclaration node) {
+			boolean isStatic = Modifier.isStatic(node.getModifiers());
+			for(Object fragment : node.fragments()) {
+				IVariableBinding field = ((VariableDeclarationFragment) fragment).resolveBinding();
+				if(field != null && Modifier.isStatic(field.getModifiers())) {
+					isStatic = true;
+				}
+			}
+			enterInitializer(isStatic);
+			return true;
+		}
+
+		@Override
+		public void endVisit(FieldDeclaration node) {
+			callerStack.removeLast();
+		}
+
+		@Override
+		public boolean visit(EnumConstantDeclaration node) {
+			enterInitializer(true);
+			IMethodBinding constructor = node.resolveConstructorBinding();
+			if(constructor != null) {
+				addCall(constructor);
+				addInstantiation(constructor.getDeclaringClass());
+			}
+			return true;
+		}
+
+		@Override
+		public void endVisit(EnumConstantDeclaration node) {
+			callerStack.removeLast();
+		}
+
+		private void enterInitializer(boolean isStatic) {
+			TypeContext context = typeStack.peek();
+			if(context == null || context.type == null || context.type.getErasure().getBinaryName() == null) {
+				callerStack.add(-1);
+				return;
+			}
+			if(!isStatic) {
+				context.hasInstanceInitializer = true;
+			}
+			callerStack.add(methods.idOf(context.initializerKey(isStatic)));
+		}
+
+		// 呼び出し箇所
+
+		@Override
+		public boolean visit(MethodInvocation node) {
+			addCall(node.resolveMethodBinding(), node.getExpression());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperMethodInvocation node) {
+			IMethodBinding method = node.resolveMethodBinding();
+			if(method != null) {
+				addSite(methodId(method), DIRECT);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(ClassInstanceCreation node) {
+			addCall(node.resolveConstructorBinding());
+			if(node.getAnonymousClassDeclaration() == null) {
+				addInstantiation(node.resolveTypeBinding());
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(ConstructorInvocation node) {
+			addCall(node.resolveConstructorBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperConstructorInvocation node) {
+			addCall(node.resolveConstructorBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(ExpressionMethodReference node) {
+			addCall(node.resolveMethodBinding(), node.getExpression());
+			return true;
+		}
+
+		@Override
+		public boolean visit(TypeMethodReference node) {
+			addCall(node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperMethodReference node) {
+			IMethodBinding method = node.resolveMethodBinding();
+			if(method != null) {
+				addSite(methodId(method), DIRECT);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(CreationReference node) {
+			IMethodBinding constructor = node.resolveMethodBinding();
+			if(constructor != null && constructor.isConstructor()) {
+				addCall(constructor);
+				addInstantiation(constructor.getDeclaringClass());
+			}
+			return true;
+		}
+	}
+}
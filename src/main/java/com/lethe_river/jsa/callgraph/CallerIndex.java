@@ -0,0 +1,325 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 呼び出しグラフを逆向きにした，メソッドを呼び出すメソッドの索引．
+ * 索引はファイルに保存され，メモリマップして参照するため，開くときに全体を読み込むことはない．
+ * メソッドはキーのUTF-8バイト順に番号を付け直し，キーからは二分探索で引く．
+ * キーは{@link CallGraph}と同じ形式である．
+ *
+ * <pre>
+ * int magic, int version
+ * int methodCount, int edgeCount
+ * methodCount * int keyOffset               ... キーのUTF-8バイト順
+ * (methodCount + 1) * int callerOffset      ... 呼び出される側ごとの辺の開始位置
+ * edgeCount * int caller                    ... 呼び出される側ごとに昇順
+ * ((methodCount + 63) / 64) * long declared ... ソースで宣言されたメソッドのビット集合
+ * int stringsLength, 文字列表 ... (short length, UTF-8)の並び
+ * </pre>
+ */
+public final class CallerIndex {
+
+	private static final int MAGIC = 0x4A534143; // "JSAC"
+	private static final int VERSION = 1;
+
+	private final int methodCount;
+	private final int edgeCount;
+	private final IntBuffer keyOffsets;
+	private final IntBuffer callerOffsets;
+	private final IntBuffer callers;
+	private final LongBuffer declared;
+	private final ByteBuffer strings;
+
+	private CallerIndex(int methodCount, int edgeCount, IntBuffer keyOffsets, IntBuffer callerOffsets,
+			IntBuffer callers, LongBuffer declared, ByteBuffer strings) {
+		this.methodCount = methodCount;
+		this.edgeCount = edgeCount;
+		this.keyOffsets = keyOffsets;
+		this.callerOffsets = callerOffsets;
+		this.callers = callers;
+		this.declared = declared;
+		this.strings = strings;
+	}
+
+	/**
+	 * 呼び出しグラフから索引を作ってファイルに書き出し，開く．
+	 *
+	 * @param graph 呼び出しグラフ
+	 * @param file 索引ファイル．既存のファイルは置き換える
+	 * @return 索引
+	 */
+	public static CallerIndex write(CallGraph graph, Path file) {
+		int n = graph.getMethodCount();
+		byte[][] keys = new byte[n][];
+		for(int i = 0; i < n; i++) {
+			keys[i] = graph.getKey(i).getBytes(StandardCharsets.UTF_8);
+			if(keys[i].length > 0xFFFF) {
+				throw new IllegalArgumentException("method key too long: " + graph.getKey(i));
+			}
+		}
+		// order[新しい番号] = グラフのid，rank[グラフのid] = 新しい番号
+		Integer[] boxed = new Integer[n];
+		for(int i = 0; i < n; i++) {
+			boxed[i] = i;
+		}
+		Arrays.sort(boxed, Comparator.comparing((Integer i) -> keys[i], Arrays::compareUnsigned));
+		int[] order = new int[n];
+		int[] rank = new int[n];
+		for(int i = 0; i < n; i++) {
+			order[i] = boxed[i];
+			rank[boxed[i]] = i;
+		}
+
+		// 呼び出し元を新しい番号の順に見るので，呼び出される側ごとの並びは昇順になる
+		int[] offsets = graph.offsets();
+		int[] targets = graph.targets();
+		int[] callerOffsets = new int[n + 1];
+		for(int target : targets) {
+			callerOffsets[rank[target] + 1]++;
+		}
+		for(int i = 0; i < n; i++) {
+			callerOffsets[i + 1] += callerOffsets[i];
+		}
+		int[] fill = Arrays.copyOf(callerOffsets, n);
+		int[] callers = new int[targets.length];
+		for(int caller = 0; caller < n; caller++) {
+			int old = order[caller];
+			for(int e = offsets[old]; e < offsets[old + 1]; e++) {
+				callers[fill[rank[targets[e]]]++] = caller;
+			}
+		}
+		long[] declared = new long[(n + Long.SIZE - 1) / Long.SIZE];
+		BitSet graphDeclared = graph.declared();
+		for(int i = 0; i < n; i++) {
+			if(graphDeclared.get(order[i])) {
+				declared[i / Long.SIZE] |= 1L << i;
+			}
+		}
+
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp);
+					DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out))) {
+				dos.writeInt(MAGIC);
+				dos.writeInt(VERSION);
+				dos.writeInt(n);
+				dos.writeInt(callers.length);
+				int offset = 0;
+				for(int i = 0; i < n; i++) {
+					dos.writeInt(offset);
+					offset += 2 + keys[order[i]].length;
+				}
+				for(int o : callerOffsets) {
+					dos.writeInt(o);
+				}
+				for(int c : callers) {
+					dos.writeInt(c);
+				}
+				for(long word : declared) {
+					dos.writeLong(word);
+				}
+				dos.writeInt(offset);
+				for(int i = 0; i < n; i++) {
+					dos.writeShort(keys[order[i]].length);
+					dos.write(keys[order[i]]);
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return open(file);
+	}
+
+	/**
+	 * 索引ファイルを開く．
+	 *
+	 * @param file 索引ファイル
+	 * @return 索引
+	 * @exception UncheckedIOException 索引を読めない場合
+	 */
+	public static CallerIndex open(Path file) {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("not a caller index: " + file);
+			}
+			int methodCount = buffer.getInt();
+			int edgeCount = buffer.getInt();
+			IntBuffer keyOffsets = slice(buffer, methodCount * Integer.BYTES).asIntBuffer();
+			IntBuffer callerOffsets = slice(buffer, (methodCount + 1) * Integer.BYTES).asIntBuffer();
+			IntBuffer callers = slice(buffer, edgeCount * Integer.BYTES).asIntBuffer();
+			LongBuffer declared = slice(buffer, (methodCount + Long.SIZE - 1) / Long.SIZE * Long.BYTES).asLongBuffer();
+			int stringsLength = buffer.getInt();
+			ByteBuffer strings = slice(buffer, stringsLength);
+			if(callerOffsets.get(methodCount) != edgeCount) {
+				throw new IOException("broken caller index: " + file);
+			}
+			return new CallerIndex(methodCount, edgeCount, keyOffsets, callerOffsets, callers, declared, strings);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new UncheckedIOException(new IOException("broken caller index: " + file, e));
+		}
+	}
+
+	// 現在の位置からlengthバイトを切り出し，その後ろに進める
+	private static ByteBuffer slice(ByteBuffer buffer, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.limit(buffer.position() + length);
+		buffer.position(buffer.position() + length);
+		return duplicate.slice();
+	}
+
+	public int getMethodCount() {
+		return methodCount;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @param key メソッドのキー
+	 * @return 索引でのメソッドの番号．含まれない場合は-1
+	 */
+	public int find(String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = methodCount - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = compareKey(mid, bytes);
+			if(c < 0) {
+				low = mid + 1;
+			} else if(c > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	public String getKey(int method) {
+		int offset = keyOffsets.get(method);
+		int length = Short.toUnsignedInt(strings.getShort(offset));
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++) {
+			bytes[i] = strings.get(offset + 2 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param method メソッドの番号
+	 * @return ソースで宣言されたメソッドであればtrue
+	 */
+	public boolean isDeclared(int method) {
+		return (declared.get(method / Long.SIZE) & (1L << method)) != 0;
+	}
+
+	/**
+	 * @param method 呼び出される側の番号
+	 * @return 直接呼び出すメソッドの番号(昇順)
+	 */
+	public int[] getCallers(int method) {
+		int start = callerOffsets.get(method);
+		int[] result = new int[callerOffsets.get(method + 1) - start];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = callers.get(start + i);
+		}
+		return result;
+	}
+
+	/**
+	 * 直接または間接に呼び出すメソッドを求める．
+	 * 再帰している場合を除き，メソッド自身は含まない．
+	 *
+	 * @param method 呼び出される側の番号
+	 * @return 呼び出し元の番号の集合
+	 */
+	public BitSet getTransitiveCallers(int method) {
+		BitSet visited = new BitSet(methodCount);
+		IntList stack = new IntList();
+		stack.add(method);
+		while(!stack.isEmpty()) {
+			int m = stack.removeLast();
+			int end = callerOffsets.get(m + 1);
+			for(int e = callerOffsets.get(m); e < end; e++) {
+				int caller = callers.get(e);
+				if(!visited.get(caller)) {
+					visited.set(caller);
+					stack.add(caller);
+				}
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * @param key 呼び出される側のキー
+	 * @return 直接呼び出すメソッドのキー．索引に含まれない場合は空
+	 */
+	public List<String> getCallers(String key) {
+		int method = find(key);
+		List<String> result = new ArrayList<>();
+		if(method >= 0) {
+			for(int caller : getCallers(method)) {
+				result.add(getKey(caller));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param key 呼び出される側のキー
+	 * @return 直接または間接に呼び出すメソッドのキー(キーの順)．索引に含まれない場合は空
+	 */
+	public List<String> getTransitiveCallers(String key) {
+		int method = find(key);
+		List<String> result = new ArrayList<>();
+		if(method >= 0) {
+			getTransitiveCallers(method).stream().forEach(caller -> result.add(getKey(caller)));
+		}
+		return result;
+	}
+
+	private int compareKey(int index, byte[] key) {
+		int offset = keyOffsets.get(index);
+		int length = Short.toUnsignedInt(strings.getShort(offset));
+		int n = Math.min(length, key.length);
+		for(int i = 0; i < n; i++) {
+			int c = Integer.compare(Byte.toUnsignedInt(strings.get(offset + 2 + i)), Byte.toUnsignedInt(key[i]));
+			if(c != 0) {
+				return c;
+			}
+		}
+		return Integer.compare(length, key.length);
+	}
+}
@@ -0,0 +1,111 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.CompositeVisitor;
+import com.lethe_river.jsa.MethodDeclVisitor;
+import com.lethe_river.jsa.SourceProcessor;
+import com.lethe_river.jsa.sink.CollectingSink;
+import com.lethe_river.jsa.sink.MethodRecord;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * 起点から到達できない宣言されたメソッドの一覧．
+ * メソッドの一覧は{@link MethodDeclVisitor}が出力したものを使い，呼び出しグラフとはキーで対応付ける．
+ */
+public final class DeadCodeReport {
+	private static final Logger logger = LoggerUtil.getLogger(DeadCodeReport.class);
+
+	private static final Comparator<MethodRecord> ORDER = Comparator
+			.comparing(MethodRecord::getSourceFile, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparingInt(MethodRecord::getLine)
+			.thenComparing(MethodRecord::toString);
+
+	private final int methodCount;
+	private final List<MethodRecord> unreachable;
+
+	private DeadCodeReport(int methodCount, List<MethodRecord> unreachable) {
+		this.methodCount = methodCount;
+		this.unreachable = Collections.unmodifiableList(unreachable);
+	}
+
+	/**
+	 * @param graph 呼び出しグラフ
+	 * @param reachable 到達できるメソッドのid
+	 * @param methods 宣言されたメソッド
+	 * @return 到達できないメソッドの一覧
+	 */
+	public static DeadCodeReport of(CallGraph graph, BitSet reachable, Collection<MethodRecord> methods) {
+		List<MethodRecord> unreachable = new ArrayList<>();
+		for(MethodRecord method : methods) {
+			int id = graph.find(method.toString());
+			if(id < 0 || !reachable.get(id)) {
+				unreachable.add(method);
+			}
+		}
+		unreachable.sort(ORDER);
+		return new DeadCodeReport(methods.size(), unreachable);
+	}
+
+	/**
+	 * ソースを1回解析して，呼び出しグラフ，起点，メソッドの一覧を同時に集め，到達できないメソッドを求める．
+	 *
+	 * @param src 解析するソース
+	 * @param entryPoints 起点の設定
+	 * @param algorithm 仮想呼び出しの解決方法
+	 * @return 到達できないメソッドの一覧
+	 */
+	public static DeadCodeReport analyze(SourceProcessor src, EntryPoints entryPoints, CallGraphBuilder.Algorithm algorithm) {
+		CallGraphBuilder builder = new CallGraphBuilder();
+		CollectingSink sink = new CollectingSink();
+		long start = System.nanoTime();
+		src.processSources(() -> new CompositeVisitor(
+				builder.newVisitor(),
+				entryPoints.newVisitor(),
+				new MethodDeclVisitor(sink)));
+		long parsed = System.nanoTime();
+
+		CallGraph graph = builder.build(algorithm);
+		BitSet reachable = Reachability.reachable(graph, entryPoints.resolve(graph));
+		DeadCodeReport report = of(graph, reachable, sink.getRecords());
+		long end = System.nanoTime();
+		logger.info("dead code: " + report.unreachable.size() + "/" + report.methodCount
+				+ " methods, parse " + (parsed - start) / 1_000_000 + "ms"
+				+ ", analysis " + (end - parsed) / 1_000_000 + "ms");
+		return report;
+	}
+
+	/**
+	 * @return 宣言されたメソッドの数
+	 */
+	public int getMethodCount() {
+		return methodCount;
+	}
+
+	/**
+	 * @return 到達できないメソッド．ファイルと行の順
+	 */
+	public List<MethodRecord> getUnreachable() {
+		return unreachable;
+	}
+
+	/**
+	 * {@code ファイル:行: キー}の形式で1行に1メソッドずつ書き出す．
+	 *
+	 * @param out 出力先
+	 * @throws IOException 書き込めない場合
+	 */
+	public void write(Writer out) throws IOException {
+		for(MethodRecord method : unreachable) {
+			out.write(method.getSourceFile() + ":" + method.getLine() + ": " + method + "\n");
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.IAnnotationBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+
+import com.lethe_river.jsa.Descriptors;
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 到達可能性の解析の起点とするメソッド．
+ * {@link #newVisitor()}が返すVisitorで束縛から起点を集め，{@link #resolve(CallGraph)}で呼び出しグラフのidに変換する．
+ *
+ * <p>
+ * 起点の種類は次の通りで，それぞれ有効にするかを設定できる．
+ * <ul>
+ * <li>{@code static void main(String[])}</li>
+ * <li>テストのアノテーションが付いたメソッドと，それを宣言する型のコンストラクタ</li>
+ * <li>公開API．外部から見える型のpublicまたはprotectedなメソッド</li>
+ * <li>ライブラリの型のメソッドをオーバーライドするメソッド．ライブラリから呼び戻されうるため</li>
+ * <li>リフレクションの設定で指定したメソッド</li>
+ * </ul>
+ * クラスの初期化がどこで起きるかは追わないため，static初期化子は常に起点とする．
+ */
+public final class EntryPoints {
+
+	public static final String MAIN = "main(L[Ljava.lang.String;;)V";
+
+	/**
+	 * 既定でテストとみなすアノテーション
+	 */
+	public static final List<String> TEST_ANNOTATIONS = List.of(
+			"org.junit.Test",
+			"org.junit.Before",
+			"org.junit.After",
+			"org.junit.BeforeClass",
+			"org.junit.AfterClass",
+			"org.junit.jupiter.api.Test",
+			"org.junit.jupiter.api.RepeatedTest",
+			"org.junit.jupiter.api.TestFactory",
+			"org.junit.jupiter.api.TestTemplate",
+			"org.junit.jupiter.api.BeforeEach",
+			"org.junit.jupiter.api.AfterEach",
+			"org.junit.jupiter.api.BeforeAll",
+			"org.junit.jupiter.api.AfterAll",
+			"org.junit.jupiter.params.ParameterizedTest");
+
+	private boolean mainMethods = true;
+	private boolean tests = true;
+	private boolean publicApi = false;
+	private boolean libraryOverrides = true;
+	private final Set<String> testAnnotations = new HashSet<>(TEST_ANNOTATIONS);
+	private final Set<String> reflection = new HashSet<>();
+
+	// Visitorが見つけた起点のキーと，テストを含む型
+	private final Set<String> found = ConcurrentHashMap.newKeySet();
+	private final Set<String> testTypes = ConcurrentHashMap.newKeySet();
+
+	public void setMainMethods(boolean mainMethods) {
+		this.mainMethods = mainMethods;
+	}
+
+	public void setTests(boolean tests) {
+		this.tests = tests;
+	}
+
+	/**
+	 * ライブラリとして解析する場合に有効にする．既定では無効
+	 *
+	 * @param publicApi 公開APIを起点とする場合はtrue
+	 */
+	public void setPublicApi(boolean publicApi) {
+		this.publicApi = publicApi;
+	}
+
+	public void setLibraryOverrides(boolean libraryOverrides) {
+		this.libraryOverrides = libraryOverrides;
+	}
+
+	/**
+	 * @param annotation テストとみなすアノテーションのバイナリ名
+	 */
+	public void addTestAnnotation(String annotation) {
+		testAnnotations.add(annotation);
+	}
+
+	/**
+	 * リフレクションで呼ばれるメソッドを指定する．次のいずれかの形式で書く．
+	 * <ul>
+	 * <li>{@code 型}: 型の全てのメソッドとコンストラクタ</li>
+	 * <li>{@code 型#名前}: 同じ名前の全てのメソッド．コンストラクタは{@code <init>}</li>
+	 * <li>{@code 型#名前(引数)戻り値}: 1つのメソッド</li>
+	 * </ul>
+	 *
+	 * @param pattern メソッドの指定
+	 */
+	public void addReflection(String pattern) {
+		reflection.add(pattern.trim());
+	}
+
+	/**
+	 * リフレクションの設定を読み込む．1行に1つ{@link #addReflection(String)}の形式で書く．
+	 * 空行と{@code #}で始まる行は無視する．
+	 *
+	 * @param file 設定ファイル
+	 * @throws IOException 読み込めない場合
+	 */
+	public void addReflectionConfig(Path file) throws IOException {
+		for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if(!line.isEmpty() && !line.startsWith("#")) {
+				addReflection(line);
+			}
+		}
+	}
+
+	/**
+	 * 起点を集めるVisitorを返す．
+	 * 返したVisitorは1つのスレッドから使わなければならない．
+	 *
+	 * @return 新しいVisitor
+	 */
+	public ASTVisitor newVisitor() {
+		return new Collector();
+	}
+
+	/**
+	 * 起点を呼び出しグラフのidに変換する．グラフに含まれないメソッドは無視する．
+	 *
+	 * @param graph 呼び出しグラフ
+	 * @return 起点のid(昇順)
+	 */
+	public int[] resolve(CallGraph graph) {
+		IntList result = new IntList();
+		for(String key : found) {
+			int id = graph.find(key);
+			if(id >= 0) {
+				result.add(id);
+			}
+		}
+		for(int i = 0; i < graph.getMethodCount(); i++) {
+			String key = graph.getKey(i);
+			int hash = key.indexOf('#');
+			String type = key.substring(0, hash);
+			String signature = key.substring(hash + 1);
+			if(signature.equals(CallGraphBuilder.STATIC_INITIALIZER)
+					|| (tests && signature.startsWith("<init>(") && testTypes.contains(type))
+					|| isReflective(key, type, signature)) {
+				result.add(i);
+			}
+		}
+		return result.toSortedSet();
+	}
+
+	private boolean isReflective(String key, String type, String signature) {
+		if(reflection.isEmpty()) {
+			return false;
+		}
+		return reflection.contains(type)
+				|| reflection.contains(key)
+				|| reflection.contains(type + "#" + signature.substring(0, signature.indexOf('(')));
+	}
+
+	/**
+	 * 1つのスレッドで起点を集める．
+	 */
+	private final class Collector extends ASTVisitor {
+
+		private final Descriptors descriptors = new Descriptors();
+		// 型の束縛のキーから，ライブラリの上位型が宣言するメソッドの名前ごとの一覧
+		private final Map<String, Map<String, List<IMethodBinding>>> libraryMethods = new HashMap<>();
+
+		@Override
+		public boolean visit(MethodDeclaration node) {
+			IMethodBinding method = node.resolveBinding();
+			if(method == null) {
+				return true;
+			}
+			String key = descriptors.getKey(method);
+			if(key == null) {
+				return true;
+			}
+			if(isEntryPoint(method, key)) {
+				found.add(key);
+			}
+			return true;
+		}
+
+		private boolean isEntryPoint(IMethodBinding method, String key) {
+			int modifiers = method.getModifiers();
+			if(mainMethods && Modifier.isStatic(modifiers) && key.endsWith("#" + MAIN)) {
+				return true;
+			}
+			if(tests && isTest(method)) {
+				testTypes.add(key.substring(0, key.indexOf('#')));
+				return true;
+			}
+			if(publicApi
+					&& (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers))
+					&& isExported(method.getDeclaringClass())) {
+				return true;
+			}
+			return libraryOverrides
+					&& !method.isConstructor()
+					&& !Modifier.isStatic(modifiers)
+					&& !Modifier.isPrivate(modifiers)
+					&& overridesLibrary(method);
+		}
+
+		private boolean isTest(IMethodBinding method) {
+			for(IAnnotationBinding annotation : method.getAnnotations()) {
+				ITypeBinding type = annotation.getAnnotationType();
+				if(type != null && testAnnotations.contains(type.getErasure().getBinaryName())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// 外部から見える型．メンバ型は外側の型も見える必要がある
+		private boolean isExported(ITypeBinding type) {
+			for(ITypeBinding t = type; t != null; t = t.getDeclaringClass()) {
+				if(t.isLocal() || t.isAnonymous()) {
+					return false;
+				}
+				int modifiers = t.getModifiers();
+				if(!Modifier.isPublic(modifiers) && !(t.isMember() && Modifier.isProtected(modifiers))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean overridesLibrary(IMethodBinding method) {
+			ITypeBinding type = method.getDeclaringClass();
+			if(type == null) {
+				return false;
+			}
+			List<IMethodBinding> candidates = libraryMethods(type).get(method.getName());
+			if(candidates == null) {
+				return false;
+			}
+			for(IMethodBinding candidate : candidates) {
+				if(method.overrides(candidate)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private Map<String, List<IMethodBinding>> libraryMethods(ITypeBinding type) {
+			String key = type.getKey();
+			Map<String, List<IMethodBinding>> result = key == null ? null : libraryMethods.get(key);
+			if(result != null) {
+				return result;
+			}
+			result = new HashMap<>();
+			Set<String> seen = new HashSet<>();
+			Deque<ITypeBinding> queue = new ArrayDeque<>();
+			queue.add(type);
+			while(!queue.isEmpty()) {
+				ITypeBinding t = queue.poll();
+				List<ITypeBinding> next = new ArrayList<>();
+				if(t.getSuperclass() != null) {
+					next.add(t.getSuperclass());
+				}
+				for(ITypeBinding i : t.getInterfaces()) {
+					next.add(i);
+				}
+				for(ITypeBinding s : next) {
+					if(!seen.add(s.getErasure().getKey())) {
+						continue;
+					}
+					queue.add(s);
+					if(s.isFromSource()) {
+						continue;
+					}
+					for(IMethodBinding m : s.getDeclaredMethods()) {
+						if(!m.isConstructor() && !Modifier.isStatic(m.getModifiers()) && !Modifier.isPrivate(m.getModifiers())) {
+							result.computeIfAbsent(m.getName(), k -> new ArrayList<>()).add(m);
+						}
+					}
+				}
+			}
+			if(key != null) {
+				libraryMethods.put(key, result);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 呼び出しグラフ上の到達可能性．
+ * 幅優先探索の1段分の先端を区間に分けて並列に展開する．
+ * 訪問済みの印はビットごとにCASで付けるため，同じメソッドを2つのスレッドが展開することはない．
+ */
+public final class Reachability {
+
+	// これより小さい先端は1つのスレッドで展開する
+	private static final int CHUNK = 1024;
+
+	private Reachability() {
+	}
+
+	/**
+	 * @param graph 呼び出しグラフ
+	 * @param roots 起点のid
+	 * @return 起点から到達できるメソッドのid
+	 */
+	public static BitSet reachable(CallGraph graph, int[] roots) {
+		int n = graph.getMethodCount();
+		int[] offsets = graph.offsets();
+		int[] targets = graph.targets();
+		AtomicLongArray visited = new AtomicLongArray((n + Long.SIZE - 1) / Long.SIZE);
+
+		IntList first = new IntList(Math.max(roots.length, 1));
+		for(int root : roots) {
+			if(root >= 0 && root < n && mark(visited, root)) {
+				first.add(root);
+			}
+		}
+		int[] frontier = first.toArray();
+		while(frontier.length > 0) {
+			int[] current = frontier;
+			if(current.length <= CHUNK) {
+				frontier = expand(current, 0, current.length, offsets, targets, visited).toArray();
+				continue;
+			}
+			int chunks = (current.length + CHUNK - 1) / CHUNK;
+			IntList[] next = new IntList[chunks];
+			IntStream.range(0, chunks).parallel().forEach(c ->
+					next[c] = expand(current, c * CHUNK, Math.min(current.length, (c + 1) * CHUNK), offsets, targets, visited));
+			int size = 0;
+			for(IntList list : next) {
+				size += list.size();
+			}
+			frontier = new int[size];
+			int position = 0;
+			for(IntList list : next) {
+				for(int i = 0; i < list.size(); i++) {
+					frontier[position++] = list.get(i);
+				}
+			}
+		}
+
+		long[] words = new long[visited.length()];
+		for(int i = 0; i < words.length; i++) {
+			words[i] = visited.get(i);
+		}
+		return BitSet.valueOf(words);
+	}
+
+	private static IntList expand(int[] frontier, int from, int to, int[] offsets, int[] targets, AtomicLongArray visited) {
+		IntList next = new IntList();
+		for(int i = from; i < to; i++) {
+			int method = frontier[i];
+			for(int e = offsets[method]; e < offsets[method + 1]; e++) {
+				int target = targets[e];
+				if(mark(visited, target)) {
+					next.add(target);
+				}
+			}
+		}
+		return next;
+	}
+
+	// 初めて印を付けた場合はtrue
+	private static boolean mark(AtomicLongArray visited, int method) {
+		int word = method / Long.SIZE;
+		long bit = 1L << method;
+		while(true) {
+			long old = visited.get(word);
+			if((old & bit) != 0) {
+				return false;
+			}
+			if(visited.compareAndSet(word, old, old | bit)) {
+				return true;
+			}
+		}
+	}
+}
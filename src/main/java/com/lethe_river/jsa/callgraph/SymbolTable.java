@@ -0,0 +1,59 @@
+package com.lethe_river.jsa.callgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * メソッドや型のキーなどの文字列に，0から連続するidを割り当てる表．
+ * 複数のスレッドから同時にidを割り当てられる．割り当て済みのキーからidを引くときはロックしない．
+ */
+public final class SymbolTable {
+
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	private final List<String> keys = new ArrayList<>();
+
+	/**
+	 * キーのidを返す．初めてのキーには新しいidを割り当てる．
+	 *
+	 * @param key キー
+	 * @return id
+	 */
+	public int idOf(String key) {
+		Integer id = ids.get(key);
+		if(id != null) {
+			return id;
+		}
+		synchronized(keys) {
+			id = ids.get(key);
+			if(id == null) {
+				id = keys.size();
+				keys.add(key);
+				ids.put(key, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * @param key キー
+	 * @return id．割り当てていない場合は-1
+	 */
+	public int find(String key) {
+		Integer id = ids.get(key);
+		return id == null ? -1 : id;
+	}
+
+	public String getKey(int id) {
+		synchronized(keys) {
+			return keys.get(id);
+		}
+	}
+
+	public int size() {
+		synchronized(keys) {
+			return keys.size();
+		}
+	}
+}
@@ -0,0 +1,613 @@
+package com.lethe_river.jsa.cfg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.BreakStatement;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.ContinueStatement;
+import org.eclipse.jdt.core.dom.DoStatement;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.LabeledStatement;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.SwitchCase;
+import org.eclipse.jdt.core.dom.SwitchStatement;
+import org.eclipse.jdt.core.dom.SynchronizedStatement;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.WhileStatement;
+
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * メソッドまたはラムダ式の本体を基本ブロックに分解して{@link ControlFlowGraph}を作る．
+ *
+ * <p>
+ * 要素は文を単位とし，式の中の条件演算子や短絡評価は分岐として扱わない．
+ * if，ループ，switchの条件の式はそれぞれ1つの要素になる．
+ * 例外はどの文からも投げられうるとし，例外を捕まえる範囲では1つのブロックに1つの要素だけを置いて，
+ * 各ブロックとその先行ブロックからcatchとfinallyへ辺を張る．これにより，要素の実行前と実行後の両方の状態が例外の行き先に流れる．
+ * finallyは1つだけ作り，そこへ入る全ての経路の行き先(後続の文，breakやreturnの行き先，外側への例外の伝播)へ辺を張るため，
+ * 実際には起こらない経路を含む．
+ * ラムダ式の本体は含めず，{@link ControlFlowGraph#getLambdas()}から別のグラフとして作る．
+ * 束縛は解決しないので，同じ構文木の異なるメソッドを複数のスレッドで同時に処理してよい．
+ */
+public final class ControlFlowBuilder {
+
+	private final ASTNode owner;
+	private final List<ASTNode> elements = new ArrayList<>();
+	private final IntList elementBlocks = new IntList();
+	private final IntList edgeFrom = new IntList();
+	private final IntList edgeTo = new IntList();
+	private final Deque<Context> contexts = new ArrayDeque<>();
+	private int blockCount = 0;
+	private int current;
+	// 次に処理するループに付けるラベル
+	private String pendingLabel = null;
+
+	private ControlFlowBuilder(ASTNode owner) {
+		this.owner = owner;
+		newBlock(); // ENTRY
+		newBlock(); // EXIT
+		current = ControlFlowGraph.ENTRY;
+	}
+
+	/**
+	 * @param method メソッド宣言
+	 * @return 制御フローグラフ．本体が無い場合はnull
+	 */
+	public static ControlFlowGraph build(MethodDeclaration method) {
+		if(method.getBody() == null) {
+			return null;
+		}
+		ControlFlowBuilder builder = new ControlFlowBuilder(method);
+		for(Object parameter : method.parameters()) {
+			builder.add((ASTNode) parameter);
+		}
+		builder.statement(method.getBody());
+		return builder.finish();
+	}
+
+	/**
+	 * @param lambda ラムダ式
+	 * @return 制御フローグラフ
+	 */
+	public static ControlFlowGraph build(LambdaExpression lambda) {
+		ControlFlowBuilder builder = new ControlFlowBuilder(lambda);
+		for(Object parameter : lambda.parameters()) {
+			builder.add((ASTNode) parameter);
+		}
+		if(lambda.getBody() instanceof Block) {
+			builder.statement((Block) lambda.getBody());
+		} else {
+			builder.add(lambda.getBody());
+		}
+		return builder.finish();
+	}
+
+	// 文脈
+
+	private abstract static class Context {
+	}
+
+	// breakやcontinueの行き先
+	private static final class JumpContext extends Context {
+		final String label;
+		final int breakTarget;
+		final int continueTarget;
+		// ラベルの無いbreakの行き先になる
+		final boolean breakable;
+
+		JumpContext(String label, int breakTarget, int continueTarget, boolean breakable) {
+			this.label = label;
+			this.breakTarget = breakTarget;
+			this.continueTarget = continueTarget;
+			this.breakable = breakable;
+		}
+	}
+
+	private static final class TryContext extends Context {
+		final int[] handlers;
+		final int finallyEntry;
+		boolean handlersActive = true;
+		// finallyを抜けた後の行き先
+		final IntList continuations = new IntList();
+
+		TryContext(int[] handlers, int finallyEntry) {
+			this.handlers = handlers;
+			this.finallyEntry = finallyEntry;
+		}
+	}
+
+	// 構築
+
+	private int newBlock() {
+		return blockCount++;
+	}
+
+	private void add(ASTNode element) {
+		// 例外が要素の途中で起きた場合の状態を表せるように，要素ごとにブロックを分ける
+		if(catching() && !elementBlocks.isEmpty() && elementBlocks.get(elementBlocks.size() - 1) == current) {
+			int next = newBlock();
+			addEdge(current, next);
+			current = next;
+		}
+		elements.add(element);
+		elementBlocks.add(current);
+	}
+
+	// 例外がcatchかfinallyに捕まる範囲にいればtrue
+	private boolean catching() {
+		for(Context context : contexts) {
+			if(context instanceof TryContext
+					&& (((TryContext) context).handlersActive || ((TryContext) context).finallyEntry >= 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addEdge(int from, int to) {
+		edgeFrom.add(from);
+		edgeTo.add(to);
+	}
+
+	// viaがnullなら現在のブロックから，そうでなければviaのfinallyを抜けた後にtargetへ進む
+	private void link(TryContext via, int target) {
+		if(via == null) {
+			addEdge(current, target);
+		} else {
+			via.continuations.add(target);
+		}
+	}
+
+	// 間にあるfinallyを通ってtargetへ進む．stopの手前までの文脈を抜ける
+	private void jump(int target, Context stop) {
+		TryContext via = null;
+		for(Context context : contexts) {
+			if(context == stop) {
+				break;
+			}
+			if(context instanceof TryContext && ((TryContext) context).finallyEntry >= 0) {
+				TryContext t = (TryContext) context;
+				link(via, t.finallyEntry);
+				via = t;
+			}
+		}
+		link(via, target);
+	}
+
+	// 例外を外側のcatchと出口へ伝播させる
+	private void propagate(TryContext via) {
+		for(Context context : contexts) {
+			if(!(context instanceof TryContext)) {
+				continue;
+			}
+			TryContext t = (TryContext) context;
+			if(t.handlersActive) {
+				for(int handler : t.handlers) {
+					link(via, handler);
+				}
+			}
+			if(t.finallyEntry >= 0) {
+				link(via, t.finallyEntry);
+				via = t;
+			}
+		}
+		link(via, ControlFlowGraph.EXIT);
+	}
+
+	private void statements(List<?> statements) {
+		for(Object statement : statements) {
+			statement((Statement) statement);
+		}
+	}
+
+	private void statement(Statement node) {
+		switch(node.getNodeType()) {
+		case ASTNode.BLOCK:
+			statements(((Block) node).statements());
+			break;
+		case ASTNode.EMPTY_STATEMENT:
+			break;
+		case ASTNode.IF_STATEMENT:
+			ifStatement((IfStatement) node);
+			break;
+		case ASTNode.WHILE_STATEMENT:
+			whileStatement((WhileStatement) node);
+			break;
+		case ASTNode.DO_STATEMENT:
+			doStatement((DoStatement) node);
+			break;
+		case ASTNode.FOR_STATEMENT:
+			forStatement((ForStatement) node);
+			break;
+		case ASTNode.ENHANCED_FOR_STATEMENT:
+			enhancedForStatement((EnhancedForStatement) node);
+			break;
+		case ASTNode.SWITCH_STATEMENT:
+			switchStatement((SwitchStatement) node);
+			break;
+		case ASTNode.LABELED_STATEMENT:
+			labeledStatement((LabeledStatement) node);
+			break;
+		case ASTNode.BREAK_STATEMENT:
+			breakStatement((BreakStatement) node);
+			break;
+		case ASTNode.CONTINUE_STATEMENT:
+			continueStatement((ContinueStatement) node);
+			break;
+		case ASTNode.RETURN_STATEMENT:
+			add(node);
+			jump(ControlFlowGraph.EXIT, null);
+			current = newBlock();
+			break;
+		case ASTNode.THROW_STATEMENT:
+			add(node);
+			propagate(null);
+			current = newBlock();
+			break;
+		case ASTNode.TRY_STATEMENT:
+			tryStatement((TryStatement) node);
+			break;
+		case ASTNode.SYNCHRONIZED_STATEMENT:
+			add(((SynchronizedStatement) node).getExpression());
+			statement(((SynchronizedStatement) node).getBody());
+			break;
+		default:
+			// 式文，変数宣言，assert，コンストラクタ呼び出し，局所クラスの宣言
+			add(node);
+			break;
+		}
+	}
+
+	private String takeLabel() {
+		String label = pendingLabel;
+		pendingLabel = null;
+		return label;
+	}
+
+	private void ifStatement(IfStatement node) {
+		add(node.getExpression());
+		int condition = current;
+		int thenBlock = newBlock();
+		addEdge(condition, thenBlock);
+		current = thenBlock;
+		statement(node.getThenStatement());
+		int thenEnd = current;
+		int after;
+		if(node.getElseStatement() != null) {
+			int elseBlock = newBlock();
+			addEdge(condition, elseBlock);
+			current = elseBlock;
+			statement(node.getElseStatement());
+			after = newBlock();
+			addEdge(current, after);
+		} else {
+			after = newBlock();
+			addEdge(condition, after);
+		}
+		addEdge(thenEnd, after);
+		current = after;
+	}
+
+	private void whileStatement(WhileStatement node) {
+		String label = takeLabel();
+		int condition = newBlock();
+		addEdge(current, condition);
+		current = condition;
+		add(node.getExpression());
+		int body = newBlock();
+		int after = newBlock();
+		addEdge(condition, body);
+		addEdge(condition, after);
+		loopBody(node.getBody(), body, condition, after, label);
+		current = after;
+	}
+
+	private void doStatement(DoStatement node) {
+		String label = takeLabel();
+		int body = newBlock();
+		int condition = newBlock();
+		int after = newBlock();
+		addEdge(current, body);
+		loopBody(node.getBody(), body, condition, after, label);
+		current = condition;
+		add(node.getExpression());
+		addEdge(condition, body);
+		addEdge(condition, after);
+		current = after;
+	}
+
+	private void forStatement(ForStatement node) {
+		String label = takeLabel();
+		for(Object initializer : node.initializers()) {
+			add((Expression) initializer);
+		}
+		int condition = newBlock();
+		addEdge(current, condition);
+		current = condition;
+		if(node.getExpression() != null) {
+			add(node.getExpression());
+		}
+		int body = newBlock();
+		int update = newBlock();
+		int after = newBlock();
+		addEdge(condition, body);
+		if(node.getExpression() != null) {
+			addEdge(condition, after);
+		}
+		loopBody(node.getBody(), body, update, after, label);
+		current = update;
+		for(Object updater : node.updaters()) {
+			add((Expression) updater);
+		}
+		addEdge(update, condition);
+		current = after;
+	}
+
+	private void enhancedForStatement(EnhancedForStatement node) {
+		String label = takeLabel();
+		add(node.getExpression());
+		int header = newBlock();
+		addEdge(current, header);
+		current = header;
+		add(node.getParameter());
+		int body = newBlock();
+		int after = newBlock();
+		addEdge(header, body);
+		addEdge(header, after);
+		loopBody(node.getBody(), body, header, after, label);
+		current = after;
+	}
+
+	// 本体の終わりからcontinueの行き先へ辺を張る
+	private void loopBody(Statement statement, int body, int continueTarget, int after, String label) {
+		JumpContext context = new JumpContext(label, after, continueTarget, true);
+		contexts.push(context);
+		current = body;
+		statement(statement);
+		addEdge(current, continueTarget);
+		contexts.pop();
+	}
+
+	private void switchStatement(SwitchStatement node) {
+		String label = takeLabel();
+		add(node.getExpression());
+		int dispatch = current;
+		int after = newBlock();
+		contexts.push(new JumpContext(label, after, -1, true));
+		boolean hasDefault = false;
+		boolean first = true;
+		for(Object statement : node.statements()) {
+			if(statement instanceof SwitchCase) {
+				SwitchCase switchCase = (SwitchCase) statement;
+				int caseBlock = newBlock();
+				addEdge(dispatch, caseBlock);
+				if(!first) {
+					// 前のcaseからの落ち込み
+					addEdge(current, caseBlock);
+				}
+				first = false;
+				current = caseBlock;
+				hasDefault |= switchCase.isDefault();
+			} else {
+				statement((Statement) statement);
+			}
+		}
+		if(!first) {
+			addEdge(current, after);
+		}
+		if(!hasDefault) {
+			addEdge(dispatch, after);
+		}
+		contexts.pop();
+		current = after;
+	}
+
+	private void labeledStatement(LabeledStatement node) {
+		String label = node.getLabel().getIdentifier();
+		Statement body = node.getBody();
+		switch(body.getNodeType()) {
+		case ASTNode.WHILE_STATEMENT:
+		case ASTNode.DO_STATEMENT:
+		case ASTNode.FOR_STATEMENT:
+		case ASTNode.ENHANCED_FOR_STATEMENT:
+		case ASTNode.SWITCH_STATEMENT:
+			pendingLabel = label;
+			statement(body);
+			return;
+		default:
+			int after = newBlock();
+			contexts.push(new JumpContext(label, after, -1, false));
+			statement(body);
+			addEdge(current, after);
+			contexts.pop();
+			current = after;
+		}
+	}
+
+	private void breakStatement(BreakStatement node) {
+		String label = node.getLabel() == null ? null : node.getLabel().getIdentifier();
+		JumpContext target = findJumpContext(label, false);
+		if(target != null) {
+			jump(target.breakTarget, target);
+		}
+		current = newBlock();
+	}
+
+	private void continueStatement(ContinueStatement node) {
+		String label = node.getLabel() == null ? null : node.getLabel().getIdentifier();
+		JumpContext target = findJumpContext(label, true);
+		if(target != null) {
+			jump(target.continueTarget, target);
+		}
+		current = newBlock();
+	}
+
+	private JumpContext findJumpContext(String label, boolean isContinue) {
+		for(Context context : contexts) {
+			if(!(context instanceof JumpContext)) {
+				continue;
+			}
+			JumpContext j = (JumpContext) context;
+			if(isContinue && j.continueTarget < 0) {
+				continue;
+			}
+			if(label == null ? j.breakable : label.equals(j.label)) {
+				return j;
+			}
+		}
+		return null;
+	}
+
+	private void tryStatement(TryStatement node) {
+		List<?> catches = node.catchClauses();
+		int finallyEntry = node.getFinally() == null ? -1 : newBlock();
+		int[] handlers = new int[catches.size()];
+		for(int i = 0; i < handlers.length; i++) {
+			handlers[i] = newBlock();
+		}
+		int after = newBlock();
+		TryContext context = new TryContext(handlers, finallyEntry);
+		contexts.push(context);
+
+		// tryの直前の状態からも例外が起きうるように，本体は新しいブロックから始める
+		int bodyStart = newBlock();
+		addEdge(current, bodyStart);
+		current = bodyStart;
+		for(Object resource : node.resources()) {
+			add((ASTNode) resource);
+		}
+		statement(node.getBody());
+		int bodyEnd = blockCount;
+		jump(after, nextOf(context));
+
+		context.handlersActive = false;
+		IntList catchBlocks = new IntList();
+		for(int i = 0; i < handlers.length; i++) {
+			CatchClause catchClause = (CatchClause) catches.get(i);
+			int start = blockCount;
+			current = handlers[i];
+			add(catchClause.getException());
+			statement(catchClause.getBody());
+			jump(after, nextOf(context));
+			catchBlocks.add(handlers[i]);
+			for(int b = start; b < blockCount; b++) {
+				catchBlocks.add(b);
+			}
+		}
+		contexts.pop();
+
+		BitSet body = new BitSet();
+		body.set(bodyStart, bodyEnd);
+		int[] targets = finallyEntry < 0 ? handlers : Arrays.copyOf(handlers, handlers.length + 1);
+		if(finallyEntry >= 0) {
+			targets[handlers.length] = finallyEntry;
+		}
+		exceptionEdges(body, targets);
+		if(finallyEntry >= 0) {
+			BitSet catchBody = new BitSet();
+			for(int i = 0; i < catchBlocks.size(); i++) {
+				catchBody.set(catchBlocks.get(i));
+			}
+			exceptionEdges(catchBody, new int[] { finallyEntry });
+			// 例外でfinallyに入った場合
+			propagate(context);
+			current = finallyEntry;
+			statement(node.getFinally());
+			int[] continuations = context.continuations.toSortedSet();
+			for(int continuation : continuations) {
+				addEdge(current, continuation);
+			}
+		}
+		current = after;
+	}
+
+	// blocksの各ブロックとその先行ブロックから例外の行き先へ辺を張る．
+	// ブロックの要素は1つなので，先行ブロックの出口が要素の実行前の状態になる
+	private void exceptionEdges(BitSet blocks, int[] targets) {
+		BitSet sources = (BitSet) blocks.clone();
+		int edgeCount = edgeFrom.size();
+		for(int i = 0; i < edgeCount; i++) {
+			if(blocks.get(edgeTo.get(i))) {
+				sources.set(edgeFrom.get(i));
+			}
+		}
+		for(int b = sources.nextSetBit(0); b >= 0; b = sources.nextSetBit(b + 1)) {
+			for(int target : targets) {
+				addEdge(b, target);
+			}
+		}
+	}
+
+	// 文脈の1つ外側．無ければnull
+	private Context nextOf(Context context) {
+		boolean found = false;
+		for(Context c : contexts) {
+			if(found) {
+				return c;
+			}
+			found = c == context;
+		}
+		return null;
+	}
+
+	// 配列の組み立て
+
+	private ControlFlowGraph finish() {
+		// 本体の終わりから出口へ
+		addEdge(current, ControlFlowGraph.EXIT);
+		int n = blockCount;
+
+		int[] elementOffsets = new int[n + 1];
+		for(int i = 0; i < elementBlocks.size(); i++) {
+			elementOffsets[elementBlocks.get(i) + 1]++;
+		}
+		for(int i = 0; i < n; i++) {
+			elementOffsets[i + 1] += elementOffsets[i];
+		}
+		int[] fill = Arrays.copyOf(elementOffsets, n);
+		ASTNode[] sorted = new ASTNode[elements.size()];
+		for(int i = 0; i < elements.size(); i++) {
+			sorted[fill[elementBlocks.get(i)]++] = elements.get(i);
+		}
+
+		int[][] successors = new int[n][];
+		int[] counts = new int[n];
+		for(int i = 0; i < edgeFrom.size(); i++) {
+			counts[edgeFrom.get(i)]++;
+		}
+		for(int b = 0; b < n; b++) {
+			successors[b] = new int[counts[b]];
+			counts[b] = 0;
+		}
+		for(int i = 0; i < edgeFrom.size(); i++) {
+			int from = edgeFrom.get(i);
+			successors[from][counts[from]++] = edgeTo.get(i);
+		}
+		int[] successorOffsets = new int[n + 1];
+		IntList edges = new IntList(edgeFrom.size());
+		for(int b = 0; b < n; b++) {
+			int[] s = successors[b];
+			Arrays.sort(s);
+			for(int i = 0; i < s.length; i++) {
+				if(i == 0 || s[i] != s[i - 1]) {
+					edges.add(s[i]);
+				}
+			}
+			successorOffsets[b + 1] = edges.size();
+		}
+		return new ControlFlowGraph(owner, sorted, elementOffsets, successorOffsets, edges.toArray());
+	}
+}
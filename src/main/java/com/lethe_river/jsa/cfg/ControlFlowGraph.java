@@ -0,0 +1,213 @@
+package com.lethe_river.jsa.cfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
+
+/**
+ * 1つのメソッドまたはラムダ式の制御フローグラフ．
+ * 基本ブロックは0から連続するidで表し，0番が入口，1番が出口である．
+ * 各ブロックが含む要素(文または条件などの式)と，前後のブロックはCSR形式の配列に格納する．
+ * i番目のブロックの要素は{@code elements[elementOffsets[i]]}から{@code elements[elementOffsets[i+1]-1]}までであり，実行される順に並ぶ．
+ * 入口のブロックは最初に引数の宣言を含む．
+ * 生成後は変更されないため，複数のスレッドから参照できる．
+ */
+public final class ControlFlowGraph {
+
+	public static final int ENTRY = 0;
+	public static final int EXIT = 1;
+
+	private final ASTNode owner;
+	private final ASTNode[] elements;
+	private final int[] elementOffsets;
+	private final int[] successorOffsets;
+	private final int[] successors;
+	private final int[] predecessorOffsets;
+	private final int[] predecessors;
+	private volatile List<LambdaExpression> lambdas = null;
+
+	ControlFlowGraph(ASTNode owner, ASTNode[] elements, int[] elementOffsets,
+			int[] successorOffsets, int[] successors) {
+		this.owner = owner;
+		this.elements = elements;
+		this.elementOffsets = elementOffsets;
+		this.successorOffsets = successorOffsets;
+		this.successors = successors;
+
+		// 後続の配列を転置する．後続を持つブロックの順に見るので，前任は昇順に並ぶ
+		int n = getBlockCount();
+		predecessorOffsets = new int[n + 1];
+		for(int s : successors) {
+			predecessorOffsets[s + 1]++;
+		}
+		for(int i = 0; i < n; i++) {
+			predecessorOffsets[i + 1] += predecessorOffsets[i];
+		}
+		int[] fill = Arrays.copyOf(predecessorOffsets, n);
+		predecessors = new int[successors.length];
+		for(int b = 0; b < n; b++) {
+			for(int e = successorOffsets[b]; e < successorOffsets[b + 1]; e++) {
+				predecessors[fill[successors[e]]++] = b;
+			}
+		}
+	}
+
+	/**
+	 * @return グラフの元になったメソッド宣言またはラムダ式
+	 */
+	public ASTNode getOwner() {
+		return owner;
+	}
+
+	public int getBlockCount() {
+		return elementOffsets.length - 1;
+	}
+
+	public int getEdgeCount() {
+		return successors.length;
+	}
+
+	public int getElementCount() {
+		return elements.length;
+	}
+
+	/**
+	 * @param element 要素の位置
+	 * @return 要素
+	 */
+	public ASTNode getElement(int element) {
+		return elements[element];
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return ブロックの最初の要素の位置
+	 */
+	public int elementStart(int block) {
+		return elementOffsets[block];
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return ブロックの最後の要素の次の位置
+	 */
+	public int elementEnd(int block) {
+		return elementOffsets[block + 1];
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return 後続のブロックのid(昇順)
+	 */
+	public int[] getSuccessors(int block) {
+		return Arrays.copyOfRange(successors, successorOffsets[block], successorOffsets[block + 1]);
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return 前任のブロックのid(昇順)
+	 */
+	public int[] getPredecessors(int block) {
+		return Arrays.copyOfRange(predecessors, predecessorOffsets[block], predecessorOffsets[block + 1]);
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return 最初の後続の位置
+	 */
+	public int successorStart(int block) {
+		return successorOffsets[block];
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return 最後の後続の次の位置
+	 */
+	public int successorEnd(int block) {
+		return successorOffsets[block + 1];
+	}
+
+	/**
+	 * @param edge 後続の位置
+	 * @return 後続のブロックのid
+	 */
+	public int getSuccessor(int edge) {
+		return successors[edge];
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return 最初の前任の位置
+	 */
+	public int predecessorStart(int block) {
+		return predecessorOffsets[block];
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return 最後の前任の次の位置
+	 */
+	public int predecessorEnd(int block) {
+		return predecessorOffsets[block + 1];
+	}
+
+	/**
+	 * @param edge 前任の位置
+	 * @return 前任のブロックのid
+	 */
+	public int getPredecessor(int edge) {
+		return predecessors[edge];
+	}
+
+	/**
+	 * 本体に直接含まれるラムダ式を返す．ラムダ式の中のラムダ式はそのラムダ式のグラフに含まれる．
+	 * 要素を走査するので，初めて呼ばれたときに求める．
+	 *
+	 * @return ラムダ式(出現順)
+	 */
+	public List<LambdaExpression> getLambdas() {
+		List<LambdaExpression> result = lambdas;
+		if(result == null) {
+			List<LambdaExpression> found = new ArrayList<>();
+			ASTVisitor visitor = new ASTVisitor() {
+				@Override
+				public boolean visit(LambdaExpression node) {
+					found.add(node);
+					return false;
+				}
+
+				@Override
+				public boolean visit(AnonymousClassDeclaration node) {
+					return false;
+				}
+
+				@Override
+				public boolean visit(TypeDeclarationStatement node) {
+					return false;
+				}
+			};
+			for(ASTNode element : elements) {
+				element.accept(visitor);
+			}
+			result = List.copyOf(found);
+			lambdas = result;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for(int b = 0; b < getBlockCount(); b++) {
+			sb.append(b).append(": ").append(elementEnd(b) - elementStart(b)).append(" elements -> ")
+					.append(Arrays.toString(getSuccessors(b))).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,80 @@
+package com.lethe_river.jsa.cfg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+
+/**
+ * メソッドとラムダ式ごとの制御フローグラフ．
+ * グラフは初めて要求されたときに作り，以後は同じものを返す．
+ * {@link #buildAll(ASTNode)}は構文木に含まれる全てのメソッドのグラフをメソッドごとに並列に作る．
+ * 複数のスレッドから使ってよい．
+ */
+public final class ControlFlowGraphs {
+
+	// 構文木の節は同一性で比較される
+	private final Map<ASTNode, ControlFlowGraph> graphs = new ConcurrentHashMap<>();
+
+	/**
+	 * @param method メソッド宣言
+	 * @return 制御フローグラフ．本体が無い場合はnull
+	 */
+	public ControlFlowGraph get(MethodDeclaration method) {
+		if(method.getBody() == null) {
+			return null;
+		}
+		return graphs.computeIfAbsent(method, m -> ControlFlowBuilder.build((MethodDeclaration) m));
+	}
+
+	/**
+	 * @param lambda ラムダ式
+	 * @return 制御フローグラフ
+	 */
+	public ControlFlowGraph get(LambdaExpression lambda) {
+		return graphs.computeIfAbsent(lambda, l -> ControlFlowBuilder.build((LambdaExpression) l));
+	}
+
+	/**
+	 * 構文木に含まれる本体のある全てのメソッド(匿名クラスと局所クラスのものを含む)と，
+	 * それらに含まれるラムダ式のグラフを並列に作る．
+	 *
+	 * @param root コンパイル単位などの構文木
+	 * @return メソッドのグラフ(出現順)．ラムダ式のグラフは{@link #get(LambdaExpression)}で得る
+	 */
+	public List<ControlFlowGraph> buildAll(ASTNode root) {
+		// メソッドとラムダ式は1回の走査でまとめて集める
+		List<ASTNode> owners = new ArrayList<>();
+		root.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(MethodDeclaration node) {
+				if(node.getBody() != null) {
+					owners.add(node);
+				}
+				return true;
+			}
+
+			@Override
+			public boolean visit(LambdaExpression node) {
+				owners.add(node);
+				return true;
+			}
+		});
+		return owners.parallelStream()
+				.map(owner -> owner instanceof MethodDeclaration
+						? get((MethodDeclaration) owner)
+						: get((LambdaExpression) owner))
+				.filter(graph -> graph.getOwner() instanceof MethodDeclaration)
+				.collect(Collectors.toList());
+	}
+
+	public int size() {
+		return graphs.size();
+	}
+}
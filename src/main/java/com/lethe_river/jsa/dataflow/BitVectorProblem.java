@@ -0,0 +1,90 @@
+package com.lethe_river.jsa.dataflow;
+
+import com.lethe_river.jsa.cfg.ControlFlowGraph;
+
+/**
+ * 値がビットベクトルで表されるデータフロー問題．
+ * ビットベクトルは{@code long}の配列の一部として表し，1ブロック分は{@link #getWords()}語である．
+ * 合流は和集合または積集合とし，積集合の場合は未到達のブロックの値を全てのビットが立った状態から始める．
+ * 1つの問題は1つのスレッドから解く．
+ */
+public abstract class BitVectorProblem {
+
+	/**
+	 * 解析の向き
+	 */
+	public enum Direction {
+		FORWARD,
+		BACKWARD,
+	}
+
+	/**
+	 * 合流での値の結び方
+	 */
+	public enum Meet {
+		/** いずれかの経路で成り立つ(may) */
+		UNION,
+		/** 全ての経路で成り立つ(must) */
+		INTERSECTION,
+	}
+
+	private final ControlFlowGraph graph;
+	private final int bits;
+	private final int words;
+	private final Direction direction;
+	private final Meet meet;
+
+	/**
+	 * @param graph 制御フローグラフ
+	 * @param bits ビットベクトルの長さ
+	 * @param direction 解析の向き
+	 * @param meet 合流での値の結び方
+	 */
+	protected BitVectorProblem(ControlFlowGraph graph, int bits, Direction direction, Meet meet) {
+		this.graph = graph;
+		this.bits = bits;
+		this.words = (bits + Long.SIZE - 1) / Long.SIZE;
+		this.direction = direction;
+		this.meet = meet;
+	}
+
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	public int getWords() {
+		return words;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public Meet getMeet() {
+		return meet;
+	}
+
+	/**
+	 * 入口(前向き)または出口(後ろ向き)での値を書き込む．既定では空集合．
+	 *
+	 * @param value 書き込み先
+	 * @param offset 書き込み先の位置
+	 */
+	protected void boundary(long[] value, int offset) {
+	}
+
+	/**
+	 * ブロックの伝達関数．前向きの場合は入口の値から出口の値を，後ろ向きの場合は出口の値から入口の値を求める．
+	 *
+	 * @param block ブロックのid
+	 * @param input 入力の値
+	 * @param inputOffset 入力の位置
+	 * @param output 出力先
+	 * @param outputOffset 出力先の位置
+	 */
+	protected abstract void transfer(int block, long[] input, int inputOffset, long[] output, int outputOffset);
+}
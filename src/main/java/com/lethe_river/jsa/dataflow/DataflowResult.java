@@ -0,0 +1,77 @@
+package com.lethe_river.jsa.dataflow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * データフロー問題の不動点．
+ * 解析の向きによらず，inはブロックの先頭での値，outはブロックの末尾での値である．
+ */
+public final class DataflowResult {
+
+	private final BitVectorProblem problem;
+	private final long[] in;
+	private final long[] out;
+	private final int iterations;
+
+	DataflowResult(BitVectorProblem problem, long[] in, long[] out, int iterations) {
+		this.problem = problem;
+		this.in = in;
+		this.out = out;
+		this.iterations = iterations;
+	}
+
+	public BitVectorProblem getProblem() {
+		return problem;
+	}
+
+	/**
+	 * @return 伝達関数を適用した回数
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return ブロックの先頭での値
+	 */
+	public BitSet getIn(int block) {
+		return slice(in, block);
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @return ブロックの末尾での値
+	 */
+	public BitSet getOut(int block) {
+		return slice(out, block);
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @param bit ビットの位置
+	 * @return ブロックの先頭でビットが立っているか
+	 */
+	public boolean isIn(int block, int bit) {
+		return test(in, block, bit);
+	}
+
+	/**
+	 * @param block ブロックのid
+	 * @param bit ビットの位置
+	 * @return ブロックの末尾でビットが立っているか
+	 */
+	public boolean isOut(int block, int bit) {
+		return test(out, block, bit);
+	}
+
+	private BitSet slice(long[] values, int block) {
+		int words = problem.getWords();
+		return BitSet.valueOf(Arrays.copyOfRange(values, block * words, (block + 1) * words));
+	}
+
+	private boolean test(long[] values, int block, int bit) {
+		return (values[block * problem.getWords() + bit / Long.SIZE] & (1L << bit)) != 0;
+	}
+}
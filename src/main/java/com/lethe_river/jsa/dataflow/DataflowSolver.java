@@ -0,0 +1,201 @@
+package com.lethe_river.jsa.dataflow;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.lethe_river.jsa.cfg.ControlFlowGraph;
+import com.lethe_river.jsa.dataflow.BitVectorProblem.Direction;
+import com.lethe_river.jsa.dataflow.BitVectorProblem.Meet;
+
+/**
+ * ビットベクトルのデータフロー問題を反復で解く．
+ * ブロックは逆後順(後ろ向きの場合は逆グラフでの逆後順)に番号を付け，
+ * ワークリストからは常に最も小さい番号のブロックを取り出す．
+ * ループの無い部分は1回ずつ，ループは入れ子の深さ程度の回数で収束する．
+ */
+public final class DataflowSolver {
+
+	private DataflowSolver() {
+	}
+
+	/**
+	 * @param problem データフロー問題
+	 * @return 不動点
+	 */
+	public static DataflowResult solve(BitVectorProblem problem) {
+		ControlFlowGraph graph = problem.getGraph();
+		boolean forward = problem.getDirection() == Direction.FORWARD;
+		boolean union = problem.getMeet() == Meet.UNION;
+		int n = graph.getBlockCount();
+		int words = problem.getWords();
+
+		int[] order = order(graph, forward);
+		int[] position = new int[n];
+		for(int p = 0; p < n; p++) {
+			position[order[p]] = p;
+		}
+
+		// inputは伝達関数の入力側，outputは出力側の値
+		// 初期値はmayの場合は空集合，mustの場合は全体集合
+		long[] initial = new long[words];
+		if(!union && words > 0) {
+			Arrays.fill(initial, -1L);
+			int rest = problem.getBits() % Long.SIZE;
+			if(rest != 0) {
+				initial[words - 1] = (1L << rest) - 1;
+			}
+		}
+		long[] input = new long[n * words];
+		long[] output = new long[n * words];
+		for(int b = 0; b < n; b++) {
+			System.arraycopy(initial, 0, output, b * words, words);
+		}
+		int start = forward ? ControlFlowGraph.ENTRY : ControlFlowGraph.EXIT;
+		long[] value = new long[words];
+
+		BitSet worklist = new BitSet(n);
+		worklist.set(0, n);
+		int iterations = 0;
+		for(int p = worklist.nextSetBit(0); p >= 0; p = worklist.nextSetBit(0)) {
+			worklist.clear(p);
+			int block = order[p];
+			int offset = block * words;
+
+			// 合流
+			if(block == start) {
+				Arrays.fill(input, offset, offset + words, 0L);
+				problem.boundary(input, offset);
+			} else {
+				int from = forward ? graph.predecessorStart(block) : graph.successorStart(block);
+				int to = forward ? graph.predecessorEnd(block) : graph.successorEnd(block);
+				if(from == to) {
+					// 到達しないブロック
+					System.arraycopy(initial, 0, input, offset, words);
+				} else {
+					int first = (forward ? graph.getPredecessor(from) : graph.getSuccessor(from)) * words;
+					System.arraycopy(output, first, input, offset, words);
+					for(int e = from + 1; e < to; e++) {
+						int other = (forward ? graph.getPredecessor(e) : graph.getSuccessor(e)) * words;
+						for(int i = 0; i < words; i++) {
+							if(union) {
+								input[offset + i] |= output[other + i];
+							} else {
+								input[offset + i] &= output[other + i];
+							}
+						}
+					}
+				}
+			}
+
+			problem.transfer(block, input, offset, value, 0);
+			iterations++;
+			if(Arrays.equals(value, 0, words, output, offset, offset + words)) {
+				continue;
+			}
+			System.arraycopy(value, 0, output, offset, words);
+			int from = forward ? graph.successorStart(block) : graph.predecessorStart(block);
+			int to = forward ? graph.successorEnd(block) : graph.predecessorEnd(block);
+			for(int e = from; e < to; e++) {
+				worklist.set(position[forward ? graph.getSuccessor(e) : graph.getPredecessor(e)]);
+			}
+		}
+		return forward
+				? new DataflowResult(problem, input, output, iterations)
+				: new DataflowResult(problem, output, input, iterations);
+	}
+
+	/**
+	 * 問題ごとに独立にフォーク・ジョインプールで解く．
+	 *
+	 * @param problems データフロー問題
+	 * @param pool プール
+	 * @return 問題と同じ順の不動点
+	 */
+	public static List<DataflowResult> solveAll(List<? extends BitVectorProblem> problems, ForkJoinPool pool) {
+		DataflowResult[] results = new DataflowResult[problems.size()];
+		pool.invoke(new Solve(problems, results, 0, results.length));
+		return List.of(results);
+	}
+
+	private static final class Solve extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		// これより少ない問題は分割せずに解く
+		private static final int THRESHOLD = 8;
+
+		private final List<? extends BitVectorProblem> problems;
+		private final DataflowResult[] results;
+		private final int from;
+		private final int to;
+
+		Solve(List<? extends BitVectorProblem> problems, DataflowResult[] results, int from, int to) {
+			this.problems = problems;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= THRESHOLD) {
+				for(int i = from; i < to; i++) {
+					results[i] = solve(problems.get(i));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Solve(problems, results, from, middle), new Solve(problems, results, middle, to));
+		}
+	}
+
+	/**
+	 * 入口(後ろ向きの場合は出口)からの深さ優先探索の逆後順．到達しないブロックは最後にid順に並べる．
+	 */
+	private static int[] order(ControlFlowGraph graph, boolean forward) {
+		int n = graph.getBlockCount();
+		int[] postorder = new int[n];
+		int count = 0;
+		boolean[] visited = new boolean[n];
+		int[] stack = new int[n];
+		int[] edge = new int[n];
+		int depth = 0;
+		int start = forward ? ControlFlowGraph.ENTRY : ControlFlowGraph.EXIT;
+		stack[depth] = start;
+		edge[depth] = forward ? graph.successorStart(start) : graph.predecessorStart(start);
+		depth++;
+		visited[start] = true;
+		while(depth > 0) {
+			int block = stack[depth - 1];
+			int end = forward ? graph.successorEnd(block) : graph.predecessorEnd(block);
+			int e = edge[depth - 1];
+			if(e == end) {
+				postorder[count++] = block;
+				depth--;
+				continue;
+			}
+			edge[depth - 1]++;
+			int next = forward ? graph.getSuccessor(e) : graph.getPredecessor(e);
+			if(!visited[next]) {
+				visited[next] = true;
+				stack[depth] = next;
+				edge[depth] = forward ? graph.successorStart(next) : graph.predecessorStart(next);
+				depth++;
+			}
+		}
+
+		int[] order = new int[n];
+		for(int i = 0; i < count; i++) {
+			order[i] = postorder[count - 1 - i];
+		}
+		int p = count;
+		for(int b = 0; b < n; b++) {
+			if(!visited[b]) {
+				order[p++] = b;
+			}
+		}
+		return order;
+	}
+}
@@ -0,0 +1,33 @@
+package com.lethe_river.jsa.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * 確実な代入．局所変数のidをビットとする前向きのmust解析．
+ * 入口では何も代入されておらず，引数は入口のブロックの宣言で代入される．
+ */
+public final class DefiniteAssignment extends GenKillProblem {
+
+	private final LocalFacts facts;
+
+	public DefiniteAssignment(LocalFacts facts) {
+		super(facts.getGraph(), facts.getVariableCount(), Direction.FORWARD, Meet.INTERSECTION);
+		this.facts = facts;
+
+		long[] gen = new long[getWords()];
+		long[] kill = new long[getWords()];
+		for(int b = 0; b < getGraph().getBlockCount(); b++) {
+			for(int e = getGraph().elementStart(b); e < getGraph().elementEnd(b); e++) {
+				for(int d = facts.defStart(e); d < facts.defEnd(e); d++) {
+					set(gen, facts.getDefinedVariable(d));
+				}
+			}
+			compose(b, gen, kill);
+			Arrays.fill(gen, 0L);
+		}
+	}
+
+	public LocalFacts getFacts() {
+		return facts;
+	}
+}
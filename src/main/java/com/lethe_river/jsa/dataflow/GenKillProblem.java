@@ -0,0 +1,50 @@
+package com.lethe_river.jsa.dataflow;
+
+import com.lethe_river.jsa.cfg.ControlFlowGraph;
+
+/**
+ * 伝達関数が{@code gen ∪ (x − kill)}の形のデータフロー問題．
+ * ブロックごとのgenとkillは要素ごとの関数を合成して作る．
+ */
+public abstract class GenKillProblem extends BitVectorProblem {
+
+	// ブロックごとに{@link #getWords()}語ずつ並べる
+	private final long[] gen;
+	private final long[] kill;
+
+	protected GenKillProblem(ControlFlowGraph graph, int bits, Direction direction, Meet meet) {
+		super(graph, bits, direction, meet);
+		gen = new long[graph.getBlockCount() * getWords()];
+		kill = new long[graph.getBlockCount() * getWords()];
+	}
+
+	/**
+	 * ブロックの伝達関数の後に要素の伝達関数を合成する．
+	 * 要素は解析の向きに処理される順に渡す．
+	 *
+	 * @param block ブロックのid
+	 * @param elementGen 要素のgen
+	 * @param elementKill 要素のkill
+	 */
+	protected final void compose(int block, long[] elementGen, long[] elementKill) {
+		int words = getWords();
+		int offset = block * words;
+		for(int i = 0; i < words; i++) {
+			gen[offset + i] = elementGen[i] | (gen[offset + i] & ~elementKill[i]);
+			kill[offset + i] |= elementKill[i];
+		}
+	}
+
+	@Override
+	protected final void transfer(int block, long[] input, int inputOffset, long[] output, int outputOffset) {
+		int words = getWords();
+		int offset = block * words;
+		for(int i = 0; i < words; i++) {
+			output[outputOffset + i] = gen[offset + i] | (input[inputOffset + i] & ~kill[offset + i]);
+		}
+	}
+
+	static void set(long[] vector, int bit) {
+		vector[bit / Long.SIZE] |= 1L << bit;
+	}
+}
@@ -0,0 +1,37 @@
+package com.lethe_river.jsa.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * 生存変数．局所変数のidをビットとする後ろ向きのmay解析．
+ */
+public final class LiveVariables extends GenKillProblem {
+
+	private final LocalFacts facts;
+
+	public LiveVariables(LocalFacts facts) {
+		super(facts.getGraph(), facts.getVariableCount(), Direction.BACKWARD, Meet.UNION);
+		this.facts = facts;
+
+		// 要素を後ろから合成する．要素の中では使用が定義より先に起こる
+		long[] gen = new long[getWords()];
+		long[] kill = new long[getWords()];
+		for(int b = 0; b < getGraph().getBlockCount(); b++) {
+			for(int e = getGraph().elementEnd(b) - 1; e >= getGraph().elementStart(b); e--) {
+				Arrays.fill(gen, 0L);
+				Arrays.fill(kill, 0L);
+				for(int d = facts.defStart(e); d < facts.defEnd(e); d++) {
+					set(kill, facts.getDefinedVariable(d));
+				}
+				for(int u = facts.useStart(e); u < facts.useEnd(e); u++) {
+					set(gen, facts.getUsedVariable(u));
+				}
+				compose(b, gen, kill);
+			}
+		}
+	}
+
+	public LocalFacts getFacts() {
+		return facts;
+	}
+}
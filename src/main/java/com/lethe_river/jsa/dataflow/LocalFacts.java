@@ -0,0 +1,330 @@
+package com.lethe_river.jsa.dataflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclarationStatement;
+import org.eclipse.jdt.core.dom.VariableDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import com.lethe_river.jsa.cfg.ControlFlowGraph;
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 制御フローグラフの要素ごとの，局所変数の定義と使用．
+ * 局所変数はグラフの中で宣言されたもの(引数を含む)に0から連続するidを割り当てる．
+ * 定義にも0から連続するidを割り当て，同じ要素の定義のidは連続する．
+ *
+ * <p>
+ * 束縛の解決はスレッドセーフでないため，{@link #extract(ControlFlowGraph)}は構文木を渡したスレッドで順に呼ぶ．
+ * 抽出した後は束縛を参照しないので，解析は並列に行ってよい．
+ * ラムダ式と匿名クラスの中での外側の変数の参照は，それを含む要素での使用とする．
+ */
+public final class LocalFacts {
+
+	private final ControlFlowGraph graph;
+	private final String[] names;
+	private final int[] defOffsets;
+	private final int[] defs;
+	private final int[] defElements;
+	private final int[] useOffsets;
+	private final int[] uses;
+
+	private LocalFacts(ControlFlowGraph graph, String[] names,
+			int[] defOffsets, int[] defs, int[] useOffsets, int[] uses) {
+		this.graph = graph;
+		this.names = names;
+		this.defOffsets = defOffsets;
+		this.defs = defs;
+		this.useOffsets = useOffsets;
+		this.uses = uses;
+		defElements = new int[defs.length];
+		for(int e = 0; e < defOffsets.length - 1; e++) {
+			for(int d = defOffsets[e]; d < defOffsets[e + 1]; d++) {
+				defElements[d] = e;
+			}
+		}
+	}
+
+	/**
+	 * 束縛を解決して定義と使用を抽出する．束縛を解決できない名前は無視する．
+	 *
+	 * @param graph 制御フローグラフ
+	 * @return 定義と使用
+	 */
+	public static LocalFacts extract(ControlFlowGraph graph) {
+		int elementCount = graph.getElementCount();
+
+		// 宣言を先に集める
+		Map<IBinding, Integer> ids = new HashMap<>();
+		List<String> names = new ArrayList<>();
+		ASTVisitor declarations = new ScopedVisitor() {
+			@Override
+			public boolean visit(VariableDeclarationFragment node) {
+				declare(node);
+				return true;
+			}
+
+			@Override
+			public boolean visit(SingleVariableDeclaration node) {
+				declare(node);
+				return true;
+			}
+
+			@Override
+			public boolean visit(LambdaExpression node) {
+				return false;
+			}
+
+			@Override
+			public boolean visit(AnonymousClassDeclaration node) {
+				return false;
+			}
+
+			private void declare(VariableDeclaration node) {
+				IVariableBinding binding = node.resolveBinding();
+				if(binding != null && !ids.containsKey(binding)) {
+					ids.put(binding, names.size());
+					names.add(node.getName().getIdentifier());
+				}
+			}
+		};
+		for(int e = 0; e < elementCount; e++) {
+			graph.getElement(e).accept(declarations);
+		}
+
+		int[] defOffsets = new int[elementCount + 1];
+		int[] useOffsets = new int[elementCount + 1];
+		IntList defs = new IntList();
+		IntList uses = new IntList();
+		ElementVisitor visitor = new ElementVisitor(ids, defs, uses);
+		for(int e = 0; e < elementCount; e++) {
+			graph.getElement(e).accept(visitor);
+			defOffsets[e + 1] = defs.size();
+			useOffsets[e + 1] = uses.size();
+		}
+		return new LocalFacts(graph, names.toArray(new String[0]), defOffsets, defs.toArray(), useOffsets, uses.toArray());
+	}
+
+	// 局所クラスの中には入らない
+	private static class ScopedVisitor extends ASTVisitor {
+		@Override
+		public boolean visit(TypeDeclarationStatement node) {
+			return false;
+		}
+	}
+
+	private static final class ElementVisitor extends ScopedVisitor {
+		private final Map<IBinding, Integer> ids;
+		private final IntList defs;
+		private final IntList uses;
+		// ラムダ式と匿名クラスの深さ．中では定義を数えない
+		private int nested = 0;
+
+		ElementVisitor(Map<IBinding, Integer> ids, IntList defs, IntList uses) {
+			this.ids = ids;
+			this.defs = defs;
+			this.uses = uses;
+		}
+
+		private int variable(Expression expression) {
+			if(!(expression instanceof SimpleName)) {
+				return -1;
+			}
+			Integer id = ids.get(((SimpleName) expression).resolveBinding());
+			return id == null ? -1 : id;
+		}
+
+		private void def(int variable) {
+			if(variable >= 0 && nested == 0) {
+				defs.add(variable);
+			}
+		}
+
+		@Override
+		public boolean visit(LambdaExpression node) {
+			nested++;
+			return true;
+		}
+
+		@Override
+		public void endVisit(LambdaExpression node) {
+			nested--;
+		}
+
+		@Override
+		public boolean visit(AnonymousClassDeclaration node) {
+			nested++;
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnonymousClassDeclaration node) {
+			nested--;
+		}
+
+		@Override
+		public boolean visit(SimpleName node) {
+			Integer id = ids.get(node.resolveBinding());
+			if(id != null) {
+				uses.add(id);
+			}
+			return false;
+		}
+
+		@Override
+		public boolean visit(VariableDeclarationFragment node) {
+			if(node.getInitializer() != null) {
+				node.getInitializer().accept(this);
+				def(variable(node.getName()));
+			}
+			return false;
+		}
+
+		@Override
+		public boolean visit(SingleVariableDeclaration node) {
+			// 引数，catchの引数，拡張forの変数は常に値を持つ
+			def(variable(node.getName()));
+			return false;
+		}
+
+		@Override
+		public boolean visit(Assignment node) {
+			node.getRightHandSide().accept(this);
+			int variable = variable(node.getLeftHandSide());
+			if(variable < 0) {
+				node.getLeftHandSide().accept(this);
+				return false;
+			}
+			if(node.getOperator() != Assignment.Operator.ASSIGN) {
+				uses.add(variable);
+			}
+			def(variable);
+			return false;
+		}
+
+		@Override
+		public boolean visit(PrefixExpression node) {
+			PrefixExpression.Operator operator = node.getOperator();
+			if(operator == PrefixExpression.Operator.INCREMENT || operator == PrefixExpression.Operator.DECREMENT) {
+				increment(node.getOperand());
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(PostfixExpression node) {
+			increment(node.getOperand());
+			return false;
+		}
+
+		private void increment(Expression operand) {
+			int variable = variable(operand);
+			if(variable < 0) {
+				operand.accept(this);
+				return;
+			}
+			uses.add(variable);
+			def(variable);
+		}
+	}
+
+	public ControlFlowGraph getGraph() {
+		return graph;
+	}
+
+	public int getVariableCount() {
+		return names.length;
+	}
+
+	public String getName(int variable) {
+		return names[variable];
+	}
+
+	/**
+	 * @param name 変数名
+	 * @return 最初に宣言された同じ名前の変数のid．無い場合は-1
+	 */
+	public int find(String name) {
+		for(int i = 0; i < names.length; i++) {
+			if(names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public int getDefinitionCount() {
+		return defs.length;
+	}
+
+	/**
+	 * @param definition 定義のid
+	 * @return 定義される変数のid
+	 */
+	public int getDefinedVariable(int definition) {
+		return defs[definition];
+	}
+
+	/**
+	 * @param definition 定義のid
+	 * @return 定義を含む要素の位置
+	 */
+	public int getDefinitionElement(int definition) {
+		return defElements[definition];
+	}
+
+	/**
+	 * @param element 要素の位置
+	 * @return 要素の最初の定義のid
+	 */
+	public int defStart(int element) {
+		return defOffsets[element];
+	}
+
+	/**
+	 * @param element 要素の位置
+	 * @return 要素の最後の定義の次のid
+	 */
+	public int defEnd(int element) {
+		return defOffsets[element + 1];
+	}
+
+	/**
+	 * @param element 要素の位置
+	 * @return 要素の最初の使用の位置
+	 */
+	public int useStart(int element) {
+		return useOffsets[element];
+	}
+
+	/**
+	 * @param element 要素の位置
+	 * @return 要素の最後の使用の次の位置
+	 */
+	public int useEnd(int element) {
+		return useOffsets[element + 1];
+	}
+
+	/**
+	 * @param use 使用の位置
+	 * @return 使用される変数のid
+	 */
+	public int getUsedVariable(int use) {
+		return uses[use];
+	}
+}
@@ -0,0 +1,35 @@
+package com.lethe_river.jsa.dataflow;
+
+/**
+ * 到達定義．定義のidをビットとする前向きのmay解析．
+ */
+public final class ReachingDefinitions extends GenKillProblem {
+
+	private final LocalFacts facts;
+
+	public ReachingDefinitions(LocalFacts facts) {
+		super(facts.getGraph(), facts.getDefinitionCount(), Direction.FORWARD, Meet.UNION);
+		this.facts = facts;
+
+		// 変数ごとの定義の集合
+		long[][] definitionsOf = new long[facts.getVariableCount()][getWords()];
+		for(int d = 0; d < facts.getDefinitionCount(); d++) {
+			set(definitionsOf[facts.getDefinedVariable(d)], d);
+		}
+
+		long[] gen = new long[getWords()];
+		for(int b = 0; b < getGraph().getBlockCount(); b++) {
+			for(int e = getGraph().elementStart(b); e < getGraph().elementEnd(b); e++) {
+				for(int d = facts.defStart(e); d < facts.defEnd(e); d++) {
+					set(gen, d);
+					compose(b, gen, definitionsOf[facts.getDefinedVariable(d)]);
+					gen[d / Long.SIZE] &= ~(1L << d);
+				}
+			}
+		}
+	}
+
+	public LocalFacts getFacts() {
+		return facts;
+	}
+}
@@ -0,0 +1,51 @@
+package com.lethe_river.jsa.datalog;
+
+/**
+ * 規則の頭部または本体に現れる述語の適用．
+ */
+final class Atom {
+
+	/** 無名変数の列 */
+	static final int WILDCARD = -1;
+	/** 定数の列 */
+	static final int CONSTANT = -2;
+
+	final String predicate;
+	final boolean negated;
+	// 列ごとの変数の番号，WILDCARDまたはCONSTANT
+	final int[] terms;
+	// 定数の列の値．それ以外の列はnull
+	final String[] constants;
+
+	Atom(String predicate, boolean negated, int[] terms, String[] constants) {
+		this.predicate = predicate;
+		this.negated = negated;
+		this.terms = terms;
+		this.constants = constants;
+	}
+
+	int arity() {
+		return terms.length;
+	}
+
+	String toString(String[] variables) {
+		StringBuilder sb = new StringBuilder();
+		if(negated) {
+			sb.append('!');
+		}
+		sb.append(predicate).append('(');
+		for(int i = 0; i < terms.length; i++) {
+			if(i > 0) {
+				sb.append(", ");
+			}
+			if(terms[i] == WILDCARD) {
+				sb.append('_');
+			} else if(terms[i] == CONSTANT) {
+				sb.append('"').append(constants[i].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+			} else {
+				sb.append(variables[terms[i]]);
+			}
+		}
+		return sb.append(')').toString();
+	}
+}
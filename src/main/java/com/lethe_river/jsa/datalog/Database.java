@@ -0,0 +1,157 @@
+package com.lethe_river.jsa.datalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.lethe_river.jsa.callgraph.SymbolTable;
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 述語ごとの関係の集まり．値の文字列は{@link SymbolTable}で記号のidに変換して持つ．
+ * 加えた事実は溜めておき，関係を参照するときにまとめて並べ替える．
+ * 複数のスレッドから同時に事実を加えられる．
+ */
+public final class Database {
+
+	private final SymbolTable symbols;
+	private final Map<String, Relation> relations = new HashMap<>();
+	// 述語ごとの，関係にまだ加えていない行
+	private final Map<String, IntList> pending = new HashMap<>();
+	private final Map<String, Integer> arities = new HashMap<>();
+
+	public Database() {
+		this(new SymbolTable());
+	}
+
+	private Database(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
+
+	/**
+	 * 同じ事実を持つデータベースを返す．記号の表は共有する．
+	 * 同じ事実に対して複数のプログラムを別々に評価するときに使う．
+	 *
+	 * @return 複製
+	 */
+	public Database copy() {
+		Database copy = new Database(symbols);
+		for(String predicate : getPredicates()) {
+			copy.put(predicate, get(predicate));
+		}
+		return copy;
+	}
+
+	/**
+	 * @param value 値
+	 * @return 記号のid．初めての値には新しいidを割り当てる
+	 */
+	public int intern(String value) {
+		return symbols.idOf(value);
+	}
+
+	/**
+	 * @param id 記号のid
+	 * @return 値
+	 */
+	public String getSymbol(int id) {
+		return symbols.getKey(id);
+	}
+
+	/**
+	 * 事実を1つ加える．
+	 *
+	 * @param predicate 述語
+	 * @param values 値
+	 */
+	public void add(String predicate, String... values) {
+		IntList row = new IntList(values.length);
+		for(String value : values) {
+			row.add(intern(value));
+		}
+		addAll(predicate, values.length, row);
+	}
+
+	/**
+	 * @param predicate 述語
+	 * @param arity 列の数
+	 * @param rows 行ごとに並べた記号のid
+	 */
+	synchronized void addAll(String predicate, int arity, IntList rows) {
+		checkArity(predicate, arity);
+		IntList list = pending.computeIfAbsent(predicate, k -> new IntList(Math.max(rows.size(), 16)));
+		for(int i = 0; i < rows.size(); i++) {
+			list.add(rows.get(i));
+		}
+	}
+
+	private void checkArity(String predicate, int arity) {
+		if(arity < 1) {
+			throw new IllegalArgumentException("no columns: " + predicate);
+		}
+		Integer known = arities.putIfAbsent(predicate, arity);
+		if(known != null && known != arity) {
+			throw new IllegalArgumentException("arity of " + predicate + " is " + known + ", but used with " + arity);
+		}
+	}
+
+	/**
+	 * @param predicate 述語
+	 * @return 述語の関係．事実が無い場合はnull
+	 */
+	public synchronized Relation get(String predicate) {
+		Relation relation = relations.get(predicate);
+		IntList rows = pending.remove(predicate);
+		if(rows != null) {
+			Relation added = Relation.of(arities.get(predicate), rows);
+			relation = relation == null ? added : relation.union(added);
+			relations.put(predicate, relation);
+		}
+		return relation;
+	}
+
+	/**
+	 * 導いた関係で置き換える．
+	 *
+	 * @param predicate 述語
+	 * @param relation 関係
+	 */
+	synchronized void put(String predicate, Relation relation) {
+		checkArity(predicate, relation.getArity());
+		pending.remove(predicate);
+		relations.put(predicate, relation);
+	}
+
+	/**
+	 * @return 事実を持つ述語(昇順)
+	 */
+	public synchronized Set<String> getPredicates() {
+		Set<String> result = new TreeSet<>(relations.keySet());
+		result.addAll(pending.keySet());
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * @param predicate 述語
+	 * @return 述語の事実を値に戻したもの(記号のidの辞書式の昇順)．事実が無い場合は空
+	 */
+	public List<List<String>> query(String predicate) {
+		Relation relation = get(predicate);
+		if(relation == null) {
+			return List.of();
+		}
+		List<List<String>> result = new ArrayList<>(relation.size());
+		String[] tuple = new String[relation.getArity()];
+		for(int row = 0; row < relation.size(); row++) {
+			for(int c = 0; c < tuple.length; c++) {
+				tuple[c] = getSymbol(relation.get(row, c));
+			}
+			result.add(List.of(tuple));
+		}
+		return result;
+	}
+}
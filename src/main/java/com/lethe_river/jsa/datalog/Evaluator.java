@@ -0,0 +1,510 @@
+package com.lethe_river.jsa.datalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.datalog.Program.Stratum;
+import com.lethe_river.jsa.util.IntList;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * Datalogのプログラムを半ナイーブ評価する．
+ * 層は依存する層を評価し終えたものから並列に評価し，導いた関係で{@link Database}の関係を置き換える．
+ *
+ * <p>
+ * 規則の本体は，定数か束縛済みの変数を持つ列が多いリテラルから順に結合する．
+ * 結合は，関係を結合に使う列の順に並べた索引と，束縛の表を同じ列の順に並べたものを突き合わせて行う．
+ * 否定したリテラルは全ての変数が束縛されてから，索引の二分探索で除く．
+ */
+public final class Evaluator {
+
+	private static final Logger logger = LoggerUtil.getLogger(Evaluator.class);
+
+	private Evaluator() {
+	}
+
+	/**
+	 * 共通のプールでプログラムを評価する．
+	 *
+	 * @param program プログラム
+	 * @param database 事実を持ち，導いた関係を格納するデータベース
+	 */
+	public static void evaluate(Program program, Database database) {
+		evaluate(program, database, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param program プログラム
+	 * @param database 事実を持ち，導いた関係を格納するデータベース
+	 * @param pool 層を評価するプール
+	 * @throws IllegalArgumentException データベースの関係とプログラムで述語の列の数が異なる場合
+	 */
+	public static void evaluate(Program program, Database database, ForkJoinPool pool) {
+		long start = System.nanoTime();
+		// 定数は先に記号のidにしておく
+		Map<Atom, int[]> constants = new IdentityHashMap<>();
+		for(Rule rule : program.rules()) {
+			resolve(rule.head, database, constants);
+			for(Atom atom : rule.body) {
+				resolve(atom, database, constants);
+			}
+		}
+
+		List<Stratum> strata = program.strata();
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for(Stratum stratum : strata) {
+			CompletableFuture<?>[] dependencies = new CompletableFuture<?>[stratum.dependencies.length];
+			for(int i = 0; i < dependencies.length; i++) {
+				dependencies[i] = futures.get(stratum.dependencies[i]);
+			}
+			futures.add(CompletableFuture.allOf(dependencies)
+					.thenRunAsync(new StratumEvaluation(stratum, database, constants)::run, pool));
+		}
+		try {
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+		logger.info("datalog: " + strata.size() + " strata in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+	}
+
+	private static void resolve(Atom atom, Database database, Map<Atom, int[]> constants) {
+		int[] ids = new int[atom.arity()];
+		for(int c = 0; c < ids.length; c++) {
+			ids[c] = atom.terms[c] == Atom.CONSTANT ? database.intern(atom.constants[c]) : -1;
+		}
+		constants.put(atom, ids);
+	}
+
+	/**
+	 * 変数ごとの値の列．束縛されていない変数の列はnull．
+	 */
+	private static final class Table {
+		final int[][] columns;
+		final int size;
+
+		Table(int[][] columns, int size) {
+			this.columns = columns;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * 1つの層の評価．
+	 */
+	private static final class StratumEvaluation {
+		private final Stratum stratum;
+		private final Database database;
+		private final Map<Atom, int[]> constants;
+		// 層の述語ごとの，それまでに導いた関係
+		private final Map<String, Relation> full = new HashMap<>();
+
+		StratumEvaluation(Stratum stratum, Database database, Map<Atom, int[]> constants) {
+			this.stratum = stratum;
+			this.database = database;
+			this.constants = constants;
+		}
+
+		void run() {
+			for(Rule rule : stratum.rules) {
+				String predicate = rule.head.predicate;
+				if(!full.containsKey(predicate)) {
+					Relation initial = database.get(predicate);
+					full.put(predicate, initial == null ? Relation.empty(rule.head.arity()) : checkArity(initial, rule.head));
+				}
+			}
+			Map<String, IntList> derived = new HashMap<>();
+			for(Rule rule : stratum.rules) {
+				evaluate(rule, -1, null, derived.computeIfAbsent(rule.head.predicate, k -> new IntList()));
+			}
+			Map<String, Relation> delta = merge(derived);
+
+			// 前の回に増えた事実を少なくとも1つ使うものだけを導く
+			while(stratum.recursive && delta.values().stream().anyMatch(r -> !r.isEmpty())) {
+				derived.clear();
+				for(Rule rule : stratum.rules) {
+					IntList out = derived.computeIfAbsent(rule.head.predicate, k -> new IntList());
+					for(int i = 0; i < rule.body.size(); i++) {
+						Atom atom = rule.body.get(i);
+						Relation d = atom.negated ? null : delta.get(atom.predicate);
+						if(d != null && !d.isEmpty()) {
+							evaluate(rule, i, d, out);
+						}
+					}
+				}
+				delta = merge(derived);
+			}
+
+			for(Map.Entry<String, Relation> e : full.entrySet()) {
+				database.put(e.getKey(), e.getValue());
+			}
+		}
+
+		// 導いた行のうち新しいものを差分とし，これまでの関係に加える
+		private Map<String, Relation> merge(Map<String, IntList> derived) {
+			Map<String, Relation> delta = new HashMap<>();
+			for(Map.Entry<String, IntList> e : derived.entrySet()) {
+				Relation old = full.get(e.getKey());
+				Relation added = Relation.of(old.getArity(), e.getValue()).minus(old);
+				delta.put(e.getKey(), added);
+				full.put(e.getKey(), old.union(added));
+			}
+			return delta;
+		}
+
+		private Relation lookup(Atom atom) {
+			Relation relation = full.get(atom.predicate);
+			if(relation == null) {
+				relation = database.get(atom.predicate);
+			}
+			return relation == null ? Relation.empty(atom.arity()) : checkArity(relation, atom);
+		}
+
+		private static Relation checkArity(Relation relation, Atom atom) {
+			if(relation.getArity() != atom.arity()) {
+				throw new IllegalArgumentException("arity of " + atom.predicate + " is " + relation.getArity()
+						+ ", but used with " + atom.arity());
+			}
+			return relation;
+		}
+
+		/**
+		 * 規則から導いた頭部の行を加える．
+		 *
+		 * @param rule 規則
+		 * @param deltaAtom 差分を使うリテラルの位置．無い場合は-1
+		 * @param delta 差分
+		 * @param out 頭部の行の出力先
+		 */
+		private void evaluate(Rule rule, int deltaAtom, Relation delta, IntList out) {
+			Table table = new Table(new int[rule.variables.length][], 1);
+			boolean[] done = new boolean[rule.body.size()];
+			if(deltaAtom >= 0) {
+				table = join(table, rule.body.get(deltaAtom), delta);
+				done[deltaAtom] = true;
+			}
+			for(int step = deltaAtom >= 0 ? 1 : 0; step < done.length && table.size > 0; step++) {
+				int next = choose(rule, table, done);
+				done[next] = true;
+				Atom atom = rule.body.get(next);
+				table = atom.negated ? antiJoin(table, atom, lookup(atom)) : join(table, atom, lookup(atom));
+			}
+			if(table.size == 0) {
+				return;
+			}
+
+			Atom head = rule.head;
+			int[] ids = constants.get(head);
+			for(int t = 0; t < table.size; t++) {
+				for(int c = 0; c < head.terms.length; c++) {
+					out.add(head.terms[c] == Atom.CONSTANT ? ids[c] : table.columns[head.terms[c]][t]);
+				}
+			}
+		}
+
+		// 定数か束縛済みの変数を持つ列が最も多いリテラル．否定したリテラルは最後にする
+		private static int choose(Rule rule, Table table, boolean[] done) {
+			int best = -1;
+			int bestScore = -1;
+			for(int i = 0; i < done.length; i++) {
+				Atom atom = rule.body.get(i);
+				if(done[i]) {
+					continue;
+				}
+				if(atom.negated) {
+					if(best < 0) {
+						best = i;
+					}
+					continue;
+				}
+				int score = 0;
+				for(int term : atom.terms) {
+					if(term == Atom.CONSTANT || term >= 0 && table.columns[term] != null) {
+						score++;
+					}
+				}
+				if(score > bestScore) {
+					best = i;
+					bestScore = score;
+				}
+			}
+			return best;
+		}
+
+		private Table join(Table table, Atom atom, Relation relation) {
+			int[] terms = atom.terms;
+			int[] ids = constants.get(atom);
+			int variableCount = table.columns.length;
+
+			// 結合に使う列は定数の列，束縛済みの変数の列の順にする
+			IntList keys = new IntList(terms.length);
+			for(int c = 0; c < terms.length; c++) {
+				if(terms[c] == Atom.CONSTANT) {
+					keys.add(c);
+				}
+			}
+			int constantCount = keys.size();
+			for(int c = 0; c < terms.length; c++) {
+				if(terms[c] >= 0 && table.columns[terms[c]] != null) {
+					keys.add(c);
+				}
+			}
+			// 新たに束縛する変数の列と，同じリテラルに2度現れる変数の列の組
+			int[] first = new int[variableCount];
+			Arrays.fill(first, -1);
+			IntList outputs = new IntList(terms.length);
+			IntList equals = new IntList(2);
+			for(int c = 0; c < terms.length; c++) {
+				int v = terms[c];
+				if(v < 0 || table.columns[v] != null) {
+					continue;
+				}
+				if(first[v] < 0) {
+					first[v] = c;
+					outputs.add(c);
+				} else {
+					equals.add(c);
+					equals.add(first[v]);
+				}
+			}
+
+			int[] keyColumns = keys.toArray();
+			int[] index = relation.index(keyColumns);
+			int low = 0;
+			int high = relation.size();
+			if(constantCount > 0) {
+				int[] values = new int[constantCount];
+				for(int k = 0; k < constantCount; k++) {
+					values[k] = ids[keyColumns[k]];
+				}
+				low = lowerBound(relation, index, keyColumns, 0, values, 0, high);
+				high = upperBound(relation, index, keyColumns, values, low, high);
+			}
+
+			IntList[] out = new IntList[variableCount];
+			for(int v = 0; v < variableCount; v++) {
+				if(table.columns[v] != null) {
+					out[v] = new IntList();
+				}
+			}
+			for(int k = 0; k < outputs.size(); k++) {
+				out[terms[outputs.get(k)]] = new IntList();
+			}
+			int count = 0;
+
+			int boundCount = keyColumns.length - constantCount;
+			if(boundCount == 0) {
+				for(int t = 0; t < table.size; t++) {
+					for(int r = low; r < high; r++) {
+						int row = index == null ? r : index[r];
+						if(matches(relation, row, equals)) {
+							emit(table, t, relation, row, terms, outputs, out);
+							count++;
+						}
+					}
+				}
+				return toTable(out, count);
+			}
+
+			// 束縛の表を結合に使う列の順に並べる
+			int[][] tableKeys = new int[boundCount][];
+			int[][] relationKeys = new int[boundCount][];
+			for(int k = 0; k < boundCount; k++) {
+				int c = keyColumns[constantCount + k];
+				tableKeys[k] = table.columns[terms[c]];
+				relationKeys[k] = relation.column(c);
+			}
+			int[] order = Relation.identity(table.size);
+			if(table.size > 1) {
+				Relation.sort(order, (a, b) -> compare(tableKeys, a, tableKeys, b));
+			}
+
+			int[] values = new int[keyColumns.length];
+			for(int k = 0; k < constantCount; k++) {
+				values[k] = ids[keyColumns[k]];
+			}
+			int i = 0;
+			int j = low;
+			while(i < table.size && j < high) {
+				int t = order[i];
+				int row = index == null ? j : index[j];
+				int d = compare(tableKeys, t, relationKeys, row);
+				if(d < 0) {
+					i++;
+					continue;
+				}
+				if(d > 0) {
+					// 関係の方が大きいことが多いので，探索で読み飛ばす
+					for(int k = 0; k < boundCount; k++) {
+						values[constantCount + k] = tableKeys[k][t];
+					}
+					j = lowerBound(relation, index, keyColumns, constantCount, values, j + 1, high);
+					continue;
+				}
+				int iEnd = i + 1;
+				while(iEnd < table.size && compare(tableKeys, order[iEnd], tableKeys, t) == 0) {
+					iEnd++;
+				}
+				int jEnd = j + 1;
+				while(jEnd < high && compare(relationKeys, index == null ? jEnd : index[jEnd], relationKeys, row) == 0) {
+					jEnd++;
+				}
+				for(int a = i; a < iEnd; a++) {
+					for(int b = j; b < jEnd; b++) {
+						int r = index == null ? b : index[b];
+						if(matches(relation, r, equals)) {
+							emit(table, order[a], relation, r, terms, outputs, out);
+							count++;
+						}
+					}
+				}
+				i = iEnd;
+				j = jEnd;
+			}
+			return toTable(out, count);
+		}
+
+		private Table antiJoin(Table table, Atom atom, Relation relation) {
+			if(relation.isEmpty()) {
+				return table;
+			}
+			int[] terms = atom.terms;
+			int[] ids = constants.get(atom);
+			IntList keys = new IntList(terms.length);
+			for(int c = 0; c < terms.length; c++) {
+				if(terms[c] != Atom.WILDCARD) {
+					keys.add(c);
+				}
+			}
+			int[] keyColumns = keys.toArray();
+			int[] index = relation.index(keyColumns);
+			int[] values = new int[keyColumns.length];
+
+			IntList[] out = new IntList[table.columns.length];
+			for(int v = 0; v < out.length; v++) {
+				if(table.columns[v] != null) {
+					out[v] = new IntList(table.size);
+				}
+			}
+			int count = 0;
+			for(int t = 0; t < table.size; t++) {
+				for(int k = 0; k < keyColumns.length; k++) {
+					int term = terms[keyColumns[k]];
+					values[k] = term == Atom.CONSTANT ? ids[keyColumns[k]] : table.columns[term][t];
+				}
+				int found = lowerBound(relation, index, keyColumns, 0, values, 0, relation.size());
+				if(found < relation.size() && compareKey(relation, index == null ? found : index[found], keyColumns, 0, values) == 0) {
+					continue;
+				}
+				for(int v = 0; v < out.length; v++) {
+					if(out[v] != null) {
+						out[v].add(table.columns[v][t]);
+					}
+				}
+				count++;
+			}
+			return toTable(out, count);
+		}
+
+		private static void emit(Table table, int t, Relation relation, int row, int[] terms, IntList outputs, IntList[] out) {
+			for(int v = 0; v < table.columns.length; v++) {
+				if(table.columns[v] != null) {
+					out[v].add(table.columns[v][t]);
+				}
+			}
+			for(int k = 0; k < outputs.size(); k++) {
+				int c = outputs.get(k);
+				out[terms[c]].add(relation.column(c)[row]);
+			}
+		}
+
+		private static boolean matches(Relation relation, int row, IntList equals) {
+			for(int k = 0; k < equals.size(); k += 2) {
+				if(relation.column(equals.get(k))[row] != relation.column(equals.get(k + 1))[row]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static Table toTable(IntList[] out, int count) {
+			int[][] columns = new int[out.length][];
+			for(int v = 0; v < out.length; v++) {
+				if(out[v] != null) {
+					columns[v] = out[v].toArray();
+				}
+			}
+			return new Table(columns, count);
+		}
+
+		private static int compare(int[][] left, int a, int[][] right, int b) {
+			for(int k = 0; k < left.length; k++) {
+				int d = Integer.compare(left[k][a], right[k][b]);
+				if(d != 0) {
+					return d;
+				}
+			}
+			return 0;
+		}
+
+		// 索引の行の，from番目以降の結合に使う列とvaluesの比較．valuesより後の列は比べない
+		private static int compareKey(Relation relation, int row, int[] keyColumns, int from, int[] values) {
+			for(int k = from; k < values.length; k++) {
+				int d = Integer.compare(relation.column(keyColumns[k])[row], values[k]);
+				if(d != 0) {
+					return d;
+				}
+			}
+			return 0;
+		}
+
+		// [low, high)で結合に使う列がvalues以上になる最初の位置．fromより前の列は等しいものとする
+		private static int lowerBound(Relation relation, int[] index, int[] keyColumns, int from, int[] values, int low, int high) {
+			// 近くにあることが多いので，指数的に範囲を広げてから二分探索する
+			int step = 1;
+			int bound = low;
+			while(bound < high && compareKey(relation, index == null ? bound : index[bound], keyColumns, from, values) < 0) {
+				low = bound + 1;
+				bound += step;
+				step *= 2;
+			}
+			high = Math.min(bound, high);
+			while(low < high) {
+				int mid = (low + high) >>> 1;
+				if(compareKey(relation, index == null ? mid : index[mid], keyColumns, from, values) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		// [low, high)で定数の列がvaluesより大きくなる最初の位置
+		private static int upperBound(Relation relation, int[] index, int[] keyColumns, int[] values, int low, int high) {
+			while(low < high) {
+				int mid = (low + high) >>> 1;
+				if(compareKey(relation, index == null ? mid : index[mid], keyColumns, 0, values) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
@@ -0,0 +1,378 @@
+package com.lethe_river.jsa.datalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.CastExpression;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.eclipse.jdt.core.dom.SuperFieldAccess;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import com.lethe_river.jsa.CompositeVisitor;
+import com.lethe_river.jsa.Descriptors;
+import com.lethe_river.jsa.MethodDeclVisitor;
+import com.lethe_river.jsa.SourceProcessor;
+import com.lethe_river.jsa.callgraph.CallGraphBuilder;
+import com.lethe_river.jsa.hierarchy.TypeHierarchyVisitor;
+import com.lethe_river.jsa.hierarchy.TypeInfo;
+import com.lethe_river.jsa.sink.MethodRecord;
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 束縛を解決した構文木から事実を取り出し，{@link Database}に加える．
+ * メソッドは{@link MethodDeclVisitor}，型は{@link TypeHierarchyVisitor}の出力を事実に変換する．
+ * Visitorはファイルごとに独立に動くため，{@link SourceProcessor}で並列に適用できる．
+ *
+ * <p>
+ * 取り出す事実は次の通り．型はバイナリ名，メソッドは{@link Descriptors#getKey}の形式で表す．
+ * 変数は局所変数を{@code メソッドのキー/名前}，フィールドを{@code 宣言している型.名前}で表す．
+ * <ul>
+ * <li>{@code type(T)}: ソースで宣言された型
+ * <li>{@code interface(T)}: インタフェース．ライブラリの型を含む
+ * <li>{@code subtype(T, S)}: SはTの直接の上位型．ライブラリの型を含む
+ * <li>{@code method(M, T, S)}: 型Tで宣言されたメソッドMのシグネチャ(名前と記述子)はS
+ * <li>{@code field(F, T, U)}: 型Tで宣言されたフィールドFの型はU
+ * <li>{@code call(M, N)}: メソッドMの本体からメソッドNを静的に解決した呼び出しがある．
+ * 初期化子とフィールドの初期値は{@code <clinit>}，{@code <instinit>}からの呼び出しとする
+ * <li>{@code assign(X, Y)}: 変数Yの値を変数Xに代入する
+ * <li>{@code alloc(X, T)}: 型Tのインスタンスを生成して変数Xに代入する
+ * </ul>
+ */
+public class FactExtractor {
+
+	private static final Map<String, Integer> ARITIES = Map.of(
+			"type", 1, "interface", 1, "subtype", 2, "method", 3, "field", 3,
+			"call", 2, "assign", 2, "alloc", 2);
+
+	private final Database database;
+
+	/**
+	 * @param database 事実を加えるデータベース
+	 */
+	public FactExtractor(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * 事実を取り出すVisitorを返す．
+	 * 返したVisitorは1つのスレッドから使わなければならない．
+	 *
+	 * @return 新しいVisitor
+	 */
+	public ASTVisitor newVisitor() {
+		Collector collector = new Collector();
+		return new CompositeVisitor(
+				new MethodDeclVisitor(collector::addMethod),
+				new TypeHierarchyVisitor(collector::addType),
+				collector);
+	}
+
+	/**
+	 * 1つのスレッドで事実を集め，ファイルごとにまとめてデータベースに加える．
+	 */
+	private final class Collector extends ASTVisitor {
+
+		private final Descriptors descriptors = new Descriptors();
+		private final Map<String, IntList> facts = new HashMap<>();
+
+		// 呼び出し元のメソッドのキー．不明な場合はnull
+		private final List<String> callers = new ArrayList<>();
+		private final List<ITypeBinding> types = new ArrayList<>();
+
+		private void fact(String predicate, String... values) {
+			for(String value : values) {
+				if(value == null) {
+					return;
+				}
+			}
+			IntList rows = facts.computeIfAbsent(predicate, k -> new IntList());
+			for(String value : values) {
+				rows.add(database.intern(value));
+			}
+		}
+
+		void addMethod(MethodRecord record) {
+			fact("method", record.toString(), record.getDeclaringType(), record.getSignature());
+		}
+
+		void addType(TypeInfo info) {
+			if(info.isDeclared()) {
+				fact("type", info.getName());
+			}
+			if(info.isInterface()) {
+				fact("interface", info.getName());
+			}
+			if(info.getSuperclass() != null) {
+				fact("subtype", info.getName(), info.getSuperclass());
+			}
+			for(String i : info.getInterfaces()) {
+				fact("subtype", info.getName(), i);
+			}
+		}
+
+		@Override
+		public void endVisit(CompilationUnit node) {
+			for(Map.Entry<String, IntList> e : facts.entrySet()) {
+				database.addAll(e.getKey(), ARITIES.get(e.getKey()), e.getValue());
+			}
+			facts.clear();
+		}
+
+		// 変数
+
+		private String variable(IVariableBinding variable) {
+			if(variable.isField()) {
+				IVariableBinding declaration = variable.getVariableDeclaration();
+				ITypeBinding type = declaration.getDeclaringClass();
+				ITypeBinding erasure = type == null ? null : type.getErasure();
+				String owner = erasure == null ? null : erasure.getBinaryName();
+				return owner == null ? null : owner + "." + declaration.getName();
+			}
+			IMethodBinding method = variable.getDeclaringMethod();
+			String key = method == null ? null : descriptors.getKey(method);
+			if(key == null) {
+				key = caller();
+			}
+			return key == null ? null : key + "/" + variable.getName();
+		}
+
+		private String variable(Expression expression) {
+			while(expression instanceof ParenthesizedExpression || expression instanceof CastExpression) {
+				expression = expression instanceof ParenthesizedExpression
+						? ((ParenthesizedExpression) expression).getExpression()
+						: ((CastExpression) expression).getExpression();
+			}
+			IBinding binding = null;
+			if(expression instanceof Name) {
+				binding = ((Name) expression).resolveBinding();
+			} else if(expression instanceof FieldAccess) {
+				binding = ((FieldAccess) expression).resolveFieldBinding();
+			} else if(expression instanceof SuperFieldAccess) {
+				binding = ((SuperFieldAccess) expression).resolveFieldBinding();
+			}
+			return binding instanceof IVariableBinding ? variable((IVariableBinding) binding) : null;
+		}
+
+		private void addAssignment(String target, Expression value) {
+			if(target == null || value == null) {
+				return;
+			}
+			if(value instanceof ClassInstanceCreation) {
+				ITypeBinding type = value.resolveTypeBinding();
+				ITypeBinding erasure = type == null ? null : type.getErasure();
+				fact("alloc", target, erasure == null ? null : erasure.getBinaryName());
+				return;
+			}
+			fact("assign", target, variable(value));
+		}
+
+		@Override
+		public boolean visit(Assignment node) {
+			if(node.getOperator() == Assignment.Operator.ASSIGN) {
+				addAssignment(variable(node.getLeftHandSide()), node.getRightHandSide());
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(VariableDeclarationFragment node) {
+			IVariableBinding variable = node.resolveBinding();
+			if(variable != null) {
+				addAssignment(variable(variable), node.getInitializer());
+			}
+			return true;
+		}
+
+		// 型
+
+		@Override
+		public boolean visit(TypeDeclaration node) {
+			types.add(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(TypeDeclaration node) {
+			types.remove(types.size() - 1);
+		}
+
+		@Override
+		public boolean visit(EnumDeclaration node) {
+			types.add(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(EnumDeclaration node) {
+			types.remove(types.size() - 1);
+		}
+
+		@Override
+		public boolean visit(AnnotationTypeDeclaration node) {
+			types.add(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnnotationTypeDeclaration node) {
+			types.remove(types.size() - 1);
+		}
+
+		@Override
+		public boolean visit(AnonymousClassDeclaration node) {
+			types.add(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnonymousClassDeclaration node) {
+			types.remove(types.size() - 1);
+		}
+
+		// 呼び出し元
+
+		private String caller() {
+			return callers.isEmpty() ? null : callers.get(callers.size() - 1);
+		}
+
+		@Override
+		public boolean visit(MethodDeclaration node) {
+			IMethodBinding method = node.resolveBinding();
+			callers.add(method == null ? null : descriptors.getKey(method));
+			return true;
+		}
+
+		@Override
+		public void endVisit(MethodDeclaration node) {
+			callers.remove(callers.size() - 1);
+		}
+
+		@Override
+		public boolean visit(Initializer node) {
+			enterInitializer(Modifier.isStatic(node.getModifiers()));
+			return true;
+		}
+
+		@Override
+		public void endVisit(Initializer node) {
+			callers.remove(callers.size() - 1);
+		}
+
+		@Override
+		public boolean visit(FieldDeclaration node) {
+			boolean isStatic = Modifier.isStatic(node.getModifiers());
+			for(Object fragment : node.fragments()) {
+				IVariableBinding field = ((VariableDeclarationFragment) fragment).resolveBinding();
+				if(field == null) {
+					continue;
+				}
+				// インタフェースのフィールドは暗黙にstatic
+				if(Modifier.isStatic(field.getModifiers())) {
+					isStatic = true;
+				}
+				addField(field);
+			}
+			enterInitializer(isStatic);
+			return true;
+		}
+
+		@Override
+		public void endVisit(FieldDeclaration node) {
+			callers.remove(callers.size() - 1);
+		}
+
+		@Override
+		public boolean visit(EnumConstantDeclaration node) {
+			IVariableBinding field = node.resolveVariable();
+			if(field != null) {
+				addField(field);
+			}
+			enterInitializer(true);
+			addCall(node.resolveConstructorBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(EnumConstantDeclaration node) {
+			callers.remove(callers.size() - 1);
+		}
+
+		private void addField(IVariableBinding field) {
+			ITypeBinding type = field.getType().getErasure();
+			ITypeBinding owner = field.getDeclaringClass();
+			fact("field", variable(field), owner == null ? null : owner.getErasure().getBinaryName(),
+					type == null ? null : type.getBinaryName());
+		}
+
+		private void enterInitializer(boolean isStatic) {
+			ITypeBinding type = types.isEmpty() ? null : types.get(types.size() - 1);
+			String name = type == null ? null : type.getErasure().getBinaryName();
+			callers.add(name == null ? null : name + "#"
+					+ (isStatic ? CallGraphBuilder.STATIC_INITIALIZER : CallGraphBuilder.INSTANCE_INITIALIZER));
+		}
+
+		// 呼び出し箇所
+
+		private void addCall(IMethodBinding method) {
+			if(method != null) {
+				fact("call", caller(), descriptors.getKey(method));
+			}
+		}
+
+		@Override
+		public boolean visit(MethodInvocation node) {
+			addCall(node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperMethodInvocation node) {
+			addCall(node.resolveMethodBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(ClassInstanceCreation node) {
+			addCall(node.resolveConstructorBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(ConstructorInvocation node) {
+			addCall(node.resolveConstructorBinding());
+			return true;
+		}
+
+		@Override
+		public boolean visit(SuperConstructorInvocation node) {
+			addCall(node.resolveConstructorBinding());
+			return true;
+		}
+	}
+}
@@ -0,0 +1,423 @@
+package com.lethe_river.jsa.datalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Datalogのプログラム．規則を解析し，述語の依存関係から層に分ける．
+ *
+ * <p>
+ * 構文は次の通り．{@code %}または{@code //}から行末まではコメントとする．
+ * <pre>
+ * 規則   := 原子 ( ":-" リテラル ( "," リテラル )* )? "."
+ * リテラル := "!"? 原子
+ * 原子   := 述語 "(" 項 ( "," 項 )* ")"
+ * 項     := 変数 | "_" | 文字列
+ * </pre>
+ * 述語は小文字で，変数は大文字で始まる名前とし，{@code _}は無名変数とする．
+ * 文字列は二重引用符で囲み，{@code \}で{@code "}と{@code \}をエスケープする．
+ * 頭部と否定したリテラルの変数は，否定していないリテラルに現れなければならない．
+ * 否定を通して自身に依存する述語は書けない．
+ * 生成後は変更されないため，複数のスレッドから参照できる．
+ */
+public final class Program {
+
+	/**
+	 * 互いに依存する述語とそれらを導く規則．
+	 */
+	static final class Stratum {
+		final Set<String> predicates;
+		final List<Rule> rules;
+		// 自身に依存する述語を含む場合はtrue
+		final boolean recursive;
+		// 先に評価する層の番号
+		final int[] dependencies;
+
+		Stratum(Set<String> predicates, List<Rule> rules, boolean recursive, int[] dependencies) {
+			this.predicates = predicates;
+			this.rules = rules;
+			this.recursive = recursive;
+			this.dependencies = dependencies;
+		}
+	}
+
+	private final List<Rule> rules;
+	private final Map<String, Integer> arities;
+	// 依存される層が先に来る順
+	private final List<Stratum> strata;
+
+	private Program(List<Rule> rules, Map<String, Integer> arities) {
+		this.rules = rules;
+		this.arities = arities;
+		this.strata = stratify();
+	}
+
+	/**
+	 * @param source プログラムの文字列
+	 * @return プログラム
+	 * @throws IllegalArgumentException 構文の誤り，述語の列の数の不一致，安全でない規則，層に分けられない否定がある場合
+	 */
+	public static Program parse(String source) {
+		Parser parser = new Parser(source);
+		List<Rule> rules = new ArrayList<>();
+		Map<String, Integer> arities = new LinkedHashMap<>();
+		while(parser.hasNext()) {
+			Rule rule = parser.rule();
+			checkArity(arities, rule.head);
+			for(Atom atom : rule.body) {
+				checkArity(arities, atom);
+			}
+			rules.add(rule);
+		}
+		return new Program(Collections.unmodifiableList(rules), Collections.unmodifiableMap(arities));
+	}
+
+	private static void checkArity(Map<String, Integer> arities, Atom atom) {
+		Integer arity = arities.putIfAbsent(atom.predicate, atom.arity());
+		if(arity != null && arity != atom.arity()) {
+			throw new IllegalArgumentException("arity of " + atom.predicate + " is " + arity + ", but used with " + atom.arity());
+		}
+	}
+
+	/**
+	 * @param predicate 述語
+	 * @return 述語の列の数．プログラムに現れない場合は-1
+	 */
+	public int getArity(String predicate) {
+		Integer arity = arities.get(predicate);
+		return arity == null ? -1 : arity;
+	}
+
+	/**
+	 * @return 規則で導かれる述語
+	 */
+	public Set<String> getDerivedPredicates() {
+		Set<String> result = new LinkedHashSet<>();
+		for(Rule rule : rules) {
+			result.add(rule.head.predicate);
+		}
+		return result;
+	}
+
+	public int getStratumCount() {
+		return strata.size();
+	}
+
+	List<Rule> rules() {
+		return rules;
+	}
+
+	List<Stratum> strata() {
+		return strata;
+	}
+
+	// 導かれる述語の依存グラフを強連結成分に分ける．Tarjanの方法は依存される成分から順に成分を返す
+	private List<Stratum> stratify() {
+		Map<String, List<Rule>> definitions = new LinkedHashMap<>();
+		for(Rule rule : rules) {
+			definitions.computeIfAbsent(rule.head.predicate, k -> new ArrayList<>()).add(rule);
+		}
+		List<String> predicates = new ArrayList<>(definitions.keySet());
+		Map<String, Integer> ids = new HashMap<>();
+		for(String p : predicates) {
+			ids.put(p, ids.size());
+		}
+		int n = predicates.size();
+		List<List<Integer>> successors = new ArrayList<>();
+		for(String p : predicates) {
+			List<Integer> next = new ArrayList<>();
+			for(Rule rule : definitions.get(p)) {
+				for(Atom atom : rule.body) {
+					Integer q = ids.get(atom.predicate);
+					if(q != null) {
+						next.add(q);
+					}
+				}
+			}
+			successors.add(next);
+		}
+
+		int[] index = new int[n];
+		int[] low = new int[n];
+		int[] component = new int[n];
+		boolean[] onStack = new boolean[n];
+		Arrays.fill(index, -1);
+		List<Integer> stack = new ArrayList<>();
+		List<List<Integer>> components = new ArrayList<>();
+		int[] counter = { 0 };
+		for(int v = 0; v < n; v++) {
+			if(index[v] < 0) {
+				strongConnect(v, successors, index, low, onStack, stack, components, component, counter);
+			}
+		}
+
+		List<Stratum> result = new ArrayList<>();
+		for(int c = 0; c < components.size(); c++) {
+			Set<String> members = new LinkedHashSet<>();
+			List<Rule> memberRules = new ArrayList<>();
+			for(int v : components.get(c)) {
+				members.add(predicates.get(v));
+				memberRules.addAll(definitions.get(predicates.get(v)));
+			}
+			boolean recursive = false;
+			Set<Integer> dependencies = new LinkedHashSet<>();
+			for(Rule rule : memberRules) {
+				for(Atom atom : rule.body) {
+					Integer q = ids.get(atom.predicate);
+					if(q == null) {
+						continue;
+					}
+					if(component[q] == c) {
+						if(atom.negated) {
+							throw new IllegalArgumentException("not stratifiable: " + rule);
+						}
+						recursive = true;
+					} else {
+						dependencies.add(component[q]);
+					}
+				}
+			}
+			result.add(new Stratum(members, memberRules, recursive,
+					dependencies.stream().mapToInt(Integer::intValue).toArray()));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private static void strongConnect(int root, List<List<Integer>> successors, int[] index, int[] low,
+			boolean[] onStack, List<Integer> stack, List<List<Integer>> components, int[] component, int[] counter) {
+		// 再帰を避けるため，(頂点, 次に見る辺の位置)を積む
+		List<int[]> calls = new ArrayList<>();
+		calls.add(new int[] { root, 0 });
+		index[root] = low[root] = counter[0]++;
+		stack.add(root);
+		onStack[root] = true;
+		while(!calls.isEmpty()) {
+			int[] call = calls.get(calls.size() - 1);
+			int v = call[0];
+			List<Integer> next = successors.get(v);
+			if(call[1] < next.size()) {
+				int w = next.get(call[1]++);
+				if(index[w] < 0) {
+					index[w] = low[w] = counter[0]++;
+					stack.add(w);
+					onStack[w] = true;
+					calls.add(new int[] { w, 0 });
+				} else if(onStack[w]) {
+					low[v] = Math.min(low[v], index[w]);
+				}
+				continue;
+			}
+			calls.remove(calls.size() - 1);
+			if(!calls.isEmpty()) {
+				int parent = calls.get(calls.size() - 1)[0];
+				low[parent] = Math.min(low[parent], low[v]);
+			}
+			if(low[v] == index[v]) {
+				List<Integer> members = new ArrayList<>();
+				int w;
+				do {
+					w = stack.remove(stack.size() - 1);
+					onStack[w] = false;
+					component[w] = components.size();
+					members.add(w);
+				} while(w != v);
+				components.add(members);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for(Rule rule : rules) {
+			sb.append(rule).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 字句と構文を同時に解析する．
+	 */
+	private static final class Parser {
+		private final String source;
+		private int position = 0;
+		private int line = 1;
+
+		// 規則ごとの変数
+		private final Map<String, Integer> variables = new LinkedHashMap<>();
+
+		Parser(String source) {
+			this.source = source;
+		}
+
+		boolean hasNext() {
+			skipSpaces();
+			return position < source.length();
+		}
+
+		Rule rule() {
+			variables.clear();
+			Atom head = atom(false);
+			List<Atom> body = new ArrayList<>();
+			skipSpaces();
+			if(source.startsWith(":-", position)) {
+				position += 2;
+				do {
+					skipSpaces();
+					boolean negated = peek() == '!';
+					if(negated) {
+						position++;
+					}
+					body.add(atom(negated));
+				} while(accept(','));
+			}
+			expect('.');
+			Rule rule = new Rule(head, Collections.unmodifiableList(body), variables.keySet().toArray(new String[0]));
+			checkSafety(rule);
+			return rule;
+		}
+
+		// 頭部と否定したリテラルの変数が，否定していないリテラルで束縛されることを確かめる
+		private void checkSafety(Rule rule) {
+			boolean[] bound = new boolean[rule.variables.length];
+			for(Atom atom : rule.body) {
+				if(!atom.negated) {
+					for(int term : atom.terms) {
+						if(term >= 0) {
+							bound[term] = true;
+						}
+					}
+				}
+			}
+			for(int term : rule.head.terms) {
+				if(term == Atom.WILDCARD) {
+					throw error("wildcard in head: " + rule);
+				}
+				if(term >= 0 && !bound[term]) {
+					throw error("unsafe variable " + rule.variables[term] + ": " + rule);
+				}
+			}
+			for(Atom atom : rule.body) {
+				for(int term : atom.terms) {
+					if(atom.negated && term >= 0 && !bound[term]) {
+						throw error("unsafe variable " + rule.variables[term] + ": " + rule);
+					}
+				}
+			}
+		}
+
+		private Atom atom(boolean negated) {
+			skipSpaces();
+			String predicate = name();
+			if(!Character.isLowerCase(predicate.charAt(0))) {
+				throw error("predicate must start with a lowercase letter: " + predicate);
+			}
+			expect('(');
+			List<Integer> terms = new ArrayList<>();
+			List<String> constants = new ArrayList<>();
+			do {
+				skipSpaces();
+				if(peek() == '"') {
+					terms.add(Atom.CONSTANT);
+					constants.add(string());
+					continue;
+				}
+				String name = name();
+				if(name.equals("_")) {
+					terms.add(Atom.WILDCARD);
+				} else if(Character.isUpperCase(name.charAt(0))) {
+					Integer variable = variables.get(name);
+					if(variable == null) {
+						variable = variables.size();
+						variables.put(name, variable);
+					}
+					terms.add(variable);
+				} else {
+					throw error("variable must start with an uppercase letter: " + name);
+				}
+				constants.add(null);
+			} while(accept(','));
+			expect(')');
+			return new Atom(predicate, negated, terms.stream().mapToInt(Integer::intValue).toArray(),
+					constants.toArray(new String[0]));
+		}
+
+		private String name() {
+			int start = position;
+			while(position < source.length()
+					&& (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+				position++;
+			}
+			if(start == position) {
+				throw error("name expected");
+			}
+			return source.substring(start, position);
+		}
+
+		private String string() {
+			StringBuilder sb = new StringBuilder();
+			position++;
+			while(true) {
+				if(position >= source.length() || source.charAt(position) == '\n') {
+					throw error("unterminated string");
+				}
+				char c = source.charAt(position++);
+				if(c == '"') {
+					return sb.toString();
+				}
+				if(c == '\\' && position < source.length()) {
+					c = source.charAt(position++);
+				}
+				sb.append(c);
+			}
+		}
+
+		private char peek() {
+			return position < source.length() ? source.charAt(position) : '\0';
+		}
+
+		private boolean accept(char c) {
+			skipSpaces();
+			if(peek() == c) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if(!accept(c)) {
+				throw error("'" + c + "' expected");
+			}
+		}
+
+		private void skipSpaces() {
+			while(position < source.length()) {
+				char c = source.charAt(position);
+				if(c == '%' || source.startsWith("//", position)) {
+					while(position < source.length() && source.charAt(position) != '\n') {
+						position++;
+					}
+				} else if(Character.isWhitespace(c)) {
+					if(c == '\n') {
+						line++;
+					}
+					position++;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("line " + line + ": " + message);
+		}
+	}
+}
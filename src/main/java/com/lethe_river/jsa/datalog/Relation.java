@@ -0,0 +1,325 @@
+package com.lethe_river.jsa.datalog;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntBinaryOperator;
+
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * 記号のidの組の集合．列ごとにintの配列で持ち，行は辞書式の昇順に並べて重複を除く．
+ * 結合に使う列の順に並べた索引は，必要になったときに作って覚えておく．
+ * 索引を除いて生成後は変更されないため，複数のスレッドから参照できる．
+ */
+public final class Relation {
+
+	private final int arity;
+	private final int size;
+	private final int[][] columns;
+	// 列の並びから，その順に並べた行の番号への対応
+	private final Map<String, int[]> indexes = new ConcurrentHashMap<>();
+
+	private Relation(int arity, int size, int[][] columns) {
+		this.arity = arity;
+		this.size = size;
+		this.columns = columns;
+	}
+
+	/**
+	 * @param arity 列の数
+	 * @return 空の関係
+	 */
+	static Relation empty(int arity) {
+		return new Relation(arity, 0, new int[arity][0]);
+	}
+
+	/**
+	 * 行を並べ替え，重複を除いて関係を作る．
+	 *
+	 * @param arity 列の数(1以上)
+	 * @param rows 行ごとに並べた値．値は0以上でなければならない
+	 * @return 関係
+	 */
+	static Relation of(int arity, IntList rows) {
+		int count = rows.size() / arity;
+		if(count == 0) {
+			return empty(arity);
+		}
+		int[] values = rows.toArray();
+		if(arity == 1) {
+			Arrays.sort(values);
+			int n = 0;
+			for(int i = 0; i < count; i++) {
+				if(n == 0 || values[n - 1] != values[i]) {
+					values[n++] = values[i];
+				}
+			}
+			return new Relation(1, n, new int[][] { Arrays.copyOf(values, n) });
+		}
+		if(arity == 2) {
+			// 値は負にならないので，2つを1つのlongに詰めて並べ替えられる
+			long[] packed = new long[count];
+			for(int i = 0; i < count; i++) {
+				packed[i] = (long) values[2 * i] << 32 | values[2 * i + 1];
+			}
+			Arrays.sort(packed);
+			int[] first = new int[count];
+			int[] second = new int[count];
+			int n = 0;
+			for(int i = 0; i < count; i++) {
+				if(n == 0 || packed[i] != packed[i - 1]) {
+					first[n] = (int) (packed[i] >>> 32);
+					second[n++] = (int) packed[i];
+				}
+			}
+			return new Relation(2, n, new int[][] { Arrays.copyOf(first, n), Arrays.copyOf(second, n) });
+		}
+
+		int[] order = identity(count);
+		sort(order, (a, b) -> {
+			for(int c = 0; c < arity; c++) {
+				int d = Integer.compare(values[a * arity + c], values[b * arity + c]);
+				if(d != 0) {
+					return d;
+				}
+			}
+			return 0;
+		});
+		int[][] columns = new int[arity][count];
+		int n = 0;
+		for(int i = 0; i < count; i++) {
+			int row = order[i] * arity;
+			if(n > 0 && Arrays.equals(values, row, row + arity, values, order[i - 1] * arity, order[i - 1] * arity + arity)) {
+				continue;
+			}
+			for(int c = 0; c < arity; c++) {
+				columns[c][n] = values[row + c];
+			}
+			n++;
+		}
+		for(int c = 0; c < arity; c++) {
+			columns[c] = Arrays.copyOf(columns[c], n);
+		}
+		return new Relation(arity, n, columns);
+	}
+
+	public int getArity() {
+		return arity;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param row 行の番号．行は辞書式の昇順に並ぶ
+	 * @param column 列の番号
+	 * @return 記号のid
+	 */
+	public int get(int row, int column) {
+		if(row >= size) {
+			throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+		}
+		return columns[column][row];
+	}
+
+	/**
+	 * @param tuple 記号のidの組
+	 * @return 組が含まれていればtrue
+	 */
+	public boolean contains(int... tuple) {
+		if(tuple.length != arity) {
+			throw new IllegalArgumentException("arity: " + arity + ", tuple: " + tuple.length);
+		}
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			int d = 0;
+			for(int c = 0; c < arity && d == 0; c++) {
+				d = Integer.compare(columns[c][mid], tuple[c]);
+			}
+			if(d == 0) {
+				return true;
+			}
+			if(d < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return false;
+	}
+
+	int[] column(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * 与えた列の順に並べた行の番号を返す．作った索引は覚えておく．
+	 *
+	 * @param keys 列の番号の並び
+	 * @return 行の番号の並び．先頭からの列の並びであれば，行の順そのままなのでnull
+	 */
+	int[] index(int[] keys) {
+		boolean prefix = true;
+		for(int i = 0; i < keys.length && prefix; i++) {
+			prefix = keys[i] == i;
+		}
+		if(prefix) {
+			return null;
+		}
+		return indexes.computeIfAbsent(Arrays.toString(keys), k -> {
+			int[] order = identity(size);
+			sort(order, (a, b) -> {
+				for(int key : keys) {
+					int d = Integer.compare(columns[key][a], columns[key][b]);
+					if(d != 0) {
+						return d;
+					}
+				}
+				return 0;
+			});
+			return order;
+		});
+	}
+
+	/**
+	 * @param other 同じ列の数の関係
+	 * @return 和
+	 */
+	Relation union(Relation other) {
+		if(other.size == 0) {
+			return this;
+		}
+		if(size == 0) {
+			return other;
+		}
+		int[][] merged = new int[arity][size + other.size];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while(i < size || j < other.size) {
+			int d = i == size ? 1 : j == other.size ? -1 : compareRows(this, i, other, j);
+			Relation from = d <= 0 ? this : other;
+			int row = d <= 0 ? i : j;
+			for(int c = 0; c < arity; c++) {
+				merged[c][n] = from.columns[c][row];
+			}
+			n++;
+			if(d <= 0) {
+				i++;
+			}
+			if(d >= 0) {
+				j++;
+			}
+		}
+		for(int c = 0; c < arity; c++) {
+			merged[c] = Arrays.copyOf(merged[c], n);
+		}
+		return new Relation(arity, n, merged);
+	}
+
+	/**
+	 * @param other 同じ列の数の関係
+	 * @return この関係にだけある行
+	 */
+	Relation minus(Relation other) {
+		if(size == 0 || other.size == 0) {
+			return this;
+		}
+		int[][] result = new int[arity][size];
+		int n = 0;
+		for(int i = 0, j = 0; i < size; ) {
+			int d = j == other.size ? -1 : compareRows(this, i, other, j);
+			if(d < 0) {
+				for(int c = 0; c < arity; c++) {
+					result[c][n] = columns[c][i];
+				}
+				n++;
+				i++;
+			} else if(d > 0) {
+				j++;
+			} else {
+				i++;
+				j++;
+			}
+		}
+		if(n == size) {
+			return this;
+		}
+		for(int c = 0; c < arity; c++) {
+			result[c] = Arrays.copyOf(result[c], n);
+		}
+		return new Relation(arity, n, result);
+	}
+
+	private static int compareRows(Relation a, int i, Relation b, int j) {
+		for(int c = 0; c < a.arity; c++) {
+			int d = Integer.compare(a.columns[c][i], b.columns[c][j]);
+			if(d != 0) {
+				return d;
+			}
+		}
+		return 0;
+	}
+
+	static int[] identity(int size) {
+		int[] order = new int[size];
+		for(int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+
+	/**
+	 * 番号の並びを安定に並べ替える(マージソート)．
+	 *
+	 * @param order 並べ替える番号
+	 * @param comparator 番号の比較
+	 */
+	static void sort(int[] order, IntBinaryOperator comparator) {
+		int[] buffer = new int[order.length];
+		int[] from = order;
+		int[] to = buffer;
+		for(int width = 1; width < order.length; width *= 2) {
+			for(int low = 0; low < order.length; low += 2 * width) {
+				int mid = Math.min(low + width, order.length);
+				int high = Math.min(low + 2 * width, order.length);
+				int i = low;
+				int j = mid;
+				for(int k = low; k < high; k++) {
+					if(i < mid && (j == high || comparator.applyAsInt(from[i], from[j]) <= 0)) {
+						to[k] = from[i++];
+					} else {
+						to[k] = from[j++];
+					}
+				}
+			}
+			int[] t = from;
+			from = to;
+			to = t;
+		}
+		if(from != order) {
+			System.arraycopy(from, 0, order, 0, order.length);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for(int i = 0; i < size; i++) {
+			sb.append(i == 0 ? "(" : ", (");
+			for(int c = 0; c < arity; c++) {
+				sb.append(c == 0 ? "" : ", ").append(columns[c][i]);
+			}
+			sb.append(')');
+		}
+		return sb.append(']').toString();
+	}
+}
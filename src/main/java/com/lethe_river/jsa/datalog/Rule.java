@@ -0,0 +1,30 @@
+package com.lethe_river.jsa.datalog;
+
+import java.util.List;
+
+/**
+ * 1つの規則．本体が空の規則は事実を表す．
+ * 変数は規則の中で0から番号を付ける．
+ */
+final class Rule {
+
+	final Atom head;
+	final List<Atom> body;
+	// 変数の番号ごとの名前
+	final String[] variables;
+
+	Rule(Atom head, List<Atom> body, String[] variables) {
+		this.head = head;
+		this.body = body;
+		this.variables = variables;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(head.toString(variables));
+		for(int i = 0; i < body.size(); i++) {
+			sb.append(i == 0 ? " :- " : ", ").append(body.get(i).toString(variables));
+		}
+		return sb.append('.').toString();
+	}
+}
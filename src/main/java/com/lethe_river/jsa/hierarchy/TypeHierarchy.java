@@ -0,0 +1,470 @@
+package com.lethe_river.jsa.hierarchy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+import com.lethe_river.jsa.cache.CacheableAnalysis;
+import com.lethe_river.jsa.util.IntList;
+
+/**
+ * プログラム全体の型階層．
+ * 型には0から連続するidを割り当て，部分型の判定を定数時間で行う．
+ *
+ * <p>
+ * クラスの継承関係は木なので，深さ優先の行きがけ順の番号と，部分木の中の最大の番号を各型に付ける．
+ * AがBのサブクラスであることは，Aの番号がBの区間に含まれることと同値である．
+ * インタフェースについては，各型が実装する全てのインタフェースをビット集合で持つ．
+ * 新しいインタフェースを加えない型は上位クラスのビット集合を共有する．
+ * {@code java.lang.Object}は全ての型の上位型とする．
+ *
+ * <p>
+ * 型の情報はファイルごとに保持する．{@link #update(String, List)}は1ファイル分の情報を置き換えた新しい階層を返し，
+ * 既にある型のidは変えない．索引の構築は型の数に比例する時間で済むため，更新のたびに作り直す．
+ * {@link #save(Path)}はファイルごとの情報を書き出し，{@link #load(Path)}で読み込むときに索引を作り直す．
+ * 生成後は変更されないため，複数のスレッドから参照できる．
+ */
+public final class TypeHierarchy {
+
+	public static final String OBJECT = "java.lang.Object";
+
+	private static final BitSet NONE = new BitSet();
+
+	private final Map<String, List<TypeInfo>> files;
+
+	private final String[] names;
+	private final Map<String, Integer> ids;
+	private final BitSet declared;
+	private final BitSet interfaces;
+	private final int[] superclass;
+	private final int[][] directInterfaces;
+	private final int object;
+
+	// クラスの木の区間
+	private final int[] pre;
+	private final int[] last;
+	private final int[] byPre;
+
+	// 実装する全てのインタフェース
+	private final BitSet[] implemented;
+	private final Map<Integer, BitSet> implementors = new HashMap<>();
+
+	private TypeHierarchy(Map<String, List<TypeInfo>> files, String[] previous) {
+		this.files = files;
+
+		// ソースでの宣言を優先する
+		Map<String, TypeInfo> infos = new HashMap<>();
+		for(List<TypeInfo> list : files.values()) {
+			for(TypeInfo info : list) {
+				TypeInfo old = infos.get(info.getName());
+				if(old == null || (!old.isDeclared() && info.isDeclared())) {
+					infos.put(info.getName(), info);
+				}
+			}
+		}
+
+		Map<String, Integer> ids = new LinkedHashMap<>();
+		for(String name : previous) {
+			ids.put(name, ids.size());
+		}
+		ids.putIfAbsent(OBJECT, ids.size());
+		for(List<TypeInfo> list : files.values()) {
+			for(TypeInfo info : list) {
+				ids.putIfAbsent(info.getName(), ids.size());
+				if(info.getSuperclass() != null) {
+					ids.putIfAbsent(info.getSuperclass(), ids.size());
+				}
+				for(String i : info.getInterfaces()) {
+					ids.putIfAbsent(i, ids.size());
+				}
+			}
+		}
+		this.ids = ids;
+		int n = ids.size();
+		names = ids.keySet().toArray(new String[n]);
+		object = ids.get(OBJECT);
+
+		declared = new BitSet(n);
+		interfaces = new BitSet(n);
+		superclass = new int[n];
+		directInterfaces = new int[n][];
+		for(int i = 0; i < n; i++) {
+			TypeInfo info = infos.get(names[i]);
+			superclass[i] = -1;
+			directInterfaces[i] = new int[0];
+			if(info == null) {
+				continue;
+			}
+			declared.set(i, info.isDeclared());
+			interfaces.set(i, info.isInterface());
+			if(info.getSuperclass() != null) {
+				superclass[i] = ids.get(info.getSuperclass());
+			}
+			directInterfaces[i] = info.getInterfaces().stream().mapToInt(ids::get).toArray();
+		}
+
+		pre = new int[n];
+		last = new int[n];
+		byPre = new int[n];
+		numberClasses();
+
+		implemented = new BitSet[n];
+		int[] state = new int[n];
+		for(int i = 0; i < n; i++) {
+			implemented(i, state);
+		}
+	}
+
+	// クラスの木を深さ優先でたどって番号を付ける
+	private void numberClasses() {
+		int n = names.length;
+		int[][] children = new int[n][];
+		int[] counts = new int[n];
+		for(int i = 0; i < n; i++) {
+			if(superclass[i] >= 0) {
+				counts[superclass[i]]++;
+			}
+		}
+		for(int i = 0; i < n; i++) {
+			children[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		for(int i = 0; i < n; i++) {
+			if(superclass[i] >= 0) {
+				children[superclass[i]][counts[superclass[i]]++] = i;
+			}
+		}
+
+		Arrays.fill(pre, -1);
+		int next = 0;
+		IntList stack = new IntList();
+		for(int pass = 0; pass < 2; pass++) {
+			for(int root = 0; root < n; root++) {
+				// 2回目は循環した継承(誤ったソース)の中の型を根とする
+				if(pre[root] >= 0 || (pass == 0 && superclass[root] >= 0)) {
+					continue;
+				}
+				pre[root] = next;
+				byPre[next++] = root;
+				stack.add(root);
+				stack.add(0);
+				while(!stack.isEmpty()) {
+					int index = stack.removeLast();
+					int type = stack.get(stack.size() - 1);
+					if(index < children[type].length) {
+						stack.add(index + 1);
+						int child = children[type][index];
+						if(pre[child] < 0) {
+							pre[child] = next;
+							byPre[next++] = child;
+							stack.add(child);
+							stack.add(0);
+						}
+					} else {
+						stack.removeLast();
+						last[type] = next - 1;
+					}
+				}
+			}
+		}
+	}
+
+	// 型が実装する全てのインタフェース．上位型から順に求める
+	private BitSet implemented(int type, int[] state) {
+		if(state[type] == 2) {
+			return implemented[type];
+		}
+		if(state[type] == 1) {
+			// 循環した継承
+			return new BitSet();
+		}
+		state[type] = 1;
+		BitSet result = superclass[type] >= 0 ? implemented(superclass[type], state) : null;
+		boolean shared = result != null;
+		for(int i : directInterfaces[type]) {
+			BitSet inherited = implemented(i, state);
+			if(result != null && result.get(i) && contains(result, inherited)) {
+				continue;
+			}
+			if(result == null) {
+				result = new BitSet();
+			} else if(shared) {
+				result = (BitSet) result.clone();
+				shared = false;
+			}
+			result.set(i);
+			result.or(inherited);
+		}
+		if(result == null) {
+			// 変更されないので共有する
+			result = NONE;
+		}
+		implemented[type] = result;
+		state[type] = 2;
+		return result;
+	}
+
+	private static boolean contains(BitSet set, BitSet subset) {
+		BitSet rest = (BitSet) subset.clone();
+		rest.andNot(set);
+		return rest.isEmpty();
+	}
+
+	/**
+	 * ファイルごとの型の情報から型階層を作る．
+	 *
+	 * @param files ソースファイルのパスから，そのファイルが出力した型の情報へのマップ
+	 * @return 型階層
+	 */
+	public static TypeHierarchy of(Map<String, ? extends List<TypeInfo>> files) {
+		Map<String, List<TypeInfo>> copy = new HashMap<>();
+		files.forEach((path, list) -> copy.put(path, List.copyOf(list)));
+		return new TypeHierarchy(copy, new String[0]);
+	}
+
+	/**
+	 * ファイルの区別のない型の情報から型階層を作る．
+	 *
+	 * @param types 型の情報
+	 * @return 型階層
+	 */
+	public static TypeHierarchy of(Collection<TypeInfo> types) {
+		return of(Collections.singletonMap("", new ArrayList<>(types)));
+	}
+
+	/**
+	 * 型階層をファイルごとにキャッシュ可能な解析として返す．
+	 * {@link com.lethe_river.jsa.SourceProcessor#processSources(CacheableAnalysis, com.lethe_river.jsa.cache.AnalysisCache)}の結果を
+	 * {@link #of(Map)}に渡すと，変化したファイルだけを再解析して型階層を作れる．
+	 *
+	 * @return 型の情報を出力する解析
+	 */
+	public static CacheableAnalysis<TypeInfo> analysis() {
+		return new CacheableAnalysis<TypeInfo>() {
+			@Override
+			public String getName() {
+				return TypeHierarchy.class.getName() + "/1";
+			}
+
+			@Override
+			public ASTVisitor createVisitor(Consumer<? super TypeInfo> emitter) {
+				return new TypeHierarchyVisitor(emitter);
+			}
+		};
+	}
+
+	/**
+	 * 1ファイル分の型の情報を置き換えた型階層を返す．既にある型のidは変わらない．
+	 *
+	 * @param path ソースファイルのパス
+	 * @param types そのファイルが出力した型の情報
+	 * @return 新しい型階層
+	 */
+	public TypeHierarchy update(String path, List<TypeInfo> types) {
+		Map<String, List<TypeInfo>> copy = new HashMap<>(files);
+		copy.put(path, List.copyOf(types));
+		return new TypeHierarchy(copy, names);
+	}
+
+	/**
+	 * 1ファイル分の型の情報を除いた型階層を返す．既にある型のidは変わらない．
+	 *
+	 * @param path 削除されたソースファイルのパス
+	 * @return 新しい型階層
+	 */
+	public TypeHierarchy remove(String path) {
+		Map<String, List<TypeInfo>> copy = new HashMap<>(files);
+		copy.remove(path);
+		return new TypeHierarchy(copy, names);
+	}
+
+	/**
+	 * 型の情報をファイルに書き出す．
+	 *
+	 * @param file 出力先．既存のファイルは置き換える
+	 */
+	public void save(Path file) {
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp);
+					ObjectOutputStream oos = new ObjectOutputStream(out)) {
+				oos.writeObject(names);
+				oos.writeObject(new HashMap<>(files));
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * {@link #save(Path)}で書き出した型階層を読み込む．idは書き出したときと同じになる．
+	 *
+	 * @param file 読み込むファイル
+	 * @return 型階層
+	 */
+	@SuppressWarnings("unchecked")
+	public static TypeHierarchy load(Path file) {
+		try(InputStream in = Files.newInputStream(file);
+				ObjectInputStream ois = new ObjectInputStream(in)) {
+			String[] names = (String[]) ois.readObject();
+			Map<String, List<TypeInfo>> files = (Map<String, List<TypeInfo>>) ois.readObject();
+			return new TypeHierarchy(files, names);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IllegalStateException("malformed type hierarchy: " + file, e);
+		}
+	}
+
+	public int getTypeCount() {
+		return names.length;
+	}
+
+	public String getName(int type) {
+		return names[type];
+	}
+
+	/**
+	 * @param name 型のバイナリ名
+	 * @return 型のid．含まれない場合は-1
+	 */
+	public int find(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param type 型のid
+	 * @return ソースで宣言された型であればtrue
+	 */
+	public boolean isDeclared(int type) {
+		return declared.get(type);
+	}
+
+	public boolean isInterface(int type) {
+		return interfaces.get(type);
+	}
+
+	/**
+	 * @param type 型のid
+	 * @return 直接の上位クラスのid．無いか不明な場合は-1
+	 */
+	public int getSuperclass(int type) {
+		return superclass[type];
+	}
+
+	/**
+	 * @param type 型のid
+	 * @return 直接実装または継承するインタフェースのid
+	 */
+	public int[] getInterfaces(int type) {
+		return directInterfaces[type].clone();
+	}
+
+	/**
+	 * 部分型の関係を定数時間で判定する．型は自身の部分型である．
+	 *
+	 * @param sub 型のid
+	 * @param sup 型のid
+	 * @return subがsupの部分型であればtrue
+	 */
+	public boolean isSubtype(int sub, int sup) {
+		if(sub == sup || sup == object) {
+			return true;
+		}
+		if(interfaces.get(sup)) {
+			return implemented[sub].get(sup);
+		}
+		return pre[sup] <= pre[sub] && pre[sub] <= last[sup];
+	}
+
+	/**
+	 * @param sub 型のバイナリ名
+	 * @param sup 型のバイナリ名
+	 * @return subがsupの部分型であればtrue．どちらかが含まれない場合は同じ名前のときだけtrue
+	 */
+	public boolean isSubtype(String sub, String sup) {
+		int subId = find(sub);
+		int supId = find(sup);
+		if(subId < 0 || supId < 0) {
+			return sub.equals(sup) || OBJECT.equals(sup);
+		}
+		return isSubtype(subId, supId);
+	}
+
+	/**
+	 * @param type 型のid
+	 * @return 型自身を含む全ての部分型のid
+	 */
+	public BitSet getSubtypes(int type) {
+		BitSet result;
+		if(type == object) {
+			result = new BitSet(names.length);
+			result.set(0, names.length);
+		} else if(interfaces.get(type)) {
+			result = getImplementors(type);
+			result.set(type);
+		} else {
+			result = new BitSet(names.length);
+			for(int i = pre[type]; i <= last[type]; i++) {
+				result.set(byPre[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param type インタフェースのid
+	 * @return インタフェースを直接または間接に実装または継承する型のid
+	 */
+	public BitSet getImplementors(int type) {
+		BitSet result;
+		synchronized(implementors) {
+			result = implementors.get(type);
+			if(result == null) {
+				result = new BitSet(names.length);
+				for(int i = 0; i < names.length; i++) {
+					if(implemented[i].get(type)) {
+						result.set(i);
+					}
+				}
+				implementors.put(type, result);
+			}
+		}
+		return (BitSet) result.clone();
+	}
+
+	/**
+	 * @param type 型のid
+	 * @return 型自身と{@code java.lang.Object}を含む全ての上位型のid
+	 */
+	public BitSet getSupertypes(int type) {
+		BitSet result = (BitSet) implemented[type].clone();
+		for(int t = type; t >= 0 && !result.get(t); t = superclass[t]) {
+			result.set(t);
+		}
+		result.set(object);
+		return result;
+	}
+}
@@ -0,0 +1,102 @@
+package com.lethe_river.jsa.hierarchy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+/**
+ * 宣言された型とその直接の上位型を{@link TypeInfo}として出力する．
+ * ソースにない上位型(ライブラリの型)は，それより上の型もたどって出力する．
+ * ソースにある上位型は，それを宣言しているファイルの解析で出力される．
+ * 1つのスレッドから使わなければならない．
+ */
+public class TypeHierarchyVisitor extends ASTVisitor {
+
+	private final Consumer<? super TypeInfo> emitter;
+	private final Set<String> emitted = new HashSet<>();
+
+	/**
+	 * @param emitter 型の出力先
+	 */
+	public TypeHierarchyVisitor(Consumer<? super TypeInfo> emitter) {
+		this.emitter = emitter;
+	}
+
+	/**
+	 * ソースで宣言された型を出力する．
+	 * Visitorとして使わずに，他のVisitorから型を渡す場合に使う．
+	 *
+	 * @param type 型の束縛．nullの場合は何もしない
+	 */
+	public void addType(ITypeBinding type) {
+		if(type == null) {
+			return;
+		}
+		List<ITypeBinding> libraries = new ArrayList<>();
+		emit(type.getErasure(), true, libraries);
+		while(!libraries.isEmpty()) {
+			emit(libraries.remove(libraries.size() - 1), false, libraries);
+		}
+	}
+
+	private void emit(ITypeBinding type, boolean declared, List<ITypeBinding> libraries) {
+		String name = type.getBinaryName();
+		if(name == null || !emitted.add(name)) {
+			return;
+		}
+		ITypeBinding superclass = type.getSuperclass();
+		String superName = null;
+		if(superclass != null) {
+			superName = superName(superclass, libraries);
+		}
+		List<String> interfaces = new ArrayList<>();
+		for(ITypeBinding i : type.getInterfaces()) {
+			String interfaceName = superName(i, libraries);
+			if(interfaceName != null) {
+				interfaces.add(interfaceName);
+			}
+		}
+		emitter.accept(new TypeInfo(name, type.isInterface(), declared, superName, interfaces));
+	}
+
+	private static String superName(ITypeBinding supertype, List<ITypeBinding> libraries) {
+		ITypeBinding erasure = supertype.getErasure();
+		if(!erasure.isFromSource()) {
+			libraries.add(erasure);
+		}
+		return erasure.getBinaryName();
+	}
+
+	@Override
+	public boolean visit(TypeDeclaration node) {
+		addType(node.resolveBinding());
+		return true;
+	}
+
+	@Override
+	public boolean visit(EnumDeclaration node) {
+		addType(node.resolveBinding());
+		return true;
+	}
+
+	@Override
+	public boolean visit(AnnotationTypeDeclaration node) {
+		addType(node.resolveBinding());
+		return true;
+	}
+
+	@Override
+	public boolean visit(AnonymousClassDeclaration node) {
+		addType(node.resolveBinding());
+		return true;
+	}
+}
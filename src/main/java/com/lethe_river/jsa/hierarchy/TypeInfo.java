@@ -0,0 +1,79 @@
+package com.lethe_river.jsa.hierarchy;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 1つの型とその直接の上位型．
+ */
+public final class TypeInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String name;
+	private final boolean isInterface;
+	private final boolean declared;
+	private final String superclass;
+	private final List<String> interfaces;
+
+	/**
+	 * @param name 型のバイナリ名
+	 * @param isInterface インタフェース(アノテーション型を含む)であればtrue
+	 * @param declared ソースで宣言された型であればtrue．ライブラリの型はfalse
+	 * @param superclass 直接の上位クラスのバイナリ名．無い場合はnull
+	 * @param interfaces 直接実装または継承するインタフェースのバイナリ名
+	 */
+	public TypeInfo(String name, boolean isInterface, boolean declared, String superclass, List<String> interfaces) {
+		this.name = Objects.requireNonNull(name);
+		this.isInterface = isInterface;
+		this.declared = declared;
+		this.superclass = superclass;
+		this.interfaces = List.copyOf(interfaces);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isInterface() {
+		return isInterface;
+	}
+
+	public boolean isDeclared() {
+		return declared;
+	}
+
+	public String getSuperclass() {
+		return superclass;
+	}
+
+	public List<String> getInterfaces() {
+		return interfaces;
+	}
+
+	@Override
+	public String toString() {
+		return name + (superclass == null ? "" : " extends " + superclass) + " " + interfaces;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, isInterface, declared, superclass, interfaces);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		TypeInfo other = (TypeInfo) obj;
+		return name.equals(other.name)
+				&& isInterface == other.isInterface
+				&& declared == other.declared
+				&& Objects.equals(superclass, other.superclass)
+				&& interfaces.equals(other.interfaces);
+	}
+}
@@ -0,0 +1,27 @@
+package com.lethe_river.jsa.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 1ファイルの構文解析と束縛の解決を表すJFRのイベント．
+ * JDTは構文解析と束縛の解決を分けずに行うため，前のファイルを受け取り終えてから次のファイルを受け取るまでを1つのイベントとする．
+ * 最初のファイルのイベントは全てのファイルの構文解析を含む．
+ */
+@Name("com.lethe_river.jsa.FileParse")
+@Label("File Parse and Bind")
+@Category({"JSA", "Source Processor"})
+@Description("Parsing and binding resolution of a source file")
+public class FileParseEvent extends Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Size")
+	@DataAmount
+	public long size;
+}
@@ -0,0 +1,26 @@
+package com.lethe_river.jsa.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * {@link com.lethe_river.jsa.MethodDeclVisitor}が1ファイルからメソッドを出力したことを表すJFRのイベント．
+ */
+@Name("com.lethe_river.jsa.MethodDecl")
+@Label("Method Declarations")
+@Category({"JSA", "Visitor"})
+@Description("Methods emitted from a compilation unit")
+public class MethodDeclEvent extends Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Methods")
+	public int methods;
+
+	@Label("Unresolved Methods")
+	public int unresolved;
+}
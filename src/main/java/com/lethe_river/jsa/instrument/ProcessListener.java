@@ -0,0 +1,43 @@
+package com.lethe_river.jsa.instrument;
+
+/**
+ * {@link com.lethe_river.jsa.SourceProcessor}の各段階の経過を受け取る．
+ * 並列に解析する場合は複数のスレッドから呼ばれるため，実装はスレッドセーフでなければならない．
+ */
+public interface ProcessListener {
+
+	/**
+	 * ソースとライブラリの探索が終わったときに呼ばれる．
+	 *
+	 * @param sources 見つかったソースファイルの数
+	 * @param libraries 見つかったライブラリの数
+	 * @param nanos 探索にかかった時間
+	 */
+	default void discoveryFinished(int sources, int libraries, long nanos) {}
+
+	/**
+	 * 1ファイルの構文解析と束縛の解決が終わったときに呼ばれる．
+	 * JDTは最初のファイルを返す前にすべてのファイルを構文解析するため，その時間は最初のファイルに計上される．
+	 *
+	 * @param path ソースファイルのパス
+	 * @param size ファイルサイズ(バイト)
+	 * @param nanos 構文解析と束縛の解決にかかった時間
+	 */
+	default void fileParsed(String path, long size, long nanos) {}
+
+	/**
+	 * 1ファイルにVisitorを適用し終わったときに呼ばれる．
+	 *
+	 * @param path ソースファイルのパス
+	 * @param nanos Visitorの適用にかかった時間
+	 * @param unresolvedBindings 解決できなかった名前の数
+	 */
+	default void fileVisited(String path, long nanos, int unresolvedBindings) {}
+
+	/**
+	 * 解析全体が終わったときに呼ばれる．
+	 *
+	 * @param nanos 解析全体にかかった時間
+	 */
+	default void runFinished(long nanos) {}
+}
@@ -0,0 +1,189 @@
+package com.lethe_river.jsa.instrument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.lethe_river.jsa.util.Histogram;
+
+/**
+ * 段階ごとの時間をヒストグラムに集計し，時間のかかったファイルを報告する．
+ */
+public class ProcessProfiler implements ProcessListener {
+
+	private static final int DEFAULT_SLOWEST = 20;
+
+	private final int slowestCount;
+
+	private final Histogram parseTimes = new Histogram();
+	private final Histogram visitTimes = new Histogram();
+	private final Histogram fileSizes = new Histogram();
+	private final LongAdder unresolvedBindings = new LongAdder();
+	private final AtomicLong discoveryNanos = new AtomicLong();
+	private final AtomicLong runNanos = new AtomicLong();
+
+	private final Map<String, FileStats> files = new ConcurrentHashMap<>();
+
+	public ProcessProfiler() {
+		this(DEFAULT_SLOWEST);
+	}
+
+	/**
+	 * @param slowestCount 報告する遅いファイルの数
+	 */
+	public ProcessProfiler(int slowestCount) {
+		this.slowestCount = slowestCount;
+	}
+
+	@Override
+	public void discoveryFinished(int sources, int libraries, long nanos) {
+		discoveryNanos.addAndGet(nanos);
+	}
+
+	@Override
+	public void fileParsed(String path, long size, long nanos) {
+		parseTimes.record(nanos);
+		fileSizes.record(size);
+		FileStats stats = files.computeIfAbsent(path, FileStats::new);
+		stats.size = size;
+		stats.parseNanos = nanos;
+	}
+
+	@Override
+	public void fileVisited(String path, long nanos, int unresolved) {
+		visitTimes.record(nanos);
+		unresolvedBindings.add(unresolved);
+		FileStats stats = files.computeIfAbsent(path, FileStats::new);
+		stats.visitNanos = nanos;
+		stats.unresolvedBindings = unresolved;
+	}
+
+	@Override
+	public void runFinished(long nanos) {
+		runNanos.addAndGet(nanos);
+	}
+
+	public Histogram getParseTimes() {
+		return parseTimes;
+	}
+
+	public Histogram getVisitTimes() {
+		return visitTimes;
+	}
+
+	public Histogram getFileSizes() {
+		return fileSizes;
+	}
+
+	public long getUnresolvedBindings() {
+		return unresolvedBindings.sum();
+	}
+
+	public int getFileCount() {
+		return files.size();
+	}
+
+	/**
+	 * 構文解析，束縛の解決，Visitorの適用の合計時間が長いファイルを返す．
+	 *
+	 * @return 時間の長い順に並んだファイルのパス
+	 */
+	public List<String> getSlowestFiles() {
+		PriorityQueue<FileStats> queue = new PriorityQueue<>(Comparator.comparingLong(FileStats::total));
+		for(FileStats stats : files.values()) {
+			queue.add(stats);
+			if(queue.size() > slowestCount) {
+				queue.poll();
+			}
+		}
+		List<String> result = new ArrayList<>();
+		while(!queue.isEmpty()) {
+			result.add(0, queue.poll().path);
+		}
+		return result;
+	}
+
+	/**
+	 * 集計結果を人が読める形式で返す．
+	 *
+	 * @return 集計結果
+	 */
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("files: %d, discovery: %d ms, total: %d ms, unresolved bindings: %d%n",
+				getFileCount(),
+				TimeUnit.NANOSECONDS.toMillis(discoveryNanos.get()),
+				TimeUnit.NANOSECONDS.toMillis(runNanos.get()),
+				getUnresolvedBindings()));
+		appendHistogram(sb, "parse+bind (us)", parseTimes, 1000);
+		appendHistogram(sb, "visit (us)", visitTimes, 1000);
+		appendHistogram(sb, "file size (bytes)", fileSizes, 1);
+
+		sb.append("slowest files:").append(System.lineSeparator());
+		for(String path : getSlowestFiles()) {
+			FileStats stats = files.get(path);
+			sb.append(String.format("  %8d us  parse+bind %8d us  visit %8d us  %8d bytes  unresolved %4d  %s%n",
+					stats.total() / 1000,
+					stats.parseNanos / 1000,
+					stats.visitNanos / 1000,
+					stats.size,
+					stats.unresolvedBindings,
+					path));
+		}
+		return sb.toString();
+	}
+
+	private static void appendHistogram(StringBuilder sb, String title, Histogram histogram, long unit) {
+		sb.append(String.format("%s: count %d, mean %.1f, p50 %d, p90 %d, p99 %d, max %d%n",
+				title,
+				histogram.getCount(),
+				histogram.getMean() / unit,
+				histogram.getPercentile(0.5) / unit,
+				histogram.getPercentile(0.9) / unit,
+				histogram.getPercentile(0.99) / unit,
+				histogram.getMax() / unit));
+		long max = 0;
+		for(int i = 0; i < histogram.getBucketCount(); i++) {
+			max = Math.max(max, histogram.getBucket(i));
+		}
+		for(int i = 0; i < histogram.getBucketCount(); i++) {
+			long n = histogram.getBucket(i);
+			if(n == 0) {
+				continue;
+			}
+			sb.append(String.format("  < %12d | %-40s %d%n",
+					Histogram.upperBound(i) / unit,
+					bar((int) (n * 40 / max)),
+					n));
+		}
+	}
+
+	private static String bar(int length) {
+		char[] chars = new char[length];
+		Arrays.fill(chars, '#');
+		return new String(chars);
+	}
+
+	private static class FileStats {
+		final String path;
+		volatile long size;
+		volatile long parseNanos;
+		volatile long visitNanos;
+		volatile int unresolvedBindings;
+
+		FileStats(String path) {
+			this.path = path;
+		}
+
+		long total() {
+			return parseNanos + visitNanos;
+		}
+	}
+}
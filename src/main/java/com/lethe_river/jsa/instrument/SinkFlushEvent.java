@@ -0,0 +1,23 @@
+package com.lethe_river.jsa.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * {@link com.lethe_river.jsa.sink.MethodSink}がバッファリングしていたメソッドを書き出したことを表すJFRのイベント．
+ */
+@Name("com.lethe_river.jsa.SinkFlush")
+@Label("Sink Flush")
+@Category({"JSA", "Sink"})
+@Description("Output of buffered method records")
+public class SinkFlushEvent extends Event {
+
+	@Label("Sink")
+	public String sink;
+
+	@Label("Records")
+	public int records;
+}
@@ -0,0 +1,36 @@
+package com.lethe_river.jsa.instrument;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.BreakStatement;
+import org.eclipse.jdt.core.dom.ContinueStatement;
+import org.eclipse.jdt.core.dom.LabeledStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+/**
+ * 束縛を解決できなかった名前を数える．
+ */
+public class UnresolvedBindingCounter extends ASTVisitor {
+
+	private int count = 0;
+
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public boolean visit(SimpleName node) {
+		if(!isLabel(node) && node.resolveBinding() == null) {
+			count++;
+		}
+		return false;
+	}
+
+	// ラベルには束縛がない
+	private static boolean isLabel(SimpleName node) {
+		ASTNode parent = node.getParent();
+		return parent instanceof LabeledStatement
+				|| parent instanceof BreakStatement
+				|| parent instanceof ContinueStatement;
+	}
+}
@@ -0,0 +1,28 @@
+package com.lethe_river.jsa.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 1ファイルに1つのVisitorを適用したことを表すJFRのイベント．
+ */
+@Name("com.lethe_river.jsa.Visitor")
+@Label("Visitor Traversal")
+@Category({"JSA", "Source Processor"})
+@Description("Traversal of a compilation unit by a visitor")
+public class VisitorEvent extends Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+	@Label("Visitor")
+	public String visitor;
+}
@@ -0,0 +1,480 @@
+package com.lethe_river.jsa.library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.cache.AnalysisCache;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * ライブラリのjarが提供するクラスの索引．
+ * 索引はファイルに保存され，メモリマップして参照するため，開くときに全体を読み込むことはない．
+ * サイズと更新時刻が変わっていないjarは再走査しない．
+ *
+ * <pre>
+ * int magic, int version
+ * int jarCount, jarCount * (UTF path, long size, long mtime, UTF hash, int n, n * UTF externalReference)
+ * int classCount, classCount * (int nameOffset, int jarId, long entryOffset)   ... クラス名のUTF-8バイト順
+ * int stringsLength, 文字列表 ... (short length, UTF-8)の並び
+ * </pre>
+ */
+public final class ClassIndex {
+	private static final Logger logger = LoggerUtil.getLogger(ClassIndex.class);
+
+	private static final int MAGIC = 0x4A534158; // "JSAX"
+	private static final int VERSION = 2;
+	private static final int RECORD_SIZE = 16;
+
+	private final List<Jar> jars;
+	private final int classCount;
+	private final ByteBuffer classTable;
+	private final ByteBuffer strings;
+
+	// 初めて使うときに作る．作り終えた後は変更しない
+	private volatile Map<String, BitSet> packages = null;
+
+	private ClassIndex(List<Jar> jars, int classCount, ByteBuffer classTable, ByteBuffer strings) {
+		this.jars = jars;
+		this.classCount = classCount;
+		this.classTable = classTable;
+		this.strings = strings;
+	}
+
+	/**
+	 * クラスの位置
+	 */
+	public static final class Location {
+		private final String jar;
+		private final long entryOffset;
+
+		Location(String jar, long entryOffset) {
+			this.jar = jar;
+			this.entryOffset = entryOffset;
+		}
+
+		public String getJar() {
+			return jar;
+		}
+
+		/**
+		 * @return jar内のローカルファイルヘッダの位置．不明な場合は-1
+		 */
+		public long getEntryOffset() {
+			return entryOffset;
+		}
+
+		@Override
+		public String toString() {
+			return jar + "@" + entryOffset;
+		}
+	}
+
+	private static final class Jar {
+		final String path;
+		final long size;
+		final long mtime;
+		final String hash;
+		// jarのクラスが参照する，jarの外の型
+		final List<String> externalReferences;
+
+		Jar(String path, long size, long mtime, String hash, List<String> externalReferences) {
+			this.path = path;
+			this.size = size;
+			this.mtime = mtime;
+			this.hash = hash;
+			this.externalReferences = externalReferences;
+		}
+	}
+
+	/**
+	 * 索引ファイルを開く．
+	 *
+	 * @param file 索引ファイル
+	 * @return 索引
+	 * @exception UncheckedIOException 索引を読めない場合
+	 */
+	public static ClassIndex open(Path file) {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("not a class index: " + file);
+			}
+			int jarCount = buffer.getInt();
+			List<Jar> jars = new ArrayList<>(jarCount);
+			for(int i = 0; i < jarCount; i++) {
+				String path = readString(buffer);
+				long size = buffer.getLong();
+				long mtime = buffer.getLong();
+				String hash = readString(buffer);
+				int n = buffer.getInt();
+				List<String> external = new ArrayList<>(n);
+				for(int j = 0; j < n; j++) {
+					external.add(readString(buffer));
+				}
+				jars.add(new Jar(path, size, mtime, hash, external));
+			}
+
+			int classCount = buffer.getInt();
+			ByteBuffer classTable = slice(buffer, buffer.position(), classCount * RECORD_SIZE);
+			buffer.position(buffer.position() + classCount * RECORD_SIZE);
+			int stringsLength = buffer.getInt();
+			ByteBuffer strings = slice(buffer, buffer.position(), stringsLength);
+
+			return new ClassIndex(jars, classCount, classTable, strings);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new UncheckedIOException(new IOException("broken class index: " + file, e));
+		}
+	}
+
+	/**
+	 * 索引を指定されたjarに合わせて更新し，開く．
+	 * 索引に含まれ，サイズと更新時刻が変わっていないjarは再走査しない．
+	 *
+	 * @param file 索引ファイル
+	 * @param jarPaths jarのパス(クラスパスの順)
+	 * @return 更新された索引
+	 */
+	public static ClassIndex update(Path file, String[] jarPaths) {
+		ClassIndex old = null;
+		if(Files.exists(file)) {
+			try {
+				old = open(file);
+			} catch (UncheckedIOException e) {
+				logger.warning("class index cannot be loaded. " + e);
+			}
+		}
+		if(old != null && old.isUpToDate(jarPaths)) {
+			return old;
+		}
+
+		List<Jar> jars = new ArrayList<>();
+		List<Map<String, Long>> classes = new ArrayList<>();
+		for(String path : jarPaths) {
+			Jar reused = old == null ? null : old.findUnchanged(path);
+			try {
+				if(reused != null) {
+					jars.add(reused);
+					classes.add(old.classesOf(old.jars.indexOf(reused)));
+				} else {
+					Path jar = Paths.get(path);
+					Map<String, Long> found = JarScanner.scanClasses(jar);
+					jars.add(new Jar(
+							path,
+							Files.size(jar),
+							Files.getLastModifiedTime(jar).toMillis(),
+							AnalysisCache.hash(jar),
+							new ArrayList<>(JarScanner.scanExternalReferences(jar, found))));
+					classes.add(found);
+				}
+			} catch (IOException | UncheckedIOException e) {
+				logger.warning("jar cannot be indexed. " + path + " " + e);
+				jars.add(new Jar(path, -1, -1, "", Collections.emptyList()));
+				classes.add(Collections.emptyMap());
+			}
+		}
+
+		write(file, jars, classes);
+		return open(file);
+	}
+
+	private boolean isUpToDate(String[] jarPaths) {
+		if(jarPaths.length != jars.size()) {
+			return false;
+		}
+		for(int i = 0; i < jarPaths.length; i++) {
+			if(!jars.get(i).path.equals(jarPaths[i]) || findUnchanged(jarPaths[i]) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Jar findUnchanged(String path) {
+		for(Jar jar : jars) {
+			if(jar.path.equals(path)) {
+				try {
+					Path p = Paths.get(path);
+					if(jar.size == Files.size(p) && jar.mtime == Files.getLastModifiedTime(p).toMillis()) {
+						return jar;
+					}
+				} catch (IOException e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private Map<String, Long> classesOf(int jarId) {
+		Map<String, Long> classes = new LinkedHashMap<>();
+		for(int i = 0; i < classCount; i++) {
+			if(classTable.getInt(i * RECORD_SIZE + 4) == jarId) {
+				classes.put(nameAt(i), classTable.getLong(i * RECORD_SIZE + 8));
+			}
+		}
+		return classes;
+	}
+
+	private static void write(Path file, List<Jar> jars, List<Map<String, Long>> classes) {
+		// 同じクラスがあればクラスパスで先にあるjarを優先する
+		Map<String, long[]> merged = new HashMap<>();
+		for(int jarId = 0; jarId < jars.size(); jarId++) {
+			for(Map.Entry<String, Long> e : classes.get(jarId).entrySet()) {
+				merged.putIfAbsent(e.getKey(), new long[] {jarId, e.getValue()});
+			}
+		}
+		List<Map.Entry<byte[], long[]>> records = new ArrayList<>();
+		merged.forEach((name, record) -> records.add(Map.entry(name.getBytes(StandardCharsets.UTF_8), record)));
+		records.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp);
+					DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out))) {
+				dos.writeInt(MAGIC);
+				dos.writeInt(VERSION);
+				dos.writeInt(jars.size());
+				for(Jar jar : jars) {
+					writeString(dos, jar.path);
+					dos.writeLong(jar.size);
+					dos.writeLong(jar.mtime);
+					writeString(dos, jar.hash);
+					dos.writeInt(jar.externalReferences.size());
+					for(String reference : jar.externalReferences) {
+						writeString(dos, reference);
+					}
+				}
+
+				dos.writeInt(records.size());
+				int offset = 0;
+				for(Map.Entry<byte[], long[]> record : records) {
+					dos.writeInt(offset);
+					dos.writeInt((int) record.getValue()[0]);
+					dos.writeLong(record.getValue()[1]);
+					offset += 2 + record.getKey().length;
+				}
+				dos.writeInt(offset);
+				for(Map.Entry<byte[], long[]> record : records) {
+					dos.writeShort(record.getKey().length);
+					dos.write(record.getKey());
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 索引に含まれるjarを返す．
+	 *
+	 * @return jarのパス(クラスパスの順)
+	 */
+	public String[] getJars() {
+		return jars.stream().map(j -> j.path).toArray(String[]::new);
+	}
+
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * クラスを提供するjarを探す．
+	 *
+	 * @param binaryName クラスのバイナリ名．例えば{@code a.b.C$D}
+	 * @return クラスの位置．見つからない場合はnull
+	 */
+	public Location lookup(String binaryName) {
+		int i = find(binaryName.getBytes(StandardCharsets.UTF_8));
+		if(i < 0) {
+			return null;
+		}
+		Jar jar = jars.get(classTable.getInt(i * RECORD_SIZE + 4));
+		return new Location(jar.path, classTable.getLong(i * RECORD_SIZE + 8));
+	}
+
+	/**
+	 * ソースから参照されないjarを除いたクラスパスを返す．
+	 * import宣言とパッケージ宣言，型宣言の中の完全修飾名から参照されるjarと，
+	 * それらのjarのクラスが参照する型を提供するjarを推移的に残す．
+	 *
+	 * @param sources ソースファイルのパス
+	 * @return 参照されるjar(クラスパスの順)
+	 */
+	public String[] prune(String[] sources) {
+		ImportScanner imports = new ImportScanner();
+		for(String source : sources) {
+			imports.scan(source);
+		}
+
+		BitSet used = new BitSet(jars.size());
+		for(String type : imports.types) {
+			int jarId = jarOfCanonicalName(type);
+			if(jarId >= 0) {
+				used.set(jarId);
+			}
+		}
+		for(String name : imports.onDemand) {
+			BitSet providers = packages().get(name);
+			if(providers != null) {
+				used.or(providers);
+			}
+			int jarId = jarOfCanonicalName(name);
+			if(jarId >= 0) {
+				used.set(jarId);
+			}
+		}
+		for(String pkg : imports.packages) {
+			BitSet providers = packages().get(pkg);
+			if(providers != null) {
+				used.or(providers);
+			}
+		}
+		for(String name : imports.qualifiedNames) {
+			int jarId = jarOfCanonicalName(name);
+			if(jarId >= 0) {
+				used.set(jarId);
+			}
+		}
+
+		Deque<Integer> queue = new ArrayDeque<>();
+		used.stream().forEach(queue::add);
+		while(!queue.isEmpty()) {
+			for(String reference : jars.get(queue.poll()).externalReferences) {
+				int i = find(reference.getBytes(StandardCharsets.UTF_8));
+				if(i < 0) {
+					continue;
+				}
+				int jarId = classTable.getInt(i * RECORD_SIZE + 4);
+				if(!used.get(jarId)) {
+					used.set(jarId);
+					queue.add(jarId);
+				}
+			}
+		}
+
+		String[] pruned = used.stream().mapToObj(i -> jars.get(i).path).toArray(String[]::new);
+		logger.fine("libraries: " + pruned.length + "/" + jars.size());
+		return pruned;
+	}
+
+	// a.b.C.Dのような正準名を，a.b.C$Dのようなバイナリ名に順に読み替えて探す
+	private int jarOfCanonicalName(String name) {
+		String candidate = name;
+		while(true) {
+			int i = find(candidate.getBytes(StandardCharsets.UTF_8));
+			if(i >= 0) {
+				return classTable.getInt(i * RECORD_SIZE + 4);
+			}
+			int dot = candidate.lastIndexOf('.');
+			if(dot < 0) {
+				return -1;
+			}
+			candidate = candidate.substring(0, dot) + "$" + candidate.substring(dot + 1);
+		}
+	}
+
+	// 複数のスレッドが同時に作っても同じ内容になるので，どれが残ってもよい
+	private Map<String, BitSet> packages() {
+		Map<String, BitSet> result = packages;
+		if(result == null) {
+			result = new HashMap<>();
+			for(int i = 0; i < classCount; i++) {
+				String name = nameAt(i);
+				int dot = name.lastIndexOf('.');
+				String pkg = dot < 0 ? "" : name.substring(0, dot);
+				result.computeIfAbsent(pkg, k -> new BitSet()).set(classTable.getInt(i * RECORD_SIZE + 4));
+			}
+			packages = result;
+		}
+		return result;
+	}
+
+	private int find(byte[] key) {
+		int low = 0;
+		int high = classCount - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = compareName(mid, key);
+			if(c < 0) {
+				low = mid + 1;
+			} else if(c > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private int compareName(int index, byte[] key) {
+		int offset = classTable.getInt(index * RECORD_SIZE);
+		int length = Short.toUnsignedInt(strings.getShort(offset));
+		int n = Math.min(length, key.length);
+		for(int i = 0; i < n; i++) {
+			int c = Integer.compare(Byte.toUnsignedInt(strings.get(offset + 2 + i)), Byte.toUnsignedInt(key[i]));
+			if(c != 0) {
+				return c;
+			}
+		}
+		return Integer.compare(length, key.length);
+	}
+
+	private String nameAt(int index) {
+		int offset = classTable.getInt(index * RECORD_SIZE);
+		int length = Short.toUnsignedInt(strings.getShort(offset));
+		byte[] bytes = new byte[length];
+		ByteBuffer slice = strings.duplicate();
+		slice.position(offset + 2);
+		slice.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+		return duplicate.slice();
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = Short.toUnsignedInt(buffer.getShort());
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream dos, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		dos.writeShort(bytes.length);
+		dos.write(bytes);
+	}
+}
@@ -0,0 +1,81 @@
+package com.lethe_river.jsa.library;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * 構文解析をせずに，ソースのパッケージ宣言とimport宣言，型宣言の中の完全修飾名らしい名前を読む．
+ */
+final class ImportScanner {
+	private static final Logger logger = LoggerUtil.getLogger(ImportScanner.class);
+
+	private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|//[^\\n]*", Pattern.DOTALL);
+	private static final Pattern PACKAGE = Pattern.compile("\\bpackage\\s+([\\w.\\s]+?)\\s*;");
+	private static final Pattern IMPORT = Pattern.compile("\\bimport\\s+(static\\s+)?([\\w.\\s]+?)(\\.\\s*\\*)?\\s*;");
+	private static final Pattern TYPE = Pattern.compile("\\b(class|interface|enum)\\b");
+	// 小文字で始まる名前の後に大文字で始まる名前が続くもの
+	private static final Pattern QUALIFIED = Pattern.compile("\\b[a-z_]\\w*(?:\\s*\\.\\s*[a-z_]\\w*)*\\s*\\.\\s*[A-Z]\\w*");
+
+	/** 単一型インポートされた名前．staticインポートの場合はメンバ名を除いた型名 */
+	final Set<String> types = new HashSet<>();
+	/** オンデマンドインポートされたパッケージ名または型名 */
+	final Set<String> onDemand = new HashSet<>();
+	/** 宣言されたパッケージ名 */
+	final Set<String> packages = new HashSet<>();
+	/** 型宣言の中に現れる完全修飾名の候補 */
+	final Set<String> qualifiedNames = new HashSet<>();
+
+	void scan(String source) {
+		String text;
+		try {
+			text = new String(Files.readAllBytes(Paths.get(source)), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			logger.warning(e.toString());
+			return;
+		}
+		text = COMMENT.matcher(text).replaceAll(" ");
+
+		// importは型宣言より前にしか書けない
+		Matcher type = TYPE.matcher(text);
+		if(type.find()) {
+			Matcher qualified = QUALIFIED.matcher(text);
+			qualified.region(type.start(), text.length());
+			while(qualified.find()) {
+				qualifiedNames.add(strip(qualified.group()));
+			}
+			text = text.substring(0, type.start());
+		}
+
+		Matcher pkg = PACKAGE.matcher(text);
+		if(pkg.find()) {
+			packages.add(strip(pkg.group(1)));
+		}
+		Matcher imp = IMPORT.matcher(text);
+		while(imp.find()) {
+			String name = strip(imp.group(2));
+			boolean isStatic = imp.group(1) != null;
+			boolean isOnDemand = imp.group(3) != null;
+			if(isOnDemand) {
+				onDemand.add(name);
+			} else if(isStatic) {
+				int dot = name.lastIndexOf('.');
+				types.add(dot < 0 ? name : name.substring(0, dot));
+			} else {
+				types.add(name);
+			}
+		}
+	}
+
+	private static String strip(String name) {
+		return name.replaceAll("\\s", "");
+	}
+}
@@ -0,0 +1,207 @@
+package com.lethe_river.jsa.library;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * jarの中央ディレクトリを直接読み，クラスとその位置を列挙する．
+ */
+final class JarScanner {
+
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+	private static final int END_RECORD_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	// 記述子やシグネチャの中のパッケージに属するクラス名
+	private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L((?:[\\w$]+/)+[\\w$]+)[;<]");
+
+	private JarScanner() {}
+
+	/**
+	 * jarに含まれるクラスのバイナリ名と，そのローカルヘッダの位置を返す．
+	 *
+	 * @param jar jarファイル
+	 * @return クラスのバイナリ名からローカルヘッダの位置へのマップ
+	 * @throws IOException jarを読めない場合
+	 */
+	static Map<String, Long> scanClasses(Path jar) throws IOException {
+		Map<String, Long> classes = new LinkedHashMap<>();
+		try(FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size < END_RECORD_SIZE) {
+				return classes;
+			}
+			if(size > Integer.MAX_VALUE) {
+				return scanWithZipFile(jar);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			int end = findEndRecord(buffer);
+			if(end < 0) {
+				throw new IOException("not a zip file: " + jar);
+			}
+			int entries = Short.toUnsignedInt(buffer.getShort(end + 10));
+			long directoryOffset = Integer.toUnsignedLong(buffer.getInt(end + 16));
+			if(entries == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+				// ZIP64は中央ディレクトリの位置が別の場所にあるので標準APIに任せる
+				return scanWithZipFile(jar);
+			}
+
+			int position = (int) directoryOffset;
+			for(int i = 0; i < entries; i++) {
+				if(buffer.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+					throw new IOException("broken central directory: " + jar);
+				}
+				int nameLength = Short.toUnsignedInt(buffer.getShort(position + 28));
+				int extraLength = Short.toUnsignedInt(buffer.getShort(position + 30));
+				int commentLength = Short.toUnsignedInt(buffer.getShort(position + 32));
+				long localHeader = Integer.toUnsignedLong(buffer.getInt(position + 42));
+
+				byte[] name = new byte[nameLength];
+				ByteBuffer slice = buffer.duplicate();
+				slice.position(position + 46);
+				slice.get(name);
+				String binaryName = toBinaryName(new String(name, StandardCharsets.UTF_8));
+				if(binaryName != null) {
+					classes.putIfAbsent(binaryName, localHeader);
+				}
+				position += 46 + nameLength + extraLength + commentLength;
+			}
+		}
+		return classes;
+	}
+
+	private static Map<String, Long> scanWithZipFile(Path jar) throws IOException {
+		Map<String, Long> classes = new LinkedHashMap<>();
+		try(ZipFile zip = new ZipFile(jar.toFile())) {
+			zip.stream()
+					.map(e -> toBinaryName(e.getName()))
+					.filter(n -> n != null)
+					.forEach(n -> classes.putIfAbsent(n, -1L));
+		}
+		return classes;
+	}
+
+	private static int findEndRecord(ByteBuffer buffer) {
+		int limit = buffer.limit();
+		int lowest = Math.max(0, limit - END_RECORD_SIZE - MAX_COMMENT_SIZE);
+		for(int i = limit - END_RECORD_SIZE; i >= lowest; i--) {
+			if(buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// 例えば"a/b/C$D.class"を"a.b.C$D"に．クラスでなければnull
+	static String toBinaryName(String entryName) {
+		if(!entryName.endsWith(".class")
+				|| entryName.startsWith("META-INF/")
+				|| entryName.endsWith("module-info.class")
+				|| entryName.endsWith("package-info.class")) {
+			return null;
+		}
+		return entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+	}
+
+	/**
+	 * jarに含まれるクラスが参照する型のうち，jarの外にあるもののバイナリ名を返す．
+	 * 参照する型は定数プールのクラスと，記述子やシグネチャに現れるクラスとする．
+	 *
+	 * @param jar jarファイル
+	 * @param classes jarに含まれるクラス
+	 * @return jarの外にある参照される型のバイナリ名
+	 * @throws IOException jarを読めない場合
+	 */
+	static Set<String> scanExternalReferences(Path jar, Map<String, Long> classes) throws IOException {
+		Set<String> external = new LinkedHashSet<>();
+		try(ZipFile zip = new ZipFile(jar.toFile())) {
+			for(String name : classes.keySet()) {
+				ZipEntry entry = zip.getEntry(name.replace('.', '/') + ".class");
+				if(entry == null) {
+					continue;
+				}
+				try(InputStream in = zip.getInputStream(entry)) {
+					for(String type : readReferences(new DataInputStream(in))) {
+						if(!classes.containsKey(type) && !type.startsWith("java.")) {
+							external.add(type);
+						}
+					}
+				}
+			}
+		}
+		return external;
+	}
+
+	// クラスファイルの定数プールから参照する型を集める
+	private static Set<String> readReferences(DataInputStream in) throws IOException {
+		Set<String> references = new LinkedHashSet<>();
+		if(in.readInt() != 0xCAFEBABE) {
+			return references;
+		}
+		in.readUnsignedShort();
+		in.readUnsignedShort();
+
+		int count = in.readUnsignedShort();
+		String[] utf8 = new String[count];
+		int[] classNames = new int[count];
+		for(int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch(tag) {
+			case 1:
+				utf8[i] = in.readUTF();
+				break;
+			case 7:
+				classNames[i] = in.readUnsignedShort();
+				break;
+			case 8: case 16: case 19: case 20:
+				in.readUnsignedShort();
+				break;
+			case 15:
+				in.readUnsignedByte();
+				in.readUnsignedShort();
+				break;
+			case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+				in.readInt();
+				break;
+			case 5: case 6:
+				in.readLong();
+				i++;
+				break;
+			default:
+				throw new IOException("unknown constant pool tag: " + tag);
+			}
+		}
+
+		for(int i = 1; i < count; i++) {
+			// 配列のクラスの名前は記述子なので，下で記述子として読む
+			if(classNames[i] != 0 && !utf8[classNames[i]].startsWith("[")) {
+				references.add(utf8[classNames[i]].replace('/', '.'));
+			}
+			if(utf8[i] != null && utf8[i].indexOf('/') >= 0) {
+				Matcher matcher = DESCRIPTOR_CLASS.matcher(utf8[i]);
+				while(matcher.find()) {
+					references.add(matcher.group(1).replace('/', '.'));
+				}
+			}
+		}
+		return references;
+	}
+}
@@ -0,0 +1,25 @@
+package com.lethe_river.jsa.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 増加だけする値．複数のスレッドから競合せずに加算できる．
+ */
+public final class Counter {
+
+	private final LongAdder value = new LongAdder();
+
+	Counter() {}
+
+	public void increment() {
+		value.increment();
+	}
+
+	public void add(long n) {
+		value.add(n);
+	}
+
+	public long get() {
+		return value.sum();
+	}
+}
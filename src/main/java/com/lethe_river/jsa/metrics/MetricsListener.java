@@ -0,0 +1,90 @@
+package com.lethe_river.jsa.metrics;
+
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.instrument.ProcessListener;
+import com.lethe_river.jsa.util.Histogram;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * {@link com.lethe_river.jsa.SourceProcessor}の経過をメトリクスとして記録する．
+ * 報告先のディレクトリを指定した場合は，解析が終わるたびに{@value #JSON_REPORT}と{@value #PROMETHEUS_REPORT}を書き出す．
+ */
+public class MetricsListener implements ProcessListener {
+	private static final Logger logger = LoggerUtil.getLogger(MetricsListener.class);
+
+	public static final String JSON_REPORT = "metrics.json";
+	public static final String PROMETHEUS_REPORT = "metrics.prom";
+
+	private final MetricsRegistry registry;
+	private final Path reportDirectory;
+
+	private final Counter sourcesDiscovered;
+	private final Counter librariesDiscovered;
+	private final Counter filesParsed;
+	private final Counter bytesRead;
+	private final Counter unresolvedNames;
+	private final Counter runs;
+	private final Histogram discoveryTimes;
+	private final Histogram parseTimes;
+	private final Histogram visitTimes;
+	private final Histogram runTimes;
+
+	public MetricsListener() {
+		this(MetricsRegistry.getDefault(), null);
+	}
+
+	/**
+	 * @param registry 記録先
+	 * @param reportDirectory 報告を書き出すディレクトリ．書き出さない場合はnull
+	 */
+	public MetricsListener(MetricsRegistry registry, Path reportDirectory) {
+		this.registry = registry;
+		this.reportDirectory = reportDirectory;
+		sourcesDiscovered = registry.counter("jsa_sources_discovered_total", "source files found by discovery");
+		librariesDiscovered = registry.counter("jsa_libraries_discovered_total", "library jars found by discovery");
+		filesParsed = registry.counter("jsa_files_parsed_total", "source files parsed and bound");
+		bytesRead = registry.counter("jsa_source_bytes_read_total", "bytes of parsed source files");
+		unresolvedNames = registry.counter("jsa_unresolved_names_total", "names whose binding could not be resolved");
+		runs = registry.counter("jsa_runs_total", "finished runs");
+		discoveryTimes = registry.histogram("jsa_discovery_nanoseconds", "time to discover sources and libraries");
+		parseTimes = registry.histogram("jsa_parse_bind_nanoseconds", "time to parse a file and resolve its bindings");
+		visitTimes = registry.histogram("jsa_visit_nanoseconds", "time to apply the visitor to a file");
+		runTimes = registry.histogram("jsa_run_nanoseconds", "time of a whole run");
+	}
+
+	@Override
+	public void discoveryFinished(int sources, int libraries, long nanos) {
+		sourcesDiscovered.add(sources);
+		librariesDiscovered.add(libraries);
+		discoveryTimes.record(nanos);
+	}
+
+	@Override
+	public void fileParsed(String path, long size, long nanos) {
+		filesParsed.increment();
+		bytesRead.add(size);
+		parseTimes.record(nanos);
+	}
+
+	@Override
+	public void fileVisited(String path, long nanos, int unresolvedBindings) {
+		unresolvedNames.add(unresolvedBindings);
+		visitTimes.record(nanos);
+	}
+
+	@Override
+	public void runFinished(long nanos) {
+		runs.increment();
+		runTimes.record(nanos);
+		if(reportDirectory != null) {
+			try {
+				registry.writeJson(reportDirectory.resolve(JSON_REPORT));
+				registry.writePrometheus(reportDirectory.resolve(PROMETHEUS_REPORT));
+			} catch (RuntimeException e) {
+				logger.warning("metrics cannot be written. " + e);
+			}
+		}
+	}
+}
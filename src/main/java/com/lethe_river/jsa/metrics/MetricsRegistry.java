@@ -0,0 +1,210 @@
+package com.lethe_river.jsa.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import com.lethe_river.jsa.util.Histogram;
+
+/**
+ * カウンタ，ゲージ，ヒストグラムを名前で登録し，まとめて報告する．
+ * 計測する側は記録先のレジストリを受け取り，取得したものをフィールドに保持する．
+ * 指定がなければ{@link #getDefault()}を使う．
+ * 同じ名前で取得すると同じものが返る．名前はPrometheusのメトリクス名の規則に従う．
+ * ヒストグラムの時間はナノ秒で記録する．
+ */
+public final class MetricsRegistry {
+
+	private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+	private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+	// 報告は名前順
+	private final Map<String, Metric<Counter>> counters = new ConcurrentSkipListMap<>();
+	private final Map<String, Metric<LongSupplier>> gauges = new ConcurrentSkipListMap<>();
+	private final Map<String, Metric<Histogram>> histograms = new ConcurrentSkipListMap<>();
+
+	private static final class Metric<T> {
+		final String help;
+		final T value;
+
+		Metric(String help, T value) {
+			this.help = help;
+			this.value = value;
+		}
+	}
+
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	/**
+	 * 共有のレジストリとは別に集計する場合に使う．
+	 * ヒープ使用量のゲージは登録済みである．
+	 */
+	public MetricsRegistry() {
+		gauge("jsa_heap_peak_bytes", "peak heap usage summed over heap memory pools", MetricsRegistry::peakHeap);
+		gauge("jsa_heap_used_bytes", "current heap usage", () -> {
+			Runtime runtime = Runtime.getRuntime();
+			return runtime.totalMemory() - runtime.freeMemory();
+		});
+	}
+
+	/**
+	 * プロセス全体で共有するレジストリを返す．
+	 *
+	 * @return 共有のレジストリ
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	public Counter counter(String name, String help) {
+		return counters.computeIfAbsent(checkName(name), k -> new Metric<>(help, new Counter())).value;
+	}
+
+	/**
+	 * 報告のたびに値を読み出すゲージを登録する．同じ名前のゲージがあれば置き換える．
+	 *
+	 * @param name 名前
+	 * @param help 説明
+	 * @param value 値を返す関数
+	 */
+	public void gauge(String name, String help, LongSupplier value) {
+		gauges.put(checkName(name), new Metric<>(help, value));
+	}
+
+	public Histogram histogram(String name, String help) {
+		return histograms.computeIfAbsent(checkName(name), k -> new Metric<>(help, new Histogram())).value;
+	}
+
+	/**
+	 * 現在の値をJSONで出力する．
+	 *
+	 * @param file 出力先．既存のファイルは置き換える
+	 */
+	public void writeJson(Path file) {
+		write(file, this::writeJson);
+	}
+
+	/**
+	 * 現在の値をPrometheusのテキスト形式で出力する．
+	 *
+	 * @param file 出力先．既存のファイルは置き換える
+	 */
+	public void writePrometheus(Path file) {
+		write(file, this::writePrometheus);
+	}
+
+	void writeJson(Writer out) throws IOException {
+		out.write("{\n  \"counters\": {");
+		String separator = "\n";
+		for(Map.Entry<String, Metric<Counter>> e : counters.entrySet()) {
+			out.write(separator + "    \"" + e.getKey() + "\": " + e.getValue().value.get());
+			separator = ",\n";
+		}
+		out.write("\n  },\n  \"gauges\": {");
+		separator = "\n";
+		for(Map.Entry<String, Metric<LongSupplier>> e : gauges.entrySet()) {
+			out.write(separator + "    \"" + e.getKey() + "\": " + e.getValue().value.getAsLong());
+			separator = ",\n";
+		}
+		out.write("\n  },\n  \"histograms\": {");
+		separator = "\n";
+		for(Map.Entry<String, Metric<Histogram>> e : histograms.entrySet()) {
+			Histogram h = e.getValue().value;
+			out.write(separator + "    \"" + e.getKey() + "\": {"
+					+ "\"count\": " + h.getCount()
+					+ ", \"sum\": " + h.getSum()
+					+ ", \"max\": " + h.getMax());
+			for(double p : PERCENTILES) {
+				out.write(", \"p" + Math.round(p * 100) + "\": " + h.getPercentile(p));
+			}
+			out.write("}");
+			separator = ",\n";
+		}
+		out.write("\n  }\n}\n");
+	}
+
+	void writePrometheus(Writer out) throws IOException {
+		for(Map.Entry<String, Metric<Counter>> e : counters.entrySet()) {
+			writeHeader(out, e.getKey(), e.getValue().help, "counter");
+			out.write(e.getKey() + " " + e.getValue().value.get() + "\n");
+		}
+		for(Map.Entry<String, Metric<LongSupplier>> e : gauges.entrySet()) {
+			writeHeader(out, e.getKey(), e.getValue().help, "gauge");
+			out.write(e.getKey() + " " + e.getValue().value.getAsLong() + "\n");
+		}
+		for(Map.Entry<String, Metric<Histogram>> e : histograms.entrySet()) {
+			String name = e.getKey();
+			Histogram h = e.getValue().value;
+			writeHeader(out, name, e.getValue().help, "histogram");
+			// 値のあるバケットの範囲だけを出力する
+			int first = h.getBucketCount();
+			int last = -1;
+			for(int i = 0; i < h.getBucketCount(); i++) {
+				if(h.getBucket(i) != 0) {
+					first = Math.min(first, i);
+					last = i;
+				}
+			}
+			// バケットの上限は含まないので，整数の値では上限-1以下と同じ
+			long cumulative = 0;
+			for(int i = first; i <= last && i < h.getBucketCount() - 1; i++) {
+				cumulative += h.getBucket(i);
+				out.write(name + "_bucket{le=\"" + (Histogram.upperBound(i) - 1) + "\"} " + cumulative + "\n");
+			}
+			out.write(name + "_bucket{le=\"+Inf\"} " + h.getCount() + "\n");
+			out.write(name + "_sum " + h.getSum() + "\n");
+			out.write(name + "_count " + h.getCount() + "\n");
+		}
+	}
+
+	private static void writeHeader(Writer out, String name, String help, String type) throws IOException {
+		out.write("# HELP " + name + " " + help.replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+		out.write("# TYPE " + name + " " + type + "\n");
+	}
+
+	private interface Report {
+		void write(Writer out) throws IOException;
+	}
+
+	private static void write(Path file, Report report) {
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try(Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				report.write(out);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String checkName(String name) {
+		if(!NAME.matcher(name).matches()) {
+			throw new IllegalArgumentException("invalid metric name: " + name);
+		}
+		return name;
+	}
+
+	private static long peakHeap() {
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+}
@@ -0,0 +1,110 @@
+package com.lethe_river.jsa.pointsto;
+
+import com.lethe_river.jsa.callgraph.CallGraph;
+import com.lethe_river.jsa.callgraph.SymbolTable;
+import com.lethe_river.jsa.util.SparseBitSet;
+
+/**
+ * ポインタ解析の結果．
+ * 変数は{@code メソッドのキー/名前}の形式の名前で表し，thisは{@code /this}，戻り値は{@code /return}とする．
+ * staticフィールドは{@code 宣言している型.名前}で表す．
+ * オブジェクトは0から連続するidで表す．
+ * 生成後は変更されないため，複数のスレッドから参照できる．
+ */
+public final class PointsTo {
+
+	private static final int[] NONE = new int[0];
+
+	private final SymbolTable variables;
+	private final int[] representatives;
+	private final SparseBitSet[] pointsTo;
+	private final String[] objectTypes;
+	private final String[] objectLocations;
+	private final CallGraph callGraph;
+	private final int collapsed;
+
+	PointsTo(SymbolTable variables, int[] representatives, SparseBitSet[] pointsTo,
+			String[] objectTypes, String[] objectLocations, CallGraph callGraph, int collapsed) {
+		this.variables = variables;
+		this.representatives = representatives;
+		this.pointsTo = pointsTo;
+		this.objectTypes = objectTypes;
+		this.objectLocations = objectLocations;
+		this.callGraph = callGraph;
+		this.collapsed = collapsed;
+	}
+
+	/**
+	 * @return 一時的な値とフィールドを含む変数の数
+	 */
+	public int getNodeCount() {
+		return representatives.length;
+	}
+
+	/**
+	 * @return 循環の検出で他の変数に縮められた変数の数
+	 */
+	public int getCollapsedCount() {
+		return collapsed;
+	}
+
+	public int getObjectCount() {
+		return objectTypes.length;
+	}
+
+	/**
+	 * @param object オブジェクトのid
+	 * @return オブジェクトの型のバイナリ名．不明な場合はnull
+	 */
+	public String getObjectType(int object) {
+		return objectTypes[object];
+	}
+
+	/**
+	 * @param object オブジェクトのid
+	 * @return {@code ファイル:行}の形式の生成した位置．ライブラリから得た型の不明なオブジェクトはnull
+	 */
+	public String getObjectLocation(int object) {
+		return objectLocations[object];
+	}
+
+	/**
+	 * @param object オブジェクトのid
+	 * @return ライブラリから得た型の不明なオブジェクトであればtrue
+	 */
+	public boolean isUnknown(int object) {
+		return objectLocations[object] == null;
+	}
+
+	/**
+	 * @param variable 変数の名前
+	 * @return 変数が指しうるオブジェクトのid(昇順)．変数が無い場合は空
+	 */
+	public int[] getPointsTo(String variable) {
+		int node = variables.find(variable);
+		if(node < 0) {
+			return NONE;
+		}
+		SparseBitSet objects = pointsTo[representatives[node]];
+		return objects == null ? NONE : objects.toArray();
+	}
+
+	/**
+	 * @param method メソッドのキー
+	 * @param variable 局所変数の名前，{@code this}または{@code return}
+	 * @return 変数が指しうるオブジェクトのid(昇順)．変数が無い場合は空
+	 */
+	public int[] getPointsTo(String method, String variable) {
+		return getPointsTo(method + "/" + variable);
+	}
+
+	/**
+	 * 指しうるオブジェクトの型から仮想呼び出しを解決した呼び出しグラフを返す．
+	 * ライブラリのメソッドの呼び出しは，宣言されたメソッドを呼び出し先とする．
+	 *
+	 * @return 呼び出しグラフ
+	 */
+	public CallGraph getCallGraph() {
+		return callGraph;
+	}
+}
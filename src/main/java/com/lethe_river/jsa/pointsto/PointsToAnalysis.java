@@ -0,0 +1,1072 @@
+package com.lethe_river.jsa.pointsto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.ArrayAccess;
+import org.eclipse.jdt.core.dom.ArrayCreation;
+import org.eclipse.jdt.core.dom.ArrayInitializer;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.CastExpression;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ConditionalExpression;
+import org.eclipse.jdt.core.dom.ConstructorInvocation;
+import org.eclipse.jdt.core.dom.CreationReference;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ExpressionMethodReference;
+import org.eclipse.jdt.core.dom.FieldAccess;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.Initializer;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.QualifiedName;
+import org.eclipse.jdt.core.dom.ReturnStatement;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.SuperConstructorInvocation;
+import org.eclipse.jdt.core.dom.SuperFieldAccess;
+import org.eclipse.jdt.core.dom.SuperMethodInvocation;
+import org.eclipse.jdt.core.dom.SuperMethodReference;
+import org.eclipse.jdt.core.dom.ThisExpression;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.TypeMethodReference;
+import org.eclipse.jdt.core.dom.VariableDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import com.lethe_river.jsa.Descriptors;
+import com.lethe_river.jsa.SourceProcessor;
+import com.lethe_river.jsa.callgraph.CallGraphBuilder;
+import com.lethe_river.jsa.callgraph.SymbolTable;
+import com.lethe_river.jsa.hierarchy.TypeHierarchy;
+import com.lethe_river.jsa.hierarchy.TypeHierarchyVisitor;
+import com.lethe_river.jsa.hierarchy.TypeInfo;
+import com.lethe_river.jsa.util.IntList;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * 包含に基づく(Andersen流の)ポインタ解析．
+ * {@link #newVisitor()}が返すVisitorで束縛を解決した構文木から制約を集め，{@link #solve()}でプログラム全体の制約を解く．
+ * Visitorはファイルごとに独立に動くため，{@link SourceProcessor}で並列に適用できる．
+ *
+ * <p>
+ * 抽象オブジェクトはインスタンス生成式，配列の生成，ラムダ式とメソッド参照の位置ごとに1つとする．
+ * 流れと文脈は区別せず，フィールドはオブジェクトごとに区別する．配列の要素は1つのフィールドとして扱う．
+ * 局所変数は宣言したメソッドと名前で区別するため，ラムダ式と匿名クラスから参照する外側の変数は同じ変数になる．
+ * 内部クラスの外側のインスタンスは暗黙のフィールドとして扱う．
+ *
+ * <p>
+ * 仮想呼び出しは，受け手が指しうるオブジェクトの型から呼び出し先を解きながら辿る．
+ * ライブラリのメソッドの戻り値，catchの引数，配列以外に対する拡張forの変数とラムダ式の引数は，
+ * その静的な型の不明なオブジェクトを指すものとし，不明なオブジェクトに対する呼び出しは部分型で宣言されたメソッドを全て呼び出し先とする．
+ * ライブラリのメソッドをオーバーライドするメソッドは，ライブラリから呼び戻されうるものとする．
+ * 呼び出し元の無いメソッドの引数と，文字列などの定数は扱わない．
+ */
+public class PointsToAnalysis {
+
+	private static final Logger logger = LoggerUtil.getLogger(PointsToAnalysis.class);
+
+	static final int STATIC = 0;
+	static final int DIRECT = 1;
+	static final int VIRTUAL = 2;
+
+	/** 配列の要素を表すフィールド */
+	static final String ELEMENT = "[]";
+
+	private final SymbolTable methods = new SymbolTable();
+	private final SymbolTable types = new SymbolTable();
+	private final SymbolTable fields = new SymbolTable();
+	// 名前を持つ変数．一時的な値は名前を持たず，Visitorごとに番号を付ける
+	private final SymbolTable variables = new SymbolTable();
+	private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+	/**
+	 * 制約を集めるVisitorを返す．
+	 * 返したVisitorは1つのスレッドから使わなければならない．
+	 *
+	 * @return 新しいVisitor
+	 */
+	public ASTVisitor newVisitor() {
+		Collector collector = new Collector();
+		collectors.add(collector);
+		return collector;
+	}
+
+	/**
+	 * それまでに集めた制約を解く．
+	 *
+	 * @return 解析結果
+	 */
+	public PointsTo solve() {
+		long start = System.nanoTime();
+		List<TypeInfo> infos = new ArrayList<>();
+		for(Collector c : collectors) {
+			infos.addAll(c.typeInfos);
+		}
+		TypeHierarchy hierarchy = TypeHierarchy.of(infos);
+		PointsToSolver solver = new PointsToSolver(hierarchy, methods, types, variables, collectors);
+		PointsTo result = solver.solve();
+		logger.info("points-to: " + result.getObjectCount() + " objects, " + result.getNodeCount() + " nodes, "
+				+ result.getCollapsedCount() + " collapsed in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		return result;
+	}
+
+	/**
+	 * 1つのスレッドで制約を集める．束縛はここで全てidに変換する．
+	 * 変数はVisitorの中で0から番号を付け，名前を持つものは{@link #symbols}に名前のidを記録する．
+	 */
+	final class Collector extends ASTVisitor {
+
+		private final Descriptors descriptors = new Descriptors();
+
+		// 変数の番号ごとの名前のid．一時的な値は-1
+		final IntList symbols = new IntList(1024);
+		// (node, type, file, line)の並び
+		final IntList allocations = new IntList();
+		final List<String> files = new ArrayList<>();
+		// (node, type)の並び．nodeは型の不明なオブジェクトを指す
+		final IntList unknowns = new IntList();
+		// (dst, src)の並び
+		final IntList assigns = new IntList(1024);
+		// (dst, base, field)の並び
+		final IntList loads = new IntList();
+		// (base, field, src)の並び
+		final IntList stores = new IntList();
+		// (caller, callee, kind, receiver, result, returnType, argc, args...)の並び
+		final IntList calls = new IntList(1024);
+		// (method, paramc, (param, type)...)の並び
+		final IntList formals = new IntList();
+		// (overrider, overridden)の並び
+		final IntList overrides = new IntList();
+		final IntList declared = new IntList();
+		final IntList abstracts = new IntList();
+		final List<TypeInfo> typeInfos = new ArrayList<>();
+
+		private final TypeHierarchyVisitor hierarchy = new TypeHierarchyVisitor(typeInfos::add);
+
+		private final Map<Integer, Integer> named = new HashMap<>();
+		// ファイルごとに捨てる
+		private final Map<ASTNode, Integer> values = new IdentityHashMap<>();
+		private final Map<IBinding, Integer> locals = new HashMap<>();
+		private CompilationUnit unit = null;
+		private int file = -1;
+
+		private final Deque<Frame> frames = new ArrayDeque<>();
+		private final Deque<TypeContext> typeStack = new ArrayDeque<>();
+		private final Map<String, List<ITypeBinding>> allSupertypes = new HashMap<>();
+
+		// 変数
+
+		private int named(String key) {
+			int symbol = variables.idOf(key);
+			Integer node = named.get(symbol);
+			if(node == null) {
+				node = symbols.size();
+				symbols.add(symbol);
+				named.put(symbol, node);
+			}
+			return node;
+		}
+
+		private int temp() {
+			symbols.add(-1);
+			return symbols.size() - 1;
+		}
+
+		private int local(IVariableBinding variable) {
+			Integer node = locals.get(variable);
+			if(node == null) {
+				IMethodBinding method = variable.getDeclaringMethod();
+				String key = method == null ? null : descriptors.getKey(method);
+				if(key == null) {
+					Frame frame = frames.peek();
+					key = frame == null ? "?" : frame.key;
+				}
+				node = named(key + "/" + variable.getName());
+				locals.put(variable, node);
+			}
+			return node;
+		}
+
+		private int staticField(IVariableBinding field) {
+			return named(fieldKey(field));
+		}
+
+		private String fieldKey(IVariableBinding field) {
+			IVariableBinding declaration = field.getVariableDeclaration();
+			ITypeBinding type = declaration.getDeclaringClass();
+			ITypeBinding erasure = type == null ? null : type.getErasure();
+			String owner = erasure == null ? null : erasure.getBinaryName();
+			return owner + "." + declaration.getName();
+		}
+
+		private int field(IVariableBinding field) {
+			return fields.idOf(fieldKey(field));
+		}
+
+		private int outerField(ITypeBinding inner) {
+			return fields.idOf("<outer>" + inner.getErasure().getBinaryName());
+		}
+
+		private int value(ASTNode node) {
+			if(node == null) {
+				return -1;
+			}
+			Integer value = values.get(node);
+			return value == null ? -1 : value;
+		}
+
+		private void setValue(ASTNode node, int value) {
+			if(value >= 0) {
+				values.put(node, value);
+			}
+		}
+
+		private boolean isReference(ITypeBinding type) {
+			return type != null && !type.isPrimitive() && !type.isNullType();
+		}
+
+		private int typeId(ITypeBinding type) {
+			if(type == null) {
+				return -1;
+			}
+			ITypeBinding erasure = type.getErasure();
+			String name = erasure == null ? null : erasure.getBinaryName();
+			return name == null ? -1 : types.idOf(name);
+		}
+
+		private int methodId(IMethodBinding method) {
+			String key = descriptors.getKey(method);
+			return key == null ? -1 : methods.idOf(key);
+		}
+
+		// 制約
+
+		private void assign(int dst, int src) {
+			if(dst >= 0 && src >= 0 && dst != src) {
+				assigns.add(dst);
+				assigns.add(src);
+			}
+		}
+
+		private int load(int base, int field) {
+			if(base < 0) {
+				return -1;
+			}
+			int dst = temp();
+			loads.add(dst);
+			loads.add(base);
+			loads.add(field);
+			return dst;
+		}
+
+		private void store(int base, int field, int src) {
+			if(base >= 0 && src >= 0) {
+				stores.add(base);
+				stores.add(field);
+				stores.add(src);
+			}
+		}
+
+		private int allocate(ITypeBinding type, ASTNode site) {
+			int node = temp();
+			allocations.add(node);
+			allocations.add(typeId(type));
+			allocations.add(file);
+			allocations.add(unit == null || site == null ? -1 : unit.getLineNumber(site.getStartPosition()));
+			return node;
+		}
+
+		private void unknown(int node, ITypeBinding type) {
+			int id = typeId(type);
+			if(node >= 0 && id >= 0) {
+				unknowns.add(node);
+				unknowns.add(id);
+			}
+		}
+
+		private int call(IMethodBinding method, int kind, int receiver, List<?> arguments, ITypeBinding resultType) {
+			if(method == null) {
+				return -1;
+			}
+			int callee = methodId(method);
+			if(callee < 0) {
+				return -1;
+			}
+			int result = isReference(resultType) ? temp() : -1;
+			addCall(callee, kind, receiver, arguments(method, arguments), result, result < 0 ? -1 : typeId(resultType));
+			return result;
+		}
+
+		private void addCall(int callee, int kind, int receiver, int[] args, int result, int resultType) {
+			Frame frame = frames.peek();
+			if(frame == null || frame.method < 0) {
+				return;
+			}
+			calls.add(frame.method);
+			calls.add(callee);
+			calls.add(kind);
+			calls.add(receiver);
+			calls.add(result);
+			calls.add(resultType);
+			calls.add(args.length);
+			for(int arg : args) {
+				calls.add(arg);
+			}
+		}
+
+		// 可変長引数は配列にまとめる
+		private int[] arguments(IMethodBinding method, List<?> arguments) {
+			int n = method.getParameterTypes().length;
+			boolean packed = method.isVarargs() && (arguments.size() != n || !isArray(arguments.get(n - 1)));
+			int[] args = new int[packed ? n : arguments.size()];
+			for(int i = 0; i < args.length; i++) {
+				args[i] = i < arguments.size() ? value((ASTNode) arguments.get(i)) : -1;
+			}
+			if(packed) {
+				ASTNode site = arguments.size() < n ? null : (ASTNode) arguments.get(n - 1);
+				int array = allocate(method.getParameterTypes()[n - 1], site);
+				for(int i = n - 1; i < arguments.size(); i++) {
+					store(array, fields.idOf(ELEMENT), value((ASTNode) arguments.get(i)));
+				}
+				args[n - 1] = array;
+			}
+			return args;
+		}
+
+		private boolean isArray(Object argument) {
+			ITypeBinding type = ((Expression) argument).resolveTypeBinding();
+			return type == null || type.isArray() || type.isNullType();
+		}
+
+		private int virtualCall(IMethodBinding method, int receiver, List<?> arguments, ITypeBinding resultType) {
+			if(method == null) {
+				return -1;
+			}
+			int modifiers = method.getModifiers();
+			if(Modifier.isStatic(modifiers)) {
+				return call(method, STATIC, -1, arguments, resultType);
+			}
+			boolean direct = method.isConstructor() || Modifier.isPrivate(modifiers) || Modifier.isFinal(modifiers);
+			return call(method, direct ? DIRECT : VIRTUAL, receiver, arguments, resultType);
+		}
+
+		// thisから辿った，ある型の外側のインスタンス
+		private int thisOf(ITypeBinding target) {
+			Frame frame = frames.peek();
+			TypeContext context = typeStack.peek();
+			if(frame == null || frame.self < 0 || context == null || context.type == null || target == null) {
+				return -1;
+			}
+			int node = frame.self;
+			ITypeBinding erasure = target.getErasure();
+			for(ITypeBinding type = context.type; type != null; type = type.getDeclaringClass()) {
+				if(type.getErasure().isSubTypeCompatible(erasure)) {
+					return node;
+				}
+				if(Modifier.isStatic(type.getModifiers()) || type.isInterface() || type.isEnum()) {
+					return -1;
+				}
+				node = load(node, outerField(type));
+			}
+			return -1;
+		}
+
+		private boolean hasOuter(ITypeBinding type) {
+			return type != null && type.isNested() && type.getDeclaringClass() != null
+					&& !type.isInterface() && !type.isEnum() && !type.isAnnotation()
+					&& !Modifier.isStatic(type.getModifiers());
+		}
+
+		// ファイル
+
+		@Override
+		public boolean visit(CompilationUnit node) {
+			unit = node;
+			String path = (String) node.getProperty(SourceProcessor.SOURCE_FILE_PROPERTY);
+			files.add(path);
+			file = files.size() - 1;
+			return true;
+		}
+
+		@Override
+		public void endVisit(CompilationUnit node) {
+			unit = null;
+			values.clear();
+			locals.clear();
+		}
+
+		// 型
+
+		private final class TypeContext {
+			final ITypeBinding type;
+			boolean hasInstanceInitializer = false;
+
+			TypeContext(ITypeBinding type) {
+				this.type = type;
+			}
+
+			String initializerKey(boolean isStatic) {
+				return type.getErasure().getBinaryName() + "#"
+						+ (isStatic ? CallGraphBuilder.STATIC_INITIALIZER : CallGraphBuilder.INSTANCE_INITIALIZER);
+			}
+		}
+
+		private void enterType(ITypeBinding type) {
+			typeStack.push(new TypeContext(type));
+			hierarchy.addType(type);
+		}
+
+		private void exitType() {
+			TypeContext context = typeStack.pop();
+			if(context.type == null) {
+				return;
+			}
+			for(IMethodBinding method : context.type.getDeclaredMethods()) {
+				if(!method.isConstructor()) {
+					continue;
+				}
+				String key = descriptors.getKey(method);
+				if(key == null) {
+					continue;
+				}
+				int self = named(key + "/this");
+				frames.push(new Frame(methods.idOf(key), key, self, -1, null));
+				if(context.hasInstanceInitializer) {
+					addCall(methods.idOf(context.initializerKey(false)), DIRECT, self, new int[0], -1, -1);
+				}
+				// 暗黙のコンストラクタは上位クラスのコンストラクタを呼ぶ．匿名クラスでは引数をそのまま渡す
+				if(context.type.isAnonymous()) {
+					IMethodBinding superConstructor = superConstructor(context.type, method);
+					int[] params = new int[method.getParameterTypes().length];
+					int id = frames.peek().method;
+					formals.add(id);
+					formals.add(params.length);
+					for(int i = 0; i < params.length; i++) {
+						ITypeBinding type = method.getParameterTypes()[i];
+						params[i] = isReference(type) ? temp() : -1;
+						formals.add(params[i]);
+						formals.add(params[i] < 0 ? -1 : typeId(type));
+					}
+					if(superConstructor != null && methodId(superConstructor) >= 0) {
+						addCall(methodId(superConstructor), DIRECT, self, params, -1, -1);
+					}
+				} else if(method.isDefaultConstructor()) {
+					call(superNoArgConstructor(context.type), DIRECT, self, List.of(), null);
+				}
+				frames.pop();
+			}
+		}
+
+		// 引数の型が合う上位クラスのコンストラクタ
+		private IMethodBinding superConstructor(ITypeBinding type, IMethodBinding constructor) {
+			ITypeBinding superclass = type.getSuperclass();
+			if(superclass == null) {
+				return null;
+			}
+			ITypeBinding[] params = constructor.getParameterTypes();
+			for(IMethodBinding candidate : superclass.getDeclaredMethods()) {
+				if(!candidate.isConstructor() || candidate.getParameterTypes().length != params.length) {
+					continue;
+				}
+				boolean matches = true;
+				ITypeBinding[] candidateParams = candidate.getParameterTypes();
+				for(int i = 0; i < params.length && matches; i++) {
+					matches = params[i].getErasure().isAssignmentCompatible(candidateParams[i].getErasure());
+				}
+				if(matches) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean visit(TypeDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(TypeDeclaration node) {
+			exitType();
+		}
+
+		@Override
+		public boolean visit(EnumDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(EnumDeclaration node) {
+			exitType();
+		}
+
+		@Override
+		public boolean visit(AnnotationTypeDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnnotationTypeDeclaration node) {
+			exitType();
+		}
+
+		@Override
+		public boolean visit(AnonymousClassDeclaration node) {
+			enterType(node.resolveBinding());
+			return true;
+		}
+
+		@Override
+		public void endVisit(AnonymousClassDeclaration node) {
+			exitType();
+		}
+
+		// メソッドと初期化子
+
+		private final class Frame {
+			final int method;
+			final String key;
+			// thisと戻り値の変数．無い場合は-1
+			final int self;
+			final int result;
+			final ASTNode site;
+
+			Frame(int method, String key, int self, int result, ASTNode site) {
+				this.method = method;
+				this.key = key;
+				this.self = self;
+				this.result = result;
+				this.site = site;
+			}
+		}
+
+		@Override
+		public boolean visit(MethodDeclaration node) {
+			IMethodBinding method = node.resolveBinding();
+			String key = method == null ? null : descriptors.getKey(method);
+			if(key == null) {
+				frames.push(new Frame(-1, "?", -1, -1, node));
+				return true;
+			}
+			int id = methods.idOf(key);
+			boolean isStatic = Modifier.isStatic(method.getModifiers());
+			frames.push(new Frame(id, key, isStatic ? -1 : named(key + "/this"),
+					isReference(method.getReturnType()) ? named(key + "/return") : -1, node));
+			declared.add(id);
+			if(Modifier.isAbstract(method.getModifiers())) {
+				abstracts.add(id);
+			}
+			formals.add(id);
+			formals.add(node.parameters().size());
+			for(Object p : node.parameters()) {
+				IVariableBinding param = ((SingleVariableDeclaration) p).resolveBinding();
+				boolean reference = param != null && isReference(param.getType());
+				formals.add(reference ? local(param) : -1);
+				formals.add(reference ? typeId(param.getType()) : -1);
+			}
+			if(method.isConstructor()) {
+				if(!hasExplicitConstructorCall(node)) {
+					call(superNoArgConstructor(method.getDeclaringClass()), DIRECT, frames.peek().self, List.of(), null);
+				}
+			} else if(!isStatic && !Modifier.isPrivate(method.getModifiers())) {
+				addOverrides(id, method);
+			}
+			return true;
+		}
+
+		@Override
+		public void endVisit(MethodDeclaration node) {
+			frames.pop();
+		}
+
+		private boolean hasExplicitConstructorCall(MethodDeclaration node) {
+			if(node.getBody() == null || node.getBody().statements().isEmpty()) {
+				return false;
+			}
+			Statement first = (Statement) node.getBody().statements().get(0);
+			return first instanceof ConstructorInvocation || first instanceof SuperConstructorInvocation;
+		}
+
+		private IMethodBinding superNoArgConstructor(ITypeBinding type) {
+			ITypeBinding superclass = type == null ? null : type.getSuperclass();
+			if(superclass == null) {
+				return null;
+			}
+			for(IMethodBinding candidate : superclass.getDeclaredMethods()) {
+				if(candidate.isConstructor() && candidate.getParameterTypes().length == 0) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+
+		private void addOverrides(int id, IMethodBinding method) {
+			ITypeBinding type = method.getDeclaringClass();
+			int params = method.getParameterTypes().length;
+			for(ITypeBinding supertype : allSupertypes(type)) {
+				for(IMethodBinding candidate : supertype.getDeclaredMethods()) {
+					if(candidate.getName().equals(method.getName())
+							&& candidate.getParameterTypes().length == params
+							&& method.overrides(candidate)) {
+						int overridden = methodId(candidate);
+						if(overridden >= 0) {
+							overrides.add(id);
+							overrides.add(overridden);
+						}
+					}
+				}
+			}
+		}
+
+		private List<ITypeBinding> allSupertypes(ITypeBinding type) {
+			String key = type.getKey();
+			List<ITypeBinding> result = key == null ? null : allSupertypes.get(key);
+			if(result != null) {
+				return result;
+			}
+			result = new ArrayList<>();
+			Set<String> seen = new HashSet<>();
+			Deque<ITypeBinding> queue = new ArrayDeque<>();
+			queue.add(type);
+			while(!queue.isEmpty()) {
+				ITypeBinding t = queue.poll();
+				List<ITypeBinding> next = new ArrayList<>();
+				if(t.getSuperclass() != null) {
+					next.add(t.getSuperclass());
+				}
+				for(ITypeBinding i : t.getInterfaces()) {
+					next.add(i);
+				}
+				for(ITypeBinding s : next) {
+					if(seen.add(s.getErasure().getKey())) {
+						result.add(s);
+						queue.add(s);
+					}
+				}
+			}
+			if(key != null) {
+				allSupertypes.put(key, result);
+			}
+			return result;
+		}
+
+		@Override
+		public boolean visit(Initializer node) {
+			enterInitializer(Modifier.isStatic(node.getModifiers()), node);
+			return true;
+		}
+
+		@Override
+		public void endVisit(Initializer node) {
+			frames.pop();
+		}
+
+		@Override
+		public boolean visit(FieldDeclaration node) {
+			boolean isStatic = Modifier.isStatic(node.getModifiers());
+			for(Object fragment : node.fragments()) {
+				IVariableBinding field = ((VariableDeclarationFragment) fragment).resolveBinding();
+				if(field != null && Modifier.isStatic(field.getModifiers())) {
+					isStatic = true;
+				}
+			}
+			enterInitializer(isStatic, node);
+			return true;
+		}
+
+		@Override
+		public void endVisit(FieldDeclaration node) {
+			frames.pop();
+		}
+
+		@Override
+		public boolean visit(EnumConstantDeclaration node) {
+			enterInitializer(true, node);
+			return true;
+		}
+
+		@Override
+		public void endVisit(EnumConstantDeclaration node) {
+			IMethodBinding constructor = node.resolveConstructorBinding();
+			IVariableBinding constant = node.resolveVariable();
+			if(constructor != null && constant != null) {
+				AnonymousClassDeclaration body = node.getAnonymousClassDeclaration();
+				ITypeBinding type = body == null ? constructor.getDeclaringClass() : body.resolveBinding();
+				int object = allocate(type, node);
+				assign(staticField(constant), object);
+				call(constructor, DIRECT, object, node.arguments(), null);
+			}
+			frames.pop();
+		}
+
+		private void enterInitializer(boolean isStatic, ASTNode site) {
+			TypeContext context = typeStack.peek();
+			if(context == null || context.type == null || context.type.getErasure().getBinaryName() == null) {
+				frames.push(new Frame(-1, "?", -1, -1, site));
+				return;
+			}
+			if(!isStatic) {
+				context.hasInstanceInitializer = true;
+			}
+			String key = context.initializerKey(isStatic);
+			frames.push(new Frame(methods.idOf(key), key, isStatic ? -1 : named(key + "/this"), -1, site));
+		}
+
+		@Override
+		public boolean visit(LambdaExpression node) {
+			Frame frame = frames.peek();
+			if(frame != null) {
+				// 本体のreturnは外側のメソッドの戻り値ではない
+				frames.push(new Frame(frame.method, frame.key, frame.self, -1, node));
+			}
+			for(Object p : node.parameters()) {
+				IVariableBinding param = ((VariableDeclaration) p).resolveBinding();
+				if(param != null && isReference(param.getType())) {
+					unknown(local(param), param.getType());
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void endVisit(LambdaExpression node) {
+			if(frames.peek() != null && frames.peek().site == node) {
+				frames.pop();
+			}
+			setValue(node, allocate(node.resolveTypeBinding(), node));
+		}
+
+		// 文
+
+		@Override
+		public void endVisit(VariableDeclarationFragment node) {
+			IVariableBinding variable = node.resolveBinding();
+			int init = value(node.getInitializer());
+			if(variable == null || init < 0) {
+				return;
+			}
+			if(!variable.isField()) {
+				assign(local(variable), init);
+			} else if(Modifier.isStatic(variable.getModifiers())) {
+				assign(staticField(variable), init);
+			} else if(frames.peek() != null) {
+				store(frames.peek().self, field(variable), init);
+			}
+		}
+
+		@Override
+		public void endVisit(SingleVariableDeclaration node) {
+			IVariableBinding variable = node.resolveBinding();
+			int init = value(node.getInitializer());
+			if(variable != null && init >= 0) {
+				assign(local(variable), init);
+			}
+		}
+
+		@Override
+		public void endVisit(EnhancedForStatement node) {
+			IVariableBinding variable = node.getParameter().resolveBinding();
+			if(variable == null || !isReference(variable.getType())) {
+				return;
+			}
+			ITypeBinding type = node.getExpression().resolveTypeBinding();
+			if(type != null && type.isArray()) {
+				assign(local(variable), load(value(node.getExpression()), fields.idOf(ELEMENT)));
+			} else {
+				unknown(local(variable), variable.getType());
+			}
+		}
+
+		@Override
+		public boolean visit(CatchClause node) {
+			IVariableBinding variable = node.getException().resolveBinding();
+			if(variable != null) {
+				unknown(local(variable), variable.getType());
+			}
+			return true;
+		}
+
+		@Override
+		public void endVisit(ReturnStatement node) {
+			Frame frame = frames.peek();
+			if(frame != null) {
+				assign(frame.result, value(node.getExpression()));
+			}
+		}
+
+		// 式
+
+		private boolean isAssigned(Expression node) {
+			return node.getLocationInParent() == Assignment.LEFT_HAND_SIDE_PROPERTY;
+		}
+
+		@Override
+		public void endVisit(SimpleName node) {
+			if(node.isDeclaration()
+					|| node.getLocationInParent() == QualifiedName.NAME_PROPERTY
+					|| node.getLocationInParent() == FieldAccess.NAME_PROPERTY
+					|| node.getLocationInParent() == SuperFieldAccess.NAME_PROPERTY) {
+				return;
+			}
+			IBinding binding = node.resolveBinding();
+			if(!(binding instanceof IVariableBinding) || !isReference(((IVariableBinding) binding).getType())) {
+				return;
+			}
+			IVariableBinding variable = (IVariableBinding) binding;
+			if(!variable.isField()) {
+				setValue(node, local(variable));
+			} else if(Modifier.isStatic(variable.getModifiers())) {
+				setValue(node, staticField(variable));
+			} else if(!isAssigned(node)) {
+				setValue(node, load(thisOf(variable.getDeclaringClass()), field(variable)));
+			}
+		}
+
+		@Override
+		public void endVisit(QualifiedName node) {
+			IBinding binding = node.resolveBinding();
+			if(!(binding instanceof IVariableBinding) || !isReference(((IVariableBinding) binding).getType())) {
+				return;
+			}
+			IVariableBinding variable = (IVariableBinding) binding;
+			if(Modifier.isStatic(variable.getModifiers())) {
+				setValue(node, staticField(variable));
+			} else if(variable.isField() && !isAssigned(node)) {
+				setValue(node, load(value(node.getQualifier()), field(variable)));
+			}
+		}
+
+		@Override
+		public void endVisit(FieldAccess node) {
+			IVariableBinding variable = node.resolveFieldBinding();
+			if(variable == null || !isReference(variable.getType())) {
+				return;
+			}
+			if(Modifier.isStatic(variable.getModifiers())) {
+				setValue(node, staticField(variable));
+			} else if(!isAssigned(node)) {
+				setValue(node, load(value(node.getExpression()), field(variable)));
+			}
+		}
+
+		@Override
+		public void endVisit(SuperFieldAccess node) {
+			IVariableBinding variable = node.resolveFieldBinding();
+			if(variable == null || !isReference(variable.getType())) {
+				return;
+			}
+			if(Modifier.isStatic(variable.getModifiers())) {
+				setValue(node, staticField(variable));
+			} else if(!isAssigned(node) && frames.peek() != null) {
+				setValue(node, load(frames.peek().self, field(variable)));
+			}
+		}
+
+		@Override
+		public void endVisit(ArrayAccess node) {
+			if(!isAssigned(node) && isReference(node.resolveTypeBinding())) {
+				setValue(node, load(value(node.getArray()), fields.idOf(ELEMENT)));
+			}
+		}
+
+		@Override
+		public void endVisit(ThisExpression node) {
+			if(node.getQualifier() == null) {
+				Frame frame = frames.peek();
+				setValue(node, frame == null ? -1 : frame.self);
+			} else {
+				setValue(node, thisOf(node.resolveTypeBinding()));
+			}
+		}
+
+		@Override
+		public void endVisit(Assignment node) {
+			int rhs = value(node.getRightHandSide());
+			if(node.getOperator() != Assignment.Operator.ASSIGN || rhs < 0) {
+				return;
+			}
+			Expression lhs = node.getLeftHandSide();
+			while(lhs instanceof ParenthesizedExpression) {
+				lhs = ((ParenthesizedExpression) lhs).getExpression();
+			}
+			if(lhs instanceof ArrayAccess) {
+				store(value(((ArrayAccess) lhs).getArray()), fields.idOf(ELEMENT), rhs);
+			} else {
+				IVariableBinding variable = assignedField(lhs);
+				if(variable == null || Modifier.isStatic(variable.getModifiers())) {
+					assign(value(lhs), rhs);
+				} else if(lhs instanceof SimpleName) {
+					store(thisOf(variable.getDeclaringClass()), field(variable), rhs);
+				} else if(lhs instanceof QualifiedName) {
+					store(value(((QualifiedName) lhs).getQualifier()), field(variable), rhs);
+				} else if(lhs instanceof FieldAccess) {
+					store(value(((FieldAccess) lhs).getExpression()), field(variable), rhs);
+				} else if(frames.peek() != null) {
+					store(frames.peek().self, field(variable), rhs);
+				}
+			}
+			setValue(node, rhs);
+		}
+
+		// 代入先のフィールド．局所変数の場合はnull
+		private IVariableBinding assignedField(Expression lhs) {
+			IVariableBinding variable = null;
+			if(lhs instanceof Name) {
+				IBinding binding = ((Name) lhs).resolveBinding();
+				variable = binding instanceof IVariableBinding ? (IVariableBinding) binding : null;
+			} else if(lhs instanceof FieldAccess) {
+				variable = ((FieldAccess) lhs).resolveFieldBinding();
+			} else if(lhs instanceof SuperFieldAccess) {
+				variable = ((SuperFieldAccess) lhs).resolveFieldBinding();
+			}
+			return variable != null && variable.isField() ? variable : null;
+		}
+
+		@Override
+		public void endVisit(ParenthesizedExpression node) {
+			setValue(node, value(node.getExpression()));
+		}
+
+		@Override
+		public void endVisit(CastExpression node) {
+			setValue(node, value(node.getExpression()));
+		}
+
+		@Override
+		public void endVisit(ConditionalExpression node) {
+			int thenValue = value(node.getThenExpression());
+			int elseValue = value(node.getElseExpression());
+			if(thenValue < 0 || elseValue < 0) {
+				setValue(node, Math.max(thenValue, elseValue));
+				return;
+			}
+			int result = temp();
+			assign(result, thenValue);
+			assign(result, elseValue);
+			setValue(node, result);
+		}
+
+		@Override
+		public void endVisit(ArrayCreation node) {
+			int array = node.getInitializer() == null
+					? allocate(node.resolveTypeBinding(), node)
+					: value(node.getInitializer());
+			setValue(node, array);
+		}
+
+		@Override
+		public void endVisit(ArrayInitializer node) {
+			int array = allocate(node.resolveTypeBinding(), node);
+			for(Object e : node.expressions()) {
+				store(array, fields.idOf(ELEMENT), value((ASTNode) e));
+			}
+			setValue(node, array);
+		}
+
+		@Override
+		public void endVisit(ClassInstanceCreation node) {
+			IMethodBinding constructor = node.resolveConstructorBinding();
+			ITypeBinding type = node.getAnonymousClassDeclaration() == null
+					? node.resolveTypeBinding()
+					: node.getAnonymousClassDeclaration().resolveBinding();
+			if(type == null) {
+				return;
+			}
+			int object = allocate(type, node);
+			if(hasOuter(type)) {
+				int outer = node.getExpression() == null ? thisOf(type.getDeclaringClass()) : value(node.getExpression());
+				store(object, outerField(type), outer);
+			}
+			call(constructor, DIRECT, object, node.arguments(), null);
+			setValue(node, object);
+		}
+
+		@Override
+		public void endVisit(ConstructorInvocation node) {
+			Frame frame = frames.peek();
+			call(node.resolveConstructorBinding(), DIRECT, frame == null ? -1 : frame.self, node.arguments(), null);
+		}
+
+		@Override
+		public void endVisit(SuperConstructorInvocation node) {
+			Frame frame = frames.peek();
+			call(node.resolveConstructorBinding(), DIRECT, frame == null ? -1 : frame.self, node.arguments(), null);
+		}
+
+		@Override
+		public void endVisit(MethodInvocation node) {
+			IMethodBinding method = node.resolveMethodBinding();
+			if(method == null) {
+				return;
+			}
+			int receiver = -1;
+			if(node.getExpression() != null) {
+				receiver = value(node.getExpression());
+			} else if(!Modifier.isStatic(method.getModifiers())) {
+				receiver = thisOf(method.getDeclaringClass());
+			}
+			setValue(node, virtualCall(method, receiver, node.arguments(), method.getReturnType()));
+		}
+
+		@Override
+		public void endVisit(SuperMethodInvocation node) {
+			Frame frame = frames.peek();
+			IMethodBinding method = node.resolveMethodBinding();
+			if(method == null || frame == null) {
+				return;
+			}
+			int kind = Modifier.isStatic(method.getModifiers()) ? STATIC : DIRECT;
+			setValue(node, call(method, kind, frame.self, node.arguments(), method.getReturnType()));
+		}
+
+		@Override
+		public void endVisit(ExpressionMethodReference node) {
+			setValue(node, allocate(node.resolveTypeBinding(), node));
+		}
+
+		@Override
+		public void endVisit(TypeMethodReference node) {
+			setValue(node, allocate(node.resolveTypeBinding(), node));
+		}
+
+		@Override
+		public void endVisit(SuperMethodReference node) {
+			setValue(node, allocate(node.resolveTypeBinding(), node));
+		}
+
+		@Override
+		public void endVisit(CreationReference node) {
+			setValue(node, allocate(node.resolveTypeBinding(), node));
+		}
+	}
+}
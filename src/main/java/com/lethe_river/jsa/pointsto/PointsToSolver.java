@@ -0,0 +1,775 @@
+package com.lethe_river.jsa.pointsto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.lethe_river.jsa.callgraph.CallGraph;
+import com.lethe_river.jsa.callgraph.SymbolTable;
+import com.lethe_river.jsa.hierarchy.TypeHierarchy;
+import com.lethe_river.jsa.pointsto.PointsToAnalysis.Collector;
+import com.lethe_river.jsa.util.IntList;
+import com.lethe_river.jsa.util.SparseBitSet;
+
+/**
+ * 集めた制約を解く．
+ * 変数を節点，包含の制約を辺とするグラフの上で，指しうるオブジェクトの集合を{@link SparseBitSet}で伝播する．
+ *
+ * <p>
+ * 各変数は前回処理してから増えた分だけを後続に伝える(差分伝播)．
+ * 辺の両端の集合が伝播の後に等しくなった場合はその辺を含む循環を探し，強連結成分を1つの変数に縮める(遅延循環検出)．
+ * 縮めた変数はunion-findで代表に読み替える．
+ * フィールドの読み書きと仮想呼び出しは，基底や受け手が新たに指したオブジェクトごとに辺を加えて解く．
+ */
+final class PointsToSolver {
+
+	private final TypeHierarchy hierarchy;
+	private final SymbolTable methods;
+	private final SymbolTable types;
+	private final SymbolTable variables;
+	private final List<Collector> collectors;
+
+	// 変数
+	private int nodeCount = 0;
+	private int[] parent = new int[0];
+	private SparseBitSet[] pointsTo = new SparseBitSet[0];
+	private SparseBitSet[] delta = new SparseBitSet[0];
+	private SparseBitSet[] successors = new SparseBitSet[0];
+	// (field, dst)の並び
+	private IntList[] loads = new IntList[0];
+	// (field, src)の並び
+	private IntList[] stores = new IntList[0];
+	private IntList[] receivers = new IntList[0];
+	private final Map<Long, Integer> fieldNodes = new HashMap<>();
+	private int collapsed = 0;
+
+	// オブジェクト
+	private final IntList objectTypes = new IntList();
+	// 型階層でのid
+	private final IntList objectClasses = new IntList();
+	private final int[] typeIds;
+	private final List<String> objectLocations = new ArrayList<>();
+	private final Map<Integer, Integer> unknownObjects = new HashMap<>();
+
+	// メソッド
+	private final int methodCount;
+	private final BitSet declared;
+	private final BitSet abstracts;
+	private final BitSet linkable;
+	private final int[][] overriders;
+	private final int[][] candidates;
+	private final int[] declaringTypes;
+	private final int[] thisNodes;
+	private final int[] returnNodes;
+	private final int[][] params;
+	private final int[][] paramTypes;
+	// (callback, overridden)の組．ライブラリのメソッドをオーバーライドするメソッド
+	private final IntList callbackFrom = new IntList();
+	private final IntList callbackTo = new IntList();
+	private final Map<Long, Integer> resolved = new HashMap<>();
+	private final Map<Long, int[]> resolvedUnknown = new HashMap<>();
+
+	// 呼び出し箇所
+	private final IntList siteCallers = new IntList();
+	private final IntList siteCallees = new IntList();
+	private final IntList siteResults = new IntList();
+	private final List<int[]> siteArgs = new ArrayList<>();
+	private final Set<Long> links = new HashSet<>();
+	private final IntList edgeFrom = new IntList();
+	private final IntList edgeTo = new IntList();
+
+	// ワークリスト
+	private IntList worklist = new IntList();
+	private final BitSet queued = new BitSet();
+	private final Set<Long> checked = new HashSet<>();
+	private final IntList candidatesFrom = new IntList();
+	private final IntList candidatesTo = new IntList();
+
+	// 循環検出の作業領域
+	private int[] dfsIndex = new int[0];
+	private int[] dfsLow = new int[0];
+	private int[] dfsStamp = new int[0];
+	private int generation = 0;
+	private final BitSet onStack = new BitSet();
+
+	PointsToSolver(TypeHierarchy hierarchy, SymbolTable methods, SymbolTable types, SymbolTable variables,
+			List<Collector> collectors) {
+		this.hierarchy = hierarchy;
+		this.methods = methods;
+		this.types = types;
+		this.variables = variables;
+		this.collectors = collectors;
+
+		methodCount = methods.size();
+		declared = new BitSet(methodCount);
+		abstracts = new BitSet(methodCount);
+		linkable = new BitSet(methodCount);
+		overriders = new int[methodCount][];
+		candidates = new int[methodCount][];
+		declaringTypes = new int[methodCount];
+		params = new int[methodCount][];
+		paramTypes = new int[methodCount][];
+		thisNodes = new int[methodCount];
+		returnNodes = new int[methodCount];
+
+		typeIds = new int[types.size()];
+		for(int i = 0; i < typeIds.length; i++) {
+			typeIds[i] = hierarchy.find(types.getKey(i));
+		}
+	}
+
+	PointsTo solve() {
+		// 名前を持つ変数は名前のidをそのまま使い，一時的な値はその後に番号を付ける
+		int namedCount = variables.size();
+		int total = namedCount;
+		int[][] globals = new int[collectors.size()][];
+		for(int c = 0; c < collectors.size(); c++) {
+			IntList symbols = collectors.get(c).symbols;
+			int[] global = new int[symbols.size()];
+			for(int i = 0; i < global.length; i++) {
+				int symbol = symbols.get(i);
+				global[i] = symbol >= 0 ? symbol : total++;
+			}
+			globals[c] = global;
+		}
+		grow(total);
+		nodeCount = total;
+
+		collectMethods(globals);
+		for(int c = 0; c < collectors.size(); c++) {
+			Collector collector = collectors.get(c);
+			int[] global = globals[c];
+			IntList assigns = collector.assigns;
+			for(int i = 0; i < assigns.size(); i += 2) {
+				addEdge(global[assigns.get(i + 1)], global[assigns.get(i)]);
+			}
+			IntList l = collector.loads;
+			for(int i = 0; i < l.size(); i += 3) {
+				list(loads, global[l.get(i + 1)]).add(l.get(i + 2));
+				list(loads, global[l.get(i + 1)]).add(global[l.get(i)]);
+			}
+			IntList s = collector.stores;
+			for(int i = 0; i < s.size(); i += 3) {
+				list(stores, global[s.get(i)]).add(s.get(i + 1));
+				list(stores, global[s.get(i)]).add(global[s.get(i + 2)]);
+			}
+		}
+		for(int c = 0; c < collectors.size(); c++) {
+			collectSites(collectors.get(c), globals[c]);
+		}
+		for(int c = 0; c < collectors.size(); c++) {
+			Collector collector = collectors.get(c);
+			int[] global = globals[c];
+			IntList a = collector.allocations;
+			for(int i = 0; i < a.size(); i += 4) {
+				int type = a.get(i + 1);
+				String file = a.get(i + 2) < 0 ? null : collector.files.get(a.get(i + 2));
+				addObject(global[a.get(i)], newObject(type, file + ":" + a.get(i + 3)));
+			}
+			IntList u = collector.unknowns;
+			for(int i = 0; i < u.size(); i += 2) {
+				addObject(global[u.get(i)], unknownObject(u.get(i + 1)));
+			}
+		}
+		addCallbacks();
+
+		run();
+
+		int[] representatives = new int[nodeCount];
+		for(int i = 0; i < nodeCount; i++) {
+			representatives[i] = find(i);
+		}
+		String[] typeNames = new String[objectTypes.size()];
+		for(int o = 0; o < typeNames.length; o++) {
+			typeNames[o] = objectTypes.get(o) < 0 ? null : types.getKey(objectTypes.get(o));
+		}
+		return new PointsTo(variables, representatives, Arrays.copyOf(pointsTo, nodeCount), typeNames,
+				objectLocations.toArray(new String[0]), callGraph(), collapsed);
+	}
+
+	// メソッド
+
+	private void collectMethods(int[][] globals) {
+		IntList overrideFrom = new IntList();
+		IntList overrideTo = new IntList();
+		for(int c = 0; c < collectors.size(); c++) {
+			Collector collector = collectors.get(c);
+			for(int i = 0; i < collector.declared.size(); i++) {
+				declared.set(collector.declared.get(i));
+			}
+			for(int i = 0; i < collector.abstracts.size(); i++) {
+				abstracts.set(collector.abstracts.get(i));
+			}
+			for(int i = 0; i < collector.overrides.size(); i += 2) {
+				overrideFrom.add(collector.overrides.get(i));
+				overrideTo.add(collector.overrides.get(i + 1));
+			}
+			IntList f = collector.formals;
+			for(int i = 0; i < f.size(); ) {
+				int method = f.get(i);
+				int count = f.get(i + 1);
+				int[] nodes = new int[count];
+				int[] nodeTypes = new int[count];
+				for(int k = 0; k < count; k++) {
+					int local = f.get(i + 2 + 2 * k);
+					nodes[k] = local < 0 ? -1 : globals[c][local];
+					nodeTypes[k] = f.get(i + 3 + 2 * k);
+				}
+				params[method] = nodes;
+				paramTypes[method] = nodeTypes;
+				linkable.set(method);
+				i += 2 + 2 * count;
+			}
+		}
+		int[] counts = new int[methodCount];
+		for(int i = 0; i < overrideTo.size(); i++) {
+			counts[overrideTo.get(i)]++;
+		}
+		for(int m = 0; m < methodCount; m++) {
+			overriders[m] = new int[counts[m]];
+			counts[m] = 0;
+			String key = methods.getKey(m);
+			declaringTypes[m] = hierarchy.find(key.substring(0, key.indexOf('#')));
+			thisNodes[m] = variables.find(key + "/this");
+			returnNodes[m] = variables.find(key + "/return");
+		}
+		for(int i = 0; i < overrideTo.size(); i++) {
+			int from = overrideFrom.get(i);
+			int to = overrideTo.get(i);
+			overriders[to][counts[to]++] = from;
+			if(!declared.get(to) && declared.get(from) && !abstracts.get(from)) {
+				callbackFrom.add(from);
+				callbackTo.add(to);
+			}
+		}
+	}
+
+	/**
+	 * ライブラリのメソッドをオーバーライドするメソッドはライブラリから呼ばれうるものとする．
+	 * そのメソッドに解決される全てのオブジェクトをthisに，引数の型の不明なオブジェクトを引数に与える．
+	 */
+	private void addCallbacks() {
+		int objectCount = objectTypes.size();
+		BitSet seeded = new BitSet(methodCount);
+		for(int i = 0; i < callbackFrom.size(); i++) {
+			int callback = callbackFrom.get(i);
+			int overridden = callbackTo.get(i);
+			int declaring = declaringTypes[callback];
+			int self = thisNodes[callback];
+			if(declaring < 0 || self < 0) {
+				continue;
+			}
+			for(int object = 0; object < objectCount; object++) {
+				int type = objectClasses.get(object);
+				if(type >= 0 && objectLocations.get(object) != null
+						&& hierarchy.isSubtype(type, declaring) && resolve(type, overridden) == callback) {
+					addObject(self, object);
+				}
+			}
+			if(params[callback] != null && !seeded.get(callback)) {
+				seeded.set(callback);
+				for(int k = 0; k < params[callback].length; k++) {
+					if(params[callback][k] >= 0 && paramTypes[callback][k] >= 0) {
+						addObject(params[callback][k], unknownObject(paramTypes[callback][k]));
+					}
+				}
+			}
+		}
+	}
+
+	// 実体があり，methodを呼んだときに実行されうるメソッド
+	private int[] candidates(int method) {
+		int[] result = candidates[method];
+		if(result != null) {
+			return result;
+		}
+		IntList found = new IntList();
+		IntList stack = new IntList();
+		stack.add(method);
+		BitSet seen = new BitSet();
+		seen.set(method);
+		while(!stack.isEmpty()) {
+			int m = stack.removeLast();
+			if(declared.get(m) && !abstracts.get(m)) {
+				found.add(m);
+			}
+			for(int overrider : overriders[m]) {
+				if(!seen.get(overrider)) {
+					seen.set(overrider);
+					stack.add(overrider);
+				}
+			}
+		}
+		result = found.toSortedSet();
+		candidates[method] = result;
+		return result;
+	}
+
+	// 型のオブジェクトでmethodを呼んだときに実行されるメソッド．不明な場合は-1
+	private int resolve(int type, int method) {
+		if(type < 0) {
+			return -1;
+		}
+		long key = (long) type << 32 | method;
+		Integer memo = resolved.get(key);
+		if(memo != null) {
+			return memo;
+		}
+		int[] candidates = candidates(method);
+		int result = -1;
+		for(int c = type; c >= 0 && result < 0; c = hierarchy.getSuperclass(c)) {
+			for(int candidate : candidates) {
+				if(declaringTypes[candidate] == c) {
+					result = candidate;
+					break;
+				}
+			}
+		}
+		// インタフェースのデフォルトメソッド
+		for(int i = 0; i < candidates.length && result < 0; i++) {
+			int declaring = declaringTypes[candidates[i]];
+			if(declaring >= 0 && hierarchy.isInterface(declaring) && hierarchy.isSubtype(type, declaring)) {
+				result = candidates[i];
+			}
+		}
+		resolved.put(key, result);
+		return result;
+	}
+
+	// 型の不明なオブジェクトでmethodを呼んだときに実行されうるメソッド
+	private int[] resolveUnknown(int type, int method) {
+		if(type < 0) {
+			return new int[0];
+		}
+		long key = (long) type << 32 | method;
+		int[] result = resolvedUnknown.get(key);
+		if(result != null) {
+			return result;
+		}
+		IntList found = new IntList();
+		int inherited = resolve(type, method);
+		if(inherited >= 0) {
+			found.add(inherited);
+		}
+		for(int candidate : candidates(method)) {
+			int declaring = declaringTypes[candidate];
+			if(declaring >= 0 && declaring != type && hierarchy.isSubtype(declaring, type)) {
+				found.add(candidate);
+			}
+		}
+		result = found.toSortedSet();
+		resolvedUnknown.put(key, result);
+		return result;
+	}
+
+	// 呼び出し箇所
+
+	private void collectSites(Collector collector, int[] global) {
+		IntList calls = collector.calls;
+		for(int i = 0; i < calls.size(); ) {
+			int caller = calls.get(i);
+			int callee = calls.get(i + 1);
+			int kind = calls.get(i + 2);
+			int receiver = calls.get(i + 3) < 0 ? -1 : global[calls.get(i + 3)];
+			int result = calls.get(i + 4) < 0 ? -1 : global[calls.get(i + 4)];
+			int resultType = calls.get(i + 5);
+			int argc = calls.get(i + 6);
+			int[] args = new int[argc];
+			for(int k = 0; k < argc; k++) {
+				int local = calls.get(i + 7 + k);
+				args[k] = local < 0 ? -1 : global[local];
+			}
+			i += 7 + argc;
+
+			int site = siteCallers.size();
+			siteCallers.add(caller);
+			siteCallees.add(callee);
+			siteResults.add(result);
+			siteArgs.add(args);
+			if(!declared.get(callee) && !linkable.get(callee)) {
+				// ライブラリのメソッド
+				addCallEdge(caller, callee);
+				if(result >= 0 && resultType >= 0) {
+					addObject(result, unknownObject(resultType));
+				}
+			}
+			if(kind != PointsToAnalysis.VIRTUAL) {
+				link(site, callee);
+				int self = thisNodes[callee];
+				if(receiver >= 0 && self >= 0) {
+					addEdge(receiver, self);
+				}
+			} else if(receiver >= 0) {
+				list(receivers, receiver).add(site);
+			}
+		}
+	}
+
+	// 呼び出し箇所と呼び出し先の引数と戻り値をつなぐ
+	private void link(int site, int target) {
+		if(!links.add((long) site << 32 | target)) {
+			return;
+		}
+		addCallEdge(siteCallers.get(site), target);
+		int[] args = siteArgs.get(site);
+		int[] formals = params[target];
+		if(formals != null) {
+			for(int i = 0; i < Math.min(args.length, formals.length); i++) {
+				if(args[i] >= 0 && formals[i] >= 0) {
+					addEdge(args[i], formals[i]);
+				}
+			}
+		}
+		int result = siteResults.get(site);
+		int ret = result < 0 ? -1 : returnNodes[target];
+		if(ret >= 0) {
+			addEdge(ret, result);
+		}
+	}
+
+	private void addCallEdge(int caller, int callee) {
+		edgeFrom.add(caller);
+		edgeTo.add(callee);
+	}
+
+	private void dispatch(int site, int object) {
+		int callee = siteCallees.get(site);
+		int type = objectClasses.get(object);
+		if(objectLocations.get(object) == null) {
+			for(int target : resolveUnknown(type, callee)) {
+				invoke(site, target, object);
+			}
+		} else {
+			int target = resolve(type, callee);
+			if(target >= 0) {
+				invoke(site, target, object);
+			}
+		}
+	}
+
+	private void invoke(int site, int target, int object) {
+		int self = thisNodes[target];
+		if(self >= 0) {
+			addObject(self, object);
+		}
+		link(site, target);
+	}
+
+	private CallGraph callGraph() {
+		String[] keys = new String[methodCount];
+		for(int i = 0; i < methodCount; i++) {
+			keys[i] = methods.getKey(i);
+		}
+		IntList[] callees = new IntList[methodCount];
+		for(int i = 0; i < edgeFrom.size(); i++) {
+			list(callees, edgeFrom.get(i)).add(edgeTo.get(i));
+		}
+		int[] offsets = new int[methodCount + 1];
+		int[][] sorted = new int[methodCount][];
+		for(int m = 0; m < methodCount; m++) {
+			sorted[m] = callees[m] == null ? new int[0] : callees[m].toSortedSet();
+			offsets[m + 1] = offsets[m] + sorted[m].length;
+		}
+		int[] targets = new int[offsets[methodCount]];
+		for(int m = 0; m < methodCount; m++) {
+			System.arraycopy(sorted[m], 0, targets, offsets[m], sorted[m].length);
+		}
+		return new CallGraph(keys, (BitSet) declared.clone(), offsets, targets);
+	}
+
+	// オブジェクト
+
+	private int newObject(int type, String location) {
+		objectTypes.add(type);
+		objectClasses.add(type < 0 ? -1 : typeIds[type]);
+		objectLocations.add(location);
+		return objectTypes.size() - 1;
+	}
+
+	private int unknownObject(int type) {
+		Integer object = unknownObjects.get(type);
+		if(object == null) {
+			object = newObject(type, null);
+			unknownObjects.put(type, object);
+		}
+		return object;
+	}
+
+	// 変数
+
+	private void grow(int capacity) {
+		if(capacity <= parent.length) {
+			return;
+		}
+		int length = Math.max(capacity, parent.length * 3 / 2);
+		int old = parent.length;
+		parent = Arrays.copyOf(parent, length);
+		for(int i = old; i < length; i++) {
+			parent[i] = i;
+		}
+		pointsTo = Arrays.copyOf(pointsTo, length);
+		delta = Arrays.copyOf(delta, length);
+		successors = Arrays.copyOf(successors, length);
+		loads = Arrays.copyOf(loads, length);
+		stores = Arrays.copyOf(stores, length);
+		receivers = Arrays.copyOf(receivers, length);
+		dfsIndex = Arrays.copyOf(dfsIndex, length);
+		dfsLow = Arrays.copyOf(dfsLow, length);
+		dfsStamp = Arrays.copyOf(dfsStamp, length);
+	}
+
+	private int find(int node) {
+		while(parent[node] != node) {
+			parent[node] = parent[parent[node]];
+			node = parent[node];
+		}
+		return node;
+	}
+
+	private static IntList list(IntList[] lists, int index) {
+		IntList list = lists[index];
+		if(list == null) {
+			list = new IntList(2);
+			lists[index] = list;
+		}
+		return list;
+	}
+
+	private static SparseBitSet set(SparseBitSet[] sets, int index) {
+		SparseBitSet set = sets[index];
+		if(set == null) {
+			set = new SparseBitSet();
+			sets[index] = set;
+		}
+		return set;
+	}
+
+	// オブジェクトのフィールドを表す変数
+	private int fieldNode(int object, int field) {
+		long key = (long) object << 32 | field;
+		Integer node = fieldNodes.get(key);
+		if(node == null) {
+			grow(nodeCount + 1);
+			node = nodeCount++;
+			fieldNodes.put(key, node);
+		}
+		return node;
+	}
+
+	private void enqueue(int node) {
+		if(!queued.get(node)) {
+			queued.set(node);
+			worklist.add(node);
+		}
+	}
+
+	private void addObject(int node, int object) {
+		int n = find(node);
+		if(set(pointsTo, n).add(object)) {
+			set(delta, n).add(object);
+			enqueue(n);
+		}
+	}
+
+	private void addEdge(int from, int to) {
+		int f = find(from);
+		int t = find(to);
+		if(f == t || !set(successors, f).add(t)) {
+			return;
+		}
+		if(pointsTo[f] != null && !pointsTo[f].isEmpty()) {
+			propagate(pointsTo[f], t);
+		}
+	}
+
+	private boolean propagate(SparseBitSet objects, int to) {
+		if(set(pointsTo, to).addAll(objects, set(delta, to))) {
+			enqueue(to);
+			return true;
+		}
+		return false;
+	}
+
+	// 解く
+
+	private void run() {
+		while(!worklist.isEmpty()) {
+			IntList current = worklist;
+			worklist = new IntList();
+			for(int i = 0; i < current.size(); i++) {
+				int node = current.get(i);
+				queued.clear(node);
+				if(find(node) == node) {
+					process(node);
+				}
+			}
+		}
+	}
+
+	private void process(int node) {
+		SparseBitSet added = delta[node];
+		if(added == null || added.isEmpty()) {
+			return;
+		}
+		delta[node] = null;
+		int[] objects = added.toArray();
+
+		IntList l = loads[node];
+		if(l != null) {
+			for(int i = 0; i < l.size(); i += 2) {
+				int field = l.get(i);
+				int dst = l.get(i + 1);
+				for(int object : objects) {
+					addEdge(fieldNode(object, field), dst);
+				}
+			}
+		}
+		IntList s = stores[node];
+		if(s != null) {
+			for(int i = 0; i < s.size(); i += 2) {
+				int field = s.get(i);
+				int src = s.get(i + 1);
+				for(int object : objects) {
+					addEdge(src, fieldNode(object, field));
+				}
+			}
+		}
+		IntList r = receivers[node];
+		if(r != null) {
+			for(int i = 0; i < r.size(); i++) {
+				for(int object : objects) {
+					dispatch(r.get(i), object);
+				}
+			}
+		}
+
+		SparseBitSet next = successors[node];
+		if(next != null) {
+			for(int successor : next.toArray()) {
+				int to = find(successor);
+				if(to == node) {
+					continue;
+				}
+				propagate(added, to);
+				if(pointsTo[to].equals(pointsTo[node]) && checked.add((long) node << 32 | to)) {
+					candidatesFrom.add(node);
+					candidatesTo.add(to);
+				}
+			}
+		}
+
+		for(int i = 0; i < candidatesTo.size(); i++) {
+			if(find(candidatesFrom.get(i)) != find(candidatesTo.get(i))) {
+				detectCycles(find(candidatesTo.get(i)));
+			}
+		}
+		candidatesFrom.clear();
+		candidatesTo.clear();
+	}
+
+	// rootから辿れる強連結成分を縮める(Tarjanの方法)
+	private void detectCycles(int root) {
+		generation++;
+		int counter = 0;
+		IntList stack = new IntList();
+		IntList path = new IntList();
+		IntList positions = new IntList();
+		List<int[]> edges = new ArrayList<>();
+
+		dfsStamp[root] = generation;
+		dfsIndex[root] = dfsLow[root] = counter++;
+		stack.add(root);
+		onStack.set(root);
+		path.add(root);
+		positions.add(0);
+		edges.add(successors[root] == null ? new int[0] : successors[root].toArray());
+		while(!path.isEmpty()) {
+			int top = path.size() - 1;
+			int node = path.get(top);
+			int[] next = edges.get(top);
+			int position = positions.get(top);
+			if(position < next.length) {
+				positions.set(top, position + 1);
+				int to = find(next[position]);
+				if(to == node) {
+					continue;
+				}
+				if(dfsStamp[to] != generation) {
+					dfsStamp[to] = generation;
+					dfsIndex[to] = dfsLow[to] = counter++;
+					stack.add(to);
+					onStack.set(to);
+					path.add(to);
+					positions.add(0);
+					edges.add(successors[to] == null ? new int[0] : successors[to].toArray());
+				} else if(onStack.get(to)) {
+					dfsLow[node] = Math.min(dfsLow[node], dfsIndex[to]);
+				}
+				continue;
+			}
+
+			path.removeLast();
+			positions.removeLast();
+			edges.remove(top);
+			if(top > 0) {
+				int caller = path.get(top - 1);
+				dfsLow[caller] = Math.min(dfsLow[caller], dfsLow[node]);
+			}
+			if(dfsLow[node] == dfsIndex[node]) {
+				IntList component = new IntList();
+				int member;
+				do {
+					member = stack.removeLast();
+					onStack.clear(member);
+					component.add(member);
+				} while(member != node);
+				if(component.size() > 1) {
+					collapse(component);
+				}
+			}
+		}
+	}
+
+	private void collapse(IntList component) {
+		int representative = component.get(0);
+		for(int i = 1; i < component.size(); i++) {
+			int member = component.get(i);
+			parent[member] = representative;
+			if(pointsTo[member] != null) {
+				set(pointsTo, representative).addAll(pointsTo[member]);
+			}
+			if(successors[member] != null) {
+				set(successors, representative).addAll(successors[member]);
+			}
+			merge(loads, member, representative);
+			merge(stores, member, representative);
+			merge(receivers, member, representative);
+			pointsTo[member] = null;
+			delta[member] = null;
+			successors[member] = null;
+			collapsed++;
+		}
+		// 縮めた変数の後続と制約は互いの集合を全ては受け取っていない
+		if(pointsTo[representative] != null) {
+			delta[representative] = pointsTo[representative].copy();
+			enqueue(representative);
+		}
+	}
+
+	private static void merge(IntList[] lists, int from, int to) {
+		IntList list = lists[from];
+		if(list == null) {
+			return;
+		}
+		IntList target = list(lists, to);
+		for(int i = 0; i < list.size(); i++) {
+			target.add(list.get(i));
+		}
+		lists[from] = null;
+	}
+}
@@ -0,0 +1,124 @@
+package com.lethe_river.jsa.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link AnalysisServer}に解析を要求する薄いクライアント．
+ */
+public final class AnalysisClient {
+
+	private AnalysisClient() {}
+
+	/**
+	 * ポートファイルが示すデーモンに解析を要求し，結果を1行ずつ受け取る．
+	 *
+	 * @param portFile {@link AnalysisServer#writePortFile(Path)}で書き出したファイル
+	 * @param request 解析要求
+	 * @param consumer 結果の受け取り先
+	 * @return デーモンでの処理時間(ミリ秒)
+	 * @throws IOException ポートファイルを読めないか，通信に失敗したか，デーモンがエラーを返した場合
+	 */
+	public static long request(Path portFile, AnalysisRequest request, Consumer<String> consumer) throws IOException {
+		List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+		if(lines.size() < 2) {
+			throw new IOException("malformed port file: " + portFile);
+		}
+		int port;
+		try {
+			port = Integer.parseInt(lines.get(0));
+		} catch (NumberFormatException e) {
+			throw new IOException("malformed port file: " + portFile);
+		}
+		return request(port, lines.get(1), request, consumer);
+	}
+
+	/**
+	 * 解析を要求し，結果を1行ずつ受け取る．
+	 *
+	 * @param port デーモンのポート
+	 * @param token デーモンのトークン
+	 * @param request 解析要求
+	 * @param consumer 結果の受け取り先
+	 * @return デーモンでの処理時間(ミリ秒)
+	 * @throws IOException 通信に失敗したか，デーモンがエラーを返した場合
+	 */
+	public static long request(int port, String token, AnalysisRequest request, Consumer<String> consumer) throws IOException {
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			request.write(out, token);
+
+			String line;
+			while((line = in.readLine()) != null) {
+				if(line.startsWith("R ")) {
+					consumer.accept(line.substring(2));
+				} else if(line.startsWith("D ")) {
+					return Long.parseLong(line.substring(2));
+				} else if(line.startsWith("E ")) {
+					throw new IOException(line.substring(2));
+				} else {
+					throw new IOException("unexpected response: " + line);
+				}
+			}
+			throw new IOException("connection closed");
+		}
+	}
+
+	/**
+	 * 使い方: {@code AnalysisClient [-f portFile] [-j parallelism] [-v visitor] (-s sourceDir)+ (-l libraryDir)*}
+	 * デーモンは別の作業ディレクトリで動いているので，ディレクトリは絶対パスにして送る．
+	 */
+	public static void main(String[] args) throws IOException {
+		Path portFile = AnalysisServer.DEFAULT_PORT_FILE;
+		int parallelism = 1;
+		String visitor = "methods";
+		List<String> sources = new ArrayList<>();
+		List<String> libraries = new ArrayList<>();
+		for(int i = 0; i < args.length; i += 2) {
+			if(i + 1 == args.length) {
+				throw new IllegalArgumentException("missing value for option: " + args[i]);
+			}
+			switch(args[i]) {
+			case "-f":
+				portFile = Paths.get(args[i + 1]);
+				break;
+			case "-j":
+				parallelism = Integer.parseInt(args[i + 1]);
+				break;
+			case "-v":
+				visitor = args[i + 1];
+				break;
+			case "-s":
+				sources.add(absolute(args[i + 1]));
+				break;
+			case "-l":
+				libraries.add(absolute(args[i + 1]));
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option: " + args[i]);
+			}
+		}
+
+		PrintStream out = new PrintStream(System.out, false, "UTF-8");
+		request(portFile, new AnalysisRequest(sources, libraries, visitor, parallelism), out::println);
+		out.flush();
+	}
+
+	private static String absolute(String dir) {
+		return Paths.get(dir).toAbsolutePath().normalize().toString();
+	}
+}
@@ -0,0 +1,119 @@
+package com.lethe_river.jsa.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * デーモンへの解析要求．
+ * 1行に1項目を"キー 値"の形式で書き，空行で終わる．ディレクトリは絶対パスで指定する．
+ * 最初の行はデーモンのトークンでなければならない．
+ *
+ * <pre>
+ * token 0123abcd...
+ * source /path/to/src
+ * library /path/to/lib
+ * visitor methods
+ * parallelism 4
+ * </pre>
+ */
+public final class AnalysisRequest {
+
+	private final List<String> sourceDirectories;
+	private final List<String> libraryDirectories;
+	private final String visitor;
+	private final int parallelism;
+
+	public AnalysisRequest(List<String> sourceDirectories, List<String> libraryDirectories, String visitor, int parallelism) {
+		this.sourceDirectories = List.copyOf(sourceDirectories);
+		this.libraryDirectories = List.copyOf(libraryDirectories);
+		this.visitor = visitor;
+		this.parallelism = parallelism;
+	}
+
+	public List<String> getSourceDirectories() {
+		return sourceDirectories;
+	}
+
+	public List<String> getLibraryDirectories() {
+		return libraryDirectories;
+	}
+
+	public String getVisitor() {
+		return visitor;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	void write(PrintWriter out, String token) {
+		out.println("token " + token);
+		sourceDirectories.forEach(s -> out.println("source " + s));
+		libraryDirectories.forEach(l -> out.println("library " + l));
+		out.println("visitor " + visitor);
+		out.println("parallelism " + parallelism);
+		out.println();
+		out.flush();
+	}
+
+	/**
+	 * 要求を読む．
+	 *
+	 * @param in 入力
+	 * @param token デーモンのトークン
+	 * @return 読んだ要求．入力が空の場合はnull
+	 * @throws IOException 入力を読めないか，形式が正しくないか，トークンが一致しない場合
+	 */
+	static AnalysisRequest read(BufferedReader in, String token) throws IOException {
+		String first = in.readLine();
+		if(first == null || first.isEmpty()) {
+			return null;
+		}
+		// 比較にかかる時間からトークンを推測されないようにする
+		if(!first.startsWith("token ") || !MessageDigest.isEqual(
+				first.substring(6).getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+			throw new IOException("invalid token");
+		}
+
+		List<String> sources = new ArrayList<>();
+		List<String> libraries = new ArrayList<>();
+		String visitor = "methods";
+		int parallelism = 1;
+
+		String line;
+		while((line = in.readLine()) != null && !line.isEmpty()) {
+			int space = line.indexOf(' ');
+			if(space < 0) {
+				throw new IOException("malformed request: " + line);
+			}
+			String key = line.substring(0, space);
+			String value = line.substring(space + 1);
+			switch(key) {
+			case "source":
+				sources.add(value);
+				break;
+			case "library":
+				libraries.add(value);
+				break;
+			case "visitor":
+				visitor = value;
+				break;
+			case "parallelism":
+				try {
+					parallelism = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					throw new IOException("malformed parallelism: " + value);
+				}
+				break;
+			default:
+				throw new IOException("unknown key: " + key);
+			}
+		}
+		return new AnalysisRequest(sources, libraries, visitor, parallelism);
+	}
+}
@@ -0,0 +1,297 @@
+package com.lethe_river.jsa.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.MethodDeclVisitor;
+import com.lethe_river.jsa.SourceProcessor;
+import com.lethe_river.jsa.cache.AnalysisCache;
+import com.lethe_river.jsa.cache.CacheableAnalysis;
+import com.lethe_river.jsa.sink.MethodRecord;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * 解析を常駐させて，ローカルのソケットで要求を受け付けるデーモン．
+ * ソースとライブラリの組ごとにSourceProcessorと解析結果のキャッシュを保持するため，
+ * 同じ木への2回目以降の要求では変化したファイルだけが解析される．
+ * 保持する組の数には上限があり，超えた場合は最も長く使われていない組から捨てる．
+ *
+ * <p>デーモンは空いているポートで待ち受け，ポート番号と起動ごとに生成するトークンをポートファイルに書き出す．
+ * ポートファイルは所有者だけが読めるため，トークンを持たない他のユーザーからの要求は拒否される．
+ *
+ * <p>応答は1行ごとに先頭の1文字で種類を表す．
+ * "R "は結果，"E "はエラー，"D "は完了と経過時間(ミリ秒)を表す．
+ */
+public class AnalysisServer implements Closeable {
+	private static final Logger logger = LoggerUtil.getLogger(AnalysisServer.class);
+
+	/**
+	 * ポートファイルを指定しない場合の既定の場所
+	 */
+	public static final Path DEFAULT_PORT_FILE = Paths.get(System.getProperty("user.home"), ".jsa", "daemon.port");
+
+	/**
+	 * 保持するソースとライブラリの組の数の既定値
+	 */
+	public static final int DEFAULT_MAX_SESSIONS = 4;
+
+	private final ServerSocket serverSocket;
+	private final String token;
+	private Path portFile;
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "jsa-server");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Map<String, Analysis<?>> analyses = new ConcurrentHashMap<>();
+	// 使った順に並べる．sessionsで同期する
+	private final Map<List<List<String>>, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+	private int maxSessions = DEFAULT_MAX_SESSIONS;
+
+	/**
+	 * ループバックアドレスの空いているポートで待ち受けるデーモンを生成する．
+	 *
+	 * @throws IOException ポートを開けない場合
+	 */
+	public AnalysisServer() throws IOException {
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		byte[] bytes = new byte[32];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder sb = new StringBuilder();
+		for(byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		this.token = sb.toString();
+		register("methods", MethodDeclVisitor.analysis(), MethodRecord::getSignature);
+	}
+
+	/**
+	 * 要求から選べる解析を登録する．
+	 *
+	 * @param name 要求で指定する名前
+	 * @param analysis 解析
+	 * @param formatter 結果を1行の文字列にする関数
+	 */
+	public <R extends Serializable> void register(String name, CacheableAnalysis<R> analysis, Function<? super R, String> formatter) {
+		analyses.put(name, new Analysis<>(analysis, formatter));
+	}
+
+	/**
+	 * 保持するソースとライブラリの組の数の上限を設定する．
+	 *
+	 * @param maxSessions 上限
+	 */
+	public void setMaxSessions(int maxSessions) {
+		if(maxSessions < 1) {
+			throw new IllegalArgumentException("maxSessions: " + maxSessions);
+		}
+		synchronized(sessions) {
+			this.maxSessions = maxSessions;
+			evictSessions();
+		}
+	}
+
+	/**
+	 * @return 保持しているソースとライブラリの組の数
+	 */
+	public int getSessionCount() {
+		synchronized(sessions) {
+			return sessions.size();
+		}
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return 要求に含めなければならないトークン
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * ポート番号とトークンを所有者だけが読めるファイルに書き出す．
+	 * 書き出したファイルは{@link #close()}で削除する．
+	 *
+	 * @param file ポートファイル．既存のファイルは置き換える
+	 * @throws IOException 書き出せない場合
+	 */
+	public void writePortFile(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		FileAttribute<?>[] attributes = FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+				? new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) }
+				: new FileAttribute<?>[0];
+		Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp", attributes);
+		Files.write(temp, List.of(Integer.toString(getPort()), token), StandardCharsets.UTF_8);
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		portFile = file;
+	}
+
+	/**
+	 * 別スレッドで要求の受け付けを始める．
+	 */
+	public void start() {
+		executor.execute(this::acceptLoop);
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdownNow();
+		if(portFile != null) {
+			Files.deleteIfExists(portFile);
+		}
+	}
+
+	private void acceptLoop() {
+		while(!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				executor.execute(() -> handle(socket));
+			} catch (SocketException e) {
+				// closeされた
+				return;
+			} catch (IOException e) {
+				logger.warning(e.toString());
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try(Socket s = socket;
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+			long start = System.nanoTime();
+			try {
+				AnalysisRequest request = AnalysisRequest.read(in, token);
+				if(request != null) {
+					process(request, out);
+				}
+				out.println("D " + (System.nanoTime() - start) / 1_000_000);
+			} catch (IOException | RuntimeException e) {
+				logger.warning("request failed. " + e);
+				out.println("E " + e);
+			}
+			out.flush();
+		} catch (IOException e) {
+			logger.warning(e.toString());
+		}
+	}
+
+	private void process(AnalysisRequest request, PrintWriter out) throws IOException {
+		Analysis<?> analysis = analyses.get(request.getVisitor());
+		if(analysis == null) {
+			throw new IOException("unknown visitor: " + request.getVisitor());
+		}
+		// 相対パスはデーモンの作業ディレクトリから解決されてしまう
+		for(List<String> dirs : List.of(request.getSourceDirectories(), request.getLibraryDirectories())) {
+			for(String dir : dirs) {
+				if(!Paths.get(dir).isAbsolute()) {
+					throw new IOException("directory must be absolute: " + dir);
+				}
+			}
+		}
+		List<List<String>> key = List.of(request.getSourceDirectories(), request.getLibraryDirectories());
+		Session session;
+		synchronized(sessions) {
+			session = sessions.get(key);
+			if(session == null) {
+				session = new Session(request);
+				sessions.put(key, session);
+				evictSessions();
+			}
+		}
+		// 解析中に捨てられても，この要求は最後まで処理する
+		session.run(analysis, request.getParallelism(), out);
+	}
+
+	private void evictSessions() {
+		Iterator<Session> iterator = sessions.values().iterator();
+		while(sessions.size() > maxSessions) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private static final class Analysis<R extends Serializable> {
+		final CacheableAnalysis<R> analysis;
+		final Function<? super R, String> formatter;
+
+		Analysis(CacheableAnalysis<R> analysis, Function<? super R, String> formatter) {
+			this.analysis = analysis;
+			this.formatter = formatter;
+		}
+	}
+
+	// ソースとライブラリの組ごとの常駐状態
+	private static final class Session {
+		final SourceProcessor processor;
+		final Map<String, AnalysisCache> caches = new ConcurrentHashMap<>();
+
+		Session(AnalysisRequest request) {
+			this.processor = new SourceProcessor(request.getSourceDirectories(), request.getLibraryDirectories());
+		}
+
+		synchronized <R extends Serializable> void run(Analysis<R> analysis, int parallelism, PrintWriter out) {
+			processor.setParallelism(Math.max(1, parallelism));
+			AnalysisCache cache = caches.computeIfAbsent(analysis.analysis.getName(), k -> AnalysisCache.inMemory());
+			for(List<R> results : processor.processSources(analysis.analysis, cache).values()) {
+				for(R result : results) {
+					out.print("R ");
+					out.println(analysis.formatter.apply(result));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 使い方: {@code AnalysisServer [portFile]}
+	 */
+	public static void main(String[] args) throws IOException {
+		Path portFile = args.length > 0 ? Paths.get(args[0]) : DEFAULT_PORT_FILE;
+		AnalysisServer server = new AnalysisServer();
+		server.writePortFile(portFile);
+		// 終了時にポートファイルを残さない
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				server.close();
+			} catch (IOException e) {
+				System.err.println("port file cannot be deleted: " + e);
+			}
+		}, "jsa-server-close"));
+		// ロガーはWARNING以上しか出力しないので，標準出力に書く
+		System.out.println("listening on " + server.getPort() + ", port file: " + portFile);
+		server.acceptLoop();
+	}
+}
@@ -0,0 +1,208 @@
+package com.lethe_river.jsa.sink;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.lethe_river.jsa.instrument.SinkFlushEvent;
+
+/**
+ * メソッドの一覧を{@link MethodInventory}の形式で出力する．
+ * レコードは受け取った順にそのまま書き出し，文字列表と索引は閉じるときに書き出す．
+ * 閉じるまでは読める形式にならない．
+ */
+public class BinaryMethodWriter implements MethodSink {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final OutputStream out;
+	private final byte[] scratch = new byte[5];
+	private long position = 0;
+
+	// 文字列の重複を除くための表．idは出現順
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	private final List<byte[]> strings = new ArrayList<>();
+
+	private int[] recordOffsets = new int[1024];
+	private int[] recordTypes = new int[1024];
+	private int recordCount = 0;
+	private int flushedCount = 0;
+
+	private boolean closed = false;
+
+	public BinaryMethodWriter(OutputStream out) {
+		this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+		try {
+			writeInt(MethodInventory.MAGIC);
+			writeInt(MethodInventory.VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * ファイルに出力するBinaryMethodWriterを生成する．既存のファイルは上書きされる．
+	 *
+	 * @param file 出力先のファイル
+	 * @return 新しいBinaryMethodWriter
+	 */
+	public static BinaryMethodWriter toFile(Path file) {
+		try {
+			return new BinaryMethodWriter(Files.newOutputStream(file));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void accept(MethodRecord record) {
+		if(closed) {
+			throw new IllegalStateException("closed");
+		}
+		int type = idOf(record.getDeclaringType());
+		int name = idOf(record.getName());
+		int descriptor = idOf(record.getDescriptor());
+		// ファイルと行は不明な場合があるので1ずらす
+		int file = record.getSourceFile() == null ? 0 : idOf(record.getSourceFile()) + 1;
+		int line = record.getLine() + 1;
+
+		if(recordCount == recordOffsets.length) {
+			recordOffsets = Arrays.copyOf(recordOffsets, recordCount * 2);
+			recordTypes = Arrays.copyOf(recordTypes, recordCount * 2);
+		}
+		recordOffsets[recordCount] = checkedPosition();
+		recordTypes[recordCount] = type;
+		recordCount++;
+		try {
+			writeVarint(type);
+			writeVarint(name);
+			writeVarint(descriptor);
+			writeVarint(file);
+			writeVarint(line);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void flush() {
+		SinkFlushEvent event = new SinkFlushEvent();
+		event.begin();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.sink = getClass().getName();
+			event.records = recordCount - flushedCount;
+			event.commit();
+		}
+		flushedCount = recordCount;
+	}
+
+	@Override
+	public synchronized void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try {
+			int stringsOffset = checkedPosition();
+			int[] stringOffsets = new int[strings.size()];
+			for(int i = 0; i < strings.size(); i++) {
+				byte[] bytes = strings.get(i);
+				stringOffsets[i] = checkedPosition();
+				writeVarint(bytes.length);
+				write(bytes);
+			}
+
+			int stringIndexOffset = checkedPosition();
+			for(int offset : stringOffsets) {
+				writeInt(offset);
+			}
+
+			int recordIndexOffset = checkedPosition();
+			for(int i = 0; i < recordCount; i++) {
+				writeInt(recordOffsets[i]);
+			}
+
+			// 宣言している型で引けるように，型名のバイト順に並べたレコード番号を書く
+			int typeIndexOffset = checkedPosition();
+			Integer[] order = new Integer[recordCount];
+			for(int i = 0; i < recordCount; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, Comparator.comparing((Integer i) -> strings.get(recordTypes[i]), Arrays::compareUnsigned));
+			for(int i : order) {
+				writeInt(i);
+			}
+
+			writeInt(strings.size());
+			writeInt(recordCount);
+			writeInt(stringsOffset);
+			writeInt(stringIndexOffset);
+			writeInt(recordIndexOffset);
+			writeInt(typeIndexOffset);
+			writeInt(MethodInventory.MAGIC);
+			checkedPosition();
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int idOf(String value) {
+		Integer id = stringIds.get(value);
+		if(id == null) {
+			id = strings.size();
+			stringIds.put(value, id);
+			strings.add(value.getBytes(StandardCharsets.UTF_8));
+		}
+		return id;
+	}
+
+	// 索引の位置はintで表すので，2GiBを超えるファイルは書けない
+	private int checkedPosition() {
+		if(position > Integer.MAX_VALUE) {
+			throw new IllegalStateException("method inventory exceeds 2GiB");
+		}
+		return (int) position;
+	}
+
+	private void writeVarint(int value) throws IOException {
+		int n = 0;
+		while((value & ~0x7F) != 0) {
+			scratch[n++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		scratch[n++] = (byte) value;
+		out.write(scratch, 0, n);
+		position += n;
+	}
+
+	private void writeInt(int value) throws IOException {
+		scratch[0] = (byte) (value >>> 24);
+		scratch[1] = (byte) (value >>> 16);
+		scratch[2] = (byte) (value >>> 8);
+		scratch[3] = (byte) value;
+		out.write(scratch, 0, 4);
+		position += 4;
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		out.write(bytes);
+		position += bytes.length;
+	}
+}
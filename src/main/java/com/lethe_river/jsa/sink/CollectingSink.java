@@ -0,0 +1,26 @@
+package com.lethe_river.jsa.sink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * メソッドの情報をメモリ上に集める．
+ */
+public class CollectingSink implements MethodSink {
+
+	private final List<MethodRecord> records = new ArrayList<>();
+
+	@Override
+	public synchronized void accept(MethodRecord record) {
+		records.add(record);
+	}
+
+	/**
+	 * これまでに集めた情報のコピーを返す．
+	 *
+	 * @return メソッドの情報のリスト
+	 */
+	public synchronized List<MethodRecord> getRecords() {
+		return new ArrayList<>(records);
+	}
+}
@@ -0,0 +1,222 @@
+package com.lethe_river.jsa.sink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link BinaryMethodWriter}が出力したメソッドの一覧．
+ * ファイルはメモリマップして参照するため，開くときに全体を読み込むことはない．
+ * 型名などの文字列は重複を除いた文字列表に1回だけ格納され，レコードは文字列のidを可変長整数で表す．
+ *
+ * <pre>
+ * int magic, int version
+ * recordCount * (varint typeId, varint nameId, varint descriptorId, varint fileId + 1, varint line + 1)
+ * stringCount * (varint length, UTF-8)
+ * stringCount * int offset     ... 文字列の位置
+ * recordCount * int offset     ... レコードの位置(出力順)
+ * recordCount * int record     ... 宣言している型名のUTF-8バイト順に並べたレコード番号
+ * int stringCount, int recordCount, int stringsOffset, int stringIndexOffset, int recordIndexOffset, int typeIndexOffset, int magic
+ * </pre>
+ */
+public final class MethodInventory {
+
+	static final int MAGIC = 0x4A53414D; // "JSAM"
+	static final int VERSION = 1;
+	private static final int TRAILER_SIZE = 7 * 4;
+
+	private final ByteBuffer buffer;
+	private final int stringCount;
+	private final int recordCount;
+	private final int stringIndexOffset;
+	private final int recordIndexOffset;
+	private final int typeIndexOffset;
+
+	// 復号した文字列
+	private final String[] decoded;
+
+	private MethodInventory(ByteBuffer buffer, int stringCount, int recordCount,
+			int stringIndexOffset, int recordIndexOffset, int typeIndexOffset) {
+		this.buffer = buffer;
+		this.stringCount = stringCount;
+		this.recordCount = recordCount;
+		this.stringIndexOffset = stringIndexOffset;
+		this.recordIndexOffset = recordIndexOffset;
+		this.typeIndexOffset = typeIndexOffset;
+		this.decoded = new String[stringCount];
+	}
+
+	/**
+	 * メソッドの一覧のファイルを開く．
+	 *
+	 * @param file BinaryMethodWriterが出力したファイル
+	 * @return メソッドの一覧
+	 * @exception UncheckedIOException ファイルを読めない場合
+	 */
+	public static MethodInventory open(Path file) {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.limit() < 8 + TRAILER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("not a method inventory: " + file);
+			}
+			int trailer = buffer.limit() - TRAILER_SIZE;
+			if(buffer.getInt(trailer + 24) != MAGIC) {
+				throw new IOException("method inventory is not closed: " + file);
+			}
+			return new MethodInventory(
+					buffer,
+					buffer.getInt(trailer),
+					buffer.getInt(trailer + 4),
+					buffer.getInt(trailer + 12),
+					buffer.getInt(trailer + 16),
+					buffer.getInt(trailer + 20));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public int size() {
+		return recordCount;
+	}
+
+	public int getStringCount() {
+		return stringCount;
+	}
+
+	/**
+	 * 出力された順でi番目のメソッドを返す．
+	 *
+	 * @param index レコード番号
+	 * @return メソッドの情報
+	 */
+	public MethodRecord get(int index) {
+		if(index < 0 || index >= recordCount) {
+			throw new IndexOutOfBoundsException("index: " + index);
+		}
+		ByteBuffer record = buffer.duplicate();
+		record.position(buffer.getInt(recordIndexOffset + index * 4));
+		try {
+			String type = stringAt(readVarint(record));
+			String name = stringAt(readVarint(record));
+			String descriptor = stringAt(readVarint(record));
+			int file = readVarint(record);
+			int line = readVarint(record);
+			return new MethodRecord(type, name, descriptor, file == 0 ? null : stringAt(file - 1), line - 1);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new UncheckedIOException(new IOException("broken method inventory", e));
+		}
+	}
+
+	/**
+	 * 型が宣言しているメソッドを探す．
+	 *
+	 * @param declaringType 宣言している型のバイナリ名
+	 * @return 宣言しているメソッド(出力順)．ない場合は空のリスト
+	 */
+	public List<MethodRecord> findByDeclaringType(String declaringType) {
+		byte[] key = declaringType.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = recordCount;
+		// 最初に一致する位置を探す
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(compareType(mid, key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		if(low == recordCount || compareType(low, key) != 0) {
+			return Collections.emptyList();
+		}
+		List<MethodRecord> records = new ArrayList<>();
+		for(int i = low; i < recordCount && compareType(i, key) == 0; i++) {
+			records.add(get(buffer.getInt(typeIndexOffset + i * 4)));
+		}
+		return records;
+	}
+
+	/**
+	 * 全てのメソッドを出力順に出力先に渡す．出力先は閉じない．
+	 *
+	 * @param sink 出力先
+	 */
+	public void replay(MethodSink sink) {
+		for(int i = 0; i < recordCount; i++) {
+			sink.accept(get(i));
+		}
+		sink.flush();
+	}
+
+	/**
+	 * メソッドの一覧を{@link WriterSink}と同じテキスト形式に変換する．
+	 *
+	 * @param in BinaryMethodWriterが出力したファイル
+	 * @param out 出力先のファイル．既存のファイルは上書きされる
+	 */
+	public static void toText(Path in, Path out) {
+		try(WriterSink sink = WriterSink.toFile(out)) {
+			open(in).replay(sink);
+		}
+	}
+
+	public static void main(String[] args) {
+		if(args.length != 2) {
+			throw new IllegalArgumentException("usage: MethodInventory <inventory> <text>");
+		}
+		toText(Paths.get(args[0]), Paths.get(args[1]));
+	}
+
+	private int compareType(int sortedIndex, byte[] key) {
+		int record = buffer.getInt(typeIndexOffset + sortedIndex * 4);
+		ByteBuffer b = buffer.duplicate();
+		b.position(buffer.getInt(recordIndexOffset + record * 4));
+		int type = readVarint(b);
+		b.position(buffer.getInt(stringIndexOffset + type * 4));
+		int length = readVarint(b);
+		int offset = b.position();
+		int n = Math.min(length, key.length);
+		for(int i = 0; i < n; i++) {
+			int c = Integer.compare(Byte.toUnsignedInt(buffer.get(offset + i)), Byte.toUnsignedInt(key[i]));
+			if(c != 0) {
+				return c;
+			}
+		}
+		return Integer.compare(length, key.length);
+	}
+
+	private String stringAt(int id) {
+		String value = decoded[id];
+		if(value == null) {
+			ByteBuffer b = buffer.duplicate();
+			b.position(buffer.getInt(stringIndexOffset + id * 4));
+			byte[] bytes = new byte[readVarint(b)];
+			b.get(bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+			decoded[id] = value;
+		}
+		return value;
+	}
+
+	private static int readVarint(ByteBuffer b) {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7) {
+			byte x = b.get();
+			value |= (x & 0x7F) << shift;
+			if(x >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("malformed varint");
+	}
+}
@@ -0,0 +1,87 @@
+package com.lethe_river.jsa.sink;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 宣言されたメソッド1件分の情報．
+ */
+public final class MethodRecord implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String declaringType;
+	private final String name;
+	private final String descriptor;
+	private final String sourceFile;
+	private final int line;
+
+	/**
+	 * @param declaringType 宣言している型のバイナリ名
+	 * @param name メソッド名．コンストラクタの場合は{@code <init>}
+	 * @param descriptor 引数と戻り値の記述子．例えば{@code (ILjava.lang.String;)V}
+	 * @param sourceFile ソースファイルのパス．不明な場合はnull
+	 * @param line 宣言の行番号．不明な場合は-1
+	 */
+	public MethodRecord(String declaringType, String name, String descriptor, String sourceFile, int line) {
+		this.declaringType = Objects.requireNonNull(declaringType);
+		this.name = Objects.requireNonNull(name);
+		this.descriptor = Objects.requireNonNull(descriptor);
+		this.sourceFile = sourceFile;
+		this.line = line;
+	}
+
+	public String getDeclaringType() {
+		return declaringType;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	public String getSourceFile() {
+		return sourceFile;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * メソッド名と記述子をつなげたシグネチャを返す．例えば{@code foo(I)V}
+	 *
+	 * @return シグネチャ
+	 */
+	public String getSignature() {
+		return name + descriptor;
+	}
+
+	@Override
+	public String toString() {
+		return declaringType + "#" + getSignature();
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(declaringType, name, descriptor, sourceFile, line);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		MethodRecord other = (MethodRecord) obj;
+		return declaringType.equals(other.declaringType)
+				&& name.equals(other.name)
+				&& descriptor.equals(other.descriptor)
+				&& Objects.equals(sourceFile, other.sourceFile)
+				&& line == other.line;
+	}
+}
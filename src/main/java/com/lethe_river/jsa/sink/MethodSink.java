@@ -0,0 +1,29 @@
+package com.lethe_river.jsa.sink;
+
+/**
+ * メソッドの情報の出力先．
+ * 複数のスレッドから使用される出力先はスレッドセーフでなければならない．
+ */
+@FunctionalInterface
+public interface MethodSink extends AutoCloseable {
+
+	/**
+	 * メソッドの情報を出力する．出力先によってはバッファリングされる．
+	 *
+	 * @param record メソッドの情報
+	 */
+	void accept(MethodRecord record);
+
+	/**
+	 * バッファリングされている情報を出力する．
+	 */
+	default void flush() {}
+
+	/**
+	 * バッファリングされている情報を出力し，出力先を閉じる．
+	 */
+	@Override
+	default void close() {
+		flush();
+	}
+}
@@ -0,0 +1,25 @@
+package com.lethe_river.jsa.sink;
+
+import java.io.PrintStream;
+
+/**
+ * シグネチャを1行ずつPrintStreamに出力する．
+ */
+public class PrintStreamSink implements MethodSink {
+
+	private final PrintStream out;
+
+	public PrintStreamSink(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void accept(MethodRecord record) {
+		out.println(record.getSignature());
+	}
+
+	@Override
+	public void flush() {
+		out.flush();
+	}
+}
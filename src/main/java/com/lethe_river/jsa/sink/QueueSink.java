@@ -0,0 +1,74 @@
+package com.lethe_river.jsa.sink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import com.lethe_river.jsa.instrument.SinkFlushEvent;
+
+/**
+ * メソッドの情報をまとめてキューに渡し，別スレッドの消費者へ受け渡す．
+ * キューが有界の場合，消費者が追いつくまで出力側がブロックする．
+ * 閉じたときには空のリストを終端として渡す．
+ */
+public class QueueSink implements MethodSink {
+
+	/**
+	 * 出力の終わりを表すバッチ
+	 */
+	public static final List<MethodRecord> END = Collections.emptyList();
+
+	private final BlockingQueue<List<MethodRecord>> queue;
+	private final int batchSize;
+	private List<MethodRecord> batch;
+
+	public QueueSink(BlockingQueue<List<MethodRecord>> queue, int batchSize) {
+		if(batchSize < 1) {
+			throw new IllegalArgumentException("batchSize: " + batchSize);
+		}
+		this.queue = queue;
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<>(batchSize);
+	}
+
+	@Override
+	public synchronized void accept(MethodRecord record) {
+		batch.add(record);
+		if(batch.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	@Override
+	public synchronized void flush() {
+		if(batch.isEmpty()) {
+			return;
+		}
+		put(batch);
+		batch = new ArrayList<>(batchSize);
+	}
+
+	@Override
+	public synchronized void close() {
+		flush();
+		put(END);
+	}
+
+	private void put(List<MethodRecord> records) {
+		SinkFlushEvent event = new SinkFlushEvent();
+		event.begin();
+		try {
+			queue.put(records);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.sink = getClass().getName();
+			event.records = records.size();
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.lethe_river.jsa.sink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.lethe_river.jsa.instrument.SinkFlushEvent;
+
+/**
+ * シグネチャを1行ずつWriterに出力する．
+ * 指定された件数ごとにまとめて書き込むため，1件ごとの書き込みやフラッシュは発生しない．
+ */
+public class WriterSink implements MethodSink {
+
+	private static final int DEFAULT_BATCH_SIZE = 4096;
+
+	private final Writer out;
+	private final int batchSize;
+	private final StringBuilder buffer = new StringBuilder();
+	private int buffered = 0;
+
+	public WriterSink(Writer out, int batchSize) {
+		if(batchSize < 1) {
+			throw new IllegalArgumentException("batchSize: " + batchSize);
+		}
+		this.out = out;
+		this.batchSize = batchSize;
+	}
+
+	public WriterSink(Writer out) {
+		this(out, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * ファイルに出力するWriterSinkを生成する．既存のファイルは上書きされる．
+	 *
+	 * @param file 出力先のファイル
+	 * @return 新しいWriterSink
+	 */
+	public static WriterSink toFile(Path file) {
+		try {
+			return new WriterSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void accept(MethodRecord record) {
+		buffer.append(record.getSignature()).append(System.lineSeparator());
+		if(++buffered >= batchSize) {
+			write();
+		}
+	}
+
+	@Override
+	public synchronized void flush() {
+		write();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		flush();
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void write() {
+		if(buffered == 0) {
+			return;
+		}
+		SinkFlushEvent event = new SinkFlushEvent();
+		event.begin();
+		try {
+			out.append(buffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.sink = getClass().getName();
+			event.records = buffered;
+			event.commit();
+		}
+		buffer.setLength(0);
+		buffered = 0;
+	}
+}
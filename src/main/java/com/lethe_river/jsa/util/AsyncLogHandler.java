@@ -0,0 +1,223 @@
+package com.lethe_river.jsa.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * ログを固定長のリングバッファに積み，1本の書き込みスレッドから委譲先のHandlerに出力する．
+ * ログを出力したスレッドはファイルやコンソールへの書き込みを待たない．
+ * バッファが一杯のときは{@link Policy}に従って捨てるか空くまで待つ．
+ * 閉じた後に出力されたログは捨て，閉じる前に受け付けたログはすべて書き込んでから委譲先を閉じる．
+ */
+public class AsyncLogHandler extends Handler {
+
+	/**
+	 * バッファが一杯のときの動作
+	 */
+	public enum Policy {
+		/** 新しいログを捨てる．捨てた件数は後で出力する */
+		DROP,
+		/** バッファが空くまで待つ */
+		BLOCK,
+	}
+
+	private static final int BATCH_SIZE = 256;
+	// 閉じられたかを確かめる間隔
+	private static final long POLL_MILLIS = 100;
+
+	// ArrayBlockingQueueは固定長の配列を循環して使う
+	private final BlockingQueue<LogRecord> buffer;
+	private final Handler[] targets;
+	private final Policy policy;
+	private final Thread writer;
+
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong enqueued = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	// publishの途中のスレッドの数．closedを見る前に増やす
+	private final AtomicInteger publishing = new AtomicInteger();
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/**
+	 * @param capacity バッファに積めるログの件数
+	 * @param policy バッファが一杯のときの動作
+	 * @param targets 委譲先
+	 */
+	public AsyncLogHandler(int capacity, Policy policy, Handler... targets) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		this.buffer = new ArrayBlockingQueue<>(capacity);
+		this.policy = policy;
+		this.targets = targets.clone();
+		this.writer = new Thread(this::drain, "jsa-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return バッファが一杯で捨てたログの件数
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	@Override
+	public void publish(LogRecord record) {
+		if(!isLoggable(record)) {
+			return;
+		}
+		publishing.incrementAndGet();
+		try {
+			if(!closed.get()) {
+				enqueue(record);
+			}
+		} finally {
+			publishing.decrementAndGet();
+		}
+	}
+
+	private void enqueue(LogRecord record) {
+		// 呼び出し元の情報は書き込みスレッドでは推測できないので，ここで確定させる
+		record.getSourceClassName();
+		boolean accepted;
+		if(policy == Policy.BLOCK) {
+			try {
+				buffer.put(record);
+				accepted = true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				accepted = false;
+			}
+		} else {
+			accepted = buffer.offer(record);
+		}
+		if(accepted) {
+			enqueued.incrementAndGet();
+		} else {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * それまでに積まれたログが書き込まれるまで待ち，委譲先をフラッシュする．
+	 */
+	@Override
+	public void flush() {
+		long until = enqueued.get();
+		synchronized(this) {
+			while(written.get() < until && writer.isAlive()) {
+				try {
+					wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		for(Handler target : targets) {
+			target.flush();
+		}
+	}
+
+	/**
+	 * 新しいログを受け付けないようにし，バッファが空になるまで書き込んでから委譲先を閉じる．
+	 */
+	@Override
+	public void close() {
+		if(!closed.compareAndSet(false, true)) {
+			return;
+		}
+		boolean interrupted = false;
+		while(true) {
+			try {
+				writer.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		for(Handler target : targets) {
+			target.close();
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain() {
+		List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+		long reported = 0;
+		while(true) {
+			LogRecord first;
+			try {
+				first = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if(first == null) {
+				// 閉じた後はpublishの途中のスレッドが積み終えるのを待ち，バッファが空なら終わる
+				if(closed.get() && publishing.get() == 0 && buffer.isEmpty()) {
+					// 最後のログの後に捨てた件数も残す
+					if(reportDropped(reported) > reported) {
+						for(Handler target : targets) {
+							target.flush();
+						}
+					}
+					break;
+				}
+				continue;
+			}
+			batch.add(first);
+			buffer.drainTo(batch, BATCH_SIZE - 1);
+
+			reported = reportDropped(reported);
+			for(LogRecord record : batch) {
+				write(record);
+			}
+			written.addAndGet(batch.size());
+			synchronized(this) {
+				notifyAll();
+			}
+			batch.clear();
+			if(buffer.isEmpty()) {
+				for(Handler target : targets) {
+					target.flush();
+				}
+			}
+		}
+	}
+
+	// 前回から捨てた件数があれば書き込み，書き込んだ時点の総数を返す
+	private long reportDropped(long reported) {
+		long lost = dropped.get();
+		if(lost > reported) {
+			write(new LogRecord(Level.WARNING, (lost - reported) + " log records dropped"));
+		}
+		return lost;
+	}
+
+	private void write(LogRecord record) {
+		for(Handler target : targets) {
+			try {
+				target.publish(record);
+			} catch (RuntimeException e) {
+				reportError("log cannot be written", e, ErrorManager.WRITE_FAILURE);
+			}
+		}
+	}
+}
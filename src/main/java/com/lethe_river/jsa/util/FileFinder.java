@@ -0,0 +1,270 @@
+package com.lethe_river.jsa.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * ディレクトリを並列にたどり，指定された拡張子のファイルを探す．
+ * ディレクトリごとの一覧をその更新時刻とともにキャッシュし，
+ * 更新時刻が変わっていないディレクトリは一覧を読み直さない．
+ * 探したルートの下で，消えたディレクトリや除外されたディレクトリの一覧はキャッシュから除く．
+ */
+public class FileFinder {
+	private static final Logger logger = LoggerUtil.getLogger(FileFinder.class);
+
+	/**
+	 * 標準で除外するディレクトリ
+	 */
+	public static final List<String> DEFAULT_EXCLUDES = List.of(
+			".git", ".svn", ".hg", ".idea", ".gradle", "target", "generated", "generated-sources");
+
+	// 更新時刻の分解能より新しいディレクトリは，直後の変更を見逃さないようキャッシュしない
+	private static final long MTIME_GRANULARITY_MILLIS = 2000;
+
+	private final String extension;
+	private final List<PathMatcher> nameExcludes = new ArrayList<>();
+	private final List<PathMatcher> pathExcludes = new ArrayList<>();
+
+	private final Map<Path, Listing> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * 除外パターンは，'/'を含まない場合はディレクトリ名に，含む場合はルートからの相対パスに対するglobとして扱う．
+	 *
+	 * @param extension 探すファイルの拡張子．例えば".java"
+	 * @param excludes 除外するディレクトリのglobパターン
+	 */
+	public FileFinder(String extension, List<String> excludes) {
+		this.extension = extension;
+		for(String exclude : excludes) {
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + exclude);
+			if(exclude.contains("/")) {
+				pathExcludes.add(matcher);
+			} else {
+				nameExcludes.add(matcher);
+			}
+		}
+	}
+
+	/**
+	 * ルートディレクトリ以下のファイルを探す．
+	 *
+	 * @param roots ルートディレクトリ
+	 * @return 見つかったファイルのパス(ソート済み)
+	 */
+	public List<Path> find(List<Path> roots) {
+		List<Path> result = new ArrayList<>();
+		Set<Path> visited = ConcurrentHashMap.newKeySet();
+		for(Path root : roots) {
+			if(!Files.isDirectory(root)) {
+				logger.warning("directory not found: " + root);
+				continue;
+			}
+			result.addAll(ForkJoinPool.commonPool().invoke(new Scan(root, root, visited)));
+		}
+		cache.keySet().removeIf(dir -> !visited.contains(dir) && roots.stream().anyMatch(dir::startsWith));
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * @return 一覧をキャッシュしているディレクトリの数
+	 */
+	public int getCacheSize() {
+		return cache.size();
+	}
+
+	/**
+	 * キャッシュをファイルから読み込む．読み込めない場合はキャッシュを空にする．
+	 *
+	 * @param file キャッシュファイル
+	 */
+	public void load(Path file) {
+		cache.clear();
+		if(!Files.exists(file)) {
+			return;
+		}
+		try(InputStream in = Files.newInputStream(file);
+				DataInputStream dis = new DataInputStream(in)) {
+			if(!dis.readUTF().equals(extension)) {
+				return;
+			}
+			int size = dis.readInt();
+			for(int i = 0; i < size; i++) {
+				Path dir = Paths.get(dis.readUTF());
+				long mtime = dis.readLong();
+				List<Path> files = readPaths(dis, dir);
+				List<Path> subdirectories = readPaths(dis, dir);
+				cache.put(dir, new Listing(mtime, files, subdirectories));
+			}
+		} catch (IOException e) {
+			logger.warning("listing cache cannot be loaded. " + e);
+			cache.clear();
+		}
+	}
+
+	/**
+	 * キャッシュをファイルに書き出す．
+	 *
+	 * @param file キャッシュファイル
+	 */
+	public void save(Path file) {
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp);
+					DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out))) {
+				dos.writeUTF(extension);
+				Map<Path, Listing> snapshot = Map.copyOf(cache);
+				dos.writeInt(snapshot.size());
+				for(Map.Entry<Path, Listing> e : snapshot.entrySet()) {
+					dos.writeUTF(e.getKey().toString());
+					dos.writeLong(e.getValue().mtime);
+					writePaths(dos, e.getValue().files);
+					writePaths(dos, e.getValue().subdirectories);
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<Path> readPaths(DataInputStream dis, Path dir) throws IOException {
+		int size = dis.readInt();
+		List<Path> paths = new ArrayList<>(size);
+		for(int i = 0; i < size; i++) {
+			paths.add(dir.resolve(dis.readUTF()));
+		}
+		return paths;
+	}
+
+	private static void writePaths(DataOutputStream dos, List<Path> paths) throws IOException {
+		dos.writeInt(paths.size());
+		for(Path path : paths) {
+			dos.writeUTF(path.getFileName().toString());
+		}
+	}
+
+	/**
+	 * @param root ルートディレクトリ
+	 * @param dir ルート以下のディレクトリ
+	 * @return 除外パターンに一致する場合はtrue．ルート自身は除外しない
+	 */
+	public boolean isExcluded(Path root, Path dir) {
+		if(root.equals(dir)) {
+			return false;
+		}
+		Path name = dir.getFileName();
+		if(name != null && nameExcludes.stream().anyMatch(m -> m.matches(name))) {
+			return true;
+		}
+		Path relative = root.relativize(dir);
+		return pathExcludes.stream().anyMatch(m -> m.matches(relative));
+	}
+
+	private Listing list(Path dir) throws IOException {
+		long mtime = Files.getLastModifiedTime(dir).toMillis();
+		Listing cached = cache.get(dir);
+		if(cached != null && cached.mtime == mtime) {
+			return cached;
+		}
+
+		List<Path> files = new ArrayList<>();
+		List<Path> subdirectories = new ArrayList<>();
+		try(DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+			for(Path entry : entries) {
+				String name = entry.getFileName().toString();
+				BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				if(attributes.isDirectory()) {
+					subdirectories.add(entry);
+				} else if(name.endsWith(extension)) {
+					files.add(entry);
+				}
+			}
+		}
+		Listing listing = new Listing(mtime, files, subdirectories);
+		if(System.currentTimeMillis() - mtime > MTIME_GRANULARITY_MILLIS) {
+			cache.put(dir, listing);
+		} else {
+			cache.remove(dir);
+		}
+		return listing;
+	}
+
+	private static final class Listing {
+		final long mtime;
+		final List<Path> files;
+		final List<Path> subdirectories;
+
+		Listing(long mtime, List<Path> files, List<Path> subdirectories) {
+			this.mtime = mtime;
+			this.files = files;
+			this.subdirectories = subdirectories;
+		}
+	}
+
+	private final class Scan extends RecursiveTask<List<Path>> {
+		private static final long serialVersionUID = 1L;
+
+		private final Path root;
+		private final Path dir;
+		// 一覧を読めたディレクトリ
+		private final Set<Path> visited;
+
+		Scan(Path root, Path dir, Set<Path> visited) {
+			this.root = root;
+			this.dir = dir;
+			this.visited = visited;
+		}
+
+		@Override
+		protected List<Path> compute() {
+			Listing listing;
+			try {
+				listing = list(dir);
+			} catch (IOException e) {
+				logger.warning(e.toString());
+				return Collections.emptyList();
+			}
+			visited.add(dir);
+
+			List<Scan> subtasks = listing.subdirectories
+					.stream()
+					.filter(sub -> !isExcluded(root, sub))
+					.map(sub -> new Scan(root, sub, visited))
+					.collect(Collectors.toList());
+			invokeAll(subtasks);
+
+			List<Path> result = new ArrayList<>(listing.files);
+			for(Scan subtask : subtasks) {
+				result.addAll(subtask.join());
+			}
+			return result;
+		}
+	}
+}
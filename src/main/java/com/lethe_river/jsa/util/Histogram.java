@@ -0,0 +1,97 @@
+package com.lethe_river.jsa.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 2のべき乗で区切ったバケットに値を数えるスレッドセーフなヒストグラム．
+ * i番目のバケットは[2^(i-1), 2^i)の値を数える．0番目のバケットは0以下の値を数える．
+ */
+public final class Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * 値を記録する．
+	 *
+	 * @param value 記録する値
+	 */
+	public void record(long value) {
+		buckets.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * 記録された最大値を返す．
+	 *
+	 * @return 最大値．何も記録されていない場合は0
+	 */
+	public long getMax() {
+		return getCount() == 0 ? 0 : max.get();
+	}
+
+	public double getMean() {
+		long c = getCount();
+		return c == 0 ? 0 : (double) getSum() / c;
+	}
+
+	/**
+	 * 指定された割合の値が収まるバケットの上限を返す．
+	 *
+	 * @param ratio 0以上1以下の割合
+	 * @return 値の上限の近似
+	 */
+	public long getPercentile(double ratio) {
+		long c = getCount();
+		if(c == 0) {
+			return 0;
+		}
+		long threshold = (long) Math.ceil(c * ratio);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if(seen >= threshold) {
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	public int getBucketCount() {
+		return BUCKETS;
+	}
+
+	public long getBucket(int index) {
+		return buckets.get(index);
+	}
+
+	/**
+	 * バケットが数える値の上限(この値を含まない)を返す．
+	 *
+	 * @param index バケットの番号
+	 * @return 値の上限
+	 */
+	public static long upperBound(int index) {
+		return index >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << index;
+	}
+
+	private static int bucketOf(long value) {
+		return value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+	}
+}
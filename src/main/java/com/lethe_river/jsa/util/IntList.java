@@ -0,0 +1,87 @@
+package com.lethe_river.jsa.util;
+
+import java.util.Arrays;
+
+/**
+ * intの可変長配列．値を箱に入れないため，大量の整数を少ないメモリで保持できる．
+ * スレッドセーフではない．
+ */
+public final class IntList {
+
+	private int[] values;
+	private int size = 0;
+
+	public IntList() {
+		this(16);
+	}
+
+	public IntList(int capacity) {
+		values = new int[Math.max(capacity, 1)];
+	}
+
+	public void add(int value) {
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	public int get(int index) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		return values[index];
+	}
+
+	public void set(int index, int value) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		values[index] = value;
+	}
+
+	/**
+	 * 末尾の値を取り除いて返す．
+	 *
+	 * @return 末尾の値
+	 */
+	public int removeLast() {
+		if(size == 0) {
+			throw new IndexOutOfBoundsException("empty");
+		}
+		return values[--size];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * 昇順に並べ，重複を除いた配列を返す．
+	 *
+	 * @return 重複のない昇順の配列
+	 */
+	public int[] toSortedSet() {
+		int[] sorted = toArray();
+		Arrays.sort(sorted);
+		int n = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			if(n == 0 || sorted[n - 1] != sorted[i]) {
+				sorted[n++] = sorted[i];
+			}
+		}
+		return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+	}
+}
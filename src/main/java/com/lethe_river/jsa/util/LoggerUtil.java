@@ -4,12 +4,27 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
+/**
+ * ロガーを生成する．
+ * 全てのロガーは実行ごとに1つの{@link AsyncLogHandler}を共有し，ファイルとコンソールへの書き込みは専用のスレッドで行う．
+ * ログファイルはサイズで切り替える．
+ * 以下のシステムプロパティで調整できる．
+ * <ul>
+ * <li>{@code jsa.log.capacity} バッファに積めるログの件数(既定 8192)</li>
+ * <li>{@code jsa.log.policy} バッファが一杯のときの動作．DROPまたはBLOCK(既定 DROP)</li>
+ * <li>{@code jsa.log.limit} ログファイル1つの最大バイト数(既定 8MiB)</li>
+ * <li>{@code jsa.log.count} 切り替えて残すログファイルの数(既定 10)</li>
+ * </ul>
+ */
 public final class LoggerUtil {
 
 	static final String dirPath = "/../log"; // ファイルに書き出すときは指定
@@ -20,36 +35,62 @@ public final class LoggerUtil {
 		Logger logger = Logger.getLogger(clazz.getName());
 
 		logger.setLevel(Level.WARNING);
+		logger.addHandler(SharedHandler.INSTANCE);
+		logger.setUseParentHandlers(false);
+
+		return logger;
+	}
+
+	/**
+	 * 書き込み待ちのログを全て出力する．
+	 */
+	public static void flush() {
+		SharedHandler.INSTANCE.flush();
+	}
+
+	// 最初にロガーを生成したときに1度だけ初期化する
+	private static final class SharedHandler {
+		static final AsyncLogHandler INSTANCE = create();
 
-		if(!dirPath.isEmpty()) {
-			FileHandler fileHandler;
+		private static AsyncLogHandler create() {
+			List<Handler> targets = new ArrayList<>();
+			if(!dirPath.isEmpty()) {
+				try {
+					FileHandler fileHandler = new FileHandler(
+							getPattern(),
+							Integer.getInteger("jsa.log.limit", 8 << 20),
+							Integer.getInteger("jsa.log.count", 10),
+							false);
+					fileHandler.setFormatter(new SimpleFormatter());
+					fileHandler.setEncoding("UTF-8");
+					targets.add(fileHandler);
+				} catch (SecurityException | IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			ConsoleHandler consoleHandler = new ConsoleHandler();
 			try {
-				fileHandler = new FileHandler(getPattern(clazz), 8000, 100, false);
-				fileHandler.setFormatter(new SimpleFormatter());
-				fileHandler.setEncoding("UTF-8");
-				logger.addHandler(fileHandler);
-			} catch (SecurityException | IOException e) {
+				consoleHandler.setEncoding("UTF-8");
+			} catch (SecurityException | UnsupportedEncodingException e) {
 				throw new RuntimeException(e);
 			}
-		}
+			consoleHandler.setFormatter(new SimpleFormatter());
+			consoleHandler.setLevel(Level.WARNING);
+			targets.add(consoleHandler);
 
-		ConsoleHandler consoleHandler = new ConsoleHandler();
-		try {
-			consoleHandler.setEncoding("UTF-8");
-		} catch (SecurityException | UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
+			AsyncLogHandler handler = new AsyncLogHandler(
+					Integer.getInteger("jsa.log.capacity", 8192),
+					AsyncLogHandler.Policy.valueOf(System.getProperty("jsa.log.policy", "DROP")),
+					targets.toArray(new Handler[targets.size()]));
+			// 書き込みスレッドはデーモンなので，終了時に残りを書き出す
+			Runtime.getRuntime().addShutdownHook(new Thread(handler::close, "jsa-log-close"));
+			return handler;
 		}
-		consoleHandler.setFormatter(new SimpleFormatter());
-		consoleHandler.setLevel(Level.WARNING);
-		logger.addHandler(consoleHandler);
-
-		logger.setUseParentHandlers(false);
-
-		return logger;
 	}
 
-	private static String getPattern(Class<?> clazz) {
+	private static String getPattern() {
 		String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-		return FileUtil.getPathOnCurrentEnvironment(".")+dirPath+"/"+clazz.getName()+time+".log";
+		return FileUtil.getPathOnCurrentEnvironment(".")+dirPath+"/jsa"+time+".log";
 	}
 }
@@ -0,0 +1,253 @@
+package com.lethe_river.jsa.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 疎なビット集合．0でない64ビットの語だけを，語の位置の昇順に並べて持つ．
+ * 値の範囲が広く要素が偏る集合を{@link java.util.BitSet}より少ないメモリで表せる．
+ * 和は語の位置の併合で求める．
+ * スレッドセーフではない．
+ */
+public final class SparseBitSet {
+
+	private static final int[] NO_INDICES = new int[0];
+	private static final long[] NO_WORDS = new long[0];
+
+	private int[] indices = NO_INDICES;
+	private long[] words = NO_WORDS;
+	private int size = 0;
+
+	public SparseBitSet() {
+	}
+
+	private SparseBitSet(int[] indices, long[] words, int size) {
+		this.indices = indices;
+		this.words = words;
+		this.size = size;
+	}
+
+	public SparseBitSet copy() {
+		return new SparseBitSet(Arrays.copyOf(indices, size), Arrays.copyOf(words, size), size);
+	}
+
+	// 語の位置を二分探索する．無い場合は挿入位置を負にして返す
+	private int search(int index) {
+		return Arrays.binarySearch(indices, 0, size, index);
+	}
+
+	/**
+	 * @param bit 追加するビット
+	 * @return 新たに追加された場合はtrue
+	 */
+	public boolean add(int bit) {
+		int index = bit >>> 6;
+		long mask = 1L << bit;
+		int i = search(index);
+		if(i >= 0) {
+			if((words[i] & mask) != 0) {
+				return false;
+			}
+			words[i] |= mask;
+			return true;
+		}
+		i = -i - 1;
+		if(size == indices.length) {
+			int capacity = Math.max(2, size * 2);
+			indices = Arrays.copyOf(indices, capacity);
+			words = Arrays.copyOf(words, capacity);
+		}
+		System.arraycopy(indices, i, indices, i + 1, size - i);
+		System.arraycopy(words, i, words, i + 1, size - i);
+		indices[i] = index;
+		words[i] = mask;
+		size++;
+		return true;
+	}
+
+	public boolean contains(int bit) {
+		int i = search(bit >>> 6);
+		return i >= 0 && (words[i] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * @param other 加える集合
+	 * @return 要素が増えた場合はtrue
+	 */
+	public boolean addAll(SparseBitSet other) {
+		return addAll(other, null);
+	}
+
+	/**
+	 * 集合を加え，新たに加わった要素を{@code added}にも加える．
+	 *
+	 * @param other 加える集合
+	 * @param added 新たに加わった要素を加える集合．nullの場合は何もしない
+	 * @return 要素が増えた場合はtrue
+	 */
+	public boolean addAll(SparseBitSet other, SparseBitSet added) {
+		if(other == this || other.size == 0) {
+			return false;
+		}
+
+		// 語の位置が全て既にあれば，その場で更新できる
+		int missing = 0;
+		for(int i = 0, j = 0; j < other.size; ) {
+			if(i == size || indices[i] > other.indices[j]) {
+				missing++;
+				j++;
+			} else if(indices[i] < other.indices[j]) {
+				i++;
+			} else {
+				i++;
+				j++;
+			}
+		}
+
+		boolean changed = false;
+		if(missing == 0) {
+			for(int i = 0, j = 0; j < other.size; i++) {
+				if(indices[i] != other.indices[j]) {
+					continue;
+				}
+				long diff = other.words[j] & ~words[i];
+				if(diff != 0) {
+					words[i] |= diff;
+					changed = true;
+					if(added != null) {
+						added.orWord(indices[i], diff);
+					}
+				}
+				j++;
+			}
+			return changed;
+		}
+
+		int length = size + missing;
+		int[] mergedIndices = new int[length];
+		long[] mergedWords = new long[length];
+		int i = 0;
+		int j = 0;
+		for(int k = 0; k < length; k++) {
+			if(j == other.size || (i < size && indices[i] < other.indices[j])) {
+				mergedIndices[k] = indices[i];
+				mergedWords[k] = words[i++];
+				continue;
+			}
+			int index = other.indices[j];
+			long diff = other.words[j++];
+			long word = 0;
+			if(i < size && indices[i] == index) {
+				word = words[i++];
+				diff &= ~word;
+			}
+			mergedIndices[k] = index;
+			mergedWords[k] = word | diff;
+			if(added != null && diff != 0) {
+				added.orWord(index, diff);
+			}
+		}
+		indices = mergedIndices;
+		words = mergedWords;
+		size = length;
+		return true;
+	}
+
+	// 末尾に加えることが多いので，末尾から探す
+	private void orWord(int index, long word) {
+		if(size > 0 && indices[size - 1] == index) {
+			words[size - 1] |= word;
+			return;
+		}
+		if(size == 0 || indices[size - 1] < index) {
+			if(size == indices.length) {
+				int capacity = Math.max(2, size * 2);
+				indices = Arrays.copyOf(indices, capacity);
+				words = Arrays.copyOf(words, capacity);
+			}
+			indices[size] = index;
+			words[size++] = word;
+			return;
+		}
+		int i = search(index);
+		if(i >= 0) {
+			words[i] |= word;
+			return;
+		}
+		add(index << 6);
+		words[-i - 1] = word;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int cardinality() {
+		int count = 0;
+		for(int i = 0; i < size; i++) {
+			count += Long.bitCount(words[i]);
+		}
+		return count;
+	}
+
+	public void clear() {
+		indices = NO_INDICES;
+		words = NO_WORDS;
+		size = 0;
+	}
+
+	/**
+	 * @param action 要素ごとに昇順に呼ぶ処理
+	 */
+	public void forEach(IntConsumer action) {
+		for(int i = 0; i < size; i++) {
+			int base = indices[i] << 6;
+			for(long word = words[i]; word != 0; word &= word - 1) {
+				action.accept(base + Long.numberOfTrailingZeros(word));
+			}
+		}
+	}
+
+	/**
+	 * @return 要素(昇順)
+	 */
+	public int[] toArray() {
+		int[] result = new int[cardinality()];
+		int n = 0;
+		for(int i = 0; i < size; i++) {
+			int base = indices[i] << 6;
+			for(long word = words[i]; word != 0; word &= word - 1) {
+				result[n++] = base + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) {
+			return true;
+		}
+		if(!(obj instanceof SparseBitSet)) {
+			return false;
+		}
+		SparseBitSet other = (SparseBitSet) obj;
+		return Arrays.equals(indices, 0, size, other.indices, 0, other.size)
+				&& Arrays.equals(words, 0, size, other.words, 0, other.size);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for(int i = 0; i < size; i++) {
+			hash = 31 * hash + indices[i];
+			hash = 31 * hash + Long.hashCode(words[i]);
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -0,0 +1,154 @@
+package com.lethe_river.jsa.watch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.lethe_river.jsa.sink.MethodRecord;
+
+/**
+ * 2回の解析の間のメソッドの差分．
+ * メソッドは宣言している型，名前，記述子で識別する．行番号だけの変化は差分に含めない．
+ */
+public final class MethodDelta {
+
+	/**
+	 * 記述子が変化したメソッド
+	 */
+	public static final class Change {
+		private final MethodRecord before;
+		private final MethodRecord after;
+
+		Change(MethodRecord before, MethodRecord after) {
+			this.before = before;
+			this.after = after;
+		}
+
+		public MethodRecord getBefore() {
+			return before;
+		}
+
+		public MethodRecord getAfter() {
+			return after;
+		}
+
+		@Override
+		public String toString() {
+			return before + " -> " + after.getSignature();
+		}
+	}
+
+	private final List<MethodRecord> added;
+	private final List<MethodRecord> removed;
+	private final List<Change> changed;
+
+	private MethodDelta(List<MethodRecord> added, List<MethodRecord> removed, List<Change> changed) {
+		this.added = Collections.unmodifiableList(added);
+		this.removed = Collections.unmodifiableList(removed);
+		this.changed = Collections.unmodifiableList(changed);
+	}
+
+	public List<MethodRecord> getAdded() {
+		return added;
+	}
+
+	public List<MethodRecord> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * 同じ型の同じ名前のメソッドで，記述子が変化したものを返す．
+	 * 同名のメソッドが複数追加，削除された場合は出現順に対応づける．
+	 *
+	 * @return 記述子が変化したメソッド
+	 */
+	public List<Change> getChanged() {
+		return changed;
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/**
+	 * ファイルごとの解析結果を比較して差分を求める．
+	 *
+	 * @param before 前回の結果
+	 * @param after 今回の結果
+	 * @return 差分
+	 */
+	public static MethodDelta compute(Map<String, List<MethodRecord>> before, Map<String, List<MethodRecord>> after) {
+		Map<List<String>, MethodRecord> old = new LinkedHashMap<>();
+		Map<List<String>, MethodRecord> now = new LinkedHashMap<>();
+
+		Set<String> files = new LinkedHashSet<>(before.keySet());
+		files.addAll(after.keySet());
+		for(String file : files) {
+			List<MethodRecord> b = before.getOrDefault(file, Collections.emptyList());
+			List<MethodRecord> a = after.getOrDefault(file, Collections.emptyList());
+			if(b == a) {
+				continue;
+			}
+			b.forEach(r -> old.put(key(r), r));
+			a.forEach(r -> now.put(key(r), r));
+		}
+
+		// ファイル間を移動したメソッドは変化していない
+		Map<List<String>, Deque<MethodRecord>> removedByName = new HashMap<>();
+		for(Map.Entry<List<String>, MethodRecord> e : old.entrySet()) {
+			if(!now.containsKey(e.getKey())) {
+				removedByName.computeIfAbsent(nameKey(e.getValue()), k -> new ArrayDeque<>()).add(e.getValue());
+			}
+		}
+
+		List<MethodRecord> added = new ArrayList<>();
+		List<Change> changed = new ArrayList<>();
+		for(Map.Entry<List<String>, MethodRecord> e : now.entrySet()) {
+			if(old.containsKey(e.getKey())) {
+				continue;
+			}
+			Deque<MethodRecord> candidates = removedByName.get(nameKey(e.getValue()));
+			if(candidates != null && !candidates.isEmpty()) {
+				changed.add(new Change(candidates.poll(), e.getValue()));
+			} else {
+				added.add(e.getValue());
+			}
+		}
+
+		List<MethodRecord> removed = new ArrayList<>();
+		removedByName.values().forEach(removed::addAll);
+		return new MethodDelta(added, removed, changed);
+	}
+
+	private static List<String> key(MethodRecord record) {
+		return List.of(record.getDeclaringType(), record.getName(), record.getDescriptor());
+	}
+
+	private static List<String> nameKey(MethodRecord record) {
+		return List.of(record.getDeclaringType(), record.getName());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		append(sb, "+ ", added);
+		append(sb, "- ", removed);
+		append(sb, "* ", changed);
+		return sb.toString();
+	}
+
+	private static void append(StringBuilder sb, String prefix, Collection<?> items) {
+		for(Object item : items) {
+			sb.append(prefix).append(Objects.toString(item)).append(System.lineSeparator());
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.lethe_river.jsa.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.lethe_river.jsa.MethodDeclVisitor;
+import com.lethe_river.jsa.SourceProcessor;
+import com.lethe_river.jsa.cache.AnalysisCache;
+import com.lethe_river.jsa.sink.MethodRecord;
+import com.lethe_river.jsa.util.FileFinder;
+import com.lethe_river.jsa.util.LoggerUtil;
+
+/**
+ * ソースディレクトリの変更を監視し，変更のたびにメソッドの差分を通知する．
+ * 連続した変更は一定時間静かになるまでまとめてから解析する．
+ * 解析には{@link AnalysisCache}を使うため，変化したファイルとそれに依存するファイルだけが再解析される．
+ * ソースの探索で除外するディレクトリは監視しない．
+ */
+public class SourceWatcher implements Closeable {
+	private static final Logger logger = LoggerUtil.getLogger(SourceWatcher.class);
+
+	private static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+	private final SourceProcessor processor;
+	private final Consumer<? super MethodDelta> listener;
+	private final long debounceMillis;
+
+	private final WatchService watchService;
+	// 除外するディレクトリの判定だけに使う
+	private final FileFinder excludes;
+	// 監視しているディレクトリ．監視スレッドだけが触る
+	private final Set<Path> watched = new HashSet<>();
+	private final AnalysisCache cache = AnalysisCache.inMemory();
+	// 解析からスナップショットの更新，通知までを1つずつ行う
+	private final Object refreshLock = new Object();
+	private Map<String, List<MethodRecord>> snapshot;
+
+	private Thread thread = null;
+
+	public SourceWatcher(SourceProcessor processor, Consumer<? super MethodDelta> listener) {
+		this(processor, listener, DEFAULT_DEBOUNCE_MILLIS);
+	}
+
+	/**
+	 * @param processor 監視するソースディレクトリを持つSourceProcessor
+	 * @param listener 差分の通知先
+	 * @param debounceMillis この時間だけ変更がなければ解析を始める
+	 */
+	public SourceWatcher(SourceProcessor processor, Consumer<? super MethodDelta> listener, long debounceMillis) {
+		this.processor = processor;
+		this.listener = listener;
+		this.debounceMillis = debounceMillis;
+		this.excludes = new FileFinder(".java", processor.getSourceExcludes());
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			for(Path root : processor.getSourceDirectories()) {
+				registerAll(root, root);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.snapshot = processor.processSources(MethodDeclVisitor.analysis(), cache);
+	}
+
+	/**
+	 * 現在のメソッドの一覧を返す．
+	 *
+	 * @return ソースファイルのパスからメソッドへのマップ
+	 */
+	public synchronized Map<String, List<MethodRecord>> getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * 別スレッドで監視を始める．
+	 */
+	public synchronized void start() {
+		if(thread != null) {
+			return;
+		}
+		thread = new Thread(() -> {
+			try {
+				while(true) {
+					if(awaitChanges()) {
+						// ファイルが探索と読み込みの間に消えた場合なども，監視は続ける
+						try {
+							refresh();
+						} catch (RuntimeException e) {
+							logger.warning("refresh failed. " + e);
+						}
+					}
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				// 終了
+			}
+		}, "jsa-watch");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+		Thread t;
+		synchronized (this) {
+			t = thread;
+		}
+		if(t != null) {
+			t.interrupt();
+		}
+	}
+
+	/**
+	 * 変更があるまで待ち，変更が静まるまで続く変更をまとめて読み捨てる．
+	 *
+	 * @return ソースに関係する変更があった場合はtrue
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	boolean awaitChanges() throws InterruptedException {
+		boolean relevant = handle(watchService.take());
+		WatchKey key;
+		while((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+			relevant |= handle(key);
+		}
+		return relevant;
+	}
+
+	/**
+	 * 解析し直して，前回からの差分を通知する．
+	 * 複数のスレッドから呼ばれた場合は1つずつ処理するため，差分は呼ばれた順に通知される．
+	 *
+	 * @return 差分
+	 */
+	public MethodDelta refresh() {
+		synchronized (refreshLock) {
+			Map<String, List<MethodRecord>> next = processor.processSources(MethodDeclVisitor.analysis(), cache);
+			MethodDelta delta;
+			synchronized (this) {
+				delta = MethodDelta.compute(snapshot, next);
+				snapshot = next;
+			}
+			if(!delta.isEmpty()) {
+				listener.accept(delta);
+			}
+			return delta;
+		}
+	}
+
+	private boolean handle(WatchKey key) {
+		boolean relevant = false;
+		Path dir = (Path) key.watchable();
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind() == OVERFLOW) {
+				relevant = true;
+				continue;
+			}
+			Path path = dir.resolve((Path) event.context());
+			if(event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+				Path root = rootOf(path);
+				if(root != null && !excludes.isExcluded(root, path)) {
+					try {
+						registerAll(root, path);
+					} catch (IOException e) {
+						logger.warning(e.toString());
+					}
+					relevant = true;
+				}
+			} else if(path.getFileName().toString().endsWith(".java")) {
+				relevant = true;
+			} else if(event.kind() == ENTRY_DELETE && watched.remove(path)) {
+				// 監視していたディレクトリが消えた
+				relevant = true;
+			}
+		}
+		key.reset();
+		return relevant;
+	}
+
+	private Path rootOf(Path path) {
+		for(Path root : processor.getSourceDirectories()) {
+			if(path.startsWith(root)) {
+				return root;
+			}
+		}
+		return null;
+	}
+
+	// startとその下の除外されないディレクトリを監視する
+	private void registerAll(Path root, Path start) throws IOException {
+		Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if(excludes.isExcluded(root, dir)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+				watched.add(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -1,25 +1,1281 @@
 package com.lethe_river.jsa;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.ToolProvider;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
-import com.lethe_river.jsa.util.FileUtil;
+import com.lethe_river.jsa.cache.AnalysisCache;
+import com.lethe_river.jsa.cache.CacheableAnalysis;
+import com.lethe_river.jsa.callgraph.CallGraph;
+import com.lethe_river.jsa.callgraph.CallGraphBuilder;
+import com.lethe_river.jsa.callgraph.CallerIndex;
+import com.lethe_river.jsa.callgraph.DeadCodeReport;
+import com.lethe_river.jsa.callgraph.EntryPoints;
+import com.lethe_river.jsa.cfg.ControlFlowGraph;
+import com.lethe_river.jsa.cfg.ControlFlowGraphs;
+import com.lethe_river.jsa.dataflow.DataflowResult;
+import com.lethe_river.jsa.dataflow.DataflowSolver;
+import com.lethe_river.jsa.dataflow.DefiniteAssignment;
+import com.lethe_river.jsa.dataflow.LiveVariables;
+import com.lethe_river.jsa.dataflow.LocalFacts;
+import com.lethe_river.jsa.dataflow.ReachingDefinitions;
+import com.lethe_river.jsa.datalog.Database;
+import com.lethe_river.jsa.datalog.Evaluator;
+import com.lethe_river.jsa.datalog.FactExtractor;
+import com.lethe_river.jsa.datalog.Program;
+import com.lethe_river.jsa.hierarchy.TypeHierarchy;
+import com.lethe_river.jsa.hierarchy.TypeInfo;
+import com.lethe_river.jsa.instrument.FileParseEvent;
+import com.lethe_river.jsa.instrument.MethodDeclEvent;
+import com.lethe_river.jsa.instrument.ProcessListener;
+import com.lethe_river.jsa.instrument.ProcessProfiler;
+import com.lethe_river.jsa.instrument.UnresolvedBindingCounter;
+import com.lethe_river.jsa.instrument.VisitorEvent;
+import com.lethe_river.jsa.library.ClassIndex;
+import com.lethe_river.jsa.metrics.MetricsListener;
+import com.lethe_river.jsa.metrics.MetricsRegistry;
+import com.lethe_river.jsa.pointsto.PointsTo;
+import com.lethe_river.jsa.pointsto.PointsToAnalysis;
+import com.lethe_river.jsa.server.AnalysisClient;
+import com.lethe_river.jsa.server.AnalysisRequest;
+import com.lethe_river.jsa.server.AnalysisServer;
+import com.lethe_river.jsa.sink.BinaryMethodWriter;
+import com.lethe_river.jsa.sink.CollectingSink;
+import com.lethe_river.jsa.sink.MethodInventory;
+import com.lethe_river.jsa.sink.MethodRecord;
+import com.lethe_river.jsa.util.AsyncLogHandler;
+import com.lethe_river.jsa.util.FileFinder;
+import com.lethe_river.jsa.watch.MethodDelta;
+import com.lethe_river.jsa.watch.SourceWatcher;
 
 public class AllTest {
+
+	// テストの後で消す一時ディレクトリ
+	private final List<Path> temporaries = new ArrayList<>();
+
+	@AfterEach
+	public void deleteTemporaries() throws IOException {
+		for(Path dir : temporaries) {
+			try(Stream<Path> paths = Files.walk(dir)) {
+				for(Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+					Files.delete(p);
+				}
+			}
+		}
+		temporaries.clear();
+	}
+
+	private Path tempDirectory() throws IOException {
+		Path dir = Files.createTempDirectory("jsa");
+		temporaries.add(dir);
+		return dir;
+	}
+
+	// 親ディレクトリを作って書き込む
+	private static Path write(Path root, String path, String... lines) throws IOException {
+		Path file = root.resolve(path);
+		Files.createDirectories(file.getParent());
+		return Files.write(file, List.of(lines));
+	}
+
+	private static SourceProcessor sourceProcessor(Path root) {
+		return new SourceProcessor(List.of(root.toString()), List.of());
+	}
+
 	@Test
 	public void jhotdraw8LibraryLoadTest() {
-
-		SourceProcessor src = new SourceProcessor(
-				List.of("./jhotdraw8/src/main/java").stream()
-						.map(FileUtil::getPathOnCurrentEnvironment)
-						.collect(Collectors.toList()),
-				List.<String>of("./jhotdraw8/lib").stream()
-						.map(FileUtil::getPathOnCurrentEnvironment)
-						.collect(Collectors.toList())
-				);
+		SourceProcessor src = TestSources.jhotdraw8();
 
 		src.processSources(new MethodDeclVisitor());
 	}
+
+	@Test
+	public void jhotdraw8ParallelLoadTest() throws IOException {
+		SourceProcessor src = TestSources.jhotdraw8();
+		src.setParallelism(4);
+		ProcessProfiler profiler = new ProcessProfiler();
+		src.addListener(profiler);
+
+		CollectingSink sink = new CollectingSink();
+		src.processSources(() -> new MethodDeclVisitor(sink));
+		assertFalse(sink.getRecords().isEmpty());
+
+		String report = profiler.report();
+		assertTrue(report.startsWith("files: " + profiler.getFileCount() + ","));
+		assertTrue(report.contains("parse+bind (us): count " + profiler.getFileCount() + ","));
+		assertFalse(profiler.getSlowestFiles().isEmpty());
+		assertTrue(report.contains(profiler.getSlowestFiles().get(0)));
+		assertEquals(profiler.getFileCount(), profiler.getParseTimes().getCount());
+		assertEquals(profiler.getFileCount(), profiler.getVisitTimes().getCount());
+	}
+
+	@Test
+	public void metricsTest() throws IOException {
+		Path root = tempDirectory();
+		Path a = write(root, "p/A.java", "package p;", "public class A { void foo() {} }");
+		Path b = write(root, "p/B.java", "package p;", "class B extends A {}");
+		long bytes = Files.size(a) + Files.size(b);
+
+		SourceProcessor src = sourceProcessor(root);
+		MetricsRegistry registry = new MetricsRegistry();
+		Path reports = tempDirectory();
+		src.addListener(new MetricsListener(registry, reports));
+		src.processSources(new MethodDeclVisitor(new CollectingSink(), registry));
+
+		assertEquals(2, registry.counter("jsa_sources_discovered_total", "").get());
+		assertEquals(0, registry.counter("jsa_libraries_discovered_total", "").get());
+		assertEquals(2, registry.counter("jsa_files_parsed_total", "").get());
+		assertEquals(bytes, registry.counter("jsa_source_bytes_read_total", "").get());
+		assertEquals(0, registry.counter("jsa_unresolved_names_total", "").get());
+		assertEquals(1, registry.counter("jsa_runs_total", "").get());
+		assertEquals(2, registry.histogram("jsa_parse_bind_nanoseconds", "").getCount());
+		assertEquals(2, registry.histogram("jsa_visit_nanoseconds", "").getCount());
+		assertEquals(1, registry.histogram("jsa_run_nanoseconds", "").getCount());
+		assertEquals(1, registry.counter("jsa_methods_emitted_total", "").get());
+		assertEquals(0, registry.counter("jsa_unresolved_method_bindings_total", "").get());
+
+		// 報告は解析が終わるたびに書き直す．記録先を指定しないVisitorは数えない
+		src.processSources(new MethodDeclVisitor(new CollectingSink()));
+		assertEquals(4, registry.counter("jsa_files_parsed_total", "").get());
+		assertEquals(1, registry.counter("jsa_methods_emitted_total", "").get());
+		assertEquals(0, MetricsRegistry.getDefault().counter("jsa_methods_emitted_total", "").get());
+		List<String> prometheus = Files.readAllLines(reports.resolve(MetricsListener.PROMETHEUS_REPORT));
+		assertTrue(prometheus.contains("jsa_files_parsed_total 4"));
+		assertTrue(prometheus.contains("jsa_runs_total 2"));
+		assertTrue(prometheus.contains("jsa_parse_bind_nanoseconds_count 4"));
+		assertTrue(prometheus.contains("jsa_methods_emitted_total 1"));
+		List<String> json = Files.readAllLines(reports.resolve(MetricsListener.JSON_REPORT));
+		assertTrue(json.contains("    \"jsa_files_parsed_total\": 4,"));
+	}
+
+	@Test
+	public void jhotdraw8IncrementalTest() throws IOException {
+		// ファイルを変更するため，コピーを解析する
+		Path root = tempDirectory();
+		Path original = Paths.get(TestSources.jhotdraw8Sources());
+		try(Stream<Path> files = Files.walk(original)) {
+			for(Path file : (Iterable<Path>) files::iterator) {
+				Path copy = root.resolve(original.relativize(file).toString());
+				if(Files.isDirectory(file)) {
+					Files.createDirectories(copy);
+				} else {
+					Files.copy(file, copy);
+				}
+			}
+		}
+		SourceProcessor src = new SourceProcessor(List.of(root.toString()), List.of(TestSources.jhotdraw8Libraries()));
+		Path cacheFile = tempDirectory().resolve("methods.cache");
+
+		AtomicInteger parsed = new AtomicInteger();
+		CacheableAnalysis<MethodRecord> analysis = new CacheableAnalysis<MethodRecord>() {
+			@Override
+			public String getName() {
+				return MethodDeclVisitor.analysis().getName();
+			}
+
+			@Override
+			public ASTVisitor createVisitor(Consumer<? super MethodRecord> emitter) {
+				parsed.incrementAndGet();
+				return MethodDeclVisitor.analysis().createVisitor(emitter);
+			}
+		};
+
+		Map<String, List<MethodRecord>> first = src.processSources(analysis, AnalysisCache.load(cacheFile));
+		assertEquals(first.size(), parsed.getAndSet(0));
+
+		Map<String, List<MethodRecord>> second = src.processSources(analysis, AnalysisCache.load(cacheFile));
+		assertEquals(0, parsed.get());
+		assertEquals(first, second);
+
+		// 変更したファイルと，それが宣言する型を参照するファイルだけを再解析する
+		Path geom = root.resolve("org/jhotdraw8/geom/Geom.java");
+		String text = new String(Files.readAllBytes(geom), StandardCharsets.UTF_8);
+		int end = text.lastIndexOf('}');
+		Files.write(geom, (text.substring(0, end) + "public static void added() {}\n}\n").getBytes(StandardCharsets.UTF_8));
+		Map<String, List<MethodRecord>> changed = src.processSources(analysis, AnalysisCache.load(cacheFile));
+		assertTrue(parsed.get() > 1);
+		assertTrue(parsed.getAndSet(0) < first.size());
+		assertTrue(changed.get(geom.toString()).stream().anyMatch(r -> r.toString().equals("org.jhotdraw8.geom.Geom#added()V")));
+
+		// 解決できなかった名前で新しい型を参照していたファイルも再解析する
+		Path user = write(root, "org/jhotdraw8/geom/AddedUser.java",
+				"package org.jhotdraw8.geom;",
+				"class AddedUser { Added get() { return null; } }");
+		Map<String, List<MethodRecord>> unresolved = src.processSources(analysis, AnalysisCache.load(cacheFile));
+		assertEquals(1, parsed.getAndSet(0));
+		assertEquals(first.size() + 1, unresolved.size());
+
+		write(root, "org/jhotdraw8/geom/Added.java",
+				"package org.jhotdraw8.geom;",
+				"class Added {}");
+		Map<String, List<MethodRecord>> added = src.processSources(analysis, AnalysisCache.load(cacheFile));
+		assertEquals(2, parsed.getAndSet(0));
+		assertEquals(List.of("org.jhotdraw8.geom.AddedUser#get()Lorg.jhotdraw8.geom.Added;"),
+				added.get(user.toString()).stream().map(MethodRecord::toString).collect(Collectors.toList()));
+		assertEquals(src.processSources(analysis, AnalysisCache.inMemory()), added);
+	}
+
+	@Test
+	public void jhotdraw8SignaturesOnlyTest() {
+		SourceProcessor src = TestSources.jhotdraw8();
+
+		CollectingSink full = new CollectingSink();
+		src.processSources(new MethodDeclVisitor(full));
+
+		src.setSignaturesOnly(true);
+		CollectingSink signaturesOnly = new CollectingSink();
+		src.processSources(new MethodDeclVisitor(signaturesOnly));
+
+		// 宣言だけの解析では，メソッド本体の中のローカルクラスと匿名クラスのメソッドだけが欠ける
+		Set<MethodRecord> declared = new HashSet<>(signaturesOnly.getRecords());
+		assertFalse(declared.isEmpty());
+		assertEquals(signaturesOnly.getRecords(),
+				full.getRecords().stream().filter(declared::contains).collect(Collectors.toList()));
+		List<MethodRecord> inBodies = full.getRecords().stream()
+				.filter(r -> !declared.contains(r))
+				.collect(Collectors.toList());
+		assertFalse(inBodies.isEmpty());
+		// バイナリ名を得られないローカルクラスは単純名になる
+		assertTrue(inBodies.stream().allMatch(r -> r.getDeclaringType().matches(".*\\$[0-9].*|[^.]*")));
+	}
+
+	@Test
+	public void localClassTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/A.java",
+				"package p;",
+				"class A {",
+				"  void outer() { new Runnable() { public void run() {} }; class Local { void inLocal() {} } }",
+				"}");
+		SourceProcessor src = sourceProcessor(root);
+
+		CollectingSink full = new CollectingSink();
+		src.processSources(new MethodDeclVisitor(full));
+		assertEquals(List.of("p.A#outer()V", "p.A$1#run()V", "p.A$1$Local#inLocal()V"),
+				full.getRecords().stream().map(MethodRecord::toString).collect(Collectors.toList()));
+
+		src.setSignaturesOnly(true);
+		CollectingSink signaturesOnly = new CollectingSink();
+		src.processSources(new MethodDeclVisitor(signaturesOnly));
+		assertEquals(List.of("p.A#outer()V"),
+				signaturesOnly.getRecords().stream().map(MethodRecord::toString).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void jhotdraw8CompositeTest() {
+		SourceProcessor src = TestSources.jhotdraw8();
+
+		CollectingSink single = new CollectingSink();
+		src.processSources(new MethodDeclVisitor(single));
+
+		// 宣言を集めるVisitorと束縛を数えるVisitorを同時に実行する
+		CollectingSink fused = new CollectingSink();
+		UnresolvedBindingCounter counter = new UnresolvedBindingCounter();
+		src.processSources(new CompositeVisitor(new MethodDeclVisitor(fused), counter));
+
+		assertFalse(single.getRecords().isEmpty());
+		assertEquals(single.getRecords(), fused.getRecords());
+		assertTrue(counter.getCount() > 0);
+	}
+
+	@Test
+	public void jhotdraw8DiscoveryTest() throws IOException {
+		List<Path> roots = List.of(Paths.get(TestSources.jhotdraw8Sources()));
+
+		FileFinder finder = new FileFinder(".java", FileFinder.DEFAULT_EXCLUDES);
+		List<Path> first = finder.find(roots);
+		assertFalse(first.isEmpty());
+		assertTrue(first.stream().allMatch(p -> p.getFileName().toString().endsWith(".java")));
+
+		Path cacheFile = tempDirectory().resolve("files.idx");
+		finder.save(cacheFile);
+		FileFinder reloaded = new FileFinder(".java", FileFinder.DEFAULT_EXCLUDES);
+		reloaded.load(cacheFile);
+		assertEquals(first, reloaded.find(roots));
+
+		FileFinder excluding = new FileFinder(".java", List.of("org/jhotdraw8/geom"));
+		assertTrue(excluding.find(roots).size() < first.size());
+	}
+
+	@Test
+	public void discoveryTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/A.java", "package p; class A {}");
+		write(root, "q/r/B.java", "package q.r; class B {}");
+		write(root, "target/C.java", "class C {}");
+		// 更新直後のディレクトリはキャッシュしないので，更新時刻を古くする
+		FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+		for(String dir : List.of("q/r", "q", "p", "target", "")) {
+			Files.setLastModifiedTime(root.resolve(dir), old);
+		}
+
+		FileFinder finder = new FileFinder(".java", FileFinder.DEFAULT_EXCLUDES);
+		assertEquals(List.of(root.resolve("p/A.java"), root.resolve("q/r/B.java")), finder.find(List.of(root)));
+		assertEquals(4, finder.getCacheSize());
+
+		Files.delete(root.resolve("q/r/B.java"));
+		Files.delete(root.resolve("q/r"));
+		Files.delete(root.resolve("q"));
+		Files.setLastModifiedTime(root, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+		assertEquals(List.of(root.resolve("p/A.java")), finder.find(List.of(root)));
+		assertEquals(2, finder.getCacheSize());
+
+		// ライブラリにはソースの除外を適用しない
+		Path libraries = tempDirectory();
+		Path jar = Files.createDirectories(libraries.resolve("target")).resolve("lib.jar");
+		new JarOutputStream(Files.newOutputStream(jar)).close();
+		SourceProcessor src = new SourceProcessor(List.of(root.toString()), List.of(libraries.toString()));
+		int[] found = new int[2];
+		src.addListener(new ProcessListener() {
+			@Override
+			public void discoveryFinished(int sources, int libraries, long nanos) {
+				found[0] = sources;
+				found[1] = libraries;
+			}
+		});
+		src.processSources(new MethodDeclVisitor(new CollectingSink()));
+		assertEquals(1, found[0]);
+		assertEquals(1, found[1]);
+	}
+
+	@Test
+	public void jhotdraw8ClassIndexTest() throws IOException {
+		String[] jars = new FileFinder(".jar", FileFinder.DEFAULT_EXCLUDES)
+				.find(List.of(Paths.get(TestSources.jhotdraw8Libraries())))
+				.stream()
+				.map(Path::toString)
+				.toArray(String[]::new);
+		String[] sources = new FileFinder(".java", FileFinder.DEFAULT_EXCLUDES)
+				.find(List.of(Paths.get(TestSources.jhotdraw8Sources())))
+				.stream()
+				.map(Path::toString)
+				.toArray(String[]::new);
+
+		Path indexFile = tempDirectory().resolve("classes.idx");
+
+		ClassIndex index = ClassIndex.update(indexFile, jars);
+		assertTrue(index.getClassCount() > 0);
+		assertTrue(index.lookup("org.apache.xml.resolver.Catalog").getJar().endsWith("xml-resolver-1.2.jar"));
+		assertNull(index.lookup("org.jhotdraw8.app.Application"));
+
+		ClassIndex reopened = ClassIndex.update(indexFile, jars);
+		assertEquals(index.getClassCount(), reopened.getClassCount());
+		assertEquals(
+				index.lookup("org.apache.xml.resolver.Catalog").getEntryOffset(),
+				reopened.lookup("org.apache.xml.resolver.Catalog").getEntryOffset());
+
+		// jhotdraw8はドキュメント生成用のjarを参照しない
+		assertEquals(0, reopened.prune(sources).length);
+
+		// jarを除いても解決できない名前は増えない
+		SourceProcessor src = TestSources.jhotdraw8();
+		src.setLibraryIndex(indexFile, false);
+		UnresolvedBindingCounter all = new UnresolvedBindingCounter();
+		src.processSources(all);
+		src.setLibraryIndex(indexFile, true);
+		UnresolvedBindingCounter pruned = new UnresolvedBindingCounter();
+		src.processSources(pruned);
+		assertEquals(all.getCount(), pruned.getCount());
+	}
+
+	@Test
+	public void classIndexPruneTest() throws IOException {
+		Path libraries = tempDirectory();
+		write(libraries, "src/a/A.java", "package a;", "public class A extends b.B { public c.C get() { return null; } }");
+		write(libraries, "src/b/B.java", "package b;", "public class B {}");
+		write(libraries, "src/c/C.java", "package c;", "public class C {}");
+		write(libraries, "src/d/D.java", "package d;", "public class D {}");
+		write(libraries, "src/e/E.java", "package e;", "public class E {}");
+		Path classes = libraries.resolve("classes");
+		List<String> arguments = new ArrayList<>(List.of("-d", classes.toString()));
+		for(String pkg : List.of("a", "b", "c", "d", "e")) {
+			arguments.add(libraries.resolve("src/" + pkg + "/" + pkg.toUpperCase() + ".java").toString());
+		}
+		assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, arguments.toArray(new String[0])));
+		Path lib = Files.createDirectories(libraries.resolve("lib"));
+		String[] jars = new String[5];
+		for(int i = 0; i < jars.length; i++) {
+			String pkg = String.valueOf((char) ('a' + i));
+			Path jar = lib.resolve(pkg + ".jar");
+			try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+				String entry = pkg + "/" + pkg.toUpperCase() + ".class";
+				out.putNextEntry(new JarEntry(entry));
+				out.write(Files.readAllBytes(classes.resolve(entry)));
+			}
+			jars[i] = jar.toString();
+		}
+
+		Path root = tempDirectory();
+		Path main = write(root, "p/Main.java",
+				"package p;",
+				"import a.A;",
+				"class Main {",
+				"  Object o = new A().get();",
+				"  e.E e;",
+				"}");
+		ClassIndex index = ClassIndex.update(tempDirectory().resolve("classes.idx"), jars);
+		// 上位型のb，メソッドの記述子に現れるc，完全修飾名で参照するeを残す
+		assertEquals(List.of(jars[0], jars[1], jars[2], jars[4]), List.of(index.prune(new String[] { main.toString() })));
+
+		SourceProcessor src = new SourceProcessor(List.of(root.toString()), List.of(lib.toString()));
+		src.setLibraryIndex(tempDirectory().resolve("classes.idx"), false);
+		UnresolvedBindingCounter all = new UnresolvedBindingCounter();
+		src.processSources(all);
+		src.setLibraryIndex(tempDirectory().resolve("classes.idx"), true);
+		UnresolvedBindingCounter pruned = new UnresolvedBindingCounter();
+		src.processSources(pruned);
+		assertEquals(all.getCount(), pruned.getCount());
+	}
+
+	@Test
+	public void jhotdraw8DaemonTest() throws IOException {
+		AnalysisRequest request = new AnalysisRequest(
+				List.of(TestSources.jhotdraw8Sources()),
+				List.of(TestSources.jhotdraw8Libraries()),
+				"methods",
+				1);
+
+		Path portFile = tempDirectory().resolve("daemon.port");
+		try(AnalysisServer server = new AnalysisServer()) {
+			server.writePortFile(portFile);
+			server.start();
+
+			List<String> first = new ArrayList<>();
+			AnalysisClient.request(portFile, request, first::add);
+			List<String> second = new ArrayList<>();
+			AnalysisClient.request(portFile, request, second::add);
+
+			assertFalse(first.isEmpty());
+			assertEquals(first, second);
+
+			// トークンを持たない要求は解析されない
+			List<String> rejected = new ArrayList<>();
+			boolean failed = false;
+			try {
+				AnalysisClient.request(server.getPort(), "wrong", request, rejected::add);
+			} catch(IOException e) {
+				failed = e.getMessage().contains("invalid token");
+			}
+			assertTrue(failed);
+			assertTrue(rejected.isEmpty());
+
+			// デーモンの作業ディレクトリから解決されないよう，相対パスは拒否する
+			boolean relative = false;
+			try {
+				AnalysisClient.request(portFile, new AnalysisRequest(List.of("src/main/java"), List.of(), "methods", 1), rejected::add);
+			} catch(IOException e) {
+				relative = e.getMessage().contains("directory must be absolute");
+			}
+			assertTrue(relative);
+
+			// 上限を超えたら最も長く使われていない組を捨てる
+			assertEquals(1, server.getSessionCount());
+			Path root = tempDirectory();
+			write(root, "p/A.java", "package p;", "class A { void foo() {} }");
+			server.setMaxSessions(1);
+			List<String> small = new ArrayList<>();
+			AnalysisClient.request(portFile, new AnalysisRequest(List.of(root.toString()), List.of(), "methods", 1), small::add);
+			assertEquals(List.of("foo()V"), small);
+			assertEquals(1, server.getSessionCount());
+		}
+		assertFalse(Files.exists(portFile));
+
+		boolean unpaired = false;
+		try {
+			AnalysisClient.main(new String[] { "-f", portFile.toString(), "-s" });
+		} catch(IllegalArgumentException e) {
+			unpaired = true;
+		}
+		assertTrue(unpaired);
+	}
+
+	@Test
+	public void binaryInventoryTest() throws IOException {
+		Path dir = tempDirectory();
+		Path file = dir.resolve("methods.bin");
+		Path text = dir.resolve("methods.txt");
+
+		List<MethodRecord> records = List.of(
+				new MethodRecord("a.B", "<init>", "()V", "B.java", 3),
+				new MethodRecord("a.C", "foo", "(ILjava.lang.String;)V", "C.java", 10),
+				new MethodRecord("a.B", "bar", "()I", null, -1),
+				new MethodRecord("a.C$D", "foo", "(ILjava.lang.String;)V", "C.java", 20));
+		try(BinaryMethodWriter writer = BinaryMethodWriter.toFile(file)) {
+			records.forEach(writer::accept);
+		}
+
+		MethodInventory inventory = MethodInventory.open(file);
+		assertEquals(records.size(), inventory.size());
+		for(int i = 0; i < records.size(); i++) {
+			assertEquals(records.get(i), inventory.get(i));
+		}
+		assertEquals(List.of(records.get(0), records.get(2)), inventory.findByDeclaringType("a.B"));
+		assertEquals(List.of(records.get(3)), inventory.findByDeclaringType("a.C$D"));
+		assertTrue(inventory.findByDeclaringType("a.A").isEmpty());
+
+		MethodInventory.toText(file, text);
+		assertEquals(
+				records.stream().map(MethodRecord::getSignature).collect(Collectors.toList()),
+				Files.readAllLines(text));
+	}
+
+	@Test
+	public void asyncLogHandlerTest() throws InterruptedException {
+		List<LogRecord> received = new CopyOnWriteArrayList<>();
+		CountDownLatch release = new CountDownLatch(1);
+		Handler slow = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				received.add(record);
+			}
+			@Override
+			public void flush() {}
+			@Override
+			public void close() {}
+		};
+
+		// 書き込みが止まっていても，バッファが一杯なら捨てて戻る
+		AsyncLogHandler dropping = new AsyncLogHandler(4, AsyncLogHandler.Policy.DROP, slow);
+		for(int i = 0; i < 100; i++) {
+			dropping.publish(new LogRecord(Level.WARNING, "message " + i));
+		}
+		assertTrue(dropping.getDroppedCount() > 0);
+		release.countDown();
+		dropping.close();
+		long delivered = received.stream().filter(r -> r.getMessage().startsWith("message")).count();
+		assertEquals(100, delivered + dropping.getDroppedCount());
+
+		received.clear();
+		AsyncLogHandler blocking = new AsyncLogHandler(4, AsyncLogHandler.Policy.BLOCK, slow);
+		for(int i = 0; i < 100; i++) {
+			blocking.publish(new LogRecord(Level.WARNING, "message " + i));
+		}
+		blocking.flush();
+		assertEquals(0, blocking.getDroppedCount());
+		assertEquals(100, received.size());
+		blocking.close();
+	}
+
+	@Test
+	public void asyncLogHandlerCloseTest() throws InterruptedException {
+		List<String> received = new CopyOnWriteArrayList<>();
+		CountDownLatch release = new CountDownLatch(1);
+		Handler slow = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				received.add(record.getMessage());
+			}
+			@Override
+			public void flush() {}
+			@Override
+			public void close() {}
+		};
+
+		// 書き込みスレッドが1件目で止まり，2件目でバッファが一杯になり，3件目は積めるまで待つ
+		AsyncLogHandler handler = new AsyncLogHandler(1, AsyncLogHandler.Policy.BLOCK, slow);
+		handler.publish(new LogRecord(Level.INFO, "0"));
+		handler.publish(new LogRecord(Level.INFO, "1"));
+		Thread publisher = new Thread(() -> handler.publish(new LogRecord(Level.INFO, "2")));
+		publisher.start();
+		while(publisher.getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+
+		// 閉じ始めた後に積まれたログも，閉じる前に受け付けていれば書き込まれる
+		Thread closer = new Thread(handler::close);
+		closer.start();
+		Thread.sleep(100);
+		release.countDown();
+		closer.join();
+		publisher.join();
+		assertEquals(List.of("0", "1", "2"), received);
+
+		handler.publish(new LogRecord(Level.INFO, "3"));
+		assertEquals(List.of("0", "1", "2"), received);
+
+		// 閉じる直前に捨てたログの件数も，後続のログがなくても書き込まれる
+		AsyncLogHandler dropping = new AsyncLogHandler(1, AsyncLogHandler.Policy.DROP, slow);
+		for(int i = 0; i < 10; i++) {
+			dropping.publish(new LogRecord(Level.INFO, "message " + i));
+		}
+		long dropped = dropping.getDroppedCount();
+		assertTrue(dropped > 0);
+		dropping.close();
+		long reported = received.stream()
+				.filter(m -> m.endsWith(" log records dropped"))
+				.mapToLong(m -> Long.parseLong(m.substring(0, m.indexOf(' '))))
+				.sum();
+		assertEquals(dropped, reported);
+	}
+
+	@Test
+	public void watchTest() throws IOException, InterruptedException {
+		Path root = tempDirectory();
+		Path a = write(root, "p/A.java", "package p;", "public class A {", "  public void foo(int x) {}", "}");
+
+		SourceProcessor src = sourceProcessor(root);
+		BlockingQueue<MethodDelta> deltas = new LinkedBlockingQueue<>();
+		try(SourceWatcher watcher = new SourceWatcher(src, deltas::add, 50)) {
+			assertEquals(1, watcher.getSnapshot().get(a.toString()).size());
+			watcher.start();
+
+			Files.write(a, List.of("package p;", "public class A {", "  public void foo(long x) {}", "  void bar() {}", "}"));
+
+			MethodDelta delta = deltas.poll(30, TimeUnit.SECONDS);
+			assertNotNull(delta);
+			assertEquals(1, delta.getAdded().size());
+			assertEquals("bar()V", delta.getAdded().get(0).getSignature());
+			assertEquals(1, delta.getChanged().size());
+			assertEquals("foo(J)V", delta.getChanged().get(0).getAfter().getSignature());
+			assertTrue(delta.getRemoved().isEmpty());
+		}
+	}
+
+	@Test
+	public void watchRobustnessTest() throws IOException, InterruptedException {
+		Path root = tempDirectory();
+		Path a = write(root, "p/A.java", "package p;", "public class A {", "}");
+		write(root, ".git/HEAD", "ref: refs/heads/master");
+
+		SourceProcessor src = sourceProcessor(root);
+		AtomicInteger runs = new AtomicInteger();
+		src.addListener(new ProcessListener() {
+			@Override
+			public void runFinished(long nanos) {
+				runs.incrementAndGet();
+			}
+		});
+		// 最初の差分の通知で例外を投げる
+		BlockingQueue<MethodDelta> deltas = new LinkedBlockingQueue<>();
+		AtomicInteger notified = new AtomicInteger();
+		Consumer<MethodDelta> listener = delta -> {
+			if(notified.getAndIncrement() == 0) {
+				throw new IllegalStateException("listener failed");
+			}
+			deltas.add(delta);
+		};
+		try(SourceWatcher watcher = new SourceWatcher(src, listener, 50)) {
+			watcher.start();
+
+			// 除外するディレクトリの中の変更と，ソースでないファイルの削除では解析し直さない
+			Path lock = write(root, ".git/index.lock", "");
+			Files.delete(lock);
+			Path other = write(root, "p/notes.txt", "");
+			Files.delete(other);
+			Thread.sleep(500);
+			assertEquals(1, runs.get());
+
+			// 通知先が例外を投げても監視は続く
+			Files.write(a, List.of("package p;", "public class A {", "  void foo() {}", "}"));
+			while(notified.get() == 0) {
+				Thread.sleep(10);
+			}
+			Files.write(a, List.of("package p;", "public class A {", "  void foo() {}", "  void bar() {}", "}"));
+			MethodDelta delta = deltas.poll(30, TimeUnit.SECONDS);
+			assertNotNull(delta);
+			assertEquals("bar()V", delta.getAdded().get(0).getSignature());
+		}
+	}
+
+	@Test
+	public void watchConcurrentRefreshTest() throws IOException, InterruptedException {
+		Path root = tempDirectory();
+		Path a = write(root, "p/A.java", "package p;", "public class A {", "}");
+
+		List<MethodDelta> deltas = new CopyOnWriteArrayList<>();
+		try(SourceWatcher watcher = new SourceWatcher(sourceProcessor(root), deltas::add)) {
+			Files.write(a, List.of("package p;", "public class A {", "  void foo() {}", "}"));
+			// 同時に解析し直しても，同じ差分は1度だけ通知される
+			Thread[] threads = new Thread[4];
+			for(int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread(watcher::refresh);
+				threads[i].start();
+			}
+			for(Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(1, deltas.size());
+			assertEquals("foo()V", deltas.get(0).getAdded().get(0).getSignature());
+			assertEquals(1, watcher.getSnapshot().get(a.toString()).size());
+		}
+	}
+
+	@Test
+	public void flightRecorderTest() throws IOException {
+		Path root = tempDirectory();
+		Path a = write(root, "p/A.java", "package p;", "public class A {", "  public void foo(int x) {}", "  void bar() {}", "}");
+		Path jfr = tempDirectory().resolve("run.jfr");
+
+		SourceProcessor src = sourceProcessor(root);
+		try(Recording recording = new Recording()) {
+			recording.enable(FileParseEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(VisitorEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(MethodDeclEvent.class).withThreshold(Duration.ZERO);
+			recording.start();
+			src.processSources(new MethodDeclVisitor(new CollectingSink()));
+			recording.stop();
+			recording.dump(jfr);
+		}
+
+		Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(jfr).stream()
+				.collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+		assertEquals(1, events.get("com.lethe_river.jsa.FileParse").size());
+		assertEquals(a.toString(), events.get("com.lethe_river.jsa.FileParse").get(0).getString("path"));
+		assertEquals(MethodDeclVisitor.class.getName(), events.get("com.lethe_river.jsa.Visitor").get(0).getString("visitor"));
+		assertEquals(2, events.get("com.lethe_river.jsa.MethodDecl").get(0).getInt("methods"));
+	}
+
+	@Test
+	public void callGraphTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Main.java",
+				"package p;",
+				"interface Shape { double area(); }",
+				"class Circle implements Shape { public double area() { return 1; } }",
+				"class Square implements Shape { public double area() { return helper(); } private double helper() { return 2; } }",
+				"abstract class Base { Base() { init(); } void init() {} }",
+				"class Derived extends Base { void init() {} }",
+				"public class Main {",
+				"  static final Shape S = new Circle();",
+				"  public static void main(String[] args) { S.area(); new Derived(); Runnable r = Main::run; }",
+				"  static void run() {}",
+				"}");
+
+		SourceProcessor src = sourceProcessor(root);
+		CallGraphBuilder builder = new CallGraphBuilder();
+		src.processSources(builder::newVisitor);
+		CallGraph cha = builder.build(CallGraphBuilder.Algorithm.CHA);
+		CallGraph rta = builder.build(CallGraphBuilder.Algorithm.RTA);
+
+		assertEquals(
+				List.of("p.Circle#area()D", "p.Derived#<init>()V", "p.Main#run()V", "p.Shape#area()D", "p.Square#area()D"),
+				callees(cha, "p.Main#main(L[Ljava.lang.String;;)V"));
+		assertEquals(
+				List.of("p.Circle#area()D", "p.Derived#<init>()V", "p.Main#run()V", "p.Shape#area()D"),
+				callees(rta, "p.Main#main(L[Ljava.lang.String;;)V"));
+		assertEquals(List.of("p.Base#<init>()V"), callees(cha, "p.Derived#<init>()V"));
+		assertEquals(List.of("java.lang.Object#<init>()V", "p.Base#init()V", "p.Derived#init()V"),
+				callees(cha, "p.Base#<init>()V"));
+		assertEquals(List.of("p.Circle#<init>()V"), callees(cha, "p.Main#<clinit>()V"));
+		assertTrue(cha.isDeclared(cha.find("p.Square#helper()D")));
+		assertFalse(cha.isDeclared(cha.find("java.lang.Object#<init>()V")));
+	}
+
+	@Test
+	public void callerIndexTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Main.java",
+				"package p;",
+				"abstract class Base { Base() { init(); } void init() {} }",
+				"class Derived extends Base { void init() {} }",
+				"public class Main {",
+				"  public static void main(String[] args) { new Derived(); helper(); }",
+				"  static void helper() {}",
+				"}");
+		CallGraphBuilder builder = new CallGraphBuilder();
+		sourceProcessor(root).processSources(builder::newVisitor);
+		CallGraph cha = builder.build(CallGraphBuilder.Algorithm.CHA);
+
+		Path indexFile = tempDirectory().resolve("callers.idx");
+		CallerIndex written = CallerIndex.write(cha, indexFile);
+		// 書き出した索引と開き直した索引は同じ内容を返す
+		for(CallerIndex index : List.of(written, CallerIndex.open(indexFile))) {
+			assertEquals(cha.getMethodCount(), index.getMethodCount());
+			assertEquals(cha.getEdgeCount(), index.getEdgeCount());
+			assertEquals(List.of("p.Derived#<init>()V"), index.getCallers("p.Base#<init>()V"));
+			assertEquals(List.of("p.Base#<init>()V"), index.getCallers("p.Derived#init()V"));
+			assertEquals(
+					List.of("p.Base#<init>()V", "p.Derived#<init>()V", "p.Main#main(L[Ljava.lang.String;;)V"),
+					index.getTransitiveCallers("p.Derived#init()V"));
+			assertTrue(index.getCallers("p.Unknown#f()V").isEmpty());
+			assertTrue(index.isDeclared(index.find("p.Main#helper()V")));
+			assertFalse(index.isDeclared(index.find("java.lang.Object#<init>()V")));
+			for(int m = 0; m < index.getMethodCount(); m++) {
+				assertEquals(m, index.find(index.getKey(m)));
+			}
+		}
+
+		// 壊れた索引や途中で切れた索引は開けない
+		byte[] bytes = Files.readAllBytes(indexFile);
+		Path broken = tempDirectory().resolve("broken.idx");
+		byte[] wrongMagic = bytes.clone();
+		wrongMagic[0] ^= 1;
+		assertFalse(opens(Files.write(broken, wrongMagic)));
+		for(int length = 0; length < bytes.length; length++) {
+			assertFalse(opens(Files.write(broken, Arrays.copyOf(bytes, length))), "length " + length);
+		}
+		assertFalse(opens(root.resolve("missing.idx")));
+	}
+
+	private static boolean opens(Path indexFile) {
+		try {
+			CallerIndex.open(indexFile);
+			return true;
+		} catch(UncheckedIOException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void pointsToTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Main.java",
+				"package p;",
+				"interface Shape { double area(); }",
+				"class Circle implements Shape { public double area() { return 1; } }",
+				"class Square implements Shape { public double area() { return 2; } }",
+				"class Box { Shape item; Shape get() { return item; } }",
+				"public class Main {",
+				"  static Shape id(Shape s) { return s; }",
+				"  public static void main(String[] args) {",
+				"    Box a = new Box();",
+				"    Box b = new Box();",
+				"    a.item = new Circle();",
+				"    b.item = new Square();",
+				"    Shape x = a.item;",
+				"    x.area();",
+				"    Shape y = id(b.get());",
+				"    Shape p = x; Shape q = p; p = q;",
+				"    many(q, y);",
+				"  }",
+				"  static void many(Shape u, Shape v) { Shape[] all = { u, v }; all[1].area(); }",
+				"  static void library(java.util.List<Shape> list) { list.get(0).area(); }",
+				"}");
+
+		SourceProcessor src = sourceProcessor(root);
+		PointsToAnalysis analysis = new PointsToAnalysis();
+		src.processSources(analysis::newVisitor);
+		PointsTo result = analysis.solve();
+
+		String mainKey = "p.Main#main(L[Ljava.lang.String;;)V";
+		int[] a = result.getPointsTo(mainKey, "a");
+		int[] b = result.getPointsTo(mainKey, "b");
+		assertEquals(1, a.length);
+		assertEquals(1, b.length);
+		assertFalse(a[0] == b[0]);
+		assertEquals("p.Box", result.getObjectType(a[0]));
+		assertTrue(result.getObjectLocation(a[0]).endsWith("Main.java:9"));
+		assertEquals(List.of("p.Circle"), typesOf(result, result.getPointsTo(mainKey, "x")));
+		assertEquals(List.of("p.Square"), typesOf(result, result.getPointsTo(mainKey, "y")));
+		assertEquals(List.of("p.Circle"), typesOf(result, result.getPointsTo(mainKey, "q")));
+		assertTrue(result.getCollapsedCount() > 0);
+		assertEquals(0, result.getPointsTo(mainKey, "none").length);
+
+		CallGraph graph = result.getCallGraph();
+		assertEquals(
+				List.of("p.Box#<init>()V", "p.Box#get()Lp.Shape;", "p.Circle#<init>()V", "p.Circle#area()D",
+						"p.Main#id(Lp.Shape;)Lp.Shape;", "p.Main#many(Lp.Shape;Lp.Shape;)V", "p.Square#<init>()V"),
+				callees(graph, mainKey));
+		assertEquals(List.of("p.Circle#area()D", "p.Square#area()D"),
+				callees(graph, "p.Main#many(Lp.Shape;Lp.Shape;)V"));
+		assertEquals(List.of("java.util.List#get(I)Ljava.util.List$E;", "p.Circle#area()D", "p.Square#area()D"),
+				callees(graph, "p.Main#library(Ljava.util.List;)V"));
+	}
+
+	private static List<String> typesOf(PointsTo result, int[] objects) {
+		return Arrays.stream(objects).mapToObj(result::getObjectType).sorted().collect(Collectors.toList());
+	}
+
+	private static List<String> callees(CallGraph graph, String method) {
+		return Arrays.stream(graph.getCallees(graph.find(method)))
+				.mapToObj(graph::getKey)
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void datalogTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Main.java",
+				"package p;",
+				"interface Shape { double area(); }",
+				"class Base implements Shape { public double area() { return helper(); } double helper() { return 0; } }",
+				"class Sub extends Base { Shape next; public double area() { Shape s = new Base(); next = s; return super.area(); } }",
+				"public class Main {",
+				"  static Shape shape;",
+				"  public static void main(String[] args) { Sub sub = new Sub(); shape = sub; sub.area(); }",
+				"  static void unused() {}",
+				"}");
+
+		SourceProcessor src = sourceProcessor(root);
+		Database database = new Database();
+		FactExtractor extractor = new FactExtractor(database);
+		src.processSources(extractor::newVisitor);
+		assertEquals(List.of(List.of("p.Sub.next", "p.Sub#area()D/s")), database.query("assign").stream()
+				.filter(t -> t.get(0).startsWith("p.Sub")).collect(Collectors.toList()));
+
+		Program program = Program.parse(String.join("\n",
+				"% 推移的な上位型",
+				"supertype(T, S) :- subtype(T, S).",
+				"supertype(T, U) :- supertype(T, S), subtype(S, U).",
+				"overrides(M, N) :- method(M, T, S), supertype(T, U), method(N, U, S).",
+				"reach(M) :- method(M, _, \"main(L[Ljava.lang.String;;)V\").",
+				"reach(N) :- reach(M), call(M, N).",
+				"dead(M) :- method(M, T, _), type(T), !reach(M).",
+				"pointsTo(X, T) :- alloc(X, T).",
+				"pointsTo(X, T) :- assign(X, Y), pointsTo(Y, T)."));
+		assertEquals(5, program.getStratumCount());
+		Evaluator.evaluate(program, database);
+
+		assertTrue(database.query("supertype").contains(List.of("p.Sub", "p.Shape")));
+		assertEquals(List.of("p.Base#area()D", "p.Shape#area()D"), database.query("overrides").stream()
+				.filter(t -> t.get(0).equals("p.Sub#area()D")).map(t -> t.get(1)).sorted().collect(Collectors.toList()));
+		assertEquals(List.of("p.Main#unused()V", "p.Shape#area()D"),
+				database.query("dead").stream().map(t -> t.get(0)).sorted().collect(Collectors.toList()));
+		assertEquals(List.of(List.of("p.Main.shape", "p.Sub")), database.query("pointsTo").stream()
+				.filter(t -> t.get(0).equals("p.Main.shape")).collect(Collectors.toList()));
+		assertEquals(List.of(List.of("p.Sub.next", "p.Base")), database.query("pointsTo").stream()
+				.filter(t -> t.get(0).equals("p.Sub.next")).collect(Collectors.toList()));
+
+		boolean rejected = false;
+		try {
+			Program.parse("p(X) :- q(X), !p(X).");
+		} catch(IllegalArgumentException e) {
+			rejected = true;
+		}
+		assertTrue(rejected);
+	}
+
+	@Test
+	public void deadCodeTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Main.java",
+				"package p;",
+				"public class Main {",
+				"  public static void main(String[] args) { used(); }",
+				"  static void used() {}",
+				"  static void unused() { alsoUnused(); }",
+				"  static void alsoUnused() {}",
+				"  void reflected() {}",
+				"  @Override public String toString() { return \"m\"; }",
+				"  public void api() {}",
+				"}");
+
+		SourceProcessor src = sourceProcessor(root);
+		EntryPoints entryPoints = new EntryPoints();
+		entryPoints.addReflection("p.Main#reflected");
+		DeadCodeReport report = DeadCodeReport.analyze(src, entryPoints, CallGraphBuilder.Algorithm.RTA);
+
+		assertEquals(7, report.getMethodCount());
+		assertEquals(
+				List.of("p.Main#unused()V:5", "p.Main#alsoUnused()V:6", "p.Main#api()V:9"),
+				report.getUnreachable().stream()
+						.map(m -> m + ":" + m.getLine())
+						.collect(Collectors.toList()));
+		assertTrue(report.getUnreachable().get(0).getSourceFile().endsWith("Main.java"));
+
+		entryPoints = new EntryPoints();
+		entryPoints.setPublicApi(true);
+		report = DeadCodeReport.analyze(src, entryPoints, CallGraphBuilder.Algorithm.RTA);
+		assertEquals(
+				List.of("p.Main#unused()V", "p.Main#alsoUnused()V", "p.Main#reflected()V"),
+				report.getUnreachable().stream()
+						.map(MethodRecord::toString)
+						.collect(Collectors.toList()));
+	}
+
+	@Test
+	public void controlFlowTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Flow.java",
+				"package p;",
+				"class Flow {",
+				"  int loop(int[] a) {",
+				"    int s = 0;",
+				"    outer:",
+				"    for (int i = 0; i < a.length; i++) {",
+				"      for (int x : a) {",
+				"        if (x < 0) continue outer;",
+				"        if (x == 0) break outer;",
+				"        s += x;",
+				"      }",
+				"    }",
+				"    return s;",
+				"  }",
+				"  int guarded() {",
+				"    try { return 1; } catch (RuntimeException e) { return 2; } finally { System.out.println(); }",
+				"  }",
+				"  Runnable lambda() { return () -> { int y = 0; }; }",
+				"  int caught() {",
+				"    int x;",
+				"    try { x = g(); h2(); } catch (RuntimeException e) { return 1; }",
+				"    return 0;",
+				"  }",
+				"  int g() { return 1; }",
+				"  void h2() {}",
+				"}");
+
+		ControlFlowGraphs graphs = new ControlFlowGraphs();
+		Map<String, ControlFlowGraph> byName = new ConcurrentHashMap<>();
+		SourceProcessor src = sourceProcessor(root);
+		src.processSources(new ASTVisitor() {
+			@Override
+			public boolean visit(CompilationUnit node) {
+				for(ControlFlowGraph graph : graphs.buildAll(node)) {
+					byName.put(((MethodDeclaration) graph.getOwner()).getName().getIdentifier(), graph);
+				}
+				return false;
+			}
+		});
+		assertEquals(6, byName.size());
+		assertEquals(7, graphs.size());
+
+		for(ControlFlowGraph graph : byName.values()) {
+			assertEquals(0, graph.getSuccessors(ControlFlowGraph.EXIT).length);
+			for(int b = 0; b < graph.getBlockCount(); b++) {
+				int block = b;
+				for(int s : graph.getSuccessors(b)) {
+					assertTrue(Arrays.stream(graph.getPredecessors(s)).anyMatch(p -> p == block));
+				}
+			}
+		}
+
+		ControlFlowGraph loop = byName.get("loop");
+		assertTrue(successorsOf(loop, blockOf(loop, "x < 0")).stream()
+				.anyMatch(b -> successorsOf(loop, b).contains(blockOf(loop, "i++"))));
+		assertTrue(successorsOf(loop, blockOf(loop, "x == 0")).stream()
+				.anyMatch(b -> successorsOf(loop, b).contains(blockOf(loop, "return s;"))));
+
+		ControlFlowGraph guarded = byName.get("guarded");
+		int finallyBlock = blockOf(guarded, "System.out.println();");
+		assertTrue(successorsOf(guarded, blockOf(guarded, "return 1;")).contains(finallyBlock));
+		assertTrue(successorsOf(guarded, blockOf(guarded, "return 2;")).contains(finallyBlock));
+		assertTrue(successorsOf(guarded, finallyBlock).contains(ControlFlowGraph.EXIT));
+		assertTrue(guarded.getPredecessors(blockOf(guarded, "RuntimeException e")).length > 0);
+
+		ControlFlowGraph lambda = byName.get("lambda");
+		assertEquals(1, lambda.getLambdas().size());
+		ControlFlowGraph body = graphs.get(lambda.getLambdas().get(0));
+		assertTrue(blockOf(body, "int y=0;") >= 0);
+		assertEquals(-1, blockOf(lambda, "int y=0;"));
+
+		// 例外は代入の前の状態からもcatchへ進む
+		ControlFlowGraph caught = byName.get("caught");
+		int assign = blockOf(caught, "x=g();");
+		int handler = blockOf(caught, "RuntimeException e");
+		assertFalse(assign == blockOf(caught, "h2();"));
+		assertTrue(caught.getPredecessors(assign).length > 0);
+		for(int p : caught.getPredecessors(assign)) {
+			assertTrue(successorsOf(caught, p).contains(handler));
+		}
+		assertTrue(successorsOf(caught, blockOf(caught, "h2();")).contains(handler));
+	}
+
+	// 要素のソースが一致する最初のブロック
+	private static int blockOf(ControlFlowGraph graph, String source) {
+		for(int b = 0; b < graph.getBlockCount(); b++) {
+			for(int e = graph.elementStart(b); e < graph.elementEnd(b); e++) {
+				if(graph.getElement(e).toString().trim().equals(source)) {
+					return b;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static List<Integer> successorsOf(ControlFlowGraph graph, int block) {
+		return Arrays.stream(graph.getSuccessors(block)).boxed().collect(Collectors.toList());
+	}
+
+	@Test
+	public void dataflowTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/Assign.java",
+				"package p;",
+				"class Assign {",
+				"  int f(int a, boolean c) {",
+				"    int x;",
+				"    int y;",
+				"    if (c) { x = 1; y = 2; } else { x = a; y = 3; }",
+				"    int z = x + y;",
+				"    while (z > 0) { z--; }",
+				"    return z;",
+				"  }",
+				"  int g(boolean c) {",
+				"    int x;",
+				"    if (c) x = 1;",
+				"    return 0;",
+				"  }",
+				"  int h(boolean c) {",
+				"    int x;",
+				"    try { x = g(c); x++; } catch (RuntimeException e) { x = 2; }",
+				"    return x;",
+				"  }",
+				"}");
+
+		// 束縛の解決は構文木を渡したスレッドで行う
+		ControlFlowGraphs graphs = new ControlFlowGraphs();
+		Map<String, LocalFacts> byName = new ConcurrentHashMap<>();
+		SourceProcessor src = sourceProcessor(root);
+		src.processSources(new ASTVisitor() {
+			@Override
+			public boolean visit(CompilationUnit node) {
+				for(ControlFlowGraph graph : graphs.buildAll(node)) {
+					byName.put(((MethodDeclaration) graph.getOwner()).getName().getIdentifier(), LocalFacts.extract(graph));
+				}
+				return false;
+			}
+		});
+		LocalFacts f = byName.get("f");
+		LocalFacts g = byName.get("g");
+		LocalFacts h = byName.get("h");
+		assertEquals(5, f.getVariableCount());
+		assertEquals(2, g.getVariableCount());
+		assertEquals(3, h.getVariableCount());
+
+		List<DataflowResult> results = DataflowSolver.solveAll(List.of(
+				new DefiniteAssignment(f), new DefiniteAssignment(g),
+				new LiveVariables(f), new ReachingDefinitions(f), new DefiniteAssignment(h)), ForkJoinPool.commonPool());
+
+		ControlFlowGraph fGraph = f.getGraph();
+		int join = blockOf(fGraph, "int z=x + y;");
+		assertTrue(results.get(0).isIn(join, f.find("x")));
+		assertTrue(results.get(0).isIn(join, f.find("y")));
+		assertFalse(results.get(0).isIn(join, f.find("z")));
+		int ret = blockOf(g.getGraph(), "return 0;");
+		assertFalse(results.get(1).isIn(ret, g.find("x")));
+		assertTrue(results.get(1).isIn(ret, g.find("c")));
+
+		int condition = blockOf(fGraph, "z > 0");
+		assertTrue(results.get(2).isIn(condition, f.find("z")));
+		assertFalse(results.get(2).isIn(condition, f.find("y")));
+		assertTrue(results.get(2).isIn(join, f.find("y")));
+		assertFalse(results.get(2).isIn(ControlFlowGraph.ENTRY, f.find("x")));
+
+		BitSet reaching = results.get(3).getIn(join);
+		assertEquals(2, reaching.stream().filter(d -> f.getDefinedVariable(d) == f.find("x")).count());
+		assertEquals(2, reaching.stream().filter(d -> f.getDefinedVariable(d) == f.find("y")).count());
+		assertEquals(2, results.get(3).getIn(condition).stream().filter(d -> f.getDefinedVariable(d) == f.find("z")).count());
+
+		// tryの中の代入はcatchでは確定していない
+		ControlFlowGraph hGraph = h.getGraph();
+		assertFalse(results.get(4).isIn(blockOf(hGraph, "RuntimeException e"), h.find("x")));
+		assertTrue(results.get(4).isIn(blockOf(hGraph, "RuntimeException e"), h.find("c")));
+		assertTrue(results.get(4).isIn(blockOf(hGraph, "return x;"), h.find("x")));
+	}
+
+	@Test
+	public void typeHierarchyTest() throws IOException {
+		Path root = tempDirectory();
+		write(root, "p/A.java",
+				"package p;",
+				"interface I {}",
+				"interface J extends I {}",
+				"class A implements J {}");
+		Path b = write(root, "p/B.java",
+				"package p;",
+				"class B extends A {}",
+				"class C implements Runnable { public void run() {} }");
+
+		SourceProcessor src = sourceProcessor(root);
+		AnalysisCache cache = AnalysisCache.inMemory();
+		TypeHierarchy hierarchy = TypeHierarchy.of(src.processSources(TypeHierarchy.analysis(), cache));
+
+		assertTrue(hierarchy.isSubtype("p.B", "p.I"));
+		assertTrue(hierarchy.isSubtype("p.B", "p.A"));
+		assertFalse(hierarchy.isSubtype("p.A", "p.B"));
+		assertTrue(hierarchy.isSubtype("p.C", "java.lang.Runnable"));
+		assertTrue(hierarchy.isSubtype("p.J", TypeHierarchy.OBJECT));
+		assertTrue(hierarchy.isDeclared(hierarchy.find("p.C")));
+		assertFalse(hierarchy.isDeclared(hierarchy.find("java.lang.Runnable")));
+		BitSet implementors = hierarchy.getImplementors(hierarchy.find("p.I"));
+		assertEquals(3, implementors.cardinality());
+		assertTrue(implementors.get(hierarchy.find("p.B")));
+		assertTrue(hierarchy.getSupertypes(hierarchy.find("p.B")).get(hierarchy.find("p.J")));
+
+		// 1ファイルの変更
+		int id = hierarchy.find("p.B");
+		write(root, "p/B.java",
+				"package p;",
+				"class B {}",
+				"class C implements Runnable { public void run() {} }");
+		Map<String, List<TypeInfo>> results = src.processSources(TypeHierarchy.analysis(), cache);
+		String path = results.keySet().stream().filter(k -> k.endsWith("B.java")).findFirst().get();
+		TypeHierarchy updated = hierarchy.update(path, results.get(path));
+		assertEquals(id, updated.find("p.B"));
+		assertFalse(updated.isSubtype("p.B", "p.I"));
+		assertTrue(hierarchy.isSubtype("p.B", "p.I"));
+		assertEquals(2, updated.getImplementors(updated.find("p.I")).cardinality());
+
+		Path saved = tempDirectory().resolve("hierarchy.types");
+		updated.save(saved);
+		TypeHierarchy loaded = TypeHierarchy.load(saved);
+		assertEquals(updated.getTypeCount(), loaded.getTypeCount());
+		assertEquals(id, loaded.find("p.B"));
+		assertEquals(updated.getSubtypes(updated.find("p.A")), loaded.getSubtypes(loaded.find("p.A")));
+	}
+
+	@Test
+	public void jhotdraw8HeapBudgetTest() {
+		SourceProcessor src = TestSources.jhotdraw8();
+
+		CollectingSink whole = new CollectingSink();
+		src.processSources(new MethodDeclVisitor(whole));
+
+		src.setHeapBudget(64L << 20);
+		src.setParallelism(2);
+		CollectingSink batched = new CollectingSink();
+		src.processSources(() -> new MethodDeclVisitor(batched));
+
+		assertEquals(
+				whole.getRecords().stream().map(MethodRecord::toString).sorted().collect(Collectors.toList()),
+				batched.getRecords().stream().map(MethodRecord::toString).sorted().collect(Collectors.toList()));
+	}
 }
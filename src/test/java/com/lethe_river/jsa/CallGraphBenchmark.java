@@ -0,0 +1,113 @@
+package com.lethe_river.jsa;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lethe_river.jsa.callgraph.CallGraph;
+import com.lethe_river.jsa.callgraph.CallGraphBuilder;
+import com.lethe_river.jsa.callgraph.CallerIndex;
+import com.lethe_river.jsa.callgraph.DeadCodeReport;
+import com.lethe_river.jsa.callgraph.EntryPoints;
+import com.lethe_river.jsa.callgraph.Reachability;
+import com.lethe_river.jsa.sink.CollectingSink;
+import com.lethe_river.jsa.sink.MethodRecord;
+
+/**
+ * jhotdraw8を1回解析した後の，呼び出しグラフを使う解析の実行時間を計測する．
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CallGraphBenchmark {
+
+	private CallGraphBuilder builder;
+	private EntryPoints entryPoints;
+	private List<MethodRecord> methods;
+	private CallGraph graph;
+	private int[] roots;
+	private Path indexFile;
+	private CallerIndex index;
+	private String[] keys;
+	private int next = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		builder = new CallGraphBuilder();
+		entryPoints = new EntryPoints();
+		entryPoints.setPublicApi(true);
+		CollectingSink sink = new CollectingSink();
+		TestSources.jhotdraw8().processSources(() -> new CompositeVisitor(
+				builder.newVisitor(),
+				entryPoints.newVisitor(),
+				new MethodDeclVisitor(sink)));
+		methods = sink.getRecords();
+		graph = builder.build(CallGraphBuilder.Algorithm.CHA);
+		roots = entryPoints.resolve(graph);
+		indexFile = Files.createTempFile("jsa", ".callers");
+		index = CallerIndex.write(graph, indexFile);
+		keys = methods.stream().map(MethodRecord::toString).toArray(String[]::new);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(indexFile);
+	}
+
+	private String nextKey() {
+		String key = keys[next];
+		next = (next + 1) % keys.length;
+		return key;
+	}
+
+	@Benchmark
+	public CallGraph buildCha() {
+		return builder.build(CallGraphBuilder.Algorithm.CHA);
+	}
+
+	@Benchmark
+	public CallGraph buildRta() {
+		return builder.build(CallGraphBuilder.Algorithm.RTA);
+	}
+
+	@Benchmark
+	public BitSet reachable() {
+		return Reachability.reachable(graph, roots);
+	}
+
+	@Benchmark
+	public DeadCodeReport deadCode() {
+		CallGraph g = builder.build(CallGraphBuilder.Algorithm.RTA);
+		return DeadCodeReport.of(g, Reachability.reachable(g, entryPoints.resolve(g)), methods);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int[] directCallers() {
+		return index.getCallers(index.find(nextKey()));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public BitSet transitiveCallers() {
+		return index.getTransitiveCallers(index.find(nextKey()));
+	}
+}
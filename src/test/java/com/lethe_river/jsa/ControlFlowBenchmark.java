@@ -0,0 +1,86 @@
+package com.lethe_river.jsa;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lethe_river.jsa.cfg.ControlFlowGraph;
+import com.lethe_river.jsa.cfg.ControlFlowGraphs;
+import com.lethe_river.jsa.dataflow.DataflowResult;
+import com.lethe_river.jsa.dataflow.DataflowSolver;
+import com.lethe_river.jsa.dataflow.LiveVariables;
+import com.lethe_river.jsa.dataflow.LocalFacts;
+import com.lethe_river.jsa.dataflow.ReachingDefinitions;
+
+/**
+ * 長い数値計算のメソッドを含むjhotdraw8のファイルを対象に，制御フローグラフの構築時間と，
+ * メソッドごとのデータフロー解析の時間を計測する．
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ControlFlowBenchmark {
+
+	private static final List<String> FILES = List.of("Intersections.java", "BezierFit.java");
+
+	private final List<CompilationUnit> units = new CopyOnWriteArrayList<>();
+	private final List<LocalFacts> facts = new CopyOnWriteArrayList<>();
+
+	@Setup
+	public void setup() {
+		TestSources.jhotdraw8().processSources(() -> new ASTVisitor() {
+			@Override
+			public boolean visit(CompilationUnit node) {
+				String path = (String) node.getProperty(SourceProcessor.SOURCE_FILE_PROPERTY);
+				if(path != null && FILES.stream().anyMatch(path::endsWith)) {
+					units.add(node);
+					// 束縛の解決はここで済ませる
+					for(ControlFlowGraph graph : new ControlFlowGraphs().buildAll(node)) {
+						facts.add(LocalFacts.extract(graph));
+					}
+				}
+				return false;
+			}
+		});
+	}
+
+	@Benchmark
+	public List<ControlFlowGraph> buildAll() {
+		ControlFlowGraphs graphs = new ControlFlowGraphs();
+		List<ControlFlowGraph> result = null;
+		for(CompilationUnit unit : units) {
+			result = graphs.buildAll(unit);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<DataflowResult> reachingDefinitions() {
+		return DataflowSolver.solveAll(facts.stream().map(ReachingDefinitions::new).collect(Collectors.toList()),
+				ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	public List<DataflowResult> liveVariables() {
+		return DataflowSolver.solveAll(facts.stream().map(LiveVariables::new).collect(Collectors.toList()),
+				ForkJoinPool.commonPool());
+	}
+}
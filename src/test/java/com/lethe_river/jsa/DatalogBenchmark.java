@@ -0,0 +1,61 @@
+package com.lethe_river.jsa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lethe_river.jsa.datalog.Database;
+import com.lethe_river.jsa.datalog.Evaluator;
+import com.lethe_river.jsa.datalog.FactExtractor;
+import com.lethe_river.jsa.datalog.Program;
+
+/**
+ * jhotdraw8全体から事実を取り出した後の，Datalogのプログラムの評価時間を計測する．
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DatalogBenchmark {
+
+	private static final String PROGRAM = String.join("\n",
+			"supertype(T, S) :- subtype(T, S).",
+			"supertype(T, U) :- supertype(T, S), subtype(S, U).",
+			"overrides(M, N) :- method(M, T, S), supertype(T, U), method(N, U, S).",
+			"reaches(M, N) :- call(M, N).",
+			"reaches(M, O) :- reaches(M, N), call(N, O).",
+			"recursive(M) :- reaches(M, M).",
+			"pointsTo(X, T) :- alloc(X, T).",
+			"pointsTo(X, T) :- assign(X, Y), pointsTo(Y, T).",
+			"leaf(T) :- type(T), !hasSubtype(T).",
+			"hasSubtype(S) :- subtype(_, S).");
+
+	private Database facts;
+	private Program program;
+
+	@Setup
+	public void setup() {
+		facts = new Database();
+		FactExtractor extractor = new FactExtractor(facts);
+		TestSources.jhotdraw8().processSources(extractor::newVisitor);
+		program = Program.parse(PROGRAM);
+	}
+
+	@Benchmark
+	public Database evaluate() {
+		Database database = facts.copy();
+		Evaluator.evaluate(program, database);
+		return database;
+	}
+}
@@ -0,0 +1,111 @@
+package com.lethe_river.jsa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 解析済みのjhotdraw8に対してVisitorとメソッド記述子の生成の時間を計測する．
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MethodDeclVisitorBenchmark {
+
+	private List<CompilationUnit> units;
+	private List<IMethodBinding> methods;
+	private MethodDeclVisitor descriptorVisitor;
+	private int next;
+
+	@Setup
+	public void setup() {
+		units = new ArrayList<>();
+		methods = new ArrayList<>();
+		TestSources.jhotdraw8().processSources(new ASTVisitor() {
+			@Override
+			public boolean visit(CompilationUnit node) {
+				units.add(node);
+				return true;
+			}
+
+			@Override
+			public boolean visit(MethodDeclaration node) {
+				IMethodBinding method = node.resolveBinding();
+				if(method != null) {
+					methods.add(method);
+				}
+				return true;
+			}
+		});
+		descriptorVisitor = new MethodDeclVisitor(record -> {});
+		next = 0;
+	}
+
+	@Benchmark
+	public void visitorOnly(Blackhole bh) {
+		MethodDeclVisitor visitor = new MethodDeclVisitor(bh::consume);
+		for(CompilationUnit unit : units) {
+			unit.accept(visitor);
+		}
+	}
+
+	/**
+	 * メソッド1個あたりの記述子の生成．
+	 * {@code -prof gc}を付けて実行すると，gc.alloc.rate.normがメソッド1個あたりの割り当て量になる．
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String descriptor() {
+		return descriptorVisitor.getDescriptor(nextMethod());
+	}
+
+	/**
+	 * 比較用の，ストリームで組み立てる以前の実装．
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String descriptorWithStreams() {
+		IMethodBinding method = nextMethod();
+		List<String> paramTys =
+				Arrays.stream(method.getParameterTypes())
+						.map(MethodDeclVisitorBenchmark::getBinaryName)
+						.collect(Collectors.toList());
+
+		String retTy = getBinaryName(method.getReturnType());
+
+		return "(" + paramTys.stream().collect(Collectors.joining("")) + ")" + retTy;
+	}
+
+	private IMethodBinding nextMethod() {
+		IMethodBinding method = methods.get(next);
+		next = next + 1 == methods.size() ? 0 : next + 1;
+		return method;
+	}
+
+	private static String getBinaryName(ITypeBinding ty) {
+		String tyName = ty.getBinaryName();
+		return ty.isPrimitive() ? tyName : "L" + tyName + ";";
+	}
+}
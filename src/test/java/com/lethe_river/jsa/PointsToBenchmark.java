@@ -0,0 +1,42 @@
+package com.lethe_river.jsa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lethe_river.jsa.pointsto.PointsTo;
+import com.lethe_river.jsa.pointsto.PointsToAnalysis;
+
+/**
+ * jhotdraw8全体から制約を集めた後の，ポインタ解析の実行時間を計測する．
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PointsToBenchmark {
+
+	private PointsToAnalysis analysis;
+
+	@Setup
+	public void setup() {
+		analysis = new PointsToAnalysis();
+		TestSources.jhotdraw8().processSources(analysis::newVisitor);
+	}
+
+	@Benchmark
+	public PointsTo solve() {
+		return analysis.solve();
+	}
+}
@@ -0,0 +1,57 @@
+package com.lethe_river.jsa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * jhotdraw8全体を対象にSourceProcessorの実行時間を計測する．
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SourceProcessorBenchmark {
+
+	@Param({"1", "2", "4", "8"})
+	public int parallelism;
+
+	private SourceProcessor processor;
+
+	@Setup
+	public void setup() {
+		processor = TestSources.jhotdraw8();
+		processor.setParallelism(parallelism);
+	}
+
+	@Benchmark
+	public void full(Blackhole bh) {
+		processor.processSources(() -> new MethodDeclVisitor(bh::consume));
+	}
+
+	@Benchmark
+	public void parseOnly(Blackhole bh) {
+		processor.processSources(() -> new ASTVisitor() {
+			@Override
+			public boolean visit(CompilationUnit node) {
+				bh.consume(node);
+				return false;
+			}
+		});
+	}
+}
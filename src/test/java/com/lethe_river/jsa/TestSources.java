@@ -0,0 +1,29 @@
+package com.lethe_river.jsa;
+
+import java.util.List;
+
+import com.lethe_river.jsa.util.FileUtil;
+
+/**
+ * テストとベンチマークで解析するjhotdraw8のソースとライブラリ．
+ */
+final class TestSources {
+
+	private TestSources() {
+	}
+
+	static String jhotdraw8Sources() {
+		return FileUtil.getPathOnCurrentEnvironment("./jhotdraw8/src/main/java");
+	}
+
+	static String jhotdraw8Libraries() {
+		return FileUtil.getPathOnCurrentEnvironment("./jhotdraw8/lib");
+	}
+
+	/**
+	 * @return jhotdraw8のソースとライブラリを対象とする新しいSourceProcessor
+	 */
+	static SourceProcessor jhotdraw8() {
+		return new SourceProcessor(List.of(jhotdraw8Sources()), List.of(jhotdraw8Libraries()));
+	}
+}